@@ -2,8 +2,10 @@ package ride.sharing.com;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class RideSharingSystemApplication {
 
 	public static void main(String[] args) {
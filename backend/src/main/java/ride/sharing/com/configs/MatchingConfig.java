@@ -0,0 +1,39 @@
+package ride.sharing.com.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ride.sharing.com.matching.BatchedStrategy;
+import ride.sharing.com.matching.EtaStrategy;
+import ride.sharing.com.matching.IdleTimeWeightedStrategy;
+import ride.sharing.com.matching.MatchingStrategy;
+import ride.sharing.com.matching.NearestFirstStrategy;
+import ride.sharing.com.services.RoutingService;
+
+import java.time.Clock;
+
+@Configuration
+public class MatchingConfig {
+
+    @Bean
+    public MatchingStrategy nearestFirstStrategy() {
+        return new NearestFirstStrategy();
+    }
+
+    @Bean
+    public MatchingStrategy idleTimeWeightedStrategy(
+            @Value("${matching.idle-weighted.km-per-idle-minute:0.1}") double kmPerIdleMinute,
+            @Value("${matching.idle-weighted.max-idle-minutes:30}") double maxIdleMinutes) {
+        return new IdleTimeWeightedStrategy(kmPerIdleMinute, maxIdleMinutes, Clock.systemUTC());
+    }
+
+    @Bean
+    public MatchingStrategy etaStrategy(RoutingService routingService) {
+        return new EtaStrategy(routingService);
+    }
+
+    @Bean
+    public MatchingStrategy batchedStrategy(@Value("${dispatch.batch.search-radius-km:20}") double searchRadiusKm) {
+        return new BatchedStrategy(searchRadiusKm);
+    }
+}
@@ -2,10 +2,14 @@ package ride.sharing.com.configs;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.util.List;
+
 @Configuration
 public class RedisConfig {
 
@@ -17,6 +21,38 @@ public class RedisConfig {
         template.setConnectionFactory(connectionFactory);
         template.setKeySerializer(new StringRedisSerializer());
         template.setValueSerializer(new StringRedisSerializer());
+        template.setHashKeySerializer(new StringRedisSerializer());
+        template.setHashValueSerializer(new StringRedisSerializer());
         return template;
     }
+
+    @Bean
+    public RedisScript<List> evictStaleDriversScript() {
+        return RedisScript.of(new ClassPathResource("scripts/evict_stale_drivers.lua"), List.class);
+    }
+
+    @Bean
+    public RedisScript<List> writeDriverLocationsScript() {
+        return RedisScript.of(new ClassPathResource("scripts/write_driver_locations.lua"), List.class);
+    }
+
+    @Bean
+    public RedisScript<List> moveDriverCellsScript() {
+        return RedisScript.of(new ClassPathResource("scripts/move_driver_cells.lua"), List.class);
+    }
+
+    @Bean
+    public RedisScript<List> reserveNearestDriverScript() {
+        return RedisScript.of(new ClassPathResource("scripts/reserve_nearest_driver.lua"), List.class);
+    }
+
+    @Bean
+    public RedisScript<Long> reserveDriverScript() {
+        return RedisScript.of(new ClassPathResource("scripts/reserve_driver.lua"), Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> releaseDriverScript() {
+        return RedisScript.of(new ClassPathResource("scripts/release_driver.lua"), Long.class);
+    }
 }
@@ -6,9 +6,13 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ride.sharing.com.dtos.LocationRecords;
 import ride.sharing.com.dtos.LocationUpdate;
+import ride.sharing.com.exception.BadRequestException;
 import ride.sharing.com.services.LocationService;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/location")
 @RequiredArgsConstructor
@@ -32,4 +36,49 @@ public class LocationController {
         );
         return ResponseEntity.ok("Location updated");
     }
+
+    @PostMapping(value = "/update", consumes = LocationRecords.MEDIA_TYPE)
+    @Operation(
+            summary = "Update driver location (binary)",
+            description = "Same as the JSON update, with the body as one 32-byte little-endian location record"
+    )
+    public ResponseEntity<?> updateLocationRecord(
+            @Parameter(description = "Driver ID, must match the record when given") @RequestParam(required = false) Long driverId,
+            @RequestBody byte[] body
+    ) {
+        LocationRecords records = LocationRecords.decode(body);
+        if (records.size() != 1) {
+            throw new BadRequestException("Expected exactly one location record");
+        }
+        if (driverId != null && driverId != records.driverId(0)) {
+            throw new BadRequestException("Driver ID does not match the location record");
+        }
+
+        locationService.updateDriverLocation(records.driverId(0), records.latitude(0), records.longitude(0));
+        return ResponseEntity.ok("Location updated");
+    }
+
+    @PostMapping("/batch")
+    @Operation(
+            summary = "Batch update driver locations",
+            description = "Fleet gateways push buffered locations for many drivers in one request (written to Redis in a single pipelined GEOADD)"
+    )
+    public ResponseEntity<?> updateLocations(
+            @RequestBody List<LocationUpdate> locations
+    ) {
+        int updated = locationService.updateDriverLocations(locations);
+        return ResponseEntity.ok(updated + " locations updated");
+    }
+
+    @PostMapping(value = "/batch", consumes = LocationRecords.MEDIA_TYPE)
+    @Operation(
+            summary = "Batch update driver locations (binary)",
+            description = "Same as the JSON batch, with the body as a sequence of 32-byte little-endian location records"
+    )
+    public ResponseEntity<?> updateLocationRecords(
+            @RequestBody byte[] body
+    ) {
+        int updated = locationService.updateDriverLocations(LocationRecords.decode(body));
+        return ResponseEntity.ok(updated + " locations updated");
+    }
 }
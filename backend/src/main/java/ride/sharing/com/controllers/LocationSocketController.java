@@ -0,0 +1,49 @@
+package ride.sharing.com.controllers;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+import ride.sharing.com.enums.Role;
+import ride.sharing.com.exception.BadRequestException;
+import ride.sharing.com.exception.ForbiddenException;
+import ride.sharing.com.security.JwtChannelInterceptor;
+import ride.sharing.com.services.LocationService;
+
+import java.util.Map;
+
+/**
+ * Streaming counterpart of {@link LocationController}.
+ * Drivers connect to /ws once and then send compact {@code [lat, lng]} frames to /app/location.
+ */
+@Controller
+@RequiredArgsConstructor
+@Slf4j
+public class LocationSocketController {
+    private final LocationService locationService;
+
+    @MessageMapping("/location")
+    public void streamLocation(@Payload double[] frame, SimpMessageHeaderAccessor accessor) {
+        Map<String, Object> session = accessor.getSessionAttributes();
+        if (session == null || session.get(JwtChannelInterceptor.ROLE_ATTRIBUTE) != Role.DRIVER) {
+            throw new ForbiddenException("Only drivers can stream locations");
+        }
+        if (frame == null || frame.length != 2) {
+            throw new BadRequestException("Location frame must be [latitude, longitude]");
+        }
+
+        Long driverId = (Long) session.get(JwtChannelInterceptor.USER_ID_ATTRIBUTE);
+        locationService.updateDriverLocation(driverId, frame[0], frame[1]);
+    }
+
+    @MessageExceptionHandler
+    @SendToUser(value = "/queue/errors", broadcast = false)
+    public String handleException(Exception e) {
+        log.warn("Rejected location frame: {}", e.getMessage());
+        return e.getMessage();
+    }
+}
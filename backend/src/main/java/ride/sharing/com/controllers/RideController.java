@@ -6,7 +6,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ride.sharing.com.dtos.FareQuote;
 import ride.sharing.com.dtos.RideRequest;
+import ride.sharing.com.models.Location;
 import ride.sharing.com.models.Ride;
 import ride.sharing.com.services.RideService;
 
@@ -22,7 +24,7 @@ public class RideController {
     @PostMapping("/request")
     @Operation(
             summary = "Request a new ride",
-            description = "Customer requests a ride and system matches with nearest available driver"
+            description = "Customer requests a ride; it is saved as REQUESTED and matched with the nearest available driver in the background, with the result pushed to /user/queue/rides"
     )
     public ResponseEntity<Ride> requestRide(
             @RequestBody RideRequest request,
@@ -32,6 +34,15 @@ public class RideController {
         return ResponseEntity.ok(ride);
     }
 
+    @PostMapping("/quote")
+    @Operation(
+            summary = "Quote a ride",
+            description = "Price of the trip in each vehicle type that can take it, cheapest first, including any surge at the pickup"
+    )
+    public ResponseEntity<FareQuote> quoteRide(@RequestBody RideRequest request) {
+        return ResponseEntity.ok(rideService.quoteRide(request));
+    }
+
     @PutMapping("/{rideId}/accept")
     @Operation(
             summary = "Driver accepts a ride",
@@ -82,6 +93,32 @@ public class RideController {
         return ResponseEntity.ok(ride);
     }
 
+    @GetMapping("/{rideId}/trail")
+    @Operation(
+            summary = "Get ride GPS trail",
+            description = "Retrieve the driver locations recorded while the ride was in progress"
+    )
+    public ResponseEntity<List<Location>> getRideTrail(
+            @Parameter(description = "Ride ID") @PathVariable Long rideId
+    ) {
+        return ResponseEntity.ok(rideService.getRideTrail(rideId));
+    }
+
+    @GetMapping("/pending/nearby")
+    @Operation(
+            summary = "Get pending rides near a driver",
+            description = "Nearest rides still waiting for a driver that the driver's vehicle can serve, " +
+                    "around the given position or the driver's last reported location"
+    )
+    public ResponseEntity<List<Ride>> getNearbyPendingRides(
+            @Parameter(description = "Driver ID") @RequestParam Long driverId,
+            @Parameter(description = "Latitude; defaults to the driver's last location") @RequestParam(required = false) Double lat,
+            @Parameter(description = "Longitude; defaults to the driver's last location") @RequestParam(required = false) Double lng,
+            @Parameter(description = "Maximum rides to return") @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(rideService.getNearbyPendingRides(driverId, lat, lng, limit));
+    }
+
     @GetMapping("/customer/{customerId}")
     @Operation(
             summary = "Get customer's ride history",
@@ -0,0 +1,157 @@
+package ride.sharing.com.dispatch;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ride.sharing.com.enums.RideStatus;
+import ride.sharing.com.matching.VehicleRequirement;
+import ride.sharing.com.models.Ride;
+import ride.sharing.com.repositories.RideRepository;
+import ride.sharing.com.services.DriverAvailabilityService;
+import ride.sharing.com.services.MatchingService;
+import ride.sharing.com.services.UserService;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Matches each new ride off the request thread.
+ * <p>
+ * The ride is saved REQUESTED and returned to the rider straight away; once the transaction commits,
+ * matching runs on a virtual thread. By default the ride is then offered to the nearest few drivers
+ * through {@link RideOfferManager}; otherwise the nearest driver is assigned directly. The outcome is
+ * pushed to the rider as a {@link RideMatchResult}.
+ * At most {@code max-concurrency} matches run at once, so a burst of requests queues here instead of
+ * exhausting Redis and database connections.
+ */
+@Component
+@Slf4j
+@ConditionalOnExpression("${dispatch.async.enabled:true} and !${dispatch.batch.enabled:false}")
+public class AsyncRideDispatcher {
+
+    static final String RIDE_UPDATES_DESTINATION = "/queue/rides";
+
+    private final RideRepository rideRepository;
+    private final UserService userService;
+    private final MatchingService matchingService;
+    private final DriverAvailabilityService driverAvailabilityService;
+    private final TransactionTemplate transactionTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final RideOfferManager rideOffers;
+    private final boolean offersEnabled;
+
+    private final ExecutorService matchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore matchPermits;
+
+    public AsyncRideDispatcher(RideRepository rideRepository,
+                               UserService userService,
+                               MatchingService matchingService,
+                               DriverAvailabilityService driverAvailabilityService,
+                               TransactionTemplate transactionTemplate,
+                               SimpMessagingTemplate messagingTemplate,
+                               RideOfferManager rideOffers,
+                               @Value("${dispatch.async.max-concurrency:64}") int maxConcurrency,
+                               @Value("${dispatch.offers.enabled:true}") boolean offersEnabled) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Dispatch concurrency must be at least 1");
+        }
+        this.rideRepository = rideRepository;
+        this.userService = userService;
+        this.matchingService = matchingService;
+        this.driverAvailabilityService = driverAvailabilityService;
+        this.transactionTemplate = transactionTemplate;
+        this.messagingTemplate = messagingTemplate;
+        this.rideOffers = rideOffers;
+        this.offersEnabled = offersEnabled;
+        this.matchPermits = new Semaphore(maxConcurrency);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRideRequested(RideRequestedEvent event) {
+        matchExecutor.submit(() -> runBounded(event.rideId()));
+    }
+
+    private void runBounded(Long rideId) {
+        try {
+            matchPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            match(rideId);
+        } catch (Exception e) {
+            log.warn("Asynchronous matching of ride {} failed: {}", rideId, e.getMessage());
+        } finally {
+            matchPermits.release();
+        }
+    }
+
+    /**
+     * Offer the ride to the nearest drivers, or with offers disabled assign the nearest one
+     * if the ride is still waiting, and tell the rider
+     */
+    void match(Long rideId) {
+        Ride ride = rideRepository.findById(rideId).orElse(null);
+        if (ride == null || ride.getStatus() != RideStatus.REQUESTED || ride.getDriver() != null) {
+            return;
+        }
+
+        if (offersEnabled) {
+            // The rider hears from RideOfferManager once a driver accepts or the offer expires
+            if (!rideOffers.offer(ride)) {
+                log.warn("No drivers to offer ride {} to", rideId);
+                notifyRider(ride, null);
+            }
+            return;
+        }
+
+        Long driverId;
+        try {
+            driverId = matchingService.findNearestDriver(
+                    ride.getPickupLat(), ride.getPickupLng(), VehicleRequirement.of(ride));
+        } catch (Exception e) {
+            log.warn("Could not auto-assign driver to ride {}: {}", rideId, e.getMessage());
+            notifyRider(ride, null);
+            return;
+        }
+
+        Boolean assigned = transactionTemplate.execute(status -> {
+            Ride current = rideRepository.findById(rideId).orElse(null);
+            if (current == null || current.getStatus() != RideStatus.REQUESTED || current.getDriver() != null) {
+                return false;
+            }
+            current.setDriver(userService.findById(driverId));
+            rideRepository.save(current);
+            return true;
+        });
+
+        if (Boolean.TRUE.equals(assigned)) {
+            log.info("Automatically assigned driver {} to ride {}", driverId, rideId);
+            notifyRider(ride, driverId);
+        } else {
+            // Cancelled or picked up by a driver while matching ran; give the reserved driver back
+            driverAvailabilityService.release(driverId);
+        }
+    }
+
+    private void notifyRider(Ride ride, Long driverId) {
+        try {
+            messagingTemplate.convertAndSendToUser(ride.getCustomer().getEmail(), RIDE_UPDATES_DESTINATION,
+                    new RideMatchResult(ride.getId(), RideStatus.REQUESTED, driverId));
+        } catch (Exception e) {
+            log.warn("Could not notify rider of ride {}: {}", ride.getId(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        matchExecutor.shutdown();
+    }
+}
@@ -0,0 +1,237 @@
+package ride.sharing.com.dispatch;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.geo.Point;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ride.sharing.com.enums.RideStatus;
+import ride.sharing.com.geo.DriverShardRouter;
+import ride.sharing.com.matching.BatchedStrategy;
+import ride.sharing.com.matching.DriverCandidate;
+import ride.sharing.com.matching.PickupRequest;
+import ride.sharing.com.matching.VehicleRequirement;
+import ride.sharing.com.models.Ride;
+import ride.sharing.com.repositories.RideRepository;
+import ride.sharing.com.services.DriverAvailabilityService;
+import ride.sharing.com.services.LocationService;
+import ride.sharing.com.services.UserService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Matches REQUESTED rides in windows instead of one at a time.
+ * <p>
+ * Rides collected during a window are grouped by shard region. Each region assigns the available drivers
+ * near its riders with {@link BatchedStrategy}, which solves the rider x driver pickup-distance matrix as an
+ * assignment problem, so two riders never compete for the same closest driver while a slightly farther one idles.
+ * Regions are solved in parallel. Assigned drivers are reserved with the same lease as single matching;
+ * rides left unmatched are retried in later windows until {@code max-wait-seconds} has passed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "dispatch.batch.enabled", havingValue = "true")
+public class BatchDispatcher {
+
+    private final RideRepository rideRepository;
+    private final UserService userService;
+    private final LocationService locationService;
+    private final DriverAvailabilityService driverAvailabilityService;
+    private final DriverShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Queue<Long> pendingRides = new ConcurrentLinkedQueue<>();
+    private final ExecutorService regionExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${dispatch.batch.search-radius-km:20}")
+    private double searchRadiusKm;
+
+    @Value("${dispatch.batch.candidates-per-ride:5}")
+    private int candidatesPerRide;
+
+    @Value("${dispatch.batch.max-wait-seconds:30}")
+    private long maxWaitSeconds;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRideRequested(RideRequestedEvent event) {
+        pendingRides.add(event.rideId());
+    }
+
+    /**
+     * Pick up rides that were waiting for a driver when the application stopped
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverPendingRides() {
+        try {
+            for (Ride ride : rideRepository.findByStatus(RideStatus.REQUESTED)) {
+                if (ride.getDriver() == null && !isExpired(ride)) {
+                    pendingRides.add(ride.getId());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Could not load pending rides for batch dispatch: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${dispatch.batch.window-ms:1500}",
+            fixedDelayString = "${dispatch.batch.window-ms:1500}"
+    )
+    public void dispatch() {
+        List<Long> rideIds = new ArrayList<>();
+        for (Long rideId = pendingRides.poll(); rideId != null; rideId = pendingRides.poll()) {
+            rideIds.add(rideId);
+        }
+        if (rideIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<String, List<Ride>> ridesByRegion = new LinkedHashMap<>();
+            for (Ride ride : rideRepository.findAllById(rideIds)) {
+                if (ride.getStatus() == RideStatus.REQUESTED && ride.getDriver() == null) {
+                    ridesByRegion.computeIfAbsent(shardRouter.cellOf(ride.getPickupLat(), ride.getPickupLng()),
+                            cell -> new ArrayList<>()).add(ride);
+                }
+            }
+
+            Map<List<Ride>, Future<List<Ride>>> results = new LinkedHashMap<>();
+            for (List<Ride> region : ridesByRegion.values()) {
+                results.put(region, regionExecutor.submit(() -> dispatchRegion(region)));
+            }
+
+            int unmatched = 0;
+            for (Map.Entry<List<Ride>, Future<List<Ride>>> result : results.entrySet()) {
+                List<Ride> retry;
+                try {
+                    retry = result.getValue().get();
+                } catch (Exception e) {
+                    log.warn("Batch dispatch of {} rides failed: {}", result.getKey().size(), e.getMessage());
+                    retry = result.getKey();
+                }
+                for (Ride ride : retry) {
+                    if (!isExpired(ride)) {
+                        pendingRides.add(ride.getId());
+                    }
+                }
+                unmatched += retry.size();
+            }
+
+            log.info("Dispatched window of {} rides over {} regions, {} left unmatched",
+                    rideIds.size(), ridesByRegion.size(), unmatched);
+        } catch (Exception e) {
+            log.warn("Batch dispatch failed, retrying {} rides next window: {}", rideIds.size(), e.getMessage());
+            pendingRides.addAll(rideIds);
+        }
+    }
+
+    /**
+     * Solve one region and reserve the assigned drivers. Rides needing different vehicles are solved
+     * separately, each against the drivers eligible for it.
+     *
+     * @return rides that did not get a driver
+     */
+    List<Ride> dispatchRegion(List<Ride> rides) {
+        Map<VehicleRequirement, List<Ride>> ridesByRequirement = new LinkedHashMap<>();
+        for (Ride ride : rides) {
+            ridesByRequirement.computeIfAbsent(VehicleRequirement.of(ride), r -> new ArrayList<>()).add(ride);
+        }
+
+        List<Ride> unmatched = new ArrayList<>();
+        ridesByRequirement.forEach((requirement, group) -> unmatched.addAll(dispatchGroup(group, requirement)));
+        return unmatched;
+    }
+
+    /**
+     * Each rider contributes its nearest available drivers, checked for availability while the index is walked,
+     * so busy drivers neither fill the candidate list nor cost a position lookup.
+     */
+    private List<Ride> dispatchGroup(List<Ride> rides, VehicleRequirement requirement) {
+        Set<Long> candidates = new LinkedHashSet<>();
+        for (Ride ride : rides) {
+            candidates.addAll(locationService.findNearestDrivers(ride.getPickupLat(), ride.getPickupLng(),
+                    candidatesPerRide, searchRadiusKm, requirement, driverAvailabilityService::filterAvailable));
+        }
+
+        Map<Long, Point> positions = locationService.getDriverPositions(candidates);
+        List<Long> drivers = new ArrayList<>(positions.keySet());
+        if (drivers.isEmpty()) {
+            return rides;
+        }
+
+        List<PickupRequest> requests = rides.stream()
+                .map(ride -> new PickupRequest(ride.getId(), ride.getPickupLat(), ride.getPickupLng()))
+                .toList();
+        List<DriverCandidate> driverCandidates = drivers.stream()
+                .map(driverId -> new DriverCandidate(driverId, positions.get(driverId).getY(), positions.get(driverId).getX(), 0, 0))
+                .toList();
+
+        int[] assignment = new BatchedStrategy(searchRadiusKm).assign(requests, driverCandidates);
+        List<Ride> unmatched = new ArrayList<>();
+        for (int i = 0; i < rides.size(); i++) {
+            int j = assignment[i];
+            if (j < 0 || !reserveAndAssign(rides.get(i), drivers.get(j))) {
+                unmatched.add(rides.get(i));
+            }
+        }
+        return unmatched;
+    }
+
+    private boolean reserveAndAssign(Ride ride, Long driverId) {
+        if (!driverAvailabilityService.reserve(driverId)) {
+            log.debug("Driver {} was taken before ride {} could reserve it", driverId, ride.getId());
+            return false;
+        }
+
+        try {
+            Boolean assigned = transactionTemplate.execute(status -> {
+                Ride current = rideRepository.findById(ride.getId()).orElse(null);
+                if (current == null || current.getStatus() != RideStatus.REQUESTED || current.getDriver() != null) {
+                    return false;
+                }
+                current.setDriver(userService.findById(driverId));
+                rideRepository.save(current);
+                return true;
+            });
+            if (Boolean.TRUE.equals(assigned)) {
+                log.info("Batch assigned driver {} to ride {}", driverId, ride.getId());
+                return true;
+            }
+        } catch (Exception e) {
+            log.warn("Could not assign driver {} to ride {}: {}", driverId, ride.getId(), e.getMessage());
+        }
+
+        // Ride was cancelled or matched elsewhere; give the driver back
+        driverAvailabilityService.release(driverId);
+        return false;
+    }
+
+    private boolean isExpired(Ride ride) {
+        return ride.getRequestedAt() != null
+                && ride.getRequestedAt().isBefore(LocalDateTime.now().minusSeconds(maxWaitSeconds));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        regionExecutor.shutdown();
+    }
+}
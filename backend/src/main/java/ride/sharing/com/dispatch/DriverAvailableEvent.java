@@ -0,0 +1,7 @@
+package ride.sharing.com.dispatch;
+
+/**
+ * Published when a driver's status changes to AVAILABLE, so waiting rides can be offered to them
+ */
+public record DriverAvailableEvent(Long driverId) {
+}
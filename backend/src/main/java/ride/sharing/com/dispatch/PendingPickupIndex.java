@@ -0,0 +1,162 @@
+package ride.sharing.com.dispatch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ride.sharing.com.enums.RideStatus;
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.geo.GeoGridIndex;
+import ride.sharing.com.geo.GeoUtils;
+import ride.sharing.com.matching.VehicleRequirement;
+import ride.sharing.com.models.Ride;
+import ride.sharing.com.repositories.RideRepository;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * Pickup points of the rides still waiting for a driver, keyed by ride id, so a driver who becomes
+ * available can find the nearest waiting rides without querying the rides table.
+ * <p>
+ * Rides are added once the transaction saving them without a driver commits, and removed once accepted or
+ * cancelled. Entries can go stale when a ride is assigned some other way; readers check the ride before
+ * using it and drop it then.
+ * <p>
+ * The index only holds rides requested on this instance. With several instances, turn it off with
+ * {@code dispatch.pending.index-enabled}; lookups then read the waiting rides around the point from the
+ * rides table instead.
+ */
+@Component
+@Slf4j
+public class PendingPickupIndex extends GeoGridIndex {
+
+    private final RideRepository rideRepository;
+    private final boolean indexEnabled;
+    private final Map<Long, VehicleRequirement> requirements = new ConcurrentHashMap<>();
+
+    public PendingPickupIndex(RideRepository rideRepository,
+                              @Value("${dispatch.pending.cell-size-deg:0.02}") double cellSizeDeg,
+                              @Value("${dispatch.pending.index-enabled:true}") boolean indexEnabled) {
+        super(cellSizeDeg);
+        this.rideRepository = rideRepository;
+        this.indexEnabled = indexEnabled;
+    }
+
+    /**
+     * Index a ride saved without a driver, once the surrounding transaction commits
+     */
+    public void add(Ride ride) {
+        if (!indexEnabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    index(ride);
+                }
+            });
+        } else {
+            index(ride);
+        }
+    }
+
+    private void index(Ride ride) {
+        requirements.put(ride.getId(), VehicleRequirement.of(ride));
+        put(ride.getId(), ride.getPickupLat(), ride.getPickupLng());
+    }
+
+    /**
+     * @return false when the index is known to hold no waiting ride; always true with the index off
+     */
+    public boolean mayHaveWaiting() {
+        return !indexEnabled || size() > 0;
+    }
+
+    /**
+     * Waiting rides nearest the point, nearest first, that a vehicle of the given type may serve
+     */
+    public List<Long> nearestWaiting(double lat, double lng, int limit, double maxDistanceKm,
+                                     VehicleType vehicleType, LongPredicate filter) {
+        if (!indexEnabled) {
+            return nearestWaitingFromDatabase(lat, lng, limit, maxDistanceKm, vehicleType, filter);
+        }
+        return nearest(lat, lng, limit, maxDistanceKm, rideId -> {
+            VehicleRequirement requirement = requirements.get(rideId);
+            return requirement != null && requirement.accepts(vehicleType) && filter.test(rideId);
+        });
+    }
+
+    /**
+     * Same lookup on the rides table: waiting rides in the bounding box of the search circle, then
+     * filtered and ordered by distance
+     */
+    private List<Long> nearestWaitingFromDatabase(double lat, double lng, int limit, double maxDistanceKm,
+                                                  VehicleType vehicleType, LongPredicate filter) {
+        double latDelta = maxDistanceKm / GeoUtils.KM_PER_DEGREE;
+        double cosLat = Math.cos(Math.toRadians(Math.min(89.0, Math.abs(lat) + latDelta)));
+        double lngDelta = maxDistanceKm / (GeoUtils.KM_PER_DEGREE * cosLat);
+        List<Ride> waiting = rideRepository.findByStatusAndDriverIsNullAndPickupLatBetweenAndPickupLngBetween(
+                RideStatus.REQUESTED, lat - latDelta, lat + latDelta, lng - lngDelta, lng + lngDelta);
+
+        return waiting.stream()
+                .filter(ride -> VehicleRequirement.of(ride).accepts(vehicleType) && filter.test(ride.getId()))
+                .map(ride -> Map.entry(ride.getId(),
+                        GeoUtils.haversineKm(lat, lng, ride.getPickupLat(), ride.getPickupLng())))
+                .filter(entry -> entry.getValue() <= maxDistanceKm)
+                .sorted(Map.Entry.comparingByValue(Comparator.naturalOrder()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    @Override
+    public boolean remove(long rideId) {
+        requirements.remove(rideId);
+        return super.remove(rideId);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        requirements.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRideAccepted(RideAcceptedEvent event) {
+        remove(event.rideId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRideCancelled(RideCancelledEvent event) {
+        remove(event.rideId());
+    }
+
+    /**
+     * Load the rides left waiting when the application last stopped
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPending() {
+        if (!indexEnabled) {
+            return;
+        }
+        try {
+            for (Ride ride : rideRepository.findByStatus(RideStatus.REQUESTED)) {
+                if (ride.getDriver() == null && ride.getPickupLat() != null && ride.getPickupLng() != null) {
+                    index(ride);
+                }
+            }
+            log.info("Loaded {} waiting rides into the pending pickup index", size());
+        } catch (Exception e) {
+            log.warn("Could not load waiting rides: {}", e.getMessage());
+        }
+    }
+}
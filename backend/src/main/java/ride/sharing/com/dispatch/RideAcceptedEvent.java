@@ -0,0 +1,7 @@
+package ride.sharing.com.dispatch;
+
+/**
+ * Published when a driver has accepted a REQUESTED ride
+ */
+public record RideAcceptedEvent(Long rideId, Long driverId) {
+}
@@ -0,0 +1,7 @@
+package ride.sharing.com.dispatch;
+
+/**
+ * Published when a ride has been cancelled
+ */
+public record RideCancelledEvent(Long rideId) {
+}
@@ -0,0 +1,11 @@
+package ride.sharing.com.dispatch;
+
+import ride.sharing.com.enums.RideStatus;
+
+/**
+ * Pushed to the rider on {@code /user/queue/rides} once asynchronous matching of their ride has finished.
+ * {@code driverId} is null when no driver could be assigned; the ride then stays REQUESTED for drivers
+ * to pick up from the pending list.
+ */
+public record RideMatchResult(Long rideId, RideStatus status, Long driverId) {
+}
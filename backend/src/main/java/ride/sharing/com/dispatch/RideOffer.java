@@ -0,0 +1,14 @@
+package ride.sharing.com.dispatch;
+
+/**
+ * Sent to each driver on {@code /user/queue/offers} when a ride is offered to them.
+ * The first of the offered drivers to accept the ride gets it.
+ */
+public record RideOffer(Long rideId,
+                        Double pickupLat,
+                        Double pickupLng,
+                        String pickupAddress,
+                        String dropoffAddress,
+                        Double fare,
+                        long expiresAt) {
+}
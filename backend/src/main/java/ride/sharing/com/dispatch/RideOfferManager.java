@@ -0,0 +1,239 @@
+package ride.sharing.com.dispatch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ride.sharing.com.enums.RideStatus;
+import ride.sharing.com.matching.VehicleRequirement;
+import ride.sharing.com.models.Ride;
+import ride.sharing.com.models.User;
+import ride.sharing.com.repositories.RideRepository;
+import ride.sharing.com.repositories.UserRepository;
+import ride.sharing.com.services.DriverAvailabilityService;
+import ride.sharing.com.services.MatchingService;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Offers a new ride to the nearest few available drivers at once; the first of them to accept gets it.
+ * <p>
+ * Acceptance itself is settled by the conditional update in {@code acceptRide}, so this class only keeps
+ * track of who was offered what: once a ride is accepted, cancelled or its offer times out, the other
+ * drivers are told the offer is gone. Offered drivers are reserved for as long as the offer is open, so
+ * matching does not hand them another ride meanwhile, and released when it is withdrawn. Offer timeouts sit on a {@link TimingWheel}, so tens of thousands
+ * of outstanding offers cost one map entry and one wheel slot each.
+ */
+@Component
+@Slf4j
+public class RideOfferManager {
+
+    static final String OFFERS_DESTINATION = "/queue/offers";
+    static final String REVOKED_DESTINATION = "/queue/offers/revoked";
+
+    private final MatchingService matchingService;
+    private final UserRepository userRepository;
+    private final RideRepository rideRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final DriverAvailabilityService driverAvailabilityService;
+    private final int fanOut;
+    private final long timeoutSeconds;
+    private final long timeoutMillis;
+
+    private final Map<Long, OutstandingOffer> outstanding = new ConcurrentHashMap<>();
+    private final TimingWheel<Long> timeouts;
+
+    public RideOfferManager(MatchingService matchingService,
+                            UserRepository userRepository,
+                            RideRepository rideRepository,
+                            SimpMessagingTemplate messagingTemplate,
+                            DriverAvailabilityService driverAvailabilityService,
+                            @Value("${dispatch.offers.fan-out:3}") int fanOut,
+                            @Value("${dispatch.offers.timeout-seconds:15}") long timeoutSeconds,
+                            @Value("${dispatch.offers.tick-ms:250}") long tickMillis) {
+        if (fanOut < 1 || timeoutSeconds < 1) {
+            throw new IllegalArgumentException("Offers need a fan-out and timeout of at least 1");
+        }
+        this.matchingService = matchingService;
+        this.userRepository = userRepository;
+        this.rideRepository = rideRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.driverAvailabilityService = driverAvailabilityService;
+        this.fanOut = fanOut;
+        this.timeoutSeconds = timeoutSeconds;
+        this.timeoutMillis = timeoutSeconds * 1000;
+        // One revolution covers the offer timeout, so every deadline expires on its first pass
+        int wheelSize = (int) Math.min(Integer.MAX_VALUE, Math.ceilDiv(timeoutMillis, tickMillis) + 1);
+        this.timeouts = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    /**
+     * Send the ride to the nearest available drivers.
+     *
+     * @return false when there was no driver to offer it to
+     */
+    public boolean offer(Ride ride) {
+        if (outstanding.containsKey(ride.getId())) {
+            log.debug("Ride {} already has an outstanding offer", ride.getId());
+            return true;
+        }
+        List<Long> driverIds = reserve(matchingService.findTopNearestDrivers(
+                ride.getPickupLat(), ride.getPickupLng(), fanOut, VehicleRequirement.of(ride)));
+        if (driverIds.isEmpty()) {
+            return false;
+        }
+
+        if (!offer(ride, driverIds)) {
+            log.debug("Ride {} already has an outstanding offer", ride.getId());
+        }
+        return true;
+    }
+
+    /**
+     * Send the ride to one driver, e.g. one who just became available next to it.
+     *
+     * @return false when the ride already has an outstanding offer or the driver could not be reserved
+     */
+    public boolean offerTo(Ride ride, Long driverId) {
+        if (outstanding.containsKey(ride.getId())) {
+            return false;
+        }
+        List<Long> driverIds = reserve(List.of(driverId));
+        return !driverIds.isEmpty() && offer(ride, driverIds);
+    }
+
+    /**
+     * Reserve the drivers for the offer timeout
+     *
+     * @return the drivers reserved, leaving out those taken meanwhile
+     */
+    private List<Long> reserve(List<Long> driverIds) {
+        List<Long> reserved = new ArrayList<>(driverIds.size());
+        for (Long driverId : driverIds) {
+            if (driverAvailabilityService.reserve(driverId, timeoutSeconds)) {
+                reserved.add(driverId);
+            } else {
+                log.debug("Driver {} was taken before it could be offered a ride", driverId);
+            }
+        }
+        return reserved;
+    }
+
+    /**
+     * @param driverIds drivers already reserved for the offer; they are released again if it is not made
+     */
+    private boolean offer(Ride ride, List<Long> driverIds) {
+        Map<Long, String> drivers = new LinkedHashMap<>();
+        for (User driver : userRepository.findAllById(driverIds)) {
+            drivers.put(driver.getId(), driver.getEmail());
+        }
+        for (Long driverId : driverIds) {
+            if (!drivers.containsKey(driverId)) {
+                driverAvailabilityService.release(driverId);
+            }
+        }
+        if (drivers.isEmpty()) {
+            return false;
+        }
+        long expiresAt = System.currentTimeMillis() + timeoutMillis;
+        OutstandingOffer offer = new OutstandingOffer(ride.getId(), ride.getCustomer().getEmail(), drivers, expiresAt);
+        if (outstanding.putIfAbsent(ride.getId(), offer) != null) {
+            drivers.keySet().forEach(driverAvailabilityService::release);
+            return false;
+        }
+        timeouts.schedule(ride.getId(), expiresAt);
+
+        RideOffer message = new RideOffer(ride.getId(), ride.getPickupLat(), ride.getPickupLng(),
+                ride.getPickupAddress(), ride.getDropoffAddress(), ride.getFare(), expiresAt);
+        drivers.values().forEach(email -> send(email, OFFERS_DESTINATION, message));
+        log.info("Offered ride {} to {} drivers", ride.getId(), drivers.size());
+        return true;
+    }
+
+    public boolean hasOutstandingOffer(Long rideId) {
+        return outstanding.containsKey(rideId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRideAccepted(RideAcceptedEvent event) {
+        OutstandingOffer offer = outstanding.remove(event.rideId());
+        if (offer == null) {
+            return;
+        }
+        revoke(offer, event.driverId(), RideOfferRevoked.Reason.ACCEPTED_BY_OTHER);
+        send(offer.riderEmail(), AsyncRideDispatcher.RIDE_UPDATES_DESTINATION,
+                new RideMatchResult(event.rideId(), RideStatus.ACCEPTED, event.driverId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRideCancelled(RideCancelledEvent event) {
+        OutstandingOffer offer = outstanding.remove(event.rideId());
+        if (offer != null) {
+            revoke(offer, null, RideOfferRevoked.Reason.CANCELLED);
+        }
+    }
+
+    /**
+     * Withdraw offers nobody took in time. The ride stays REQUESTED on the pending list.
+     */
+    @Scheduled(fixedDelayString = "${dispatch.offers.tick-ms:250}")
+    public void expireOffers() {
+        expireOffers(System.currentTimeMillis());
+    }
+
+    void expireOffers(long now) {
+        for (Long rideId : timeouts.advance(now)) {
+            OutstandingOffer offer = outstanding.get(rideId);
+            // Accepted or cancelled offers were already removed; skip those replaced by a newer offer
+            if (offer == null || offer.expiresAt() > now || !outstanding.remove(rideId, offer)) {
+                continue;
+            }
+            revoke(offer, null, RideOfferRevoked.Reason.EXPIRED);
+            // Offers are tracked per instance, so an accept or cancel handled elsewhere never reached us
+            if (isStillWaiting(rideId)) {
+                send(offer.riderEmail(), AsyncRideDispatcher.RIDE_UPDATES_DESTINATION,
+                        new RideMatchResult(rideId, RideStatus.REQUESTED, null));
+                log.info("Offer for ride {} expired without a driver", rideId);
+            }
+        }
+    }
+
+    private boolean isStillWaiting(Long rideId) {
+        try {
+            return rideRepository.findStatusById(rideId).orElse(null) == RideStatus.REQUESTED;
+        } catch (Exception e) {
+            log.warn("Could not check ride {} before telling the rider its offer expired: {}", rideId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Tell every offered driver but {@code keptDriverId} the offer is gone and give their reservations back
+     */
+    private void revoke(OutstandingOffer offer, Long keptDriverId, RideOfferRevoked.Reason reason) {
+        RideOfferRevoked message = new RideOfferRevoked(offer.rideId(), reason);
+        offer.drivers().forEach((driverId, email) -> {
+            if (!driverId.equals(keptDriverId)) {
+                driverAvailabilityService.release(driverId);
+                send(email, REVOKED_DESTINATION, message);
+            }
+        });
+    }
+
+    private void send(String user, String destination, Object message) {
+        try {
+            messagingTemplate.convertAndSendToUser(user, destination, message);
+        } catch (Exception e) {
+            log.warn("Could not send {} to {}: {}", destination, user, e.getMessage());
+        }
+    }
+
+    private record OutstandingOffer(Long rideId, String riderEmail, Map<Long, String> drivers, long expiresAt) {
+    }
+}
@@ -0,0 +1,13 @@
+package ride.sharing.com.dispatch;
+
+/**
+ * Sent on {@code /user/queue/offers/revoked} to the drivers whose offer for a ride no longer stands
+ */
+public record RideOfferRevoked(Long rideId, Reason reason) {
+
+    public enum Reason {
+        ACCEPTED_BY_OTHER,
+        EXPIRED,
+        CANCELLED
+    }
+}
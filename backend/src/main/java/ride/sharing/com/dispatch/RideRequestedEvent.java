@@ -0,0 +1,7 @@
+package ride.sharing.com.dispatch;
+
+/**
+ * Published when a ride is saved without a driver and should be matched by the batch or asynchronous dispatcher
+ */
+public record RideRequestedEvent(Long rideId) {
+}
@@ -0,0 +1,179 @@
+package ride.sharing.com.dispatch;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.geo.Point;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ride.sharing.com.enums.RideStatus;
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.geo.DriverVehicleRegistry;
+import ride.sharing.com.models.Ride;
+import ride.sharing.com.repositories.RideRepository;
+import ride.sharing.com.services.DriverAvailabilityService;
+import ride.sharing.com.services.LocationService;
+import ride.sharing.com.services.UserService;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Matches from the supply side: when a driver becomes available, the nearest rides still waiting in
+ * {@link PendingPickupIndex} are tried in order and the first one the driver can take is offered to them
+ * (or, with offers disabled, assigned to them). Rides that found no driver when requested are served as
+ * soon as one frees up nearby, without polling.
+ * At most {@code max-concurrency} drivers are matched at once, so a shift change that frees many drivers
+ * together queues here instead of exhausting Redis and database connections.
+ */
+@Component
+@Slf4j
+public class SupplyTriggeredDispatcher {
+
+    // Waiting rides looked at per available driver; the rest are usually already on offer or stale
+    private static final int CANDIDATE_RIDES = 5;
+
+    private final PendingPickupIndex pendingPickups;
+    private final RideRepository rideRepository;
+    private final LocationService locationService;
+    private final DriverVehicleRegistry vehicleRegistry;
+    private final RideOfferManager rideOffers;
+    private final DriverAvailabilityService driverAvailabilityService;
+    private final UserService userService;
+    private final TransactionTemplate transactionTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final double searchRadiusKm;
+    private final boolean offersEnabled;
+
+    private final ExecutorService matchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore matchPermits;
+
+    public SupplyTriggeredDispatcher(PendingPickupIndex pendingPickups,
+                                     RideRepository rideRepository,
+                                     LocationService locationService,
+                                     DriverVehicleRegistry vehicleRegistry,
+                                     RideOfferManager rideOffers,
+                                     DriverAvailabilityService driverAvailabilityService,
+                                     UserService userService,
+                                     TransactionTemplate transactionTemplate,
+                                     SimpMessagingTemplate messagingTemplate,
+                                     @Value("${matching.search-radius-km:20}") double searchRadiusKm,
+                                     @Value("${dispatch.pending.max-concurrency:32}") int maxConcurrency,
+                                     @Value("${dispatch.offers.enabled:true}") boolean offersEnabled) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Dispatch concurrency must be at least 1");
+        }
+        this.pendingPickups = pendingPickups;
+        this.rideRepository = rideRepository;
+        this.locationService = locationService;
+        this.vehicleRegistry = vehicleRegistry;
+        this.rideOffers = rideOffers;
+        this.driverAvailabilityService = driverAvailabilityService;
+        this.userService = userService;
+        this.transactionTemplate = transactionTemplate;
+        this.messagingTemplate = messagingTemplate;
+        this.searchRadiusKm = searchRadiusKm;
+        this.offersEnabled = offersEnabled;
+        this.matchPermits = new Semaphore(maxConcurrency);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDriverAvailable(DriverAvailableEvent event) {
+        if (!pendingPickups.mayHaveWaiting()) {
+            return;
+        }
+        matchExecutor.submit(() -> runBounded(event.driverId()));
+    }
+
+    private void runBounded(Long driverId) {
+        try {
+            matchPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            match(driverId);
+        } catch (Exception e) {
+            log.warn("Supply-triggered matching for driver {} failed: {}", driverId, e.getMessage());
+        } finally {
+            matchPermits.release();
+        }
+    }
+
+    /**
+     * Offer the nearest waiting ride the driver's vehicle can serve, or assign it with offers disabled
+     *
+     * @return the ride offered or assigned, or null when there was none
+     */
+    Long match(Long driverId) {
+        Point position = locationService.getDriverPositions(List.of(driverId)).get(driverId);
+        if (position == null) {
+            log.debug("Driver {} has no known position, skipping waiting rides", driverId);
+            return null;
+        }
+        VehicleType vehicleType = vehicleRegistry.vehicleType(driverId);
+
+        List<Long> rideIds = pendingPickups.nearestWaiting(position.getY(), position.getX(), CANDIDATE_RIDES,
+                searchRadiusKm, vehicleType, rideId -> !rideOffers.hasOutstandingOffer(rideId));
+        for (Long rideId : rideIds) {
+            Ride ride = rideRepository.findById(rideId).orElse(null);
+            if (ride == null || ride.getStatus() != RideStatus.REQUESTED || ride.getDriver() != null) {
+                pendingPickups.remove(rideId);
+                continue;
+            }
+
+            if (offersEnabled) {
+                if (rideOffers.offerTo(ride, driverId)) {
+                    log.info("Offered waiting ride {} to newly available driver {}", rideId, driverId);
+                    return rideId;
+                }
+            } else if (assign(ride, driverId)) {
+                return rideId;
+            }
+        }
+        return null;
+    }
+
+    private boolean assign(Ride ride, Long driverId) {
+        if (!driverAvailabilityService.reserve(driverId)) {
+            return false;
+        }
+
+        Boolean assigned = transactionTemplate.execute(status -> {
+            Ride current = rideRepository.findById(ride.getId()).orElse(null);
+            if (current == null || current.getStatus() != RideStatus.REQUESTED || current.getDriver() != null) {
+                return false;
+            }
+            current.setDriver(userService.findById(driverId));
+            rideRepository.save(current);
+            return true;
+        });
+
+        if (!Boolean.TRUE.equals(assigned)) {
+            driverAvailabilityService.release(driverId);
+            pendingPickups.remove(ride.getId());
+            return false;
+        }
+
+        pendingPickups.remove(ride.getId());
+        log.info("Assigned waiting ride {} to newly available driver {}", ride.getId(), driverId);
+        try {
+            messagingTemplate.convertAndSendToUser(ride.getCustomer().getEmail(),
+                    AsyncRideDispatcher.RIDE_UPDATES_DESTINATION,
+                    new RideMatchResult(ride.getId(), RideStatus.REQUESTED, driverId));
+        } catch (Exception e) {
+            log.warn("Could not notify rider of ride {}: {}", ride.getId(), e.getMessage());
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        matchExecutor.shutdown();
+    }
+}
@@ -0,0 +1,81 @@
+package ride.sharing.com.dispatch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hashed timing wheel for large numbers of coarse deadlines.
+ * <p>
+ * Deadlines are rounded up to a tick of {@code tickMillis} and dropped into one of {@code size} buckets,
+ * so scheduling is O(1) however many are outstanding, and {@link #advance(long)} only looks at the
+ * buckets for the ticks that have passed. Deadlines more than one revolution away share a bucket with
+ * nearer ones and stay put until their own tick comes round.
+ * <p>
+ * There is no cancel: callers check whether an expired item is still live, which keeps the
+ * wheel free of per-item handles.
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final ArrayDeque<Deadline<T>>[] buckets;
+    private long currentTick;
+    private int pending;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int size, long startMillis) {
+        if (tickMillis < 1 || size < 1) {
+            throw new IllegalArgumentException("Timing wheel needs a positive tick and size");
+        }
+        this.tickMillis = tickMillis;
+        this.buckets = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    public synchronized void schedule(T item, long deadlineMillis) {
+        // Never land on a tick that has already been processed
+        long tick = Math.max(Math.ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+        buckets[bucketOf(tick)].add(new Deadline<>(item, tick));
+        pending++;
+    }
+
+    /**
+     * Move the wheel to {@code nowMillis}.
+     *
+     * @return items whose deadline has passed, earliest tick first
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        long target = nowMillis / tickMillis;
+        List<T> expired = new ArrayList<>();
+        // After a long pause one revolution covers every bucket
+        long from = Math.max(currentTick + 1, target - buckets.length + 1);
+        for (long tick = from; tick <= target; tick++) {
+            Iterator<Deadline<T>> bucket = buckets[bucketOf(tick)].iterator();
+            while (bucket.hasNext()) {
+                Deadline<T> deadline = bucket.next();
+                if (deadline.tick() <= target) {
+                    bucket.remove();
+                    expired.add(deadline.item());
+                }
+            }
+        }
+        currentTick = Math.max(currentTick, target);
+        pending -= expired.size();
+        return expired;
+    }
+
+    public synchronized int size() {
+        return pending;
+    }
+
+    private int bucketOf(long tick) {
+        return (int) Math.floorMod(tick, (long) buckets.length);
+    }
+
+    private record Deadline<T>(T item, long tick) {
+    }
+}
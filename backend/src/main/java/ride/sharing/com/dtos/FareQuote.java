@@ -0,0 +1,17 @@
+package ride.sharing.com.dtos;
+
+import ride.sharing.com.enums.VehicleType;
+
+import java.util.List;
+
+/**
+ * Prices for a trip before it is requested, one per vehicle type that can take it, cheapest first
+ *
+ * @param distanceKm      estimated trip distance
+ * @param surgeMultiplier surge applied to every price, 1.0 when there is none
+ */
+public record FareQuote(double distanceKm, double surgeMultiplier, List<Price> prices) {
+
+    public record Price(VehicleType vehicleType, int maxPassengers, double fare) {
+    }
+}
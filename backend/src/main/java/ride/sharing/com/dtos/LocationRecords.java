@@ -0,0 +1,72 @@
+package ride.sharing.com.dtos;
+
+import ride.sharing.com.exception.BadRequestException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Compact binary alternative to {@link LocationUpdate} for high-rate location pings.
+ * <p>
+ * The body is a sequence of fixed-width little-endian records of {@value #RECORD_SIZE} bytes:
+ * <pre>
+ *   int64   driverId
+ *   float64 latitude
+ *   float64 longitude
+ *   int64   timestamp (epoch millis, 0 if unknown)
+ * </pre>
+ * Records are decoded straight into primitive arrays, with no per-field objects.
+ */
+public final class LocationRecords {
+
+    public static final String MEDIA_TYPE = "application/vnd.ride.location-records";
+    public static final int RECORD_SIZE = 32;
+
+    private final long[] driverIds;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final long[] timestamps;
+
+    private LocationRecords(int size) {
+        this.driverIds = new long[size];
+        this.latitudes = new double[size];
+        this.longitudes = new double[size];
+        this.timestamps = new long[size];
+    }
+
+    public static LocationRecords decode(byte[] body) {
+        if (body == null || body.length % RECORD_SIZE != 0) {
+            throw new BadRequestException("Location records must be a multiple of " + RECORD_SIZE + " bytes");
+        }
+
+        LocationRecords records = new LocationRecords(body.length / RECORD_SIZE);
+        ByteBuffer buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < records.size(); i++) {
+            records.driverIds[i] = buffer.getLong();
+            records.latitudes[i] = buffer.getDouble();
+            records.longitudes[i] = buffer.getDouble();
+            records.timestamps[i] = buffer.getLong();
+        }
+        return records;
+    }
+
+    public int size() {
+        return driverIds.length;
+    }
+
+    public long driverId(int i) {
+        return driverIds[i];
+    }
+
+    public double latitude(int i) {
+        return latitudes[i];
+    }
+
+    public double longitude(int i) {
+        return longitudes[i];
+    }
+
+    public long timestamp(int i) {
+        return timestamps[i];
+    }
+}
@@ -4,6 +4,8 @@ import lombok.Data;
 
 @Data
 public class LocationUpdate {
+    // Only read by the batch endpoint; single updates take the driver from the request
+    private Long driverId;
     private Double latitude;
     private Double longitude;
 }
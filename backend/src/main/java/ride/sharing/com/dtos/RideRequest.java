@@ -1,6 +1,7 @@
 package ride.sharing.com.dtos;
 
 import lombok.Data;
+import ride.sharing.com.enums.VehicleType;
 
 @Data
 public class RideRequest {
@@ -10,4 +11,9 @@ public class RideRequest {
     private Double dropoffLat;
     private Double dropoffLng;
     private String dropoffAddress;
+    // Defaults to one passenger in any vehicle category
+    private Integer passengers;
+    private VehicleType.VehicleCategory vehicleCategory;
+    // Share the car with other riders going the same way
+    private Boolean shared;
 }
@@ -0,0 +1,102 @@
+package ride.sharing.com.geo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.enums.VehicleType.VehicleCategory;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * Local copy of the driver positions held in Redis, used to answer nearby searches in-process.
+ * <p>
+ * Besides the index of every driver, each vehicle category has its own partition holding only the
+ * drivers of that category, so a search for one category never walks past other vehicles.
+ */
+@Component
+public class DriverGridIndex extends GeoGridIndex {
+
+    // Created up front and never changed, so readers need no locking beyond the partitions' own
+    private final Map<VehicleCategory, GeoGridIndex> partitions = new EnumMap<>(VehicleCategory.class);
+    private final Map<Long, VehicleType> vehicleTypes = new ConcurrentHashMap<>();
+
+    public DriverGridIndex(@Value("${location.index.cell-size-deg:0.02}") double cellSizeDeg) {
+        super(cellSizeDeg);
+        for (VehicleCategory category : VehicleCategory.values()) {
+            partitions.put(category, new GeoGridIndex(cellSizeDeg));
+        }
+    }
+
+    /**
+     * Insert or move a driver, keeping it in the partition of its vehicle category.
+     * A null type leaves the driver out of every partition.
+     */
+    public void put(long id, VehicleType type, double lat, double lng, long timestampMillis) {
+        put(id, lat, lng, timestampMillis);
+
+        VehicleType previous = type == null ? vehicleTypes.remove(id) : vehicleTypes.put(id, type);
+        if (previous != null && (type == null || previous.getCategory() != type.getCategory())) {
+            partitions.get(previous.getCategory()).remove(id);
+        }
+        if (type != null) {
+            partitions.get(type.getCategory()).put(id, lat, lng, timestampMillis);
+        }
+    }
+
+    /**
+     * @return the vehicle type the driver was indexed with, or null when it has none
+     */
+    public VehicleType vehicleType(long id) {
+        return vehicleTypes.get(id);
+    }
+
+    /**
+     * Same as {@link #nearest(double, double, int, double, LongPredicate)}, searching only the
+     * partition of the given category, or every driver when the category is null
+     */
+    public List<Long> nearest(VehicleCategory category, double lat, double lng, int limit, double maxDistanceKm,
+                              LongPredicate filter) {
+        GeoGridIndex index = category == null ? this : partitions.get(category);
+        return index.nearest(lat, lng, limit, maxDistanceKm, filter);
+    }
+
+    /**
+     * Same as {@link #nearby(double, double, double, int)} for one category, or every driver when null
+     */
+    public List<Long> nearby(VehicleCategory category, double lat, double lng, double radiusKm, int limit) {
+        GeoGridIndex index = category == null ? this : partitions.get(category);
+        return index.nearby(lat, lng, radiusKm, limit);
+    }
+
+    @Override
+    public boolean remove(long id) {
+        VehicleType type = vehicleTypes.remove(id);
+        if (type != null) {
+            partitions.get(type.getCategory()).remove(id);
+        }
+        return super.remove(id);
+    }
+
+    @Override
+    public List<Long> evictOlderThan(long cutoffMillis) {
+        List<Long> evicted = super.evictOlderThan(cutoffMillis);
+        for (Long id : evicted) {
+            VehicleType type = vehicleTypes.remove(id);
+            if (type != null) {
+                partitions.get(type.getCategory()).remove(id);
+            }
+        }
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        partitions.values().forEach(GeoGridIndex::clear);
+        vehicleTypes.clear();
+    }
+}
@@ -0,0 +1,201 @@
+package ride.sharing.com.geo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps coordinates to the coarse cell that shards driver location state in Redis, and remembers
+ * which cell each driver was last written to.
+ * <p>
+ * driver:cells in Redis is the source of truth, since other instances move drivers too. The local copy
+ * is only a hint for read paths. Location writes never read driver:cells: the shard write itself reports
+ * drivers new to a cell, and only those have their entry swapped. Other writers of per-cell state ask
+ * Redis through {@link #storedCell} and {@link #storedCells}.
+ * <p>
+ * A cell is named {@code "<latIndex>:<lngIndex>"} on a grid of {@code cellSizeDeg} degrees. Cells should be
+ * much larger than typical search radii, so most searches touch one to four shards.
+ */
+@Component
+public class DriverShardRouter {
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final double cellSizeDeg;
+    private final int lngCells;
+    private final int latCells;
+
+    // Cell this instance last saw each driver in; may be stale once another instance moves the driver
+    private final Map<Long, String> knownCells = new ConcurrentHashMap<>();
+
+    public DriverShardRouter(RedisTemplate<String, String> redisTemplate,
+                             @Value("${location.shard.cell-size-deg:0.5}") double cellSizeDeg) {
+        if (cellSizeDeg <= 0 || cellSizeDeg > 30) {
+            throw new IllegalArgumentException("Shard cell size must be between 0 and 30 degrees");
+        }
+        this.redisTemplate = redisTemplate;
+        this.cellSizeDeg = cellSizeDeg;
+        this.lngCells = (int) Math.ceil(360.0 / cellSizeDeg);
+        this.latCells = (int) Math.ceil(180.0 / cellSizeDeg);
+    }
+
+    public String cellOf(double lat, double lng) {
+        return cell(latIndex(lat), Math.floorMod(lngIndexUnwrapped(lng), lngCells));
+    }
+
+    /**
+     * Cells overlapping the search circle, nearest first. Cells whose closest edge is
+     * further than the radius are left out.
+     */
+    public List<String> coveringCells(double lat, double lng, double radiusKm) {
+        double latSpan = radiusKm / GeoUtils.KM_PER_DEGREE;
+        int minLat = latIndex(lat - latSpan);
+        int maxLat = latIndex(lat + latSpan);
+
+        double cosLat = Math.cos(Math.toRadians(Math.min(89.0, Math.abs(lat) + latSpan)));
+        double lngSpan = radiusKm / (GeoUtils.KM_PER_DEGREE * cosLat);
+        int minLng;
+        int lngCount;
+        if (lngSpan >= 180) {
+            minLng = 0;
+            lngCount = lngCells;
+        } else {
+            minLng = lngIndexUnwrapped(lng - lngSpan);
+            lngCount = Math.min(lngCells, lngIndexUnwrapped(lng + lngSpan) - minLng + 1);
+        }
+
+        List<CellDistance> candidates = new ArrayList<>();
+        for (int latIdx = minLat; latIdx <= maxLat; latIdx++) {
+            double cellMinLat = latIdx * cellSizeDeg - 90.0;
+            double nearestLat = Math.max(cellMinLat, Math.min(cellMinLat + cellSizeDeg, lat));
+            for (int i = 0; i < lngCount; i++) {
+                int lngIdx = minLng + i;
+                double cellMinLng = lngIdx * cellSizeDeg - 180.0;
+                double nearestLng = Math.max(cellMinLng, Math.min(cellMinLng + cellSizeDeg, lng));
+                double distanceKm = GeoUtils.haversineKm(lat, lng, nearestLat, nearestLng);
+                if (distanceKm <= radiusKm) {
+                    candidates.add(new CellDistance(cell(latIdx, Math.floorMod(lngIdx, lngCells)), distanceKm));
+                }
+            }
+        }
+
+        candidates.sort(Comparator.comparingDouble(CellDistance::distanceKm));
+        return candidates.stream().map(CellDistance::cell).distinct().toList();
+    }
+
+    /**
+     * @return the cell this instance last saw the driver in, without asking Redis
+     */
+    public String knownCell(Long driverId) {
+        return knownCells.get(driverId);
+    }
+
+    /**
+     * @return the cell holding the driver's location, or null when the driver has none
+     */
+    public String currentCell(Long driverId) {
+        String cell = knownCells.get(driverId);
+        if (cell != null) {
+            return cell;
+        }
+        Object stored = redisTemplate.opsForHash().get(RedisKeys.DRIVER_CELLS, driverId.toString());
+        if (stored != null) {
+            cell = stored.toString();
+            knownCells.put(driverId, cell);
+        }
+        return cell;
+    }
+
+    /**
+     * Cells of several drivers, reading the ones not known locally with a single HMGET.
+     * Drivers without a location are left out of the result.
+     */
+    public Map<Long, String> currentCells(Collection<Long> driverIds) {
+        Map<Long, String> result = new HashMap<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long driverId : driverIds) {
+            String cell = knownCells.get(driverId);
+            if (cell != null) {
+                result.put(driverId, cell);
+            } else {
+                unknown.add(driverId);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            result.putAll(storedCells(unknown));
+        }
+        return result;
+    }
+
+    /**
+     * @return the cell driver:cells holds for the driver, or null when it has none
+     */
+    public String storedCell(Long driverId) {
+        return storedCells(List.of(driverId)).get(driverId);
+    }
+
+    /**
+     * Cells driver:cells holds for the drivers, read with a single HMGET whatever is cached locally,
+     * and refreshing the local copy. Drivers without a location are left out of the result.
+     */
+    public Map<Long, String> storedCells(Collection<Long> driverIds) {
+        Map<Long, String> result = new HashMap<>();
+        if (driverIds.isEmpty()) {
+            return result;
+        }
+        List<Long> ids = List.copyOf(driverIds);
+        List<Object> fields = ids.stream().map(id -> (Object) id.toString()).toList();
+        List<Object> stored = redisTemplate.opsForHash().multiGet(RedisKeys.DRIVER_CELLS, fields);
+        for (int i = 0; i < ids.size(); i++) {
+            Object cell = stored == null ? null : stored.get(i);
+            if (cell != null) {
+                knownCells.put(ids.get(i), cell.toString());
+                result.put(ids.get(i), cell.toString());
+            } else {
+                knownCells.remove(ids.get(i));
+            }
+        }
+        return result;
+    }
+
+    public void remember(Long driverId, String cell) {
+        knownCells.put(driverId, cell);
+    }
+
+    public void forget(Long driverId) {
+        knownCells.remove(driverId);
+    }
+
+    /**
+     * Every cell that has ever held a driver. Cells are never dropped from the registry, since a
+     * concurrent move into an emptied cell would otherwise leave drivers the sweeper never visits.
+     */
+    public Set<String> allShards() {
+        Set<String> shards = redisTemplate.opsForSet().members(RedisKeys.DRIVER_SHARDS);
+        return shards == null ? Set.of() : shards;
+    }
+
+    private int latIndex(double lat) {
+        int idx = (int) Math.floor((Math.max(-90.0, Math.min(90.0, lat)) + 90.0) / cellSizeDeg);
+        return Math.min(latCells - 1, idx);
+    }
+
+    private int lngIndexUnwrapped(double lng) {
+        return (int) Math.floor((lng + 180.0) / cellSizeDeg);
+    }
+
+    private static String cell(int latIdx, int lngIdx) {
+        return latIdx + ":" + lngIdx;
+    }
+
+    private record CellDistance(String cell, double distanceKm) {
+    }
+}
@@ -0,0 +1,154 @@
+package ride.sharing.com.geo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import ride.sharing.com.enums.VehicleType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Vehicle type of each driver, so location writes can place a driver in its category partition and
+ * searches can check seat counts without loading drivers from the database.
+ * <p>
+ * Redis (driver:vehicle-types) is the source of truth, and every instance keeps a local copy that
+ * location writes and searches are served from. A type only changes when a driver registers a vehicle,
+ * which refreshes the copy of the instance handling it; other instances pick the change up once their
+ * entry is older than {@code location.vehicle-type-cache-seconds}. Drivers without a type are cached too,
+ * so they do not cost a Redis read on every ping. Changes that must not miss another instance's update
+ * read Redis through {@link #storedVehicleType} and {@link #storedVehicleTypes}.
+ */
+@Component
+public class DriverVehicleRegistry {
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final DriverShardRouter shardRouter;
+    private final long cacheMillis;
+
+    private final Map<Long, Cached> cached = new ConcurrentHashMap<>();
+
+    public DriverVehicleRegistry(RedisTemplate<String, String> redisTemplate, DriverShardRouter shardRouter,
+                                 @Value("${location.vehicle-type-cache-seconds:300}") long cacheSeconds) {
+        if (cacheSeconds < 0) {
+            throw new IllegalArgumentException("Vehicle type cache time cannot be negative");
+        }
+        this.redisTemplate = redisTemplate;
+        this.shardRouter = shardRouter;
+        this.cacheMillis = cacheSeconds * 1000;
+    }
+
+    /**
+     * Record the driver's vehicle type. A driver switching category is taken out of the old category's
+     * partition right away; the next location update adds it to the new one.
+     */
+    public void register(Long driverId, VehicleType type) {
+        VehicleType previous = storedVehicleType(driverId);
+        if (type == null) {
+            redisTemplate.opsForHash().delete(RedisKeys.DRIVER_VEHICLE_TYPES, driverId.toString());
+        } else {
+            redisTemplate.opsForHash().put(RedisKeys.DRIVER_VEHICLE_TYPES, driverId.toString(), type.name());
+        }
+        cache(driverId, type, System.currentTimeMillis());
+
+        if (previous != null && (type == null || previous.getCategory() != type.getCategory())) {
+            String cell = shardRouter.storedCell(driverId);
+            if (cell != null) {
+                redisTemplate.opsForZSet().remove(RedisKeys.driverLocations(cell, previous.getCategory()), driverId.toString());
+            }
+        }
+    }
+
+    /**
+     * @return the driver's vehicle type, or null when none is registered
+     */
+    public VehicleType vehicleType(Long driverId) {
+        return vehicleTypes(List.of(driverId)).get(driverId);
+    }
+
+    /**
+     * Vehicle types of several drivers from the local copy, reading the ones missing or due for a refresh
+     * with a single HMGET. Drivers without a registered type are left out of the result.
+     */
+    public Map<Long, VehicleType> vehicleTypes(Collection<Long> driverIds) {
+        long now = System.currentTimeMillis();
+        Map<Long, VehicleType> result = new HashMap<>();
+        List<Long> due = new ArrayList<>();
+        for (Long driverId : driverIds) {
+            Cached entry = cached.get(driverId);
+            if (entry == null || now - entry.loadedAt() >= cacheMillis) {
+                due.add(driverId);
+            } else if (entry.type() != null) {
+                result.put(driverId, entry.type());
+            }
+        }
+        if (!due.isEmpty()) {
+            result.putAll(load(due, now));
+        }
+        return result;
+    }
+
+    /**
+     * @return the type driver:vehicle-types holds for the driver, or null when it has none
+     */
+    public VehicleType storedVehicleType(Long driverId) {
+        return storedVehicleTypes(List.of(driverId)).get(driverId);
+    }
+
+    /**
+     * Types driver:vehicle-types holds for the drivers, read with a single HMGET whatever is cached locally,
+     * and refreshing the local copy. Drivers without a registered type are left out of the result.
+     */
+    public Map<Long, VehicleType> storedVehicleTypes(Collection<Long> driverIds) {
+        if (driverIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return load(List.copyOf(driverIds), System.currentTimeMillis());
+    }
+
+    /**
+     * Record the types of many drivers in one HMSET, e.g. when resyncing from the database.
+     * Unlike {@link #register}, partitions are not cleaned up.
+     */
+    public void registerAll(Map<Long, VehicleType> types) {
+        if (types.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Map<String, String> fields = new HashMap<>();
+        types.forEach((driverId, type) -> {
+            cache(driverId, type, now);
+            fields.put(driverId.toString(), type.name());
+        });
+        redisTemplate.opsForHash().putAll(RedisKeys.DRIVER_VEHICLE_TYPES, fields);
+    }
+
+    private Map<Long, VehicleType> load(List<Long> driverIds, long now) {
+        Map<Long, VehicleType> result = new HashMap<>();
+        List<Object> fields = driverIds.stream().map(id -> (Object) id.toString()).toList();
+        List<Object> stored = redisTemplate.opsForHash().multiGet(RedisKeys.DRIVER_VEHICLE_TYPES, fields);
+        for (int i = 0; i < driverIds.size(); i++) {
+            Object name = stored == null ? null : stored.get(i);
+            VehicleType type = name == null ? null : VehicleType.valueOf(name.toString());
+            cache(driverIds.get(i), type, now);
+            if (type != null) {
+                result.put(driverIds.get(i), type);
+            }
+        }
+        return result;
+    }
+
+    private void cache(Long driverId, VehicleType type, long now) {
+        cached.put(driverId, new Cached(type, now));
+    }
+
+    /**
+     * @param type null when the driver has no registered vehicle
+     */
+    private record Cached(VehicleType type, long loadedAt) {
+    }
+}
@@ -0,0 +1,387 @@
+package ride.sharing.com.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory spatial index of points keyed by a numeric id.
+ * <p>
+ * The globe is cut into square lat/lng cells of {@code cellSizeDeg} degrees. Point data lives in
+ * parallel primitive arrays indexed by slot, and each cell keeps an int array of the slots inside it,
+ * so updates and radius searches run without boxing coordinates or touching the network.
+ */
+public class GeoGridIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final double cellSizeDeg;
+    private final int lngCells;
+    private final int latCells;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private double[] lats = new double[INITIAL_CAPACITY];
+    private double[] lngs = new double[INITIAL_CAPACITY];
+    private long[] cells = new long[INITIAL_CAPACITY];
+    private long[] updatedAt = new long[INITIAL_CAPACITY];
+    // Position of each slot inside its cell's slot array, for O(1) removal
+    private int[] cellPositions = new int[INITIAL_CAPACITY];
+    private int highWaterMark;
+
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+    private final Map<Long, Cell> cellsByKey = new HashMap<>();
+
+    public GeoGridIndex(double cellSizeDeg) {
+        if (cellSizeDeg <= 0 || cellSizeDeg > 10) {
+            throw new IllegalArgumentException("Cell size must be between 0 and 10 degrees");
+        }
+        this.cellSizeDeg = cellSizeDeg;
+        this.lngCells = (int) Math.ceil(360.0 / cellSizeDeg);
+        this.latCells = (int) Math.ceil(180.0 / cellSizeDeg);
+    }
+
+    /**
+     * Insert a point or move an existing one
+     */
+    public void put(long id, double lat, double lng) {
+        put(id, lat, lng, System.currentTimeMillis());
+    }
+
+    public void put(long id, double lat, double lng, long timestampMillis) {
+        long cellKey = cellKey(latIndex(lat), lngIndex(lng));
+
+        lock.writeLock().lock();
+        try {
+            Integer existing = slotsById.get(id);
+            int slot;
+            if (existing != null) {
+                slot = existing;
+                if (cells[slot] != cellKey) {
+                    removeFromCell(slot);
+                    addToCell(slot, cellKey);
+                }
+            } else {
+                slot = allocateSlot();
+                ids[slot] = id;
+                slotsById.put(id, slot);
+                addToCell(slot, cellKey);
+            }
+            lats[slot] = lat;
+            lngs[slot] = lng;
+            updatedAt[slot] = timestampMillis;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsById.remove(id);
+            if (slot == null) {
+                return false;
+            }
+            removeFromCell(slot);
+            releaseSlot(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return {lat, lng} of the point, or null when the id is not indexed
+     */
+    public double[] position(long id) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotsById.get(id);
+            return slot == null ? null : new double[]{lats[slot], lngs[slot]};
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids within {@code radiusKm} of the given coordinates, nearest first
+     */
+    public List<Long> nearby(double lat, double lng, double radiusKm, int limit) {
+        if (limit <= 0 || radiusKm < 0) {
+            return List.of();
+        }
+
+        double latSpan = radiusKm / GeoUtils.KM_PER_DEGREE;
+        int minLat = Math.max(0, latIndex(lat - latSpan));
+        int maxLat = Math.min(latCells - 1, latIndex(lat + latSpan));
+
+        double cosLat = Math.cos(Math.toRadians(Math.min(89.0, Math.abs(lat) + latSpan)));
+        double lngSpan = radiusKm / (GeoUtils.KM_PER_DEGREE * cosLat);
+        int minLng;
+        int lngCount;
+        if (lngSpan >= 180) {
+            minLng = 0;
+            lngCount = lngCells;
+        } else {
+            minLng = lngIndexUnwrapped(lng - lngSpan);
+            lngCount = Math.min(lngCells, lngIndexUnwrapped(lng + lngSpan) - minLng + 1);
+        }
+
+        int found = 0;
+        long[] topIds = new long[Math.min(limit, 16)];
+        double[] topDistances = new double[topIds.length];
+
+        lock.readLock().lock();
+        try {
+            for (int latIdx = minLat; latIdx <= maxLat; latIdx++) {
+                for (int i = 0; i < lngCount; i++) {
+                    // Wrap across the antimeridian
+                    int lngIdx = Math.floorMod(minLng + i, lngCells);
+                    Cell cell = cellsByKey.get(cellKey(latIdx, lngIdx));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int c = 0; c < cell.size; c++) {
+                        int slot = cell.slots[c];
+                        double distance = GeoUtils.haversineKm(lat, lng, lats[slot], lngs[slot]);
+                        if (distance > radiusKm || (found == limit && distance >= topDistances[found - 1])) {
+                            continue;
+                        }
+                        if (found < limit) {
+                            if (found == topIds.length) {
+                                int grown = (int) Math.min(limit, (long) topIds.length * 2);
+                                topIds = Arrays.copyOf(topIds, grown);
+                                topDistances = Arrays.copyOf(topDistances, grown);
+                            }
+                            found++;
+                        }
+                        // Insertion into the sorted top list; limits are small in practice
+                        int pos = found - 1;
+                        while (pos > 0 && topDistances[pos - 1] > distance) {
+                            topIds[pos] = topIds[pos - 1];
+                            topDistances[pos] = topDistances[pos - 1];
+                            pos--;
+                        }
+                        topIds[pos] = ids[slot];
+                        topDistances[pos] = distance;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Long> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            result.add(topIds[i]);
+        }
+        return result;
+    }
+
+    /**
+     * The {@code limit} nearest ids accepted by the filter within {@code maxDistanceKm}, nearest first.
+     * <p>
+     * Best-first traversal: cells are visited in order of their closest edge to the query point, and a
+     * point is emitted once no unvisited cell can hold anything nearer. The search stops as soon as enough
+     * points are found, so its cost depends on how many drivers are checked rather than how far away they are.
+     */
+    public List<Long> nearest(double lat, double lng, int limit, double maxDistanceKm, LongPredicate filter) {
+        if (limit <= 0 || maxDistanceKm < 0) {
+            return List.of();
+        }
+
+        List<Long> result = new ArrayList<>(Math.min(limit, 16));
+        PriorityQueue<Candidate> cellQueue = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance));
+        PriorityQueue<Candidate> pointQueue = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance));
+        Set<Long> visited = new HashSet<>();
+
+        long start = cellKey(latIndex(lat), lngIndex(lng));
+        cellQueue.add(new Candidate(0, start));
+        visited.add(start);
+
+        lock.readLock().lock();
+        try {
+            while (result.size() < limit) {
+                double nextCell = cellQueue.isEmpty() ? Double.POSITIVE_INFINITY : cellQueue.peek().distance();
+                if (!pointQueue.isEmpty() && pointQueue.peek().distance() <= nextCell) {
+                    result.add(pointQueue.poll().key());
+                    continue;
+                }
+                if (nextCell > maxDistanceKm) {
+                    break;
+                }
+
+                long key = cellQueue.poll().key();
+                Cell cell = cellsByKey.get(key);
+                for (int c = 0; cell != null && c < cell.size; c++) {
+                    int slot = cell.slots[c];
+                    double distance = GeoUtils.haversineKm(lat, lng, lats[slot], lngs[slot]);
+                    if (distance <= maxDistanceKm && filter.test(ids[slot])) {
+                        pointQueue.add(new Candidate(distance, ids[slot]));
+                    }
+                }
+
+                int latIdx = (int) (key >> 32);
+                int lngIdx = (int) key;
+                visitNeighbour(lat, lng, latIdx - 1, lngIdx, cellQueue, visited);
+                visitNeighbour(lat, lng, latIdx + 1, lngIdx, cellQueue, visited);
+                visitNeighbour(lat, lng, latIdx, lngIdx - 1, cellQueue, visited);
+                visitNeighbour(lat, lng, latIdx, lngIdx + 1, cellQueue, visited);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Remove every point that has not been updated since the cutoff
+     * @return ids of the removed points
+     */
+    public List<Long> evictOlderThan(long cutoffMillis) {
+        List<Long> evicted = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            slotsById.entrySet().removeIf(entry -> {
+                int slot = entry.getValue();
+                if (updatedAt[slot] >= cutoffMillis) {
+                    return false;
+                }
+                removeFromCell(slot);
+                releaseSlot(slot);
+                evicted.add(entry.getKey());
+                return true;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return evicted;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            slotsById.clear();
+            cellsByKey.clear();
+            highWaterMark = 0;
+            freeCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void visitNeighbour(double lat, double lng, int latIdx, int lngIdx,
+                                PriorityQueue<Candidate> cellQueue, Set<Long> visited) {
+        if (latIdx < 0 || latIdx >= latCells) {
+            return;
+        }
+        int wrappedLng = Math.floorMod(lngIdx, lngCells);
+        long key = cellKey(latIdx, wrappedLng);
+        if (!visited.add(key)) {
+            return;
+        }
+
+        double cellMinLat = latIdx * cellSizeDeg - 90.0;
+        double cellMinLng = wrappedLng * cellSizeDeg - 180.0;
+        // Measure against the copy of the cell on the query's side of the antimeridian
+        if (lng - (cellMinLng + cellSizeDeg) > 180.0) {
+            cellMinLng += 360.0;
+        } else if (cellMinLng - lng > 180.0) {
+            cellMinLng -= 360.0;
+        }
+        double nearestLat = Math.max(cellMinLat, Math.min(cellMinLat + cellSizeDeg, lat));
+        double nearestLng = Math.max(cellMinLng, Math.min(cellMinLng + cellSizeDeg, lng));
+        cellQueue.add(new Candidate(GeoUtils.haversineKm(lat, lng, nearestLat, nearestLng), key));
+    }
+
+    private int latIndex(double lat) {
+        int idx = (int) Math.floor((Math.max(-90.0, Math.min(90.0, lat)) + 90.0) / cellSizeDeg);
+        return Math.min(latCells - 1, idx);
+    }
+
+    private int lngIndex(double lng) {
+        return Math.floorMod(lngIndexUnwrapped(lng), lngCells);
+    }
+
+    private int lngIndexUnwrapped(double lng) {
+        return (int) Math.floor((lng + 180.0) / cellSizeDeg);
+    }
+
+    private static long cellKey(int latIdx, int lngIdx) {
+        return ((long) latIdx << 32) | (lngIdx & 0xffffffffL);
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (highWaterMark == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            lats = Arrays.copyOf(lats, capacity);
+            lngs = Arrays.copyOf(lngs, capacity);
+            cells = Arrays.copyOf(cells, capacity);
+            updatedAt = Arrays.copyOf(updatedAt, capacity);
+            cellPositions = Arrays.copyOf(cellPositions, capacity);
+        }
+        return highWaterMark++;
+    }
+
+    private void releaseSlot(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void addToCell(int slot, long cellKey) {
+        Cell cell = cellsByKey.computeIfAbsent(cellKey, key -> new Cell());
+        if (cell.size == cell.slots.length) {
+            cell.slots = Arrays.copyOf(cell.slots, cell.slots.length * 2);
+        }
+        cells[slot] = cellKey;
+        cellPositions[slot] = cell.size;
+        cell.slots[cell.size++] = slot;
+    }
+
+    private void removeFromCell(int slot) {
+        Cell cell = cellsByKey.get(cells[slot]);
+        int pos = cellPositions[slot];
+        // Swap the last slot into the hole
+        int last = cell.slots[--cell.size];
+        cell.slots[pos] = last;
+        cellPositions[last] = pos;
+        if (cell.size == 0) {
+            cellsByKey.remove(cells[slot]);
+        }
+    }
+
+    // A cell (by lower-bound distance) or a point (by exact distance) waiting in the best-first queues
+    private record Candidate(double distance, long key) {
+    }
+
+    private static final class Cell {
+        private int[] slots = new int[4];
+        private int size;
+    }
+}
@@ -0,0 +1,79 @@
+package ride.sharing.com.geo;
+
+public final class GeoUtils {
+
+    public static final double EARTH_RADIUS_KM = 6371.0;
+
+    // Length of one degree of latitude (and of longitude at the equator)
+    public static final double KM_PER_DEGREE = EARTH_RADIUS_KM * Math.PI / 180.0;
+
+    private static final char[] GEOHASH_BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Geohash of a point as its interleaved bits (5 per character, longitude first), so it can be used
+     * as a map key without building a string
+     *
+     * @param precision characters of the equivalent geohash string, 1 to 12
+     */
+    public static long geohash(double lat, double lng, int precision) {
+        if (precision < 1 || precision > 12) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and 12");
+        }
+        double minLat = -90, maxLat = 90, minLng = -180, maxLng = 180;
+        long hash = 0;
+        for (int bit = 0; bit < precision * 5; bit++) {
+            if (bit % 2 == 0) {
+                double mid = (minLng + maxLng) / 2;
+                hash <<= 1;
+                if (lng >= mid) {
+                    hash |= 1;
+                    minLng = mid;
+                } else {
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                hash <<= 1;
+                if (lat >= mid) {
+                    hash |= 1;
+                    minLat = mid;
+                } else {
+                    maxLat = mid;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * The usual base32 form of a hash from {@link #geohash(double, double, int)}
+     */
+    public static String geohashString(long hash, int precision) {
+        char[] chars = new char[precision];
+        for (int i = precision - 1; i >= 0; i--) {
+            chars[i] = GEOHASH_BASE32[(int) (hash & 31)];
+            hash >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Calculate distance between two coordinates using Haversine formula
+     * @return Distance in kilometers
+     */
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return EARTH_RADIUS_KM * c;
+    }
+}
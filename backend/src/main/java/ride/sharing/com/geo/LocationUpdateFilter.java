@@ -0,0 +1,55 @@
+package ride.sharing.com.geo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Drops location pings that carry no new information.
+ * A ping is accepted when the driver has moved at least the minimum distance since the last
+ * accepted ping, or when the heartbeat interval has passed so the stored position stays fresh.
+ */
+@Component
+public class LocationUpdateFilter {
+
+    private final boolean enabled;
+    private final double minDistanceKm;
+    private final long heartbeatMillis;
+    private final ConcurrentHashMap<Long, Fix> lastAccepted = new ConcurrentHashMap<>();
+
+    public LocationUpdateFilter(
+            @Value("${location.filter.enabled:true}") boolean enabled,
+            @Value("${location.filter.min-distance-meters:25}") double minDistanceMeters,
+            @Value("${location.filter.heartbeat-seconds:30}") long heartbeatSeconds
+    ) {
+        this.enabled = enabled;
+        this.minDistanceKm = minDistanceMeters / 1000.0;
+        this.heartbeatMillis = heartbeatSeconds * 1000;
+    }
+
+    /**
+     * @return true when the update should be written, in which case it becomes the new reference point
+     */
+    public boolean accept(long driverId, double lat, double lng, long timestampMillis) {
+        if (!enabled) {
+            return true;
+        }
+        Fix candidate = new Fix(lat, lng, timestampMillis);
+        return lastAccepted.compute(driverId, (id, last) -> isSignificant(last, candidate) ? candidate : last) == candidate;
+    }
+
+    public void forget(long driverId) {
+        lastAccepted.remove(driverId);
+    }
+
+    private boolean isSignificant(Fix last, Fix candidate) {
+        if (last == null || candidate.timestampMillis() - last.timestampMillis() >= heartbeatMillis) {
+            return true;
+        }
+        return GeoUtils.haversineKm(last.lat(), last.lng(), candidate.lat(), candidate.lng()) >= minDistanceKm;
+    }
+
+    private record Fix(double lat, double lng, long timestampMillis) {
+    }
+}
@@ -0,0 +1,58 @@
+package ride.sharing.com.geo;
+
+import ride.sharing.com.enums.VehicleType;
+
+/**
+ * Redis keys shared by the location, availability and matching services.
+ * <p>
+ * Per-driver location state is sharded by coarse cell (see {@link DriverShardRouter}). The keys of one
+ * shard share the {@code {cell}} hash tag, so Redis Cluster keeps them in one slot and scripts can
+ * touch all of them atomically, while different cells spread over the cluster.
+ */
+public final class RedisKeys {
+
+    // Hash of driver id -> shard cell currently holding the driver's location
+    public static final String DRIVER_CELLS = "driver:cells";
+
+    // Set of every shard cell that has held a driver, walked by the stale sweeper and on startup
+    public static final String DRIVER_SHARDS = "driver:shards";
+
+    // Set of AVAILABLE driver ids, used to seed the shard availability hash when a driver enters a cell
+    public static final String AVAILABLE_DRIVERS = "driver:available";
+
+    // Hash of driver id -> VehicleType name, used to place drivers in their category partition
+    public static final String DRIVER_VEHICLE_TYPES = "driver:vehicle-types";
+
+    private RedisKeys() {
+    }
+
+    /**
+     * GEO sorted set of driver id -> last accepted position, for one shard
+     */
+    public static String driverLocations(String cell) {
+        return "driver:locations:{" + cell + "}";
+    }
+
+    /**
+     * GEO sorted set of the drivers of one vehicle category in a shard. Holds the same positions as
+     * {@link #driverLocations(String)}, so searches for a category never see other vehicles.
+     */
+    public static String driverLocations(String cell, VehicleType.VehicleCategory category) {
+        return "driver:locations:{" + cell + "}:" + category.name();
+    }
+
+    /**
+     * Sorted set of driver id -> last accepted update (epoch millis), used to expire silent drivers
+     */
+    public static String driverLastSeen(String cell) {
+        return "driver:last-seen:{" + cell + "}";
+    }
+
+    /**
+     * Hash of driver id -> "A" when AVAILABLE, or the expiry (epoch millis) of a reservation lease.
+     * Drivers that are BUSY or OFFLINE have no entry.
+     */
+    public static String driverAvailability(String cell) {
+        return "driver:availability:{" + cell + "}";
+    }
+}
@@ -0,0 +1,139 @@
+package ride.sharing.com.geo;
+
+import ride.sharing.com.models.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only, compact encoding of the GPS points of one ride.
+ * <p>
+ * Coordinates are stored as fixed-point 1e-5 degrees (about 1.1m) and time as epoch seconds.
+ * The first point is written in full; every following point is written as the zigzag varint
+ * delta from the previous one, so consecutive pings a few seconds apart take 3-6 bytes.
+ */
+public class RideTrailBuffer {
+
+    private static final double SCALE = 1e5;
+    private static final int INITIAL_CAPACITY = 32;
+
+    private final Long rideId;
+    private final Long driverId;
+    private final int maxBytes;
+
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    private int size;
+    private int pointCount;
+    private double distanceKm;
+
+    private long lastLat;
+    private long lastLng;
+    private long lastSeconds;
+
+    public RideTrailBuffer(Long rideId, Long driverId, int maxBytes) {
+        this.rideId = rideId;
+        this.driverId = driverId;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return false when the buffer is full and the point was dropped
+     */
+    public synchronized boolean append(double lat, double lng, long timestampMillis) {
+        long latE5 = Math.round(lat * SCALE);
+        long lngE5 = Math.round(lng * SCALE);
+        long seconds = timestampMillis / 1000;
+
+        // Worst case is three 10-byte varints
+        if (size + 30 > maxBytes) {
+            return false;
+        }
+
+        if (pointCount == 0) {
+            writeVarint(zigzag(latE5));
+            writeVarint(zigzag(lngE5));
+            writeVarint(seconds);
+        } else {
+            writeVarint(zigzag(latE5 - lastLat));
+            writeVarint(zigzag(lngE5 - lastLng));
+            writeVarint(Math.max(0, seconds - lastSeconds));
+            distanceKm += GeoUtils.haversineKm(lastLat / SCALE, lastLng / SCALE, latE5 / SCALE, lngE5 / SCALE);
+        }
+
+        lastLat = latE5;
+        lastLng = lngE5;
+        lastSeconds = Math.max(lastSeconds, seconds);
+        pointCount++;
+        return true;
+    }
+
+    public Long getRideId() {
+        return rideId;
+    }
+
+    public Long getDriverId() {
+        return driverId;
+    }
+
+    public synchronized int getPointCount() {
+        return pointCount;
+    }
+
+    public synchronized double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public synchronized byte[] toByteArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    /**
+     * Decode points written by {@link #append}; timestamps are returned in epoch millis
+     */
+    public static List<Location> decode(Long driverId, byte[] encoded, int pointCount) {
+        List<Location> points = new ArrayList<>(pointCount);
+        int[] pos = {0};
+        long lat = 0;
+        long lng = 0;
+        long seconds = 0;
+        for (int i = 0; i < pointCount && pos[0] < encoded.length; i++) {
+            lat += unzigzag(readVarint(encoded, pos));
+            lng += unzigzag(readVarint(encoded, pos));
+            seconds += readVarint(encoded, pos);
+            points.add(new Location(driverId, lat / SCALE, lng / SCALE, seconds * 1000));
+        }
+        return points;
+    }
+
+    private void writeVarint(long value) {
+        if (size + 10 > data.length) {
+            data = Arrays.copyOf(data, Math.min(maxBytes, Math.max(size + 10, data.length + (data.length >> 1))));
+        }
+        while ((value & ~0x7FL) != 0) {
+            data[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[size++] = (byte) value;
+    }
+
+    private static long readVarint(byte[] encoded, int[] pos) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = encoded[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
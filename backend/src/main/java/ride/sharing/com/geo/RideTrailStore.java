@@ -0,0 +1,84 @@
+package ride.sharing.com.geo;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Holds the trail of every ride that is IN_PROGRESS, keyed by ride. A pooled driver can have several
+ * rides in progress at once, so each driver maps to all of their open trails and a location update
+ * is appended to every one of them with a single map lookup.
+ */
+@Slf4j
+@Component
+public class RideTrailStore {
+
+    private final int maxBytesPerRide;
+    private final ConcurrentHashMap<Long, RideTrailBuffer> activeByRide = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, List<RideTrailBuffer>> activeByDriver = new ConcurrentHashMap<>();
+
+    public RideTrailStore(@Value("${rides.trail.max-bytes-per-ride:262144}") int maxBytesPerRide) {
+        this.maxBytesPerRide = maxBytesPerRide;
+    }
+
+    public void start(Long rideId, Long driverId) {
+        RideTrailBuffer trail = new RideTrailBuffer(rideId, driverId, maxBytesPerRide);
+        RideTrailBuffer previous = activeByRide.put(rideId, trail);
+        if (previous != null) {
+            log.warn("Ride {} started again while its trail was still open, discarding it", rideId);
+            detach(previous);
+        }
+        activeByDriver.compute(driverId, (id, trails) -> {
+            List<RideTrailBuffer> open = trails == null ? new CopyOnWriteArrayList<>() : trails;
+            open.add(trail);
+            return open;
+        });
+    }
+
+    /**
+     * Record a point on every ride the driver has in progress; a no-op when there is none
+     */
+    public void append(Long driverId, double lat, double lng, long timestampMillis) {
+        List<RideTrailBuffer> trails = activeByDriver.get(driverId);
+        if (trails == null) {
+            return;
+        }
+        for (RideTrailBuffer trail : trails) {
+            if (!trail.append(lat, lng, timestampMillis)) {
+                log.debug("Trail of ride {} is full, dropping point", trail.getRideId());
+            }
+        }
+    }
+
+    /**
+     * Close the trail of the given ride and hand it over for storage
+     * @return the trail, or null when none was being recorded
+     */
+    public RideTrailBuffer finish(Long rideId, Long driverId) {
+        RideTrailBuffer trail = activeByRide.get(rideId);
+        if (trail == null || !trail.getDriverId().equals(driverId) || !activeByRide.remove(rideId, trail)) {
+            return null;
+        }
+        detach(trail);
+        return trail;
+    }
+
+    public void discard(Long rideId, Long driverId) {
+        finish(rideId, driverId);
+    }
+
+    public int activeCount() {
+        return activeByRide.size();
+    }
+
+    private void detach(RideTrailBuffer trail) {
+        activeByDriver.computeIfPresent(trail.getDriverId(), (id, trails) -> {
+            trails.remove(trail);
+            return trails.isEmpty() ? null : trails;
+        });
+    }
+}
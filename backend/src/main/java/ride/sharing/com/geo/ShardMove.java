@@ -0,0 +1,9 @@
+package ride.sharing.com.geo;
+
+/**
+ * A driver whose location moved into another shard cell
+ *
+ * @param fromCell previous cell, or null when the driver had no location yet
+ */
+public record ShardMove(Long driverId, String fromCell, String toCell) {
+}
@@ -0,0 +1,444 @@
+package ride.sharing.com.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ride.sharing.com.enums.DriverStatus;
+import ride.sharing.com.enums.Role;
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.enums.VehicleType.VehicleCategory;
+import ride.sharing.com.geo.DriverShardRouter;
+import ride.sharing.com.geo.DriverVehicleRegistry;
+import ride.sharing.com.geo.RedisKeys;
+import ride.sharing.com.geo.ShardMove;
+import ride.sharing.com.models.User;
+import ride.sharing.com.repositories.UserRepository;
+import ride.sharing.com.services.DriverAvailabilityService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mirrors driver availability into Redis so matching can search, filter and reserve
+ * a driver in a single script call instead of loading candidates from the database.
+ * Availability is kept in the same shard as the driver's location, plus a global set of
+ * available ids that seeds a shard when a driver moves into it.
+ * The database stays the source of truth; the mirror is resynced on startup.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DriverAvailabilityServiceImpl implements DriverAvailabilityService {
+
+    private static final String AVAILABLE = "A";
+    private static final byte[] AVAILABLE_BYTES = AVAILABLE.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] AVAILABLE_DRIVERS_KEY_BYTES = RedisKeys.AVAILABLE_DRIVERS.getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_CANDIDATES = 50;
+    // Lookups across shards reserve in a second step; retry when another request wins the driver
+    private static final int MAX_RESERVE_ATTEMPTS = 3;
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisScript<List> reserveNearestDriverScript;
+    private final RedisScript<Long> reserveDriverScript;
+    private final RedisScript<Long> releaseDriverScript;
+    private final DriverShardRouter shardRouter;
+    private final DriverVehicleRegistry vehicleRegistry;
+    private final UserRepository userRepository;
+
+    // Lease value of each reservation this instance took, so a release only undoes its own reservation
+    private final Map<Long, String> heldLeases = new ConcurrentHashMap<>();
+
+    // How long a driver stays reserved for a ride before being offered to others again
+    @Value("${matching.reservation-lease-seconds:60}")
+    private long reservationLeaseSeconds;
+
+    @Override
+    public void markAvailable(Long driverId) {
+        afterCommit(() -> {
+            heldLeases.remove(driverId);
+            redisTemplate.opsForSet().add(RedisKeys.AVAILABLE_DRIVERS, driverId.toString());
+            String cell = shardRouter.storedCell(driverId);
+            if (cell != null) {
+                hashOps().put(RedisKeys.driverAvailability(cell), driverId.toString(), AVAILABLE);
+            }
+        });
+    }
+
+    @Override
+    public void markUnavailable(Long driverId) {
+        markUnavailable(List.of(driverId));
+    }
+
+    @Override
+    public void markUnavailable(Collection<Long> driverIds) {
+        if (driverIds.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            heldLeases.keySet().removeAll(driverIds);
+            Map<Long, String> cells = shardRouter.storedCells(driverIds);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.setCommands().sRem(AVAILABLE_DRIVERS_KEY_BYTES,
+                        driverIds.stream().map(DriverAvailabilityServiceImpl::bytes).toArray(byte[][]::new));
+                cells.forEach((driverId, cell) ->
+                        connection.hashCommands().hDel(bytes(RedisKeys.driverAvailability(cell)), bytes(driverId)));
+                return null;
+            });
+        });
+    }
+
+    /**
+     * Carry each moved driver's state (available, or an unexpired lease) into its new shard.
+     * Drivers entering their first shard are seeded from the global set of available ids.
+     */
+    @Override
+    public void relocate(List<ShardMove> moves) {
+        if (moves.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Object> lookups = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (ShardMove move : moves) {
+                    byte[] member = bytes(move.driverId());
+                    if (move.fromCell() != null) {
+                        connection.hashCommands().hGet(bytes(RedisKeys.driverAvailability(move.fromCell())), member);
+                    }
+                    connection.setCommands().sIsMember(AVAILABLE_DRIVERS_KEY_BYTES, member);
+                }
+                return null;
+            });
+
+            List<String> states = new ArrayList<>(moves.size());
+            int next = 0;
+            for (ShardMove move : moves) {
+                String state = move.fromCell() != null ? (String) lookups.get(next++) : null;
+                boolean listed = Boolean.TRUE.equals(lookups.get(next++));
+                states.add(state != null ? state : listed ? AVAILABLE : null);
+            }
+
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < moves.size(); i++) {
+                    ShardMove move = moves.get(i);
+                    byte[] member = bytes(move.driverId());
+                    if (move.fromCell() != null) {
+                        connection.hashCommands().hDel(bytes(RedisKeys.driverAvailability(move.fromCell())), member);
+                    }
+                    if (states.get(i) != null) {
+                        // Never overwrite state already in the new shard, e.g. a lease taken there concurrently
+                        connection.hashCommands().hSetNX(bytes(RedisKeys.driverAvailability(move.toCell())),
+                                member, bytes(states.get(i)));
+                    }
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Could not move availability of {} drivers between shards: {}", moves.size(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void registerVehicle(Long driverId, VehicleType vehicleType) {
+        afterCommit(() -> vehicleRegistry.register(driverId, vehicleType));
+    }
+
+    @Override
+    public Long reserveNearest(Double lat, Double lng, Double radiusKm) {
+        return reserveNearest(lat, lng, radiusKm, null);
+    }
+
+    /**
+     * Reserve the nearest available driver, searching only the category's partition when one is given
+     */
+    @Override
+    public Long reserveNearest(Double lat, Double lng, Double radiusKm, VehicleCategory category) {
+        List<String> cells = shardRouter.coveringCells(lat, lng, radiusKm);
+        long now = System.currentTimeMillis();
+        long leaseExpiry = now + reservationLeaseSeconds * 1000;
+
+        Long driverId = null;
+        if (cells.size() == 1) {
+            // The whole search circle lies in one shard: look up and reserve in a single call
+            List<String> reserved = searchShard(cells.get(0), category, lat, lng, radiusKm, now, leaseExpiry);
+            driverId = reserved == null ? null : Long.valueOf(reserved.get(0));
+        } else if (cells.size() > 1) {
+            driverId = reserveAcrossShards(cells, category, lat, lng, radiusKm, now, leaseExpiry);
+        }
+
+        if (driverId == null) {
+            log.debug("No available driver within {}km of ({}, {})", radiusKm, lat, lng);
+            return null;
+        }
+        heldLeases.put(driverId, String.valueOf(leaseExpiry));
+        log.info("Reserved driver {} for pickup at ({}, {})", driverId, lat, lng);
+        return driverId;
+    }
+
+    /**
+     * Shards live in different cluster slots, so a single script cannot search them all.
+     * Find the nearest available driver over every shard first, then reserve that driver if it
+     * is still free; losing it to a concurrent request means searching again.
+     */
+    private Long reserveAcrossShards(List<String> cells, VehicleCategory category, double lat, double lng,
+                                     double radiusKm, long now, long leaseExpiry) {
+        for (int attempt = 0; attempt < MAX_RESERVE_ATTEMPTS; attempt++) {
+            String bestCell = null;
+            String bestDriver = null;
+            double bestDistance = Double.MAX_VALUE;
+            for (String cell : cells) {
+                List<String> candidate = searchShard(cell, category, lat, lng, radiusKm, now, 0);
+                if (candidate != null && Double.parseDouble(candidate.get(1)) < bestDistance) {
+                    bestCell = cell;
+                    bestDriver = candidate.get(0);
+                    bestDistance = Double.parseDouble(candidate.get(1));
+                }
+            }
+            if (bestDriver == null) {
+                return null;
+            }
+
+            if (reserveInShard(bestCell, bestDriver, now, leaseExpiry)) {
+                return Long.valueOf(bestDriver);
+            }
+            log.debug("Driver {} was taken before it could be reserved, searching again", bestDriver);
+        }
+        return null;
+    }
+
+    @Override
+    public boolean reserve(Long driverId) {
+        return reserve(driverId, reservationLeaseSeconds);
+    }
+
+    /**
+     * Reserve the driver for {@code leaseSeconds} instead of the matching lease, e.g. for as long as a
+     * ride offer stays open
+     */
+    @Override
+    public boolean reserve(Long driverId, long leaseSeconds) {
+        String cell = shardRouter.currentCell(driverId);
+        if (cell == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long leaseExpiry = now + leaseSeconds * 1000;
+        boolean reserved = reserveInShard(cell, driverId.toString(), now, leaseExpiry);
+        if (reserved) {
+            heldLeases.put(driverId, String.valueOf(leaseExpiry));
+            log.info("Reserved driver {}", driverId);
+        }
+        return reserved;
+    }
+
+    /**
+     * Give back a driver reserved by this instance for a ride it could not assign. The lease is only
+     * cleared while it is still the one this reservation set; once the driver has been taken by another
+     * ride, gone busy or had the lease run out and renewed elsewhere, the driver's state is left alone.
+     */
+    @Override
+    public void release(Long driverId) {
+        String lease = heldLeases.remove(driverId);
+        if (lease == null) {
+            log.debug("Driver {} holds no reservation from this instance, nothing to release", driverId);
+            return;
+        }
+        afterCommit(() -> {
+            String cell = shardRouter.storedCell(driverId);
+            if (cell == null) {
+                return;
+            }
+            Long released = redisTemplate.execute(
+                    releaseDriverScript,
+                    List.of(RedisKeys.driverAvailability(cell)),
+                    driverId.toString(),
+                    lease
+            );
+            if (released != null && released == 1) {
+                log.info("Released driver {}", driverId);
+            }
+        });
+    }
+
+    /**
+     * Drivers that are AVAILABLE and not held by a live reservation, in the order given.
+     * Reads each driver's shard hash in one pipelined round trip.
+     */
+    @Override
+    public List<Long> filterAvailable(Collection<Long> driverIds) {
+        Map<Long, String> cells = shardRouter.currentCells(driverIds);
+        List<Long> located = driverIds.stream().filter(cells::containsKey).toList();
+        if (located.isEmpty()) {
+            return List.of();
+        }
+
+        List<Object> states = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Long driverId : located) {
+                connection.hashCommands().hGet(bytes(RedisKeys.driverAvailability(cells.get(driverId))), bytes(driverId));
+            }
+            return null;
+        });
+
+        long now = System.currentTimeMillis();
+        List<Long> available = new ArrayList<>();
+        for (int i = 0; i < located.size(); i++) {
+            if (isFree((String) states.get(i), now)) {
+                available.add(located.get(i));
+            }
+        }
+        return available;
+    }
+
+    private boolean reserveInShard(String cell, String driverId, long now, long leaseExpiry) {
+        Long reserved = redisTemplate.execute(
+                reserveDriverScript,
+                List.of(RedisKeys.driverAvailability(cell)),
+                driverId,
+                String.valueOf(now),
+                String.valueOf(leaseExpiry)
+        );
+        return reserved != null && reserved == 1;
+    }
+
+    /**
+     * Same check as the reservation scripts: available, or holding a lease that has run out
+     */
+    private static boolean isFree(String state, long now) {
+        if (state == null) {
+            return false;
+        }
+        if (AVAILABLE.equals(state)) {
+            return true;
+        }
+        try {
+            return Long.parseLong(state) <= now;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param category    partition to search, or null for every driver in the shard
+     * @param leaseExpiry lease to set on the driver found, or 0 to only look it up
+     * @return {driverId, distanceKm} of the nearest available driver in the shard, or null
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> searchShard(String cell, VehicleCategory category, double lat, double lng, double radiusKm,
+                                     long now, long leaseExpiry) {
+        String geoKey = category == null ? RedisKeys.driverLocations(cell) : RedisKeys.driverLocations(cell, category);
+        List<String> found = (List<String>) redisTemplate.execute(
+                reserveNearestDriverScript,
+                List.of(geoKey, RedisKeys.driverAvailability(cell)),
+                String.valueOf(lng),
+                String.valueOf(lat),
+                String.valueOf(radiusKm),
+                String.valueOf(MAX_CANDIDATES),
+                String.valueOf(now),
+                String.valueOf(leaseExpiry)
+        );
+        // The script's false reply is read back as a list holding a single null, not as null
+        return found == null || found.size() < 2 ? null : found;
+    }
+
+    /**
+     * Rebuild the mirror from the database. Existing reservations are kept,
+     * and entries for drivers that are no longer AVAILABLE are dropped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void syncFromDatabase() {
+        try {
+            Set<Long> available = new HashSet<>();
+            Map<Long, VehicleType> vehicleTypes = new HashMap<>();
+            for (User driver : userRepository.findByRoleAndDriverStatus(Role.DRIVER, DriverStatus.AVAILABLE)) {
+                if (Boolean.TRUE.equals(driver.getActive())) {
+                    available.add(driver.getId());
+                    if (driver.getVehicleType() != null) {
+                        vehicleTypes.put(driver.getId(), driver.getVehicleType());
+                    }
+                }
+            }
+            vehicleRegistry.registerAll(vehicleTypes);
+
+            Set<String> listed = redisTemplate.opsForSet().members(RedisKeys.AVAILABLE_DRIVERS);
+            Map<Long, String> cells = shardRouter.currentCells(available);
+            Map<String, Set<String>> mirroredByShard = new HashMap<>();
+            for (String shard : shardRouter.allShards()) {
+                mirroredByShard.put(shard, hashOps().keys(RedisKeys.driverAvailability(shard)));
+            }
+
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Long driverId : available) {
+                    connection.setCommands().sAdd(AVAILABLE_DRIVERS_KEY_BYTES, bytes(driverId));
+                }
+                if (listed != null) {
+                    for (String driverId : listed) {
+                        if (!available.contains(Long.valueOf(driverId))) {
+                            connection.setCommands().sRem(AVAILABLE_DRIVERS_KEY_BYTES, bytes(driverId));
+                        }
+                    }
+                }
+                cells.forEach((driverId, cell) -> connection.hashCommands()
+                        .hSetNX(bytes(RedisKeys.driverAvailability(cell)), bytes(driverId), AVAILABLE_BYTES));
+                mirroredByShard.forEach((shard, mirrored) -> {
+                    for (String driverId : mirrored) {
+                        if (!available.contains(Long.valueOf(driverId))) {
+                            connection.hashCommands().hDel(bytes(RedisKeys.driverAvailability(shard)), bytes(driverId));
+                        }
+                    }
+                });
+                return null;
+            });
+            log.info("Driver availability mirror synced with {} available drivers", available.size());
+        } catch (Exception e) {
+            log.warn("Could not sync driver availability to Redis: {}", e.getMessage());
+        }
+    }
+
+    private HashOperations<String, String, String> hashOps() {
+        return redisTemplate.opsForHash();
+    }
+
+    private static byte[] bytes(Object value) {
+        return value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Apply a mirror update once the surrounding transaction commits, so a rollback never
+     * leaves Redis ahead of the database. Redis failures are logged and left for the next sync.
+     */
+    private void afterCommit(Runnable update) {
+        Runnable safeUpdate = () -> {
+            try {
+                update.run();
+            } catch (Exception e) {
+                log.warn("Could not update driver availability in Redis: {}", e.getMessage());
+            }
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    safeUpdate.run();
+                }
+            });
+        } else {
+            safeUpdate.run();
+        }
+    }
+}
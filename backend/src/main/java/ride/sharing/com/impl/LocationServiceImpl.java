@@ -2,14 +2,46 @@ package ride.sharing.com.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.geo.*;
-import org.springframework.data.redis.connection.RedisGeoCommands;
+import org.springframework.data.redis.connection.ReturnType;
 import org.springframework.data.redis.core.GeoOperations;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
+import ride.sharing.com.dtos.LocationRecords;
+import ride.sharing.com.dtos.LocationUpdate;
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.enums.VehicleType.VehicleCategory;
+import ride.sharing.com.exception.BadRequestException;
+import ride.sharing.com.geo.DriverGridIndex;
+import ride.sharing.com.geo.DriverShardRouter;
+import ride.sharing.com.geo.DriverVehicleRegistry;
+import ride.sharing.com.geo.GeoUtils;
+import ride.sharing.com.geo.LocationUpdateFilter;
+import ride.sharing.com.geo.RedisKeys;
+import ride.sharing.com.geo.RideTrailStore;
+import ride.sharing.com.geo.ShardMove;
+import ride.sharing.com.matching.VehicleRequirement;
+import ride.sharing.com.pricing.SurgePricing;
+import ride.sharing.com.services.DriverAvailabilityService;
 import ride.sharing.com.services.LocationService;
+import ride.sharing.com.services.ReactiveLocationService;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,75 +50,380 @@ import java.util.stream.Collectors;
 public class LocationServiceImpl implements LocationService {
 
     private final RedisTemplate<String, String> redisTemplate;
-    private static final String GEO_KEY = "driver:locations";
+    private final DriverGridIndex driverIndex;
+    private final LocationUpdateFilter updateFilter;
+    private final RideTrailStore trailStore;
+    private final RedisScript<List> evictStaleDriversScript;
+    private final RedisScript<List> writeDriverLocationsScript;
+    private final RedisScript<List> moveDriverCellsScript;
+    private final DriverShardRouter shardRouter;
+    private final DriverVehicleRegistry vehicleRegistry;
+    private final DriverAvailabilityService availabilityService;
+    private final SurgePricing surgePricing;
+    private final ReactiveLocationService reactiveLocationService;
+
+    // Serve nearby searches from the in-process grid; Redis stays the durable, shared copy
+    @Value("${location.index.enabled:true}")
+    private boolean localIndexEnabled;
+
+    private static final byte[] DRIVER_CELLS_KEY_BYTES = RedisKeys.DRIVER_CELLS.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DRIVER_SHARDS_KEY_BYTES = RedisKeys.DRIVER_SHARDS.getBytes(StandardCharsets.UTF_8);
+
+    // Upper bound for one batch request, and for the members sent in a single GEOADD
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int GEOADD_CHUNK_SIZE = 500;
+    private static final int INDEX_REBUILD_PAGE_SIZE = 1_000;
+    private static final int NEARBY_LIMIT = 10;
+    // Candidates checked per availability round trip in a k-nearest search
+    private static final int KNN_PAGE_FACTOR = 4;
+    private static final int KNN_MIN_PAGE_SIZE = 20;
 
     @Override
     public void updateDriverLocation(Long driverId, Double lat, Double lng) {
         log.debug("Updating location for driver {}: ({}, {})", driverId, lat, lng);
 
-        GeoOperations<String, String> geoOps = redisTemplate.opsForGeo();
-        Point point = new Point(lng, lat);
+        if (!updateFilter.accept(driverId, lat, lng, System.currentTimeMillis())) {
+            log.trace("Driver {} has not moved since last update, skipping write", driverId);
+            return;
+        }
 
-        Long added = geoOps.add(GEO_KEY, point, driverId.toString());
+        writeLocations(Map.of(driverId, new Point(lng, lat)), System.currentTimeMillis());
+        log.debug("Driver {} location updated", driverId);
+    }
 
-        if (added != null && added > 0) {
-            log.info("Driver {} location updated successfully", driverId);
-        } else {
-            log.info("Driver {} location already exists, updated position", driverId);
+    @Override
+    public int updateDriverLocations(List<LocationUpdate> updates) {
+        if (updates == null || updates.isEmpty()) {
+            return 0;
+        }
+        if (updates.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Batch cannot contain more than " + MAX_BATCH_SIZE + " locations");
         }
+
+        // Gateways may buffer several pings per driver; only the latest one matters for the geo set
+        Map<Long, Point> latestByDriver = new LinkedHashMap<>();
+        for (LocationUpdate update : updates) {
+            if (update.getDriverId() == null || update.getLatitude() == null || update.getLongitude() == null) {
+                log.debug("Skipping incomplete location update {}", update);
+                continue;
+            }
+            latestByDriver.put(update.getDriverId(), new Point(update.getLongitude(), update.getLatitude()));
+        }
+
+        return writeLatest(latestByDriver, updates.size());
+    }
+
+    @Override
+    public int updateDriverLocations(LocationRecords records) {
+        if (records.size() == 0) {
+            return 0;
+        }
+        if (records.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Batch cannot contain more than " + MAX_BATCH_SIZE + " locations");
+        }
+
+        // Records carry their own timestamp, so the latest ping wins even if the gateway reordered them
+        Map<Long, Integer> latestRecord = new HashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            if (Double.isNaN(records.latitude(i)) || Double.isNaN(records.longitude(i))) {
+                log.debug("Skipping location record {} without coordinates", i);
+                continue;
+            }
+            Integer previous = latestRecord.get(records.driverId(i));
+            if (previous == null || records.timestamp(i) >= records.timestamp(previous)) {
+                latestRecord.put(records.driverId(i), i);
+            }
+        }
+
+        Map<Long, Point> latestByDriver = new LinkedHashMap<>();
+        latestRecord.forEach((driverId, i) ->
+                latestByDriver.put(driverId, new Point(records.longitude(i), records.latitude(i))));
+        return writeLatest(latestByDriver, records.size());
+    }
+
+    private int writeLatest(Map<Long, Point> latestByDriver, int received) {
+        long now = System.currentTimeMillis();
+        Map<Long, Point> latest = new LinkedHashMap<>();
+        latestByDriver.forEach((driverId, point) -> {
+            if (updateFilter.accept(driverId, point.getY(), point.getX(), now)) {
+                latest.put(driverId, point);
+            }
+        });
+
+        if (latest.isEmpty()) {
+            return 0;
+        }
+
+        writeLocations(latest, now);
+
+        log.debug("Batch updated {} driver locations from {} updates", latest.size(), received);
+        return latest.size();
+    }
+
+    /**
+     * Write accepted positions together with their last-seen time into each driver's shard, with one
+     * script per chunk of a shard, all sent in a single pipelined round trip. Drivers with a known vehicle
+     * type are also written to their category's partition of the shard.
+     * <p>
+     * The shard write reports the drivers that were not in that shard yet, so a driver staying in its cell
+     * never touches the shared driver:cells hash. Only drivers that entered a cell have their entry there
+     * swapped atomically, and are then removed from the cell they were in before.
+     */
+    private void writeLocations(Map<Long, Point> points, long now) {
+        try {
+            writeToShards(points, now);
+        } catch (RuntimeException e) {
+            // The filter already took these fixes as written; without this the next pings would be
+            // dropped as unchanged until the heartbeat and the driver could go stale
+            points.keySet().forEach(updateFilter::forget);
+            throw e;
+        }
+    }
+
+    private void writeToShards(Map<Long, Point> points, long now) {
+        // Local copy, so a ping costs no read of the shared type hash; types only change on vehicle registration
+        Map<Long, VehicleType> vehicleTypes = vehicleRegistry.vehicleTypes(points.keySet());
+        Map<String, List<List<Long>>> chunksByCell = new LinkedHashMap<>();
+        points.forEach((driverId, point) -> {
+            String cell = shardRouter.cellOf(point.getY(), point.getX());
+            List<List<Long>> chunks = chunksByCell.computeIfAbsent(cell, c -> new ArrayList<>());
+            if (chunks.isEmpty() || chunks.get(chunks.size() - 1).size() == GEOADD_CHUNK_SIZE) {
+                chunks.add(new ArrayList<>());
+            }
+            chunks.get(chunks.size() - 1).add(driverId);
+        });
+
+        byte[] script = key(writeDriverLocationsScript.getScriptAsString());
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            chunksByCell.forEach((cell, chunks) -> {
+                List<byte[]> keys = shardKeys(cell);
+                for (List<Long> chunk : chunks) {
+                    List<byte[]> keysAndArgs = new ArrayList<>(keys);
+                    keysAndArgs.add(key(String.valueOf(now)));
+                    for (Long driverId : chunk) {
+                        Point point = points.get(driverId);
+                        VehicleType type = vehicleTypes.get(driverId);
+                        keysAndArgs.add(member(driverId));
+                        keysAndArgs.add(key(String.valueOf(point.getX())));
+                        keysAndArgs.add(key(String.valueOf(point.getY())));
+                        keysAndArgs.add(key(String.valueOf(type == null ? 0 : type.getCategory().ordinal() + 1)));
+                    }
+                    // EVAL rather than EVALSHA, so a Redis that has not cached the script yet cannot fail the pipeline
+                    connection.scriptingCommands().eval(script, ReturnType.MULTI, keys.size(),
+                            keysAndArgs.toArray(byte[][]::new));
+                }
+            });
+            return null;
+        });
+
+        Map<Long, String> entered = new LinkedHashMap<>();
+        int next = 0;
+        for (Map.Entry<String, List<List<Long>>> shard : chunksByCell.entrySet()) {
+            for (int i = 0; i < shard.getValue().size(); i++) {
+                for (Object driverId : (List<?>) results.get(next++)) {
+                    entered.put(Long.valueOf(text(driverId)), shard.getKey());
+                }
+            }
+        }
+
+        List<ShardMove> moves = entered.isEmpty() ? List.of() : moveCells(entered);
+        if (!moves.isEmpty()) {
+            availabilityService.relocate(moves);
+        }
+
+        points.forEach((driverId, point) -> {
+            shardRouter.remember(driverId, shardRouter.cellOf(point.getY(), point.getX()));
+            if (localIndexEnabled) {
+                driverIndex.put(driverId, vehicleTypes.get(driverId), point.getY(), point.getX(), now);
+            }
+            trailStore.append(driverId, point.getY(), point.getX(), now);
+            surgePricing.recordDriver(driverId, point.getY(), point.getX(), now);
+        });
+    }
+
+    /**
+     * Point driver:cells at the cells the drivers entered and take them out of the cells they left.
+     * Only drivers that were not in their shard yet get here, so driver:cells stays off the path of
+     * drivers moving within a cell.
+     */
+    @SuppressWarnings("unchecked")
+    private List<ShardMove> moveCells(Map<Long, String> entered) {
+        List<byte[]> keysAndArgs = new ArrayList<>();
+        keysAndArgs.add(DRIVER_CELLS_KEY_BYTES);
+        entered.forEach((driverId, cell) -> {
+            keysAndArgs.add(member(driverId));
+            keysAndArgs.add(key(cell));
+        });
+        byte[] script = key(moveDriverCellsScript.getScriptAsString());
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.scriptingCommands().eval(script, ReturnType.MULTI, 1, keysAndArgs.toArray(byte[][]::new));
+            for (String cell : new LinkedHashSet<>(entered.values())) {
+                connection.setCommands().sAdd(DRIVER_SHARDS_KEY_BYTES, key(cell));
+            }
+            return null;
+        });
+
+        List<Object> previousCells = (List<Object>) results.get(0);
+        List<ShardMove> moves = new ArrayList<>(entered.size());
+        int i = 0;
+        for (Map.Entry<Long, String> driver : entered.entrySet()) {
+            String previous = text(previousCells.get(i++));
+            // A driver back in the cell driver:cells already named was swept from it, so there is nothing to remove
+            boolean left = !previous.isEmpty() && !previous.equals(driver.getValue());
+            moves.add(new ShardMove(driver.getKey(), left ? previous : null, driver.getValue()));
+        }
+
+        List<ShardMove> left = moves.stream().filter(move -> move.fromCell() != null).toList();
+        if (!left.isEmpty()) {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (ShardMove move : left) {
+                    byte[] member = member(move.driverId());
+                    for (byte[] shardKey : shardKeys(move.fromCell())) {
+                        connection.zSetCommands().zRem(shardKey, member);
+                    }
+                }
+                return null;
+            });
+        }
+        return moves;
+    }
+
+    /**
+     * Geo set, last-seen set and category partitions of one shard, in the order the write script expects
+     */
+    private static List<byte[]> shardKeys(String cell) {
+        List<byte[]> keys = new ArrayList<>();
+        keys.add(key(RedisKeys.driverLocations(cell)));
+        keys.add(key(RedisKeys.driverLastSeen(cell)));
+        for (VehicleCategory category : VehicleCategory.values()) {
+            keys.add(key(RedisKeys.driverLocations(cell, category)));
+        }
+        return keys;
     }
 
     @Override
     public List<Long> findNearbyDrivers(Double lat, Double lng, Double radiusKm) {
+        return findNearbyDrivers(lat, lng, radiusKm, VehicleRequirement.ANY);
+    }
+
+    /**
+     * Drivers near the point whose vehicle meets the requirement, searching only its category's partition
+     */
+    @Override
+    public List<Long> findNearbyDrivers(Double lat, Double lng, Double radiusKm, VehicleRequirement requirement) {
         log.debug("Searching for drivers within {}km of ({}, {})", radiusKm, lat, lng);
 
-        GeoOperations<String, String> geoOps = redisTemplate.opsForGeo();
+        if (localIndexEnabled) {
+            List<Long> driverIds = requirement.coversPartition()
+                    ? driverIndex.nearby(requirement.category(), lat, lng, radiusKm, NEARBY_LIMIT)
+                    : driverIndex.nearest(requirement.category(), lat, lng, NEARBY_LIMIT, radiusKm,
+                            driverId -> requirement.accepts(driverIndex.vehicleType(driverId)));
+            log.debug("Found {} nearby drivers in local index", driverIds.size());
+            return driverIds;
+        }
 
-        // Create circle for search area
-        Circle circle = new Circle(
-                new Point(lng, lat),
-                new Distance(radiusKm, Metrics.KILOMETERS)
-        );
+        List<Long> driverIds = eligible(searchShards(lat, lng, radiusKm, NEARBY_LIMIT, requirement.category()), requirement);
+        if (driverIds.isEmpty()) {
+            log.warn("No drivers found within {}km", radiusKm);
+            return driverIds;
+        }
 
-        // Create GeoRadiusCommandArgs
-        RedisGeoCommands.GeoRadiusCommandArgs args = RedisGeoCommands.GeoRadiusCommandArgs
-                .newGeoRadiusArgs()
-                .includeDistance()
-                .sortAscending()
-                .limit(10);
-
-        // Search for nearby drivers
-        GeoResults<RedisGeoCommands.GeoLocation<String>> results = geoOps.radius(
-                GEO_KEY,
-                circle,
-                args
-        );
+        log.info("Found {} nearby drivers", driverIds.size());
+        return driverIds;
+    }
 
-        if (results == null || results.getContent().isEmpty()) {
-            log.warn("No drivers found within {}km", radiusKm);
+    /**
+     * Walks candidates nearest first and checks them a page at a time, so reaching the k-th available
+     * driver costs one index traversal and usually one availability check, however far away it is.
+     */
+    @Override
+    public List<Long> findNearestDrivers(Double lat, Double lng, int k, Double maxDistanceKm,
+                                         VehicleRequirement requirement, UnaryOperator<List<Long>> availableFilter) {
+        if (k <= 0) {
             return List.of();
         }
 
-        List<Long> driverIds = results.getContent().stream()
-                .map(result -> {
-                    String driverIdStr = result.getContent().getName();
-                    Distance distance = result.getDistance();
-                    log.debug("Found driver {} at distance {}km", driverIdStr,
-                            distance != null ? distance.getValue() : "unknown");
-                    return Long.parseLong(driverIdStr);
-                })
-                .collect(Collectors.toList());
+        int pageSize = Math.max(KNN_MIN_PAGE_SIZE, k * KNN_PAGE_FACTOR);
+        List<Long> nearest = new ArrayList<>(k);
+        Set<Long> checked = new HashSet<>();
+        while (nearest.size() < k) {
+            List<Long> page = localIndexEnabled
+                    ? driverIndex.nearest(requirement.category(), lat, lng, pageSize, maxDistanceKm,
+                            driverId -> !checked.contains(driverId) && (requirement.coversPartition()
+                                    || requirement.accepts(driverIndex.vehicleType(driverId))))
+                    : searchShards(lat, lng, maxDistanceKm, checked.size() + pageSize, requirement.category()).stream()
+                            .filter(driverId -> !checked.contains(driverId))
+                            .toList();
+            if (page.isEmpty()) {
+                break;
+            }
 
-        log.info("Found {} nearby drivers", driverIds.size());
-        return driverIds;
+            checked.addAll(page);
+            List<Long> eligible = localIndexEnabled ? page : eligible(page, requirement);
+            for (Long driverId : eligible.isEmpty() ? eligible : availableFilter.apply(eligible)) {
+                if (nearest.size() < k) {
+                    nearest.add(driverId);
+                }
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+
+        log.debug("Found {} of {} nearest available drivers within {}km after checking {}",
+                nearest.size(), k, maxDistanceKm, checked.size());
+        return nearest;
+    }
+
+    /**
+     * Drivers whose registered vehicle meets the requirement, in the order given. Partitions already
+     * hold only the category, so this reads vehicle types only when seat counts differ within it.
+     */
+    private List<Long> eligible(List<Long> driverIds, VehicleRequirement requirement) {
+        if (requirement.coversPartition() || driverIds.isEmpty()) {
+            return driverIds;
+        }
+        Map<Long, VehicleType> vehicleTypes = vehicleRegistry.vehicleTypes(driverIds);
+        return driverIds.stream()
+                .filter(driverId -> requirement.accepts(vehicleTypes.get(driverId)))
+                .toList();
+    }
+
+    /**
+     * Radius search over the shards overlapping the circle, merged nearest first. The shards are queried
+     * concurrently, so a search spanning four cells waits for one round trip rather than four.
+     */
+    private List<Long> searchShards(double lat, double lng, double radiusKm, int limit, VehicleCategory category) {
+        List<Long> driverIds = reactiveLocationService.searchShards(lat, lng, radiusKm, limit, category).block();
+        return driverIds == null ? List.of() : driverIds;
     }
 
     @Override
     public void removeDriverLocation(Long driverId) {
         log.info("Removing location for driver {}", driverId);
 
-        GeoOperations<String, String> geoOps = redisTemplate.opsForGeo();
-        Long removed = geoOps.remove(GEO_KEY, driverId.toString());
+        driverIndex.remove(driverId);
+        updateFilter.forget(driverId);
+
+        String cell = shardRouter.storedCell(driverId);
+        shardRouter.forget(driverId);
+        if (cell == null) {
+            log.warn("Driver {} location not found in cache", driverId);
+            return;
+        }
+
+        VehicleType type = vehicleRegistry.storedVehicleType(driverId);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            byte[] member = member(driverId);
+            connection.zSetCommands().zRem(key(RedisKeys.driverLocations(cell)), member);
+            connection.zSetCommands().zRem(key(RedisKeys.driverLastSeen(cell)), member);
+            if (type != null) {
+                connection.zSetCommands().zRem(key(RedisKeys.driverLocations(cell, type.getCategory())), member);
+            }
+            connection.hashCommands().hDel(DRIVER_CELLS_KEY_BYTES, member);
+            return null;
+        });
+        Long removed = (Long) results.get(0);
 
         if (removed != null && removed > 0) {
             log.info("Driver {} location removed successfully", driverId);
@@ -95,14 +432,93 @@ public class LocationServiceImpl implements LocationService {
         }
     }
 
+    @Override
+    public List<Long> evictStaleDrivers(long lastSeenBeforeMillis, int batchSize) {
+        List<Long> evicted = new ArrayList<>();
+        for (String cell : shardRouter.allShards()) {
+            evicted.addAll(evictStaleDrivers(cell, lastSeenBeforeMillis, batchSize));
+        }
+
+        for (Long driverId : evicted) {
+            driverIndex.remove(driverId);
+            updateFilter.forget(driverId);
+        }
+        // Other instances may have evicted drivers this one still holds locally
+        for (Long driverId : driverIndex.evictOlderThan(lastSeenBeforeMillis)) {
+            updateFilter.forget(driverId);
+        }
+
+        if (!evicted.isEmpty()) {
+            log.info("Evicted {} drivers not seen since {}", evicted.size(), lastSeenBeforeMillis);
+        }
+        return evicted;
+    }
+
+    /**
+     * Evict one shard. A stale entry can be left behind in a cell the driver has since moved out of
+     * (a move racing between instances); those are dropped without reporting the driver, so a live
+     * driver is never taken offline because of an old copy.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Long> evictStaleDrivers(String cell, long lastSeenBeforeMillis, int batchSize) {
+        List<String> keys = new ArrayList<>(List.of(RedisKeys.driverLocations(cell), RedisKeys.driverLastSeen(cell),
+                RedisKeys.driverAvailability(cell)));
+        for (VehicleCategory category : VehicleCategory.values()) {
+            keys.add(RedisKeys.driverLocations(cell, category));
+        }
+
+        List<Long> stale = new ArrayList<>();
+        List<String> batch;
+        do {
+            batch = redisTemplate.execute(
+                    evictStaleDriversScript,
+                    keys,
+                    String.valueOf(lastSeenBeforeMillis),
+                    String.valueOf(batchSize)
+            );
+            if (batch == null) {
+                break;
+            }
+            for (String member : batch) {
+                stale.add(Long.parseLong(member));
+            }
+        } while (batch.size() == batchSize);
+
+        if (stale.isEmpty()) {
+            return stale;
+        }
+
+        stale.forEach(shardRouter::forget);
+        Map<Long, String> currentCells = shardRouter.currentCells(stale);
+        List<Long> evicted = stale.stream()
+                .filter(driverId -> cell.equals(currentCells.get(driverId)))
+                .collect(Collectors.toList());
+        if (!evicted.isEmpty()) {
+            redisTemplate.opsForHash().delete(RedisKeys.DRIVER_CELLS, evicted.stream().map(String::valueOf).toArray());
+            evicted.forEach(shardRouter::forget);
+        }
+        return evicted;
+    }
+
     @Override
     public Double getDistance(Long driverId, Double lat, Double lng) {
         log.debug("Calculating distance for driver {} from ({}, {})", driverId, lat, lng);
 
+        double[] indexed = localIndexEnabled ? driverIndex.position(driverId) : null;
+        if (indexed != null) {
+            return GeoUtils.haversineKm(indexed[0], indexed[1], lat, lng);
+        }
+
+        String cell = shardRouter.currentCell(driverId);
+        if (cell == null) {
+            log.warn("Driver {} location not found in cache", driverId);
+            return null;
+        }
+
         GeoOperations<String, String> geoOps = redisTemplate.opsForGeo();
 
         // Get driver's current position
-        List<Point> positions = geoOps.position(GEO_KEY, driverId.toString());
+        List<Point> positions = geoOps.position(RedisKeys.driverLocations(cell), driverId.toString());
 
         if (positions == null || positions.isEmpty() || positions.get(0) == null) {
             log.warn("Driver {} location not found in cache", driverId);
@@ -112,7 +528,7 @@ public class LocationServiceImpl implements LocationService {
         Point driverPoint = positions.get(0);
 
         // Calculate distance manually using Haversine formula
-        double distance = calculateHaversineDistance(
+        double distance = GeoUtils.haversineKm(
                 driverPoint.getY(), driverPoint.getX(),
                 lat, lng
         );
@@ -122,25 +538,110 @@ public class LocationServiceImpl implements LocationService {
     }
 
     /**
-     * Calculate distance between two coordinates using Haversine formula
-     * @param lat1 Latitude of point 1
-     * @param lon1 Longitude of point 1
-     * @param lat2 Latitude of point 2
-     * @param lon2 Longitude of point 2
-     * @return Distance in kilometers
+     * Positions of several drivers, from the local index where possible and otherwise with one
+     * multi-member GEOPOS per shard in a single pipelined round trip. Drivers without a location are left out.
      */
-    private double calculateHaversineDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int EARTH_RADIUS_KM = 6371;
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, Point> getDriverPositions(Collection<Long> driverIds) {
+        Map<Long, Point> positions = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long driverId : driverIds) {
+            double[] indexed = localIndexEnabled ? driverIndex.position(driverId) : null;
+            if (indexed != null) {
+                positions.put(driverId, new Point(indexed[1], indexed[0]));
+            } else {
+                missing.add(driverId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return positions;
+        }
 
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
+        Map<String, List<Long>> driversByCell = new LinkedHashMap<>();
+        shardRouter.currentCells(missing).forEach((driverId, cell) ->
+                driversByCell.computeIfAbsent(cell, c -> new ArrayList<>()).add(driverId));
 
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            driversByCell.forEach((cell, drivers) -> connection.geoCommands().geoPos(
+                    key(RedisKeys.driverLocations(cell)),
+                    drivers.stream().map(LocationServiceImpl::member).toArray(byte[][]::new)));
+            return null;
+        });
 
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        int next = 0;
+        for (List<Long> drivers : driversByCell.values()) {
+            List<Point> points = (List<Point>) results.get(next++);
+            for (int i = 0; points != null && i < drivers.size(); i++) {
+                if (points.get(i) != null) {
+                    positions.put(drivers.get(i), points.get(i));
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Load the current contents of every Redis shard into the local index.
+     * Redis being unreachable at startup is not fatal; the index then fills from live updates.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildLocalIndex() {
+        if (!localIndexEnabled) {
+            return;
+        }
+
+        try {
+            driverIndex.clear();
+            for (String cell : shardRouter.allShards()) {
+                loadShard(cell);
+            }
+            log.info("Local driver index rebuilt with {} drivers", driverIndex.size());
+        } catch (Exception e) {
+            log.warn("Could not rebuild local driver index from Redis: {}", e.getMessage());
+        }
+    }
+
+    private void loadShard(String cell) {
+        String geoKey = RedisKeys.driverLocations(cell);
+        GeoOperations<String, String> geoOps = redisTemplate.opsForGeo();
+        long start = 0;
+        while (true) {
+            Set<String> members = redisTemplate.opsForZSet()
+                    .range(geoKey, start, start + INDEX_REBUILD_PAGE_SIZE - 1);
+            if (members == null || members.isEmpty()) {
+                break;
+            }
+
+            List<String> page = new ArrayList<>(members);
+            List<Point> positions = geoOps.position(geoKey, page.toArray(new String[0]));
+            Map<Long, VehicleType> vehicleTypes = vehicleRegistry.vehicleTypes(page.stream().map(Long::valueOf).toList());
+            long now = System.currentTimeMillis();
+            for (int i = 0; positions != null && i < page.size(); i++) {
+                Point point = positions.get(i);
+                if (point != null) {
+                    long driverId = Long.parseLong(page.get(i));
+                    driverIndex.put(driverId, vehicleTypes.get(driverId), point.getY(), point.getX(), now);
+                    shardRouter.remember(driverId, cell);
+                }
+            }
+
+            if (members.size() < INDEX_REBUILD_PAGE_SIZE) {
+                break;
+            }
+            start += INDEX_REBUILD_PAGE_SIZE;
+        }
+    }
+
+    private static byte[] key(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(Object value) {
+        return value instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : String.valueOf(value);
+    }
 
-        return EARTH_RADIUS_KM * c;
+    private static byte[] member(Long driverId) {
+        return driverId.toString().getBytes(StandardCharsets.UTF_8);
     }
-}
\ No newline at end of file
+}
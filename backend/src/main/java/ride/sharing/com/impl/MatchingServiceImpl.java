@@ -2,16 +2,29 @@ package ride.sharing.com.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.geo.Point;
 import org.springframework.stereotype.Service;
-import ride.sharing.com.enums.DriverStatus;
-import ride.sharing.com.enums.Role;
 import ride.sharing.com.exception.ResourceNotFoundException;
-import ride.sharing.com.models.User;
+import ride.sharing.com.geo.GeoUtils;
+import ride.sharing.com.matching.DriverCandidate;
+import ride.sharing.com.matching.MatchingStrategy;
+import ride.sharing.com.matching.MatchingStrategySelector;
+import ride.sharing.com.matching.PickupRequest;
+import ride.sharing.com.matching.VehicleRequirement;
+import ride.sharing.com.services.DriverAvailabilityService;
 import ride.sharing.com.services.LocationService;
 import ride.sharing.com.services.MatchingService;
+import ride.sharing.com.services.ReactiveLocationService;
 import ride.sharing.com.services.UserService;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
 
 @Service
 @RequiredArgsConstructor
@@ -19,77 +32,123 @@ import java.util.List;
 public class MatchingServiceImpl implements MatchingService {
 
     private final LocationService locationService;
+    private final ReactiveLocationService reactiveLocationService;
     private final UserService userService;
+    private final DriverAvailabilityService driverAvailabilityService;
+    private final MatchingStrategySelector strategies;
 
-    private static final double INITIAL_SEARCH_RADIUS_KM = 5.0;
-    private static final double MAX_SEARCH_RADIUS_KM = 20.0;
-    private static final double RADIUS_INCREMENT_KM = 5.0;
+    // Straight-line order is only a proxy for other strategies, so they rank this many times the drivers needed
+    private static final int RANKING_CANDIDATE_FACTOR = 3;
+    // Available drivers tried, best first, when reservations conflict
+    private static final int RESERVATION_CANDIDATES = 5;
+
+    @Value("${matching.search-radius-km:20}")
+    private double searchRadiusKm;
 
     @Override
-    public Long findNearestDriver(Double pickupLat, Double pickupLng) {
-        log.info("Finding nearest driver for location: ({}, {})", pickupLat, pickupLng);
-
-        double currentRadius = INITIAL_SEARCH_RADIUS_KM;
-
-        while (currentRadius <= MAX_SEARCH_RADIUS_KM) {
-            log.debug("Searching within {}km radius", currentRadius);
-
-            List<Long> nearbyDriverIds = locationService.findNearbyDrivers(
-                    pickupLat,
-                    pickupLng,
-                    currentRadius
-            );
-
-            if (!nearbyDriverIds.isEmpty()) {
-                // Verify driver is actually available
-                for (Long driverId : nearbyDriverIds) {
-                    try {
-                        User driver = userService.findById(driverId);
-                        if (driver.getRole() == Role.DRIVER &&
-                                driver.getDriverStatus() == DriverStatus.AVAILABLE) {
-
-                            Double distance = locationService.getDistance(driverId, pickupLat, pickupLng);
-                            log.info("Found available driver {} at distance {}km", driverId, distance);
-                            return driverId;
-                        }
-                    } catch (Exception e) {
-                        log.warn("Driver {} not found or unavailable, skipping", driverId);
-                    }
-                }
-            }
+    public Long findNearestDriver(Double pickupLat, Double pickupLng, VehicleRequirement requirement) {
+        MatchingStrategy strategy = strategies.forPickup(pickupLat, pickupLng);
+        log.info("Finding driver for location: ({}, {}) with {} strategy", pickupLat, pickupLng, strategy.name());
+
+        Long driverId;
+        try {
+            // Nearest-first search, availability check and reservation happen in one atomic Redis call,
+            // as long as every driver in the searched partition has enough seats
+            driverId = strategy.ranksByStraightLine() && requirement.coversPartition()
+                    ? driverAvailabilityService.reserveNearest(pickupLat, pickupLng, searchRadiusKm, requirement.category())
+                    : reserveRanked(pickupLat, pickupLng, requirement, strategy, true);
+        } catch (Exception e) {
+            log.warn("Driver reservation in Redis failed, falling back to database checks: {}", e.getMessage());
+            driverId = reserveRanked(pickupLat, pickupLng, requirement, strategy, false);
+        }
 
-            currentRadius += RADIUS_INCREMENT_KM;
+        if (driverId == null) {
+            log.error("No available drivers found within {}km", searchRadiusKm);
+            throw new ResourceNotFoundException("No drivers available nearby. Please try again later.");
         }
 
-        log.error("No available drivers found within {}km", MAX_SEARCH_RADIUS_KM);
-        throw new ResourceNotFoundException("No drivers available nearby. Please try again later.");
+        log.info("Found available driver {}", driverId);
+        return driverId;
+    }
+
+    /**
+     * Rank available candidates with the strategy and reserve the first one still free, either in Redis
+     * or with a conditional update in the database. A driver taken by a concurrent request just moves
+     * us to the next one.
+     *
+     * @return the reserved driver, or null when none could be reserved
+     */
+    private Long reserveRanked(Double pickupLat, Double pickupLng, VehicleRequirement requirement,
+                               MatchingStrategy strategy, boolean inRedis) {
+        UnaryOperator<List<Long>> availableFilter = inRedis
+                ? ids -> driverAvailabilityService.filterAvailable(ids)
+                : userService::filterAvailableDrivers;
+
+        for (Long driverId : rankedDrivers(pickupLat, pickupLng, RESERVATION_CANDIDATES, requirement, strategy, availableFilter)) {
+            boolean reserved = inRedis ? driverAvailabilityService.reserve(driverId) : userService.reserveDriver(driverId);
+            if (reserved) {
+                // Only feeds the log line, so it must not hold up the match
+                reactiveLocationService.getDistance(driverId, pickupLat, pickupLng).subscribe(
+                        distance -> log.info("Reserved available driver {} at distance {}km", driverId, distance),
+                        e -> log.debug("Could not look up the distance of driver {}: {}", driverId, e.getMessage()));
+                return driverId;
+            }
+            log.debug("Driver {} was reserved concurrently, trying next candidate", driverId);
+        }
+        return null;
     }
 
     @Override
-    public List<Long> findTopNearestDrivers(Double pickupLat, Double pickupLng, int count) {
-        log.info("Finding top {} nearest drivers for location: ({}, {})", count, pickupLat, pickupLng);
+    public List<Long> findTopNearestDrivers(Double pickupLat, Double pickupLng, int count, VehicleRequirement requirement) {
+        MatchingStrategy strategy = strategies.forPickup(pickupLat, pickupLng);
+        log.info("Finding top {} drivers for location: ({}, {}) with {} strategy",
+                count, pickupLat, pickupLng, strategy.name());
+
+        List<Long> availableDrivers = rankedDrivers(pickupLat, pickupLng, count, requirement, strategy,
+                userService::filterAvailableDrivers);
+        availableDrivers = availableDrivers.subList(0, Math.min(count, availableDrivers.size()));
 
-        List<Long> nearbyDriverIds = locationService.findNearbyDrivers(
+        log.info("Found {} available drivers", availableDrivers.size());
+        return availableDrivers;
+    }
+
+    /**
+     * Available drivers around the pickup whose vehicle meets the requirement, best first by the strategy.
+     * Keeps walking outwards past busy drivers until enough available ones are found.
+     */
+    private List<Long> rankedDrivers(Double pickupLat, Double pickupLng, int count, VehicleRequirement requirement,
+                                     MatchingStrategy strategy, UnaryOperator<List<Long>> availableFilter) {
+        boolean nearestFirst = strategy.ranksByStraightLine();
+        List<Long> nearest = locationService.findNearestDrivers(
                 pickupLat,
                 pickupLng,
-                MAX_SEARCH_RADIUS_KM
+                nearestFirst ? count : count * RANKING_CANDIDATE_FACTOR,
+                searchRadiusKm,
+                requirement,
+                availableFilter
         );
+        if (nearestFirst || nearest.size() < 2) {
+            return nearest;
+        }
 
-        // Filter only available drivers
-        List<Long> availableDrivers = nearbyDriverIds.stream()
-                .filter(driverId -> {
-                    try {
-                        User driver = userService.findById(driverId);
-                        return driver.getRole() == Role.DRIVER &&
-                                driver.getDriverStatus() == DriverStatus.AVAILABLE;
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .limit(count)
-                .toList();
+        // Positions come back from Redis while the idle times are read from the database
+        CompletableFuture<Map<Long, Point>> pendingPositions = reactiveLocationService.getDriverPositions(nearest).toFuture();
+        Map<Long, LocalDateTime> availableSince = strategy.usesIdleTime() ? userService.getAvailableSince(nearest) : Map.of();
+        Map<Long, Point> positions = pendingPositions.join();
+        List<DriverCandidate> candidates = new ArrayList<>(nearest.size());
+        for (Long driverId : nearest) {
+            Point position = positions.get(driverId);
+            if (position == null) {
+                continue;
+            }
+            double distanceKm = GeoUtils.haversineKm(pickupLat, pickupLng, position.getY(), position.getX());
+            LocalDateTime since = availableSince.get(driverId);
+            candidates.add(new DriverCandidate(driverId, position.getY(), position.getX(), distanceKm,
+                    since == null ? 0 : since.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+        }
 
-        log.info("Found {} available drivers", availableDrivers.size());
-        return availableDrivers;
+        return strategy.rank(new PickupRequest(null, pickupLat, pickupLng), candidates).stream()
+                .map(DriverCandidate::driverId)
+                .toList();
     }
 }
@@ -0,0 +1,242 @@
+package ride.sharing.com.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.geo.Point;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ride.sharing.com.enums.RideStatus;
+import ride.sharing.com.geo.GeoUtils;
+import ride.sharing.com.matching.VehicleRequirement;
+import ride.sharing.com.models.Ride;
+import ride.sharing.com.pool.InsertionHeuristic;
+import ride.sharing.com.pool.PoolInsertion;
+import ride.sharing.com.pool.PoolRoute;
+import ride.sharing.com.pool.PoolRouteRegistry;
+import ride.sharing.com.pool.PoolStop;
+import ride.sharing.com.repositories.RideRepository;
+import ride.sharing.com.services.LocationService;
+import ride.sharing.com.services.PoolService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Serves shared rides from vehicles already driving pooled routes.
+ * <p>
+ * A new shared request is tried against every pooled vehicle near the pickup with
+ * {@link InsertionHeuristic}, in parallel once there are enough candidates, and goes to the vehicle
+ * whose route grows the least. Routes live in memory and are rebuilt from the rides table on startup.
+ * <p>
+ * A stop is placed on the route as soon as it is planned, so two requests cannot book the same seats, and
+ * taken off again if the transaction that planned it rolls back. Routes are per instance: with several
+ * instances, a shared request only finds the pooled vehicles whose rides were accepted on the instance it
+ * reaches, and falls back to matching a new vehicle otherwise.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PoolServiceImpl implements PoolService {
+
+    // Seats assumed for a vehicle without a registered type
+    private static final int DEFAULT_SEATS = 4;
+    // An insertion loses when the route changes while it is planned; plan again this many times
+    private static final int MAX_INSERT_ATTEMPTS = 3;
+
+    private final PoolRouteRegistry routes;
+    private final LocationService locationService;
+    private final RideRepository rideRepository;
+
+    // How far a pooled vehicle may drive along its route before picking a new rider up
+    @Value("${pool.max-pickup-km:2}")
+    private double maxPickupKm;
+
+    // A pooled rider's trip may be at most this many times the direct distance
+    @Value("${pool.max-detour-factor:1.5}")
+    private double maxDetourFactor;
+
+    // Below this many candidate vehicles, evaluating insertions on one thread is faster
+    @Value("${pool.parallel-threshold:32}")
+    private int parallelThreshold;
+
+    /**
+     * @return the driver whose route took the ride, or null when no pooled vehicle can serve it
+     */
+    @Override
+    public Long insert(Ride ride) {
+        PoolStop pickup = pickup(ride);
+        PoolStop dropoff = dropoff(ride, 0);
+        double maxRideKm = maxDetourFactor * directKm(ride);
+
+        for (int attempt = 0; attempt < MAX_INSERT_ATTEMPTS; attempt++) {
+            long started = System.nanoTime();
+            Candidate best = cheapestInsertion(pickup, dropoff);
+            log.debug("Pool insertion search for ride {} took {}µs", ride.getId(), (System.nanoTime() - started) / 1000);
+            if (best == null) {
+                return null;
+            }
+
+            PoolInsertion insertion = best.insertion();
+            if (routes.insert(best.route(), insertion, pickup, dropoff.withSlack(maxRideKm - insertion.rideKm()))) {
+                removeOnRollback(insertion.driverId(), ride.getId());
+                log.info("Pooled ride {} into driver {}'s route, adding {}km", ride.getId(), insertion.driverId(),
+                        String.format("%.2f", insertion.addedKm()));
+                return insertion.driverId();
+            }
+            log.debug("Route of driver {} changed while pooling ride {}, planning again", insertion.driverId(), ride.getId());
+        }
+        return null;
+    }
+
+    /**
+     * Only pooled vehicles within reach of the pickup are evaluated. They are found with a nearest-driver
+     * search around the pickup that keeps drivers with a route, so positions are read for those alone
+     * rather than for every route on the instance.
+     */
+    private Candidate cheapestInsertion(PoolStop pickup, PoolStop dropoff) {
+        Collection<PoolRoute> active = routes.routes();
+        if (active.isEmpty()) {
+            return null;
+        }
+
+        Set<Long> pooledDrivers = active.stream().map(PoolRoute::driverId).collect(Collectors.toSet());
+        List<Long> nearbyDrivers = locationService.findNearestDrivers(pickup.lat(), pickup.lng(), pooledDrivers.size(),
+                maxPickupKm, VehicleRequirement.ANY, driverIds -> driverIds.stream().filter(pooledDrivers::contains).toList());
+        if (nearbyDrivers.isEmpty()) {
+            return null;
+        }
+
+        Map<Long, Point> positions = locationService.getDriverPositions(nearbyDrivers);
+        List<PoolRoute> nearby = nearbyDrivers.stream()
+                .map(routes::route)
+                .filter(route -> route != null && positions.get(route.driverId()) != null)
+                .toList();
+
+        return (nearby.size() >= parallelThreshold ? nearby.parallelStream() : nearby.stream())
+                .map(route -> {
+                    Point position = positions.get(route.driverId());
+                    PoolInsertion insertion = InsertionHeuristic.cheapest(route, position.getY(), position.getX(),
+                            pickup, dropoff, maxPickupKm, maxDetourFactor);
+                    return insertion == null ? null : new Candidate(route, insertion);
+                })
+                .filter(Objects::nonNull)
+                .min(Comparator.comparingDouble(candidate -> candidate.insertion().addedKm()))
+                .orElse(null);
+    }
+
+    /**
+     * Start a route for a shared ride accepted by a driver who had none
+     */
+    @Override
+    public void open(Ride ride) {
+        routes.put(PoolRoute.open(ride.getDriver().getId(), seats(ride),
+                pickup(ride), dropoff(ride, (maxDetourFactor - 1) * directKm(ride))));
+        removeOnRollback(ride.getDriver().getId(), ride.getId());
+    }
+
+    @Override
+    public void pickedUp(Long driverId, Long rideId) {
+        routes.pickedUp(driverId, rideId);
+    }
+
+    /**
+     * Take a completed or cancelled ride off its vehicle's route
+     *
+     * @return whether the driver still has pooled riders to serve
+     */
+    @Override
+    public boolean leave(Long driverId, Long rideId) {
+        return driverId != null && routes.remove(driverId, rideId);
+    }
+
+    /**
+     * Rebuild routes from the shared rides still in progress: riders already on board first,
+     * then pickups and dropoffs in the order the rides were accepted.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildRoutes() {
+        try {
+            Map<Long, List<Ride>> ridesByDriver = new LinkedHashMap<>();
+            List<Ride> active = new ArrayList<>(rideRepository.findByStatus(RideStatus.IN_PROGRESS));
+            active.addAll(rideRepository.findByStatus(RideStatus.ACCEPTED));
+            for (Ride ride : active) {
+                if (Boolean.TRUE.equals(ride.getShared()) && ride.getDriver() != null) {
+                    ridesByDriver.computeIfAbsent(ride.getDriver().getId(), id -> new ArrayList<>()).add(ride);
+                }
+            }
+
+            routes.clear();
+            ridesByDriver.forEach((driverId, rides) -> {
+                List<PoolStop> pickups = new ArrayList<>();
+                List<PoolStop> dropoffs = new ArrayList<>();
+                int onboard = 0;
+                for (Ride ride : rides) {
+                    if (ride.getStatus() == RideStatus.IN_PROGRESS) {
+                        onboard += passengers(ride);
+                    } else {
+                        pickups.add(pickup(ride));
+                    }
+                    dropoffs.add(dropoff(ride, (maxDetourFactor - 1) * directKm(ride)));
+                }
+                pickups.addAll(dropoffs);
+                routes.put(new PoolRoute(driverId, seats(rides.get(0)), onboard, pickups));
+            });
+            log.info("Rebuilt {} pooled routes", ridesByDriver.size());
+        } catch (Exception e) {
+            log.warn("Could not rebuild pooled routes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Take the ride back off the route if the surrounding transaction rolls back, so the vehicle is not
+     * left carrying a rider the database never recorded
+     */
+    private void removeOnRollback(Long driverId, Long rideId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    routes.remove(driverId, rideId);
+                    log.info("Took ride {} off driver {}'s route after its transaction rolled back", rideId, driverId);
+                }
+            }
+        });
+    }
+
+    private static int seats(Ride ride) {
+        return ride.getDriver().getVehicleType() == null ? DEFAULT_SEATS : ride.getDriver().getVehicleType().getMaxPassengers();
+    }
+
+    private static int passengers(Ride ride) {
+        return ride.getPassengers() == null ? 1 : ride.getPassengers();
+    }
+
+    private static double directKm(Ride ride) {
+        return GeoUtils.haversineKm(ride.getPickupLat(), ride.getPickupLng(), ride.getDropoffLat(), ride.getDropoffLng());
+    }
+
+    private static PoolStop pickup(Ride ride) {
+        return new PoolStop(ride.getId(), true, ride.getPickupLat(), ride.getPickupLng(), passengers(ride), 0);
+    }
+
+    private static PoolStop dropoff(Ride ride, double slackKm) {
+        return new PoolStop(ride.getId(), false, ride.getDropoffLat(), ride.getDropoffLng(), passengers(ride), slackKm);
+    }
+
+    private record Candidate(PoolRoute route, PoolInsertion insertion) {
+    }
+}
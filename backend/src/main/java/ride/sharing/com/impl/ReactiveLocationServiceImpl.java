@@ -0,0 +1,153 @@
+package ride.sharing.com.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.geo.Circle;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.connection.RedisGeoCommands;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ride.sharing.com.enums.VehicleType.VehicleCategory;
+import ride.sharing.com.geo.DriverGridIndex;
+import ride.sharing.com.geo.DriverShardRouter;
+import ride.sharing.com.geo.GeoUtils;
+import ride.sharing.com.geo.RedisKeys;
+import ride.sharing.com.services.ReactiveLocationService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking reads of driver locations on the reactive Lettuce connection.
+ * Searches query every overlapping shard at once and position lookups hit each shard concurrently,
+ * so a caller waits for the slowest reply instead of the sum of all of them, and can do other work
+ * (e.g. a database query) while the replies are in flight.
+ * Writes stay on {@link LocationServiceImpl}, which already sends a batch in one pipelined round trip.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveLocationServiceImpl implements ReactiveLocationService {
+
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+    private final DriverGridIndex driverIndex;
+    private final DriverShardRouter shardRouter;
+
+    @Value("${location.index.enabled:true}")
+    private boolean localIndexEnabled;
+
+    /**
+     * Radius search over the shards overlapping the circle, all sent at once and merged nearest first.
+     * With a category, only that category's partition of each shard is searched.
+     */
+    @Override
+    public Mono<List<Long>> searchShards(double lat, double lng, double radiusKm, int limit, VehicleCategory category) {
+        Circle circle = new Circle(new Point(lng, lat), new Distance(radiusKm, Metrics.KILOMETERS));
+        RedisGeoCommands.GeoRadiusCommandArgs args = RedisGeoCommands.GeoRadiusCommandArgs
+                .newGeoRadiusArgs()
+                .includeDistance()
+                .sortAscending()
+                .limit(limit);
+
+        return Flux.fromIterable(shardRouter.coveringCells(lat, lng, radiusKm))
+                .flatMap(cell -> reactiveRedisTemplate.opsForGeo().radius(
+                        category == null ? RedisKeys.driverLocations(cell) : RedisKeys.driverLocations(cell, category),
+                        circle,
+                        args))
+                .sort(Comparator.comparingDouble(result -> result.getDistance().getValue()))
+                .take(limit)
+                .map(result -> Long.parseLong(result.getContent().getName()))
+                .collectList()
+                .doOnNext(driverIds -> log.debug("Found {} drivers within {}km of ({}, {})",
+                        driverIds.size(), radiusKm, lat, lng));
+    }
+
+    /**
+     * Positions of several drivers, from the local index where possible and otherwise with one GEOPOS per
+     * shard, the shards queried concurrently. Drivers without a location are left out.
+     */
+    @Override
+    public Mono<Map<Long, Point>> getDriverPositions(Collection<Long> driverIds) {
+        Map<Long, Point> indexed = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long driverId : driverIds) {
+            double[] position = localIndexEnabled ? driverIndex.position(driverId) : null;
+            if (position != null) {
+                indexed.put(driverId, new Point(position[1], position[0]));
+            } else {
+                missing.add(driverId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return Mono.just(indexed);
+        }
+
+        return cellsOf(missing)
+                .flatMapMany(driversByCell -> Flux.fromIterable(driversByCell.entrySet()))
+                .flatMap(shard -> reactiveRedisTemplate.opsForGeo()
+                        .position(RedisKeys.driverLocations(shard.getKey()),
+                                shard.getValue().stream().map(String::valueOf).toArray(String[]::new))
+                        .flatMapMany(points -> {
+                            List<Map.Entry<Long, Point>> found = new ArrayList<>();
+                            for (int i = 0; i < shard.getValue().size() && i < points.size(); i++) {
+                                if (points.get(i) != null) {
+                                    found.add(Map.entry(shard.getValue().get(i), points.get(i)));
+                                }
+                            }
+                            return Flux.fromIterable(found);
+                        }))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, () -> indexed);
+    }
+
+    /**
+     * @return distance in km, or empty when the driver has no location
+     */
+    @Override
+    public Mono<Double> getDistance(Long driverId, Double lat, Double lng) {
+        return getDriverPositions(List.of(driverId))
+                .mapNotNull(positions -> positions.get(driverId))
+                .map(point -> GeoUtils.haversineKm(point.getY(), point.getX(), lat, lng));
+    }
+
+    /**
+     * Drivers grouped by the cell holding them, reading the cells not known locally with one HMGET
+     */
+    private Mono<Map<String, List<Long>>> cellsOf(List<Long> driverIds) {
+        Map<String, List<Long>> driversByCell = new LinkedHashMap<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long driverId : driverIds) {
+            String cell = shardRouter.knownCell(driverId);
+            if (cell != null) {
+                driversByCell.computeIfAbsent(cell, c -> new ArrayList<>()).add(driverId);
+            } else {
+                unknown.add(driverId);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return Mono.just(driversByCell);
+        }
+
+        return reactiveRedisTemplate.<String, String>opsForHash()
+                .multiGet(RedisKeys.DRIVER_CELLS, unknown.stream().map(String::valueOf).toList())
+                .map(cells -> {
+                    for (int i = 0; i < unknown.size(); i++) {
+                        String cell = cells.get(i);
+                        if (cell != null) {
+                            shardRouter.remember(unknown.get(i), cell);
+                            driversByCell.computeIfAbsent(cell, c -> new ArrayList<>()).add(unknown.get(i));
+                        }
+                    }
+                    return driversByCell;
+                });
+    }
+}
@@ -2,26 +2,55 @@ package ride.sharing.com.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.geo.Point;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import ride.sharing.com.dispatch.PendingPickupIndex;
+import ride.sharing.com.dispatch.RideAcceptedEvent;
+import ride.sharing.com.dispatch.RideCancelledEvent;
+import ride.sharing.com.dispatch.RideRequestedEvent;
+import ride.sharing.com.dtos.FareQuote;
 import ride.sharing.com.dtos.RideRequest;
 import ride.sharing.com.enums.DriverStatus;
 import ride.sharing.com.enums.RideStatus;
 import ride.sharing.com.enums.Role;
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.exception.BadRequestException;
 import ride.sharing.com.exception.DriverNotAvailableException;
 import ride.sharing.com.exception.ForbiddenException;
 import ride.sharing.com.exception.RideNotAvailableException;
+import ride.sharing.com.geo.RideTrailBuffer;
+import ride.sharing.com.geo.RideTrailStore;
+import ride.sharing.com.matching.VehicleRequirement;
+import ride.sharing.com.models.Location;
 import ride.sharing.com.models.Ride;
+import ride.sharing.com.models.RideTrail;
 import ride.sharing.com.models.User;
+import ride.sharing.com.pricing.QuoteRouteCache;
+import ride.sharing.com.pricing.SurgePricing;
+import ride.sharing.com.pricing.Tariff;
+import ride.sharing.com.pricing.TariffTable;
 import ride.sharing.com.repositories.RideRepository;
+import ride.sharing.com.repositories.RideTrailRepository;
 import ride.sharing.com.services.LocationService;
 import ride.sharing.com.services.MatchingService;
+import ride.sharing.com.services.PoolService;
 import ride.sharing.com.services.RideService;
 import ride.sharing.com.services.UserService;
-import ride.sharing.com.services.LocationService;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -33,6 +62,35 @@ public class RideServiceImpl implements RideService {
     private final UserService userService;
     private final MatchingService matchingService;
     private final LocationService locationService;
+    private final RideTrailStore trailStore;
+    private final RideTrailRepository rideTrailRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PoolService poolService;
+    private final PendingPickupIndex pendingPickups;
+    private final SurgePricing surgePricing;
+    private final TariffTable tariffTable;
+    private final QuoteRouteCache quoteRoutes;
+
+    // Statuses each transition may start from, checked by the conditional update itself
+    private static final Set<RideStatus> STARTABLE = EnumSet.of(RideStatus.ACCEPTED);
+    private static final Set<RideStatus> COMPLETABLE = EnumSet.of(RideStatus.ACCEPTED, RideStatus.IN_PROGRESS);
+    private static final Set<RideStatus> CANCELLABLE =
+            EnumSet.of(RideStatus.REQUESTED, RideStatus.ACCEPTED, RideStatus.IN_PROGRESS);
+
+    // Leave new rides to the windowed BatchDispatcher instead of matching them on the request thread
+    @Value("${dispatch.batch.enabled:false}")
+    private boolean batchDispatchEnabled;
+
+    // Return new rides right away and match them on the AsyncRideDispatcher
+    @Value("${dispatch.async.enabled:true}")
+    private boolean asyncDispatchEnabled;
+
+    @Value("${matching.search-radius-km:20}")
+    private double searchRadiusKm;
+
+    // Upper bound on rides returned by one nearby pending search
+    @Value("${dispatch.pending.max-results:50}")
+    private int maxPendingResults;
 
     @Override
     public Ride requestRide(Long customerId, RideRequest request) {
@@ -44,6 +102,9 @@ public class RideServiceImpl implements RideService {
             throw new RuntimeException("Only customers can request rides");
         }
 
+        boolean shared = Boolean.TRUE.equals(request.getShared());
+        VehicleRequirement requirement = vehicleRequirement(request, shared);
+
         Ride ride = Ride.builder()
                 .customer(customer)
                 .pickupLat(request.getPickupLat())
@@ -52,42 +113,102 @@ public class RideServiceImpl implements RideService {
                 .dropoffLat(request.getDropoffLat())
                 .dropoffLng(request.getDropoffLng())
                 .dropoffAddress(request.getDropoffAddress())
+                .passengers(requirement.passengers())
+                .vehicleCategory(requirement.category())
+                .shared(shared)
                 .status(RideStatus.REQUESTED)
                 .requestedAt(LocalDateTime.now())
                 .build();
 
-
-        // Calculate estimated distance (simple Haversine formula could be used)
-        double distance = calculateDistance(
-                request.getPickupLat(), request.getPickupLng(),
-                request.getDropoffLat(), request.getDropoffLng()
-        );
+        // Same distance and tariff as the quote the rider saw, so the ride costs what was quoted
+        double distance = quoteRoutes.kilometers(request.getPickupLat(), request.getPickupLng(),
+                request.getDropoffLat(), request.getDropoffLng());
         ride.setDistance(distance);
 
-        // Calculate estimated fare (simple pricing: $2 base + $1.5 per km)
-        double fare = 2.0 + (distance * 1.5);
-        ride.setFare(fare);
+        double surge = surgePricing.multiplier(request.getPickupLat(), request.getPickupLng());
+        surgePricing.recordRequest(request.getPickupLat(), request.getPickupLng(), System.currentTimeMillis());
+        Tariff tariff = tariffTable.tariffs(request.getPickupLat(), request.getPickupLng())
+                .get(chargedType(requirement, shared));
+        ride.setFare(Math.round(tariff.fare(distance) * surge * 100) / 100.0);
+        ride.setSurgeMultiplier(surge);
+
+        if (shared) {
+            Ride pooled = joinPool(ride);
+            if (pooled != null) {
+                return pooled;
+            }
+        }
 
-        // Try to find and assign a driver automatically
-        try {
-            Long driverId = matchingService.findNearestDriver(
-                    request.getPickupLat(),
-                    request.getPickupLng()
-            );
-            User driver = userService.findById(driverId);
-            ride.setDriver(driver);
-            log.info("Automatically assigned driver {} to ride", driverId);
-        } catch (Exception e) {
-            log.warn("Could not auto-assign driver: {}", e.getMessage());
-            // Ride will be saved with status REQUESTED and no driver assigned
+        // Try to find and assign a driver automatically, unless a dispatcher matches rides after the save
+        boolean dispatchLater = batchDispatchEnabled || asyncDispatchEnabled;
+        if (!dispatchLater) {
+            try {
+                Long driverId = matchingService.findNearestDriver(
+                        request.getPickupLat(),
+                        request.getPickupLng(),
+                        requirement
+                );
+                User driver = userService.findById(driverId);
+                ride.setDriver(driver);
+                log.info("Automatically assigned driver {} to ride", driverId);
+            } catch (Exception e) {
+                log.warn("Could not auto-assign driver: {}", e.getMessage());
+                // Ride will be saved with status REQUESTED and no driver assigned
+            }
         }
 
         Ride savedRide = rideRepository.save(ride);
         log.info("Ride created successfully with ID: {}", savedRide.getId());
 
+        if (savedRide.getDriver() == null) {
+            // Waits here until a driver is matched or one becomes available nearby
+            pendingPickups.add(savedRide);
+        }
+        if (dispatchLater) {
+            eventPublisher.publishEvent(new RideRequestedEvent(savedRide.getId()));
+        }
+
         return savedRide;
     }
 
+    /**
+     * Price of the trip in each vehicle type that can take it, without creating a ride. Distances come
+     * from {@link QuoteRouteCache} and tariffs from {@link TariffTable}, so refreshing a quote neither
+     * searches the road network again nor touches the database. Runs outside any transaction, so a quote
+     * never checks out a database connection either.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public FareQuote quoteRide(RideRequest request) {
+        if (request.getPickupLat() == null || request.getPickupLng() == null
+                || request.getDropoffLat() == null || request.getDropoffLng() == null) {
+            throw new BadRequestException("Pickup and dropoff coordinates are required");
+        }
+        boolean shared = Boolean.TRUE.equals(request.getShared());
+        VehicleRequirement requirement = vehicleRequirement(request, shared);
+
+        double distance = quoteRoutes.kilometers(request.getPickupLat(), request.getPickupLng(),
+                request.getDropoffLat(), request.getDropoffLng());
+        double surge = surgePricing.multiplier(request.getPickupLat(), request.getPickupLng());
+
+        List<FareQuote.Price> prices = new ArrayList<>();
+        tariffTable.tariffs(request.getPickupLat(), request.getPickupLng()).forEach((type, tariff) -> {
+            // Shared rides are only priced as pooled ones, and pooled ones only for shared requests
+            if (requirement.accepts(type) && shared == (type == VehicleType.UBER_POOL)) {
+                double fare = Math.round(tariff.fare(distance) * surge * 100) / 100.0;
+                prices.add(new FareQuote.Price(type, type.getMaxPassengers(), fare));
+            }
+        });
+        prices.sort(Comparator.comparingDouble(FareQuote.Price::fare));
+
+        return new FareQuote(distance, surge, prices);
+    }
+
+    /**
+     * Unlike the other transitions this still loads the ride and the driver: the vehicle check needs the
+     * ride's seats and category with the driver's vehicle type, a pooled ride opens its route from the
+     * ride's stops, and the accepting driver gets the whole ride back to navigate to the pickup.
+     */
     @Override
     public Ride acceptRide(Long rideId, Long driverId) {
         log.info("Driver {} accepting ride {}", driverId, rideId);
@@ -104,96 +225,118 @@ public class RideServiceImpl implements RideService {
             throw new ForbiddenException("Only drivers can accept rides");
         }
 
-        if (driver.getDriverStatus() != DriverStatus.AVAILABLE) {
+        if (!VehicleRequirement.of(ride).accepts(driver.getVehicleType())) {
+            throw new RideNotAvailableException("Driver's vehicle does not meet the ride's requirements");
+        }
+
+        // Compare-and-set to BUSY, so a driver accepting two rides at once only gets one of them
+        if (driver.getDriverStatus() != DriverStatus.AVAILABLE || !userService.claimDriver(driverId)) {
             throw new DriverNotAvailableException("Driver is not available");
         }
+        driver.setDriverStatus(DriverStatus.BUSY);
+
+        // First accept wins: only one conditional update can still see the ride REQUESTED.
+        // Losing rolls back the driver claim with the rest of the transaction.
+        LocalDateTime acceptedAt = LocalDateTime.now();
+        if (rideRepository.acceptIfRequested(rideId, driver, RideStatus.REQUESTED, RideStatus.ACCEPTED, acceptedAt) != 1) {
+            throw new RideNotAvailableException("Ride is not available for acceptance");
+        }
 
         ride.setDriver(driver);
         ride.setStatus(RideStatus.ACCEPTED);
-        ride.setAcceptedAt(LocalDateTime.now());
-
-        // Update driver status to BUSY
-        userService.updateDriverStatus(driverId, DriverStatus.BUSY);
-
-        Ride updatedRide = rideRepository.save(ride);
+        ride.setAcceptedAt(acceptedAt);
+        if (Boolean.TRUE.equals(ride.getShared())) {
+            poolService.open(ride);
+        }
+        eventPublisher.publishEvent(new RideAcceptedEvent(rideId, driverId));
         log.info("Ride {} accepted by driver {}", rideId, driverId);
 
-        return updatedRide;
+        return ride;
     }
 
     @Override
     public Ride startRide(Long rideId) {
         log.info("Starting ride {}", rideId);
 
-        Ride ride = getRideById(rideId);
-
-        if (ride.getStatus() != RideStatus.ACCEPTED) {
-            throw new ForbiddenException("Ride must be accepted before starting");
+        // One guarded update decides the transition; a concurrent cancel or second start makes it miss
+        int updated = rideRepository.transitionIf(rideId, STARTABLE, RideStatus.IN_PROGRESS);
+        Ride ride = transitioned(rideId, updated, status -> new ForbiddenException("Ride must be accepted before starting"));
+        if (ride.getDriver() != null) {
+            // Record the driver's locations until the ride completes
+            trailStore.start(rideId, ride.getDriver().getId());
+            if (Boolean.TRUE.equals(ride.getShared())) {
+                poolService.pickedUp(ride.getDriver().getId(), rideId);
+            }
         }
-
-        ride.setStatus(RideStatus.IN_PROGRESS);
-
-        Ride updatedRide = rideRepository.save(ride);
         log.info("Ride {} started", rideId);
 
-        return updatedRide;
+        return ride;
     }
 
     @Override
     public Ride completeRide(Long rideId) {
         log.info("Completing ride {}", rideId);
 
-        Ride ride = getRideById(rideId);
-
-        if (ride.getStatus() != RideStatus.IN_PROGRESS &&
-                ride.getStatus() != RideStatus.ACCEPTED) {
-            throw new ForbiddenException("Cannot complete ride in current status");
-        }
-
-        ride.setStatus(RideStatus.COMPLETED);
-        ride.setCompletedAt(LocalDateTime.now());
+        int updated = rideRepository.completeIf(rideId, COMPLETABLE, RideStatus.COMPLETED, LocalDateTime.now());
+        Ride ride = transitioned(rideId, updated, status -> new ForbiddenException("Cannot complete ride in current status"));
 
-        // Update driver status back to AVAILABLE
+        // Only the caller whose update won gets here, so the driver is released exactly once
         if (ride.getDriver() != null) {
-            userService.updateDriverStatus(
-                    ride.getDriver().getId(),
-                    DriverStatus.AVAILABLE
-            );
+            Long driverId = ride.getDriver().getId();
+            // Update driver status back to AVAILABLE, unless other pooled riders are still on the route
+            if (!stillPooling(ride)) {
+                userService.releaseDriver(driverId);
+            }
 
             //Update driver current location
-            locationService.updateDriverLocation(ride.getDriver().getId(), ride.getDropoffLat(), ride.getDropoffLng());
+            locationService.updateDriverLocation(driverId, ride.getDropoffLat(), ride.getDropoffLng());
+
+            saveTrail(trailStore.finish(rideId, driverId));
         }
-        Ride updatedRide = rideRepository.save(ride);
         log.info("Ride {} completed", rideId);
 
-        return updatedRide;
+        return ride;
     }
 
     @Override
     public Ride cancelRide(Long rideId, String reason) {
         log.info("Cancelling ride {} with reason: {}", rideId, reason);
 
-        Ride ride = getRideById(rideId);
+        int updated = rideRepository.transitionIf(rideId, CANCELLABLE, RideStatus.CANCELLED);
+        Ride ride = transitioned(rideId, updated, status -> status == RideStatus.COMPLETED
+                ? new RideNotAvailableException("Cannot cancel a completed ride")
+                : new RideNotAvailableException("Ride is already cancelled"));
 
-        if (ride.getStatus() == RideStatus.COMPLETED) {
-            throw new RuntimeException("Cannot cancel a completed ride");
-        }
-
-        ride.setStatus(RideStatus.CANCELLED);
+        // Read after the update, so a driver who accepted just before it is seen and released
+        if (ride.getDriver() != null) {
+            trailStore.discard(rideId, ride.getDriver().getId());
 
-        // If driver was assigned, make them available again
-        if (ride.getDriver() != null &&
-                ride.getDriver().getDriverStatus() == DriverStatus.BUSY) {
-            userService.updateDriverStatus(
-                    ride.getDriver().getId(),
-                    DriverStatus.AVAILABLE
-            );
+            // Make the driver available again (this also releases a pending reservation); OFFLINE drivers stay offline
+            if (!stillPooling(ride)) {
+                userService.releaseDriver(ride.getDriver().getId());
+            }
         }
 
-        Ride updatedRide = rideRepository.save(ride);
+        eventPublisher.publishEvent(new RideCancelledEvent(rideId));
         log.info("Ride {} cancelled", rideId);
 
-        return updatedRide;
+        return ride;
+    }
+
+    /**
+     * The ride after its guarded update, read once whichever way the update went: when it moved the ride
+     * this is what the caller gets back, and when it missed, the status found by the same read says why.
+     * JPQL has no UPDATE ... RETURNING, so a transition costs the update plus this one primary-key read.
+     *
+     * @param updated rows the guarded update changed
+     */
+    private Ride transitioned(Long rideId, int updated, Function<RideStatus, RuntimeException> rejected) {
+        Ride ride = rideRepository.findById(rideId)
+                .orElseThrow(() -> new RideNotAvailableException("Ride not found with ID: " + rideId));
+        if (updated != 1) {
+            throw rejected.apply(ride.getStatus());
+        }
+        return ride;
     }
 
     @Override
@@ -225,27 +368,158 @@ public class RideServiceImpl implements RideService {
         return rideRepository.findByStatus(RideStatus.REQUESTED);
     }
 
+    /**
+     * Waiting rides nearest the driver that their vehicle can serve, nearest first. Read from the pending
+     * pickup index, or from the rides table around the driver when the index is disabled, so the cost
+     * depends on the rides around the driver rather than on the whole backlog.
+     * Without a position, the driver's last reported location is used.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Ride> getNearbyPendingRides(Long driverId, Double lat, Double lng, int limit) {
+        if (limit < 1 || limit > maxPendingResults) {
+            throw new BadRequestException("Limit must be between 1 and " + maxPendingResults);
+        }
+        User driver = userService.findById(driverId);
+        if (driver.getRole() != Role.DRIVER) {
+            throw new DriverNotAvailableException("User is not a driver");
+        }
+
+        if (lat == null || lng == null) {
+            Point position = locationService.getDriverPositions(List.of(driverId)).get(driverId);
+            if (position == null) {
+                throw new BadRequestException("Driver location is unknown; pass lat and lng");
+            }
+            lat = position.getY();
+            lng = position.getX();
+        }
+        log.debug("Fetching up to {} pending rides near driver {} at ({}, {})", limit, driverId, lat, lng);
+
+        List<Long> rideIds = pendingPickups.nearestWaiting(lat, lng, limit, searchRadiusKm,
+                driver.getVehicleType(), rideId -> true);
+        if (rideIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Ride> rides = new HashMap<>();
+        rideRepository.findAllById(rideIds).forEach(ride -> rides.put(ride.getId(), ride));
+        List<Ride> pending = new ArrayList<>(rideIds.size());
+        for (Long rideId : rideIds) {
+            Ride ride = rides.get(rideId);
+            if (ride != null && ride.getStatus() == RideStatus.REQUESTED && ride.getDriver() == null) {
+                pending.add(ride);
+            } else {
+                pendingPickups.remove(rideId);
+            }
+        }
+        return pending;
+    }
+
     @Override
     public List<Ride> getAllRides() {
         return rideRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Location> getRideTrail(Long rideId) {
+        log.debug("Fetching trail for ride {}", rideId);
+        return rideTrailRepository.findById(rideId)
+                .map(trail -> RideTrailBuffer.decode(trail.getDriverId(), trail.getPoints(), trail.getPointCount()))
+                .orElse(List.of());
+    }
+
+    private void saveTrail(RideTrailBuffer trail) {
+        if (trail == null || trail.getPointCount() == 0) {
+            return;
+        }
+        RideTrail rideTrail = RideTrail.builder()
+                .rideId(trail.getRideId())
+                .driverId(trail.getDriverId())
+                .pointCount(trail.getPointCount())
+                .distanceKm(trail.getDistanceKm())
+                .points(trail.toByteArray())
+                .createdAt(LocalDateTime.now())
+                .build();
+        rideTrailRepository.save(rideTrail);
+        log.info("Stored trail of ride {} with {} points ({} bytes, {}km)", trail.getRideId(),
+                trail.getPointCount(), rideTrail.getPoints().length, String.format("%.2f", trail.getDistanceKm()));
+    }
+
     /**
-     * Calculate distance between two points using Haversine formula
-     * Returns distance in kilometers
+     * Add a shared ride to the route of a pooled vehicle already driving nearby. The ride is saved first
+     * so its stops can be tracked by id; it is accepted on the spot since the driver is already on duty.
+     *
+     * @return the accepted ride, or null when no pooled vehicle can take it
      */
-    private double calculateDistance(Double lat1, Double lon1, Double lat2, Double lon2) {
-        final int EARTH_RADIUS = 6371; // Radius in kilometers
+    private Ride joinPool(Ride ride) {
+        Ride savedRide = rideRepository.save(ride);
+        Long driverId = poolService.insert(savedRide);
+        if (driverId == null) {
+            return null;
+        }
 
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
+        savedRide.setDriver(userService.findById(driverId));
+        savedRide.setStatus(RideStatus.ACCEPTED);
+        savedRide.setAcceptedAt(LocalDateTime.now());
+        Ride pooledRide = rideRepository.save(savedRide);
+        eventPublisher.publishEvent(new RideAcceptedEvent(pooledRide.getId(), driverId));
+        log.info("Shared ride {} joined driver {}'s route", pooledRide.getId(), driverId);
+        return pooledRide;
+    }
 
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+    /**
+     * Vehicle type a new ride is charged as, before a driver is known. Shared rides pay the pool tariff.
+     * Otherwise the ride pays the cheapest type that fits the request, which is the first price of the
+     * quote for its category; rides with no category pay the standard UberGo tariff when the party fits
+     * in one, so a plain ride costs the same whichever vehicle turns up.
+     */
+    private static VehicleType chargedType(VehicleRequirement requirement, boolean shared) {
+        if (shared) {
+            return VehicleType.UBER_POOL;
+        }
+        if (requirement.category() == null && requirement.accepts(VehicleType.UBER_GO)) {
+            return VehicleType.UBER_GO;
+        }
+        return Arrays.stream(VehicleType.values())
+                .filter(type -> type != VehicleType.UBER_POOL && requirement.accepts(type))
+                .min(Comparator.comparingDouble(VehicleType::getPriceMultiplier))
+                .orElseThrow(() -> new BadRequestException("No vehicle can take " + requirement.passengers() + " passengers"));
+    }
 
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    /**
+     * Take a finished shared ride off its route
+     *
+     * @return whether the driver still has other pooled riders and should stay BUSY
+     */
+    private boolean stillPooling(Ride ride) {
+        return Boolean.TRUE.equals(ride.getShared()) && poolService.leave(ride.getDriver().getId(), ride.getId());
+    }
 
-        return EARTH_RADIUS * c;
+    /**
+     * Seats and category the rider asked for, rejecting requests no vehicle type can serve.
+     * Shared rides go in economy cars and take at most the seats of a pool booking.
+     */
+    private VehicleRequirement vehicleRequirement(RideRequest request, boolean shared) {
+        int passengers = request.getPassengers() == null ? 1 : request.getPassengers();
+        if (passengers < 1) {
+            throw new BadRequestException("A ride needs at least one passenger");
+        }
+        VehicleType.VehicleCategory category = request.getVehicleCategory();
+        if (shared) {
+            if (category != null && category != VehicleType.UBER_POOL.getCategory()) {
+                throw new BadRequestException("Shared rides are only offered in " + VehicleType.UBER_POOL.getCategory().getDisplayName());
+            }
+            if (passengers > VehicleType.UBER_POOL.getMaxPassengers()) {
+                throw new BadRequestException("Shared rides take at most " + VehicleType.UBER_POOL.getMaxPassengers() + " passengers");
+            }
+            category = VehicleType.UBER_POOL.getCategory();
+        }
+        VehicleRequirement requirement = new VehicleRequirement(category, passengers);
+        if (!requirement.isSatisfiable()) {
+            throw new BadRequestException("No vehicle" + (requirement.category() == null ? "" : " in "
+                    + requirement.category().getDisplayName()) + " can take " + passengers + " passengers");
+        }
+        return requirement;
     }
 }
@@ -0,0 +1,79 @@
+package ride.sharing.com.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ride.sharing.com.routing.OsmRoadGraphLoader;
+import ride.sharing.com.routing.RoadNetwork;
+import ride.sharing.com.routing.Route;
+import ride.sharing.com.services.RoutingService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Drive-time routing on a local road network, with no external service.
+ * <p>
+ * The OSM extract named by {@code routing.osm-file} is loaded and contracted on a background thread at
+ * startup. Until that finishes, or when no file is configured, {@link #isAvailable()} is false and
+ * callers fall back to straight-line distance.
+ */
+@Service
+@Slf4j
+public class RoutingServiceImpl implements RoutingService {
+
+    @Value("${routing.osm-file:}")
+    private String osmFile;
+
+    @Value("${routing.max-snap-km:0.5}")
+    private double maxSnapKm;
+
+    // Route queries that can run at once, each holding scratch space sized to the road graph; 0 means one per CPU
+    @Value("${routing.max-concurrent-queries:0}")
+    private int maxConcurrentQueries;
+
+    private volatile RoadNetwork network;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        if (osmFile == null || osmFile.isBlank()) {
+            log.info("No road network configured (routing.osm-file); using straight-line distances");
+            return;
+        }
+        Thread.ofVirtual().name("routing-loader").start(this::load);
+    }
+
+    void load() {
+        try {
+            Path path = Path.of(osmFile);
+            if (!Files.isReadable(path)) {
+                log.warn("Road network file {} is not readable; using straight-line distances", path);
+                return;
+            }
+            long started = System.currentTimeMillis();
+            int queries = maxConcurrentQueries > 0 ? maxConcurrentQueries : Runtime.getRuntime().availableProcessors();
+            network = RoadNetwork.of(OsmRoadGraphLoader.load(path), queries);
+            log.info("Road network ready: {} nodes, {} shortcuts, built in {}ms",
+                    network.nodeCount(), network.shortcutCount(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.warn("Could not load road network from {}: {}", osmFile, e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return network != null;
+    }
+
+    /**
+     * @return the fastest route between the two points, or null when routing is not available,
+     * either point is further than {@code max-snap-km} from a road, or the roads do not connect
+     */
+    @Override
+    public Route route(double fromLat, double fromLng, double toLat, double toLng) {
+        RoadNetwork current = network;
+        return current == null ? null : current.route(fromLat, fromLng, toLat, toLng, maxSnapKm);
+    }
+}
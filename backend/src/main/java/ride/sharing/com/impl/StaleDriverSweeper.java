@@ -0,0 +1,52 @@
+package ride.sharing.com.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ride.sharing.com.enums.DriverStatus;
+import ride.sharing.com.services.LocationService;
+import ride.sharing.com.services.UserService;
+
+import java.util.List;
+
+/**
+ * Periodically drops drivers that stopped sending locations (crashed app, lost network)
+ * from the geo set, and takes the ones that were AVAILABLE offline so matching skips them.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "location.stale.enabled", havingValue = "true", matchIfMissing = true)
+public class StaleDriverSweeper {
+
+    private final LocationService locationService;
+    private final UserService userService;
+
+    @Value("${location.stale.ttl-seconds:120}")
+    private long ttlSeconds;
+
+    @Value("${location.stale.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(
+            initialDelayString = "${location.stale.sweep-interval-ms:30000}",
+            fixedDelayString = "${location.stale.sweep-interval-ms:30000}"
+    )
+    public void sweep() {
+        try {
+            long cutoff = System.currentTimeMillis() - ttlSeconds * 1000;
+            List<Long> evicted = locationService.evictStaleDrivers(cutoff, batchSize);
+
+            // Drivers that are BUSY keep their status; only idle ones are taken offline
+            for (int from = 0; from < evicted.size(); from += batchSize) {
+                List<Long> batch = evicted.subList(from, Math.min(from + batchSize, evicted.size()));
+                userService.updateDriverStatus(batch, DriverStatus.AVAILABLE, DriverStatus.OFFLINE);
+            }
+        } catch (Exception e) {
+            log.warn("Stale driver sweep failed: {}", e.getMessage());
+        }
+    }
+}
@@ -4,9 +4,12 @@
     import lombok.RequiredArgsConstructor;
     import lombok.extern.slf4j.Slf4j;
     import org.modelmapper.ModelMapper;
+    import org.springframework.beans.factory.annotation.Value;
+    import org.springframework.context.ApplicationEventPublisher;
     import org.springframework.security.crypto.password.PasswordEncoder;
     import org.springframework.stereotype.Service;
     import org.springframework.transaction.annotation.Transactional;
+    import ride.sharing.com.dispatch.DriverAvailableEvent;
     import ride.sharing.com.dtos.UserDto;
     import ride.sharing.com.enums.DriverStatus;
     import ride.sharing.com.enums.Role;
@@ -15,9 +18,17 @@
     import ride.sharing.com.exception.ResourceNotFoundException;
     import ride.sharing.com.models.User;
     import ride.sharing.com.repositories.UserRepository;
+    import ride.sharing.com.services.DriverAvailabilityService;
     import ride.sharing.com.services.UserService;
 
+    import java.time.LocalDateTime;
+    import java.util.Collection;
+    import java.util.EnumSet;
+    import java.util.HashMap;
+    import java.util.HashSet;
     import java.util.List;
+    import java.util.Map;
+    import java.util.Set;
 
     @Service
     @RequiredArgsConstructor
@@ -28,6 +39,14 @@
         private final UserRepository userRepository;
         private final PasswordEncoder passwordEncoder;
         private final ModelMapper modelMapper;
+        private final DriverAvailabilityService driverAvailabilityService;
+        private final ApplicationEventPublisher eventPublisher;
+
+        // Statuses a driver is put back to AVAILABLE from when their ride completes or is cancelled
+        private static final Set<DriverStatus> RELEASABLE = EnumSet.of(DriverStatus.BUSY, DriverStatus.AVAILABLE);
+
+        @Value("${matching.reservation-lease-seconds:60}")
+        private long reservationLeaseSeconds;
 
         @Override
         public User registerUser(UserDto.Create create) {
@@ -91,13 +110,114 @@
                 throw new DriverNotAvailableException("User is not a driver");
             }
 
+            if (status == DriverStatus.AVAILABLE && driver.getDriverStatus() != DriverStatus.AVAILABLE) {
+                driver.setAvailableSince(LocalDateTime.now());
+            }
             driver.setDriverStatus(status);
+            // Any status change ends a pending reservation
+            driver.setReservedUntil(null);
             User updatedDriver = userRepository.save(driver);
+            syncAvailability(updatedDriver);
+            if (status == DriverStatus.AVAILABLE) {
+                // Lets waiting rides near the driver be offered to them once this commits
+                eventPublisher.publishEvent(new DriverAvailableEvent(driverId));
+            }
 
             log.info("Driver status updated successfully");
             return updatedDriver;
         }
 
+        /**
+         * AVAILABLE drivers among the candidates, checked with one query and returned in the
+         * candidates' order (nearest first when they come from a radius search)
+         */
+        @Override
+        @Transactional(readOnly = true)
+        public List<Long> filterAvailableDrivers(List<Long> driverIds) {
+            if (driverIds == null || driverIds.isEmpty()) {
+                return List.of();
+            }
+            // Drivers held by an unexpired reservation are taken for now, even though still AVAILABLE
+            Set<Long> available = new HashSet<>(userRepository.findUnreservedIdsByRoleAndDriverStatus(
+                    driverIds, Role.DRIVER, DriverStatus.AVAILABLE, LocalDateTime.now()));
+            return driverIds.stream().filter(available::contains).toList();
+        }
+
+        @Override
+        public int updateDriverStatus(Collection<Long> driverIds, DriverStatus expected, DriverStatus status) {
+            if (driverIds == null || driverIds.isEmpty()) {
+                return 0;
+            }
+            log.info("Updating {} drivers from {} to {}", driverIds.size(), expected, status);
+
+            // Single bulk update; drivers no longer in the expected status are left untouched
+            int updated = userRepository.updateDriverStatus(driverIds, Role.DRIVER, expected, status);
+            if (expected == DriverStatus.AVAILABLE && status != DriverStatus.AVAILABLE) {
+                driverAvailabilityService.markUnavailable(driverIds);
+            }
+
+            log.info("{} driver statuses updated", updated);
+            return updated;
+        }
+
+        /**
+         * Atomically move a driver from AVAILABLE to BUSY and clear any reservation lease.
+         * The driver accepting a ride is the driver's own decision, so it ends a reservation held for
+         * them instead of being blocked by it; the dispatcher holding that lease then finds its ride
+         * taken and gives up.
+         * @return false when the driver was no longer AVAILABLE, e.g. taken by a concurrent request
+         */
+        @Override
+        public boolean claimDriver(Long driverId) {
+            int claimed = userRepository.claimDriver(driverId, Role.DRIVER, DriverStatus.AVAILABLE, DriverStatus.BUSY);
+            if (claimed == 1) {
+                driverAvailabilityService.markUnavailable(driverId);
+            }
+            return claimed == 1;
+        }
+
+        /**
+         * Hold an AVAILABLE driver for a ride for the reservation lease, with one conditional update.
+         * @return false when the driver is not AVAILABLE or already held by an unexpired reservation
+         */
+        @Override
+        public boolean reserveDriver(Long driverId) {
+            LocalDateTime now = LocalDateTime.now();
+            int reserved = userRepository.reserveDriver(driverId, Role.DRIVER, DriverStatus.AVAILABLE,
+                    now, now.plusSeconds(reservationLeaseSeconds));
+            return reserved == 1;
+        }
+
+        /**
+         * Put a driver whose ride ended back to AVAILABLE with one conditional update, without loading them.
+         * OFFLINE drivers stay offline, and deactivated ones are left for {@link #updateDriverStatus(Long, DriverStatus)}
+         * once reactivated, so Redis is only told about drivers matching can actually use.
+         * @return false when nothing changed
+         */
+        @Override
+        public boolean releaseDriver(Long driverId) {
+            int released = userRepository.releaseDriver(driverId, Role.DRIVER, RELEASABLE,
+                    DriverStatus.AVAILABLE, LocalDateTime.now());
+            if (released == 1) {
+                driverAvailabilityService.markAvailable(driverId);
+                // Lets waiting rides near the driver be offered to them once this commits
+                eventPublisher.publishEvent(new DriverAvailableEvent(driverId));
+            }
+            return released == 1;
+        }
+
+        @Override
+        @Transactional(readOnly = true)
+        public Map<Long, LocalDateTime> getAvailableSince(Collection<Long> driverIds) {
+            Map<Long, LocalDateTime> availableSince = new HashMap<>();
+            for (User driver : userRepository.findAllById(driverIds)) {
+                if (driver.getAvailableSince() != null) {
+                    availableSince.put(driver.getId(), driver.getAvailableSince());
+                }
+            }
+            return availableSince;
+        }
+
         @Override
         public List<User> getAllUsers() {
             return userRepository.findAll();
@@ -113,7 +233,9 @@
             User user = userRepository.findById(id)
                     .orElseThrow(() -> new ResourceNotFoundException("User with Id " + id + " not found"));
             user.setActive(status);
-            return userRepository.save(user);
+            User updatedUser = userRepository.save(user);
+            syncAvailability(updatedUser);
+            return updatedUser;
         }
 
         @Override
@@ -122,6 +244,23 @@
                     .orElseThrow(() -> new ResourceNotFoundException("User with Id " + userId + " not found"));
             modelMapper.map(updateDto, user);
             user.setId(userId);
-            return userRepository.save(user);
+            User updatedUser = userRepository.save(user);
+            syncAvailability(updatedUser);
+            return updatedUser;
+        }
+
+        /**
+         * Keep the Redis availability mirror and vehicle type used by matching in line with the saved driver
+         */
+        private void syncAvailability(User user) {
+            if (user.getRole() != Role.DRIVER) {
+                return;
+            }
+            driverAvailabilityService.registerVehicle(user.getId(), user.getVehicleType());
+            if (Boolean.TRUE.equals(user.getActive()) && user.getDriverStatus() == DriverStatus.AVAILABLE) {
+                driverAvailabilityService.markAvailable(user.getId());
+            } else {
+                driverAvailabilityService.markUnavailable(user.getId());
+            }
         }
     }
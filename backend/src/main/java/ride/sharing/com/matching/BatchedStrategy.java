@@ -0,0 +1,56 @@
+package ride.sharing.com.matching;
+
+import ride.sharing.com.geo.GeoUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Assigns pickups collected over a window together, minimising total pickup distance with
+ * {@link HungarianSolver} so two pickups never fight over one close driver while another idles.
+ * A single pickup is ranked nearest first.
+ */
+public class BatchedStrategy extends NearestFirstStrategy {
+
+    public static final String NAME = "batched";
+
+    // Pairs further apart than the search radius; large but finite so the solver stays exact
+    private static final double INFEASIBLE_COST = 1e9;
+
+    private final double searchRadiusKm;
+
+    public BatchedStrategy(double searchRadiusKm) {
+        this.searchRadiusKm = searchRadiusKm;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int[] assign(List<PickupRequest> requests, List<DriverCandidate> drivers) {
+        int[] assignment = new int[requests.size()];
+        if (drivers.isEmpty()) {
+            Arrays.fill(assignment, -1);
+            return assignment;
+        }
+
+        double[][] cost = new double[requests.size()][drivers.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            PickupRequest request = requests.get(i);
+            for (int j = 0; j < drivers.size(); j++) {
+                DriverCandidate driver = drivers.get(j);
+                double distanceKm = GeoUtils.haversineKm(driver.lat(), driver.lng(), request.lat(), request.lng());
+                cost[i][j] = distanceKm <= searchRadiusKm ? distanceKm : INFEASIBLE_COST;
+            }
+        }
+
+        int[] solved = HungarianSolver.solve(cost);
+        for (int i = 0; i < requests.size(); i++) {
+            int j = solved[i];
+            assignment[i] = j >= 0 && cost[i][j] < INFEASIBLE_COST ? j : -1;
+        }
+        return assignment;
+    }
+}
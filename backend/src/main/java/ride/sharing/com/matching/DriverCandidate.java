@@ -0,0 +1,10 @@
+package ride.sharing.com.matching;
+
+/**
+ * An available driver considered for a pickup.
+ *
+ * @param distanceKm           straight-line distance to the pickup being matched
+ * @param availableSinceMillis when the driver last became available (epoch millis), or 0 if unknown
+ */
+public record DriverCandidate(Long driverId, double lat, double lng, double distanceKm, long availableSinceMillis) {
+}
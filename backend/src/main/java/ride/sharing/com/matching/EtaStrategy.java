@@ -0,0 +1,53 @@
+package ride.sharing.com.matching;
+
+import ride.sharing.com.routing.Route;
+import ride.sharing.com.services.RoutingService;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shortest drive time to the pickup over the road network. Drivers that cannot be routed go last in
+ * straight-line order; without a road network this is nearest-first.
+ */
+public class EtaStrategy implements MatchingStrategy {
+
+    public static final String NAME = "eta";
+
+    private final RoutingService routingService;
+
+    public EtaStrategy(RoutingService routingService) {
+        this.routingService = routingService;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public List<DriverCandidate> rank(PickupRequest request, List<DriverCandidate> candidates) {
+        List<DriverCandidate> ranked = new ArrayList<>(candidates);
+        ranked.sort(Comparator.comparingDouble(DriverCandidate::distanceKm));
+        if (ranked.size() < 2 || !routingService.isAvailable()) {
+            return ranked;
+        }
+
+        Map<Long, Double> etaSeconds = new HashMap<>();
+        for (DriverCandidate candidate : ranked) {
+            Route route = routingService.route(candidate.lat(), candidate.lng(), request.lat(), request.lng());
+            etaSeconds.put(candidate.driverId(), route == null ? Double.POSITIVE_INFINITY : route.seconds());
+        }
+        // Stable sort, so unroutable drivers stay nearest first
+        ranked.sort(Comparator.comparingDouble(candidate -> etaSeconds.get(candidate.driverId())));
+        return ranked;
+    }
+
+    @Override
+    public boolean ranksByStraightLine() {
+        return !routingService.isAvailable();
+    }
+}
@@ -0,0 +1,110 @@
+package ride.sharing.com.matching;
+
+import java.util.Arrays;
+
+/**
+ * Minimum-cost assignment of rows to columns (Hungarian algorithm with potentials, O(n²m)).
+ * <p>
+ * Works on rectangular matrices: every row is assigned when there are at least as many columns
+ * as rows, otherwise every column is. Callers that need "no match" should use a large finite cost
+ * for infeasible pairs and drop those pairs afterwards.
+ */
+public final class HungarianSolver {
+
+    private HungarianSolver() {
+    }
+
+    /**
+     * @return for each row, the index of its assigned column, or -1 when the row is left unassigned
+     */
+    public static int[] solve(double[][] cost) {
+        int rows = cost.length;
+        int columns = rows == 0 ? 0 : cost[0].length;
+        if (rows == 0 || columns == 0) {
+            int[] none = new int[rows];
+            Arrays.fill(none, -1);
+            return none;
+        }
+
+        if (rows > columns) {
+            int[] byColumn = solve(transpose(cost));
+            int[] byRow = new int[rows];
+            Arrays.fill(byRow, -1);
+            for (int column = 0; column < byColumn.length; column++) {
+                byRow[byColumn[column]] = column;
+            }
+            return byRow;
+        }
+
+        // 1-based potentials; rowOfColumn[0] is the row currently being inserted
+        double[] rowPotential = new double[rows + 1];
+        double[] columnPotential = new double[columns + 1];
+        int[] rowOfColumn = new int[columns + 1];
+        int[] previousColumn = new int[columns + 1];
+        double[] minSlack = new double[columns + 1];
+        boolean[] visited = new boolean[columns + 1];
+
+        for (int row = 1; row <= rows; row++) {
+            rowOfColumn[0] = row;
+            int column = 0;
+            Arrays.fill(minSlack, Double.POSITIVE_INFINITY);
+            Arrays.fill(visited, false);
+
+            do {
+                visited[column] = true;
+                int currentRow = rowOfColumn[column];
+                double delta = Double.POSITIVE_INFINITY;
+                int nextColumn = 0;
+                for (int j = 1; j <= columns; j++) {
+                    if (visited[j]) {
+                        continue;
+                    }
+                    double slack = cost[currentRow - 1][j - 1] - rowPotential[currentRow] - columnPotential[j];
+                    if (slack < minSlack[j]) {
+                        minSlack[j] = slack;
+                        previousColumn[j] = column;
+                    }
+                    if (minSlack[j] < delta) {
+                        delta = minSlack[j];
+                        nextColumn = j;
+                    }
+                }
+                for (int j = 0; j <= columns; j++) {
+                    if (visited[j]) {
+                        rowPotential[rowOfColumn[j]] += delta;
+                        columnPotential[j] -= delta;
+                    } else {
+                        minSlack[j] -= delta;
+                    }
+                }
+                column = nextColumn;
+            } while (rowOfColumn[column] != 0);
+
+            // Flip the augmenting path back to the start
+            do {
+                int previous = previousColumn[column];
+                rowOfColumn[column] = rowOfColumn[previous];
+                column = previous;
+            } while (column != 0);
+        }
+
+        int[] assignment = new int[rows];
+        Arrays.fill(assignment, -1);
+        for (int j = 1; j <= columns; j++) {
+            if (rowOfColumn[j] != 0) {
+                assignment[rowOfColumn[j] - 1] = j - 1;
+            }
+        }
+        return assignment;
+    }
+
+    private static double[][] transpose(double[][] matrix) {
+        double[][] transposed = new double[matrix[0].length][matrix.length];
+        for (int i = 0; i < matrix.length; i++) {
+            for (int j = 0; j < matrix[0].length; j++) {
+                transposed[j][i] = matrix[i][j];
+            }
+        }
+        return transposed;
+    }
+}
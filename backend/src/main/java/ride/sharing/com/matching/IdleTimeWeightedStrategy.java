@@ -0,0 +1,51 @@
+package ride.sharing.com.matching;
+
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Nearest first, but each minute a driver has been waiting counts as {@code kmPerIdleMinute} less
+ * distance, up to {@code maxIdleMinutes}. Spreads work across drivers at a small cost in pickup distance.
+ */
+public class IdleTimeWeightedStrategy implements MatchingStrategy {
+
+    public static final String NAME = "idle-weighted";
+
+    private final double kmPerIdleMinute;
+    private final double maxIdleMinutes;
+    private final Clock clock;
+
+    public IdleTimeWeightedStrategy(double kmPerIdleMinute, double maxIdleMinutes, Clock clock) {
+        if (kmPerIdleMinute < 0 || maxIdleMinutes < 0) {
+            throw new IllegalArgumentException("Idle weighting must not be negative");
+        }
+        this.kmPerIdleMinute = kmPerIdleMinute;
+        this.maxIdleMinutes = maxIdleMinutes;
+        this.clock = clock;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public List<DriverCandidate> rank(PickupRequest request, List<DriverCandidate> candidates) {
+        long now = clock.millis();
+        return candidates.stream().sorted(Comparator.comparingDouble(candidate -> score(candidate, now))).toList();
+    }
+
+    @Override
+    public boolean usesIdleTime() {
+        return true;
+    }
+
+    private double score(DriverCandidate candidate, long now) {
+        if (candidate.availableSinceMillis() <= 0) {
+            return candidate.distanceKm();
+        }
+        double idleMinutes = Math.max(0, now - candidate.availableSinceMillis()) / 60_000.0;
+        return candidate.distanceKm() - kmPerIdleMinute * Math.min(idleMinutes, maxIdleMinutes);
+    }
+}
@@ -0,0 +1,81 @@
+package ride.sharing.com.matching;
+
+import ride.sharing.com.geo.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * How available drivers are chosen for pickups.
+ * <p>
+ * Implementations are plain objects with no Spring dependencies, so the same strategy runs in
+ * {@code MatchingServiceImpl} and in the replay benchmark.
+ */
+public interface MatchingStrategy {
+
+    /**
+     * Name used to select the strategy in configuration
+     */
+    String name();
+
+    /**
+     * Order the candidates for one pickup, best first. Candidates the strategy would never pick may be left out.
+     */
+    List<DriverCandidate> rank(PickupRequest request, List<DriverCandidate> candidates);
+
+    /**
+     * True when {@link #rank} is plain nearest-first, which lets matching use the atomic
+     * nearest-driver reservation in Redis instead of ranking candidates itself
+     */
+    default boolean ranksByStraightLine() {
+        return false;
+    }
+
+    /**
+     * True when {@link #rank} reads {@link DriverCandidate#availableSinceMillis()}, which costs a lookup
+     */
+    default boolean usesIdleTime() {
+        return false;
+    }
+
+    /**
+     * Assign drivers to several pickups at once.
+     * <p>
+     * The default is greedy: pickups in order, each taking its best remaining driver.
+     *
+     * @return for each request, the index of its driver in {@code drivers}, or -1 when it gets none
+     */
+    default int[] assign(List<PickupRequest> requests, List<DriverCandidate> drivers) {
+        int[] assignment = new int[requests.size()];
+        Arrays.fill(assignment, -1);
+        boolean[] taken = new boolean[drivers.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            PickupRequest request = requests.get(i);
+            List<DriverCandidate> remaining = new ArrayList<>();
+            List<Integer> indexes = new ArrayList<>();
+            for (int j = 0; j < drivers.size(); j++) {
+                if (!taken[j]) {
+                    DriverCandidate driver = drivers.get(j);
+                    remaining.add(relativeTo(request, driver));
+                    indexes.add(j);
+                }
+            }
+            List<DriverCandidate> ranked = rank(request, remaining);
+            if (!ranked.isEmpty()) {
+                int j = indexes.get(remaining.indexOf(ranked.get(0)));
+                taken[j] = true;
+                assignment[i] = j;
+            }
+        }
+        return assignment;
+    }
+
+    /**
+     * The candidate with its distance measured to this request
+     */
+    static DriverCandidate relativeTo(PickupRequest request, DriverCandidate driver) {
+        double distanceKm = GeoUtils.haversineKm(request.lat(), request.lng(), driver.lat(), driver.lng());
+        return new DriverCandidate(driver.driverId(), driver.lat(), driver.lng(), distanceKm, driver.availableSinceMillis());
+    }
+}
@@ -0,0 +1,68 @@
+package ride.sharing.com.matching;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ride.sharing.com.geo.DriverShardRouter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the {@link MatchingStrategy} for a pickup: the one configured for its shard region
+ * ({@code matching.region-strategies}), or the deployment default ({@code matching.strategy}).
+ */
+@Component
+public class MatchingStrategySelector {
+
+    private final Map<String, MatchingStrategy> byName = new LinkedHashMap<>();
+    private final Map<String, MatchingStrategy> byRegion = new HashMap<>();
+    private final MatchingStrategy defaultStrategy;
+    private final DriverShardRouter shardRouter;
+
+    /**
+     * @param regionStrategies comma-separated {@code cell=strategy} pairs, cells as named by {@link DriverShardRouter}
+     */
+    public MatchingStrategySelector(List<MatchingStrategy> strategies,
+                                    DriverShardRouter shardRouter,
+                                    @Value("${matching.strategy:eta}") String defaultName,
+                                    @Value("${matching.region-strategies:}") String regionStrategies) {
+        for (MatchingStrategy strategy : strategies) {
+            byName.put(strategy.name(), strategy);
+        }
+        this.defaultStrategy = get(defaultName);
+        this.shardRouter = shardRouter;
+
+        for (String entry : regionStrategies.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Region strategy must be cell=strategy: " + entry);
+            }
+            byRegion.put(parts[0].trim(), get(parts[1].trim()));
+        }
+    }
+
+    public MatchingStrategy forPickup(double lat, double lng) {
+        if (byRegion.isEmpty()) {
+            return defaultStrategy;
+        }
+        return byRegion.getOrDefault(shardRouter.cellOf(lat, lng), defaultStrategy);
+    }
+
+    public MatchingStrategy get(String name) {
+        MatchingStrategy strategy = byName.get(name);
+        if (strategy == null) {
+            throw new IllegalArgumentException("Unknown matching strategy '" + name + "', expected one of " + byName.keySet());
+        }
+        return strategy;
+    }
+
+    public Collection<MatchingStrategy> all() {
+        return byName.values();
+    }
+}
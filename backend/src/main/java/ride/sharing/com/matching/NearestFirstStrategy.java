@@ -0,0 +1,27 @@
+package ride.sharing.com.matching;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Closest driver first, as the crow flies
+ */
+public class NearestFirstStrategy implements MatchingStrategy {
+
+    public static final String NAME = "nearest";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public List<DriverCandidate> rank(PickupRequest request, List<DriverCandidate> candidates) {
+        return candidates.stream().sorted(Comparator.comparingDouble(DriverCandidate::distanceKm)).toList();
+    }
+
+    @Override
+    public boolean ranksByStraightLine() {
+        return true;
+    }
+}
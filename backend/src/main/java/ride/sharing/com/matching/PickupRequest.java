@@ -0,0 +1,7 @@
+package ride.sharing.com.matching;
+
+/**
+ * A pickup to find a driver for. {@code rideId} may be null when matching is not tied to a saved ride.
+ */
+public record PickupRequest(Long rideId, double lat, double lng) {
+}
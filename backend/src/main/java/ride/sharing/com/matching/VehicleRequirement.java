@@ -0,0 +1,58 @@
+package ride.sharing.com.matching;
+
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.enums.VehicleType.VehicleCategory;
+import ride.sharing.com.models.Ride;
+
+import java.util.Arrays;
+
+/**
+ * Vehicle a ride needs: an optional category and the number of seats.
+ * <p>
+ * Drivers without a registered vehicle type only qualify for single-passenger rides with no category,
+ * which is what every ride asked for before rides carried requirements.
+ *
+ * @param category   category the vehicle must belong to, or null for any
+ * @param passengers seats needed, at least one
+ */
+public record VehicleRequirement(VehicleCategory category, int passengers) {
+
+    public static final VehicleRequirement ANY = new VehicleRequirement(null, 1);
+
+    public VehicleRequirement {
+        if (passengers < 1) {
+            throw new IllegalArgumentException("A ride needs at least one passenger");
+        }
+    }
+
+    public static VehicleRequirement of(Ride ride) {
+        return new VehicleRequirement(ride.getVehicleCategory(), ride.getPassengers() == null ? 1 : ride.getPassengers());
+    }
+
+    public boolean accepts(VehicleType type) {
+        if (type == null) {
+            return category == null && passengers == 1;
+        }
+        return (category == null || type.getCategory() == category) && type.canAccommodate(passengers);
+    }
+
+    /**
+     * @return whether any vehicle type meets the requirement
+     */
+    public boolean isSatisfiable() {
+        return Arrays.stream(VehicleType.values()).anyMatch(this::accepts);
+    }
+
+    /**
+     * Whether every driver in the searched partition (the category's, or all drivers when there is no
+     * category) qualifies, so a search needs no per-driver seat check
+     */
+    public boolean coversPartition() {
+        if (category == null) {
+            return passengers == 1;
+        }
+        return Arrays.stream(VehicleType.values())
+                .filter(type -> type.getCategory() == category)
+                .allMatch(type -> type.canAccommodate(passengers));
+    }
+}
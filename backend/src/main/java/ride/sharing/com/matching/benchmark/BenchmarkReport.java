@@ -0,0 +1,29 @@
+package ride.sharing.com.matching.benchmark;
+
+import java.util.List;
+
+/**
+ * Outcome of replaying one workload through one strategy.
+ * Latencies are the compute time until a request's match was decided, excluding any batching window.
+ */
+public record BenchmarkReport(String strategy,
+                              long windowMillis,
+                              int requests,
+                              int matched,
+                              double p50LatencyMicros,
+                              double p99LatencyMicros,
+                              double throughputPerSecond,
+                              double meanPickupKm) {
+
+    public static String table(List<BenchmarkReport> reports) {
+        StringBuilder table = new StringBuilder(String.format("%-14s %8s %8s %8s %10s %10s %12s %10s%n",
+                "strategy", "window", "requests", "matched", "p50 us", "p99 us", "matches/s", "pickup km"));
+        for (BenchmarkReport report : reports) {
+            table.append(String.format("%-14s %8d %8d %8d %10.1f %10.1f %12.0f %10.3f%n",
+                    report.strategy(), report.windowMillis(), report.requests(), report.matched(),
+                    report.p50LatencyMicros(), report.p99LatencyMicros(), report.throughputPerSecond(),
+                    report.meanPickupKm()));
+        }
+        return table.toString();
+    }
+}
@@ -0,0 +1,241 @@
+package ride.sharing.com.matching.benchmark;
+
+import ride.sharing.com.geo.GeoGridIndex;
+import ride.sharing.com.geo.GeoUtils;
+import ride.sharing.com.matching.BatchedStrategy;
+import ride.sharing.com.matching.DriverCandidate;
+import ride.sharing.com.matching.EtaStrategy;
+import ride.sharing.com.matching.IdleTimeWeightedStrategy;
+import ride.sharing.com.matching.MatchingStrategy;
+import ride.sharing.com.matching.NearestFirstStrategy;
+import ride.sharing.com.matching.PickupRequest;
+import ride.sharing.com.routing.OsmRoadGraphLoader;
+import ride.sharing.com.routing.RoadNetwork;
+import ride.sharing.com.routing.Route;
+import ride.sharing.com.services.RoutingService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Replays a {@link ReplayWorkload} through matching strategies in memory and reports match latency,
+ * throughput and pickup distance, so strategies can be compared on the same stream.
+ * <p>
+ * Drivers sit in a {@link GeoGridIndex} like the local location index. Each request (or each window of
+ * requests when {@code windowMillis > 0}) takes the nearest free drivers as candidates and lets the
+ * strategy choose. A matched driver leaves the index and comes back at the dropoff once the simulated
+ * trip is over. Time is simulated, so a day of requests replays in seconds.
+ * <p>
+ * Run from the command line after {@code mvn compile}:
+ * <pre>
+ *   java -cp target/classes ride.sharing.com.matching.benchmark.MatchingBenchmark \
+ *       [workload.csv] [--osm city.osm] [--window-ms 1500]
+ * </pre>
+ * Without a workload file a synthetic one is generated.
+ */
+public class MatchingBenchmark {
+
+    private final ReplayWorkload workload;
+    private final double searchRadiusKm;
+    private final int candidateCount;
+    private final double tripSpeedKmh;
+    private final SimulationClock clock = new SimulationClock();
+
+    public MatchingBenchmark(ReplayWorkload workload, double searchRadiusKm, int candidateCount, double tripSpeedKmh) {
+        this.workload = workload;
+        this.searchRadiusKm = searchRadiusKm;
+        this.candidateCount = candidateCount;
+        this.tripSpeedKmh = tripSpeedKmh;
+    }
+
+    /**
+     * Simulated time of the replay, for strategies that read the clock
+     */
+    public Clock clock() {
+        return clock;
+    }
+
+    public BenchmarkReport run(MatchingStrategy strategy, long windowMillis) {
+        GeoGridIndex freeDrivers = new GeoGridIndex(0.05);
+        Map<Long, Long> availableSince = new HashMap<>();
+        for (ReplayWorkload.Driver driver : workload.drivers()) {
+            freeDrivers.put(driver.id(), driver.lat(), driver.lng());
+            availableSince.put(driver.id(), 0L);
+        }
+        PriorityQueue<Trip> trips = new PriorityQueue<>((a, b) -> Long.compare(a.endsAt, b.endsAt));
+
+        List<ReplayWorkload.Request> requests = workload.requests();
+        long[] latencies = new long[requests.size()];
+        long computeNanos = 0;
+        int matched = 0;
+        double pickupKm = 0;
+
+        int next = 0;
+        while (next < requests.size()) {
+            // One request, or every request that arrives in the same window
+            long decidedAt = windowMillis > 0
+                    ? (requests.get(next).atMillis() / windowMillis + 1) * windowMillis
+                    : requests.get(next).atMillis();
+            int end = next + 1;
+            while (windowMillis > 0 && end < requests.size() && requests.get(end).atMillis() < decidedAt) {
+                end++;
+            }
+            List<ReplayWorkload.Request> group = requests.subList(next, end);
+
+            clock.set(decidedAt);
+            while (!trips.isEmpty() && trips.peek().endsAt <= decidedAt) {
+                Trip trip = trips.poll();
+                freeDrivers.put(trip.driverId, trip.lat, trip.lng);
+                availableSince.put(trip.driverId, trip.endsAt);
+            }
+
+            long started = System.nanoTime();
+            List<PickupRequest> pickups = new ArrayList<>(group.size());
+            Map<Long, DriverCandidate> candidates = new LinkedHashMap<>();
+            for (ReplayWorkload.Request request : group) {
+                PickupRequest pickup = new PickupRequest(null, request.pickupLat(), request.pickupLng());
+                pickups.add(pickup);
+                for (Long driverId : freeDrivers.nearest(pickup.lat(), pickup.lng(), candidateCount, searchRadiusKm, id -> true)) {
+                    double[] position = freeDrivers.position(driverId);
+                    double distanceKm = GeoUtils.haversineKm(pickup.lat(), pickup.lng(), position[0], position[1]);
+                    candidates.putIfAbsent(driverId,
+                            new DriverCandidate(driverId, position[0], position[1], distanceKm, availableSince.get(driverId)));
+                }
+            }
+            List<DriverCandidate> drivers = new ArrayList<>(candidates.values());
+            int[] assignment = group.size() == 1 ? single(strategy, pickups.get(0), drivers) : strategy.assign(pickups, drivers);
+            long elapsed = System.nanoTime() - started;
+            computeNanos += elapsed;
+
+            for (int i = 0; i < group.size(); i++) {
+                latencies[next + i] = elapsed;
+                if (assignment[i] < 0) {
+                    continue;
+                }
+                ReplayWorkload.Request request = group.get(i);
+                DriverCandidate driver = drivers.get(assignment[i]);
+                double toPickupKm = GeoUtils.haversineKm(driver.lat(), driver.lng(), request.pickupLat(), request.pickupLng());
+                double tripKm = GeoUtils.haversineKm(request.pickupLat(), request.pickupLng(),
+                        request.dropoffLat(), request.dropoffLng());
+                long endsAt = decidedAt + (long) ((toPickupKm + tripKm) / tripSpeedKmh * 3_600_000);
+                freeDrivers.remove(driver.driverId());
+                trips.add(new Trip(driver.driverId(), endsAt, request.dropoffLat(), request.dropoffLng()));
+                matched++;
+                pickupKm += toPickupKm;
+            }
+            next = end;
+        }
+
+        Arrays.sort(latencies);
+        return new BenchmarkReport(
+                strategy.name(),
+                windowMillis,
+                requests.size(),
+                matched,
+                percentile(latencies, 0.50) / 1000.0,
+                percentile(latencies, 0.99) / 1000.0,
+                computeNanos == 0 ? 0 : requests.size() / (computeNanos / 1e9),
+                matched == 0 ? 0 : pickupKm / matched
+        );
+    }
+
+    private static int[] single(MatchingStrategy strategy, PickupRequest pickup, List<DriverCandidate> drivers) {
+        List<DriverCandidate> ranked = strategy.rank(pickup, drivers);
+        return new int[]{ranked.isEmpty() ? -1 : drivers.indexOf(ranked.get(0))};
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path workloadFile = null;
+        Path osmFile = null;
+        long windowMillis = 1500;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--osm" -> osmFile = Path.of(args[++i]);
+                case "--window-ms" -> windowMillis = Long.parseLong(args[++i]);
+                default -> workloadFile = Path.of(args[i]);
+            }
+        }
+
+        ReplayWorkload workload = workloadFile != null
+                ? ReplayWorkload.readCsv(workloadFile)
+                : ReplayWorkload.synthetic(42, 2_000, 5_000, 40.7128, -74.0060, 15, 1);
+        RoadNetwork network = osmFile != null ? RoadNetwork.of(OsmRoadGraphLoader.load(osmFile)) : null;
+
+        MatchingBenchmark benchmark = new MatchingBenchmark(workload, 20, 10, 30);
+        List<BenchmarkReport> reports = List.of(
+                benchmark.run(new NearestFirstStrategy(), 0),
+                benchmark.run(new IdleTimeWeightedStrategy(0.1, 30, benchmark.clock()), 0),
+                benchmark.run(new EtaStrategy(new NetworkRouting(network)), 0),
+                benchmark.run(new NearestFirstStrategy(), windowMillis),
+                benchmark.run(new BatchedStrategy(20), windowMillis)
+        );
+        System.out.print(BenchmarkReport.table(reports));
+    }
+
+    private record Trip(Long driverId, long endsAt, double lat, double lng) {
+    }
+
+    /**
+     * Routing over a network loaded by the benchmark itself, outside Spring
+     */
+    private record NetworkRouting(RoadNetwork network) implements RoutingService {
+
+        private static final double MAX_SNAP_KM = 0.5;
+
+        @Override
+        public boolean isAvailable() {
+            return network != null;
+        }
+
+        @Override
+        public Route route(double fromLat, double fromLng, double toLat, double toLng) {
+            return network == null ? null : network.route(fromLat, fromLng, toLat, toLng, MAX_SNAP_KM);
+        }
+    }
+
+    private static final class SimulationClock extends Clock {
+        private volatile long millis;
+
+        private void set(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException("Simulation clock is always UTC");
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ride.sharing.com.matching.benchmark;
+
+import ride.sharing.com.geo.GeoUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Driver starting positions and a time-ordered stream of ride requests to replay through a strategy.
+ * <p>
+ * Recorded workloads are CSV, one event per line ({@code #} starts a comment):
+ * <pre>
+ *   driver,&lt;id&gt;,&lt;lat&gt;,&lt;lng&gt;
+ *   request,&lt;epochMillis&gt;,&lt;pickupLat&gt;,&lt;pickupLng&gt;,&lt;dropoffLat&gt;,&lt;dropoffLng&gt;
+ * </pre>
+ */
+public record ReplayWorkload(List<Driver> drivers, List<Request> requests) {
+
+    public record Driver(long id, double lat, double lng) {
+    }
+
+    public record Request(long atMillis, double pickupLat, double pickupLng, double dropoffLat, double dropoffLng) {
+    }
+
+    public ReplayWorkload {
+        drivers = List.copyOf(drivers);
+        requests = requests.stream().sorted(Comparator.comparingLong(Request::atMillis)).toList();
+    }
+
+    public static ReplayWorkload readCsv(Path file) throws IOException {
+        List<Driver> drivers = new ArrayList<>();
+        List<Request> requests = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file)) {
+            lineNumber++;
+            String trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] fields = trimmed.split(",");
+            try {
+                switch (fields[0]) {
+                    case "driver" -> drivers.add(new Driver(Long.parseLong(fields[1]),
+                            Double.parseDouble(fields[2]), Double.parseDouble(fields[3])));
+                    case "request" -> requests.add(new Request(Long.parseLong(fields[1]),
+                            Double.parseDouble(fields[2]), Double.parseDouble(fields[3]),
+                            Double.parseDouble(fields[4]), Double.parseDouble(fields[5])));
+                    default -> throw new IllegalArgumentException("unknown event " + fields[0]);
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Bad workload line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return new ReplayWorkload(drivers, requests);
+    }
+
+    /**
+     * Drivers and pickups spread uniformly over a disc, with requests arriving as a Poisson stream
+     */
+    public static ReplayWorkload synthetic(long seed, int driverCount, int requestCount, double centerLat,
+                                           double centerLng, double radiusKm, double requestsPerSecond) {
+        Random random = new Random(seed);
+        List<Driver> drivers = new ArrayList<>(driverCount);
+        for (int i = 0; i < driverCount; i++) {
+            double[] point = randomPoint(random, centerLat, centerLng, radiusKm);
+            drivers.add(new Driver(i + 1, point[0], point[1]));
+        }
+
+        List<Request> requests = new ArrayList<>(requestCount);
+        double at = 0;
+        for (int i = 0; i < requestCount; i++) {
+            at += -Math.log(1 - random.nextDouble()) / requestsPerSecond * 1000.0;
+            double[] pickup = randomPoint(random, centerLat, centerLng, radiusKm);
+            double[] dropoff = randomPoint(random, centerLat, centerLng, radiusKm);
+            requests.add(new Request((long) at, pickup[0], pickup[1], dropoff[0], dropoff[1]));
+        }
+        return new ReplayWorkload(drivers, requests);
+    }
+
+    private static double[] randomPoint(Random random, double centerLat, double centerLng, double radiusKm) {
+        double distanceKm = radiusKm * Math.sqrt(random.nextDouble());
+        double bearing = random.nextDouble() * 2 * Math.PI;
+        double lat = centerLat + distanceKm * Math.cos(bearing) / GeoUtils.KM_PER_DEGREE;
+        double lng = centerLng + distanceKm * Math.sin(bearing)
+                / (GeoUtils.KM_PER_DEGREE * Math.cos(Math.toRadians(centerLat)));
+        return new double[]{lat, lng};
+    }
+}
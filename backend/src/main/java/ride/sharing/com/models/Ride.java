@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Builder;
 import lombok.Data;
 import ride.sharing.com.enums.RideStatus;
+import ride.sharing.com.enums.VehicleType;
 
 import java.time.LocalDateTime;
 
@@ -32,10 +33,20 @@ public class Ride {
     private Double dropoffLng;
     private String dropoffAddress;
 
+    // Seats and vehicle category the rider asked for; a null category accepts any vehicle
+    private Integer passengers;
+
+    @Enumerated(EnumType.STRING)
+    private VehicleType.VehicleCategory vehicleCategory;
+
+    // Shared (pooled) ride that may ride along with other customers
+    private Boolean shared;
+
     @Enumerated(EnumType.STRING)
     private RideStatus status; // REQUESTED, ACCEPTED, IN_PROGRESS, COMPLETED, CANCELLED
 
     private Double fare;
+    private Double surgeMultiplier;
     private Double distance;
 
     private LocalDateTime requestedAt = LocalDateTime.now();
@@ -0,0 +1,35 @@
+package ride.sharing.com.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "ride_trails")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RideTrail {
+    @Id
+    private Long rideId;
+
+    private Long driverId;
+
+    private Integer pointCount;
+
+    // Distance along the recorded points, as opposed to the straight line in Ride.distance
+    private Double distanceKm;
+
+    // Delta + varint encoded points, see RideTrailBuffer
+    @JdbcTypeCode(SqlTypes.LONG32VARBINARY)
+    private byte[] points;
+
+    private LocalDateTime createdAt;
+}
@@ -44,6 +44,12 @@ public class User {
 
     private String licensePlate;
 
+    // When the driver last became AVAILABLE, for matching strategies that favour drivers who waited longest
+    private LocalDateTime availableSince;
+
+    // Drivers picked by matching are held for a ride until this time, unless they accept sooner
+    private LocalDateTime reservedUntil;
+
     @Column(nullable = false)
     private Boolean active = true;
 
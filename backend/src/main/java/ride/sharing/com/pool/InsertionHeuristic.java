@@ -0,0 +1,100 @@
+package ride.sharing.com.pool;
+
+import ride.sharing.com.geo.GeoUtils;
+
+/**
+ * Cheapest insertion of a pickup and dropoff pair into a vehicle's route.
+ * <p>
+ * Every pickup position i and dropoff position j >= i is tried, which is O(n²) for n stops. Prefix
+ * distances, loads and slack minimums are computed once, so each pair costs O(1): a handful of
+ * straight-line distances. Insertions are rejected when the vehicle would be over capacity, the pickup
+ * is too far along the route, the new rider's trip exceeds the detour factor, or any later rider's
+ * slack would be used up.
+ */
+public final class InsertionHeuristic {
+
+    private InsertionHeuristic() {
+    }
+
+    /**
+     * @param vehicleLat  current vehicle position, the start of the route
+     * @param maxPickupKm how far the vehicle may drive, along the route, before picking the rider up
+     * @return the insertion adding the least distance, or null when none is allowed
+     */
+    public static PoolInsertion cheapest(PoolRoute route, double vehicleLat, double vehicleLng,
+                                         PoolStop pickup, PoolStop dropoff,
+                                         double maxPickupKm, double maxDetourFactor) {
+        int n = route.stops().size();
+        int passengers = pickup.passengers();
+
+        // Index 0 is the vehicle, index k the k-th remaining stop
+        double[] lats = new double[n + 1];
+        double[] lngs = new double[n + 1];
+        double[] cumulativeKm = new double[n + 1];
+        int[] load = new int[n + 1];
+        lats[0] = vehicleLat;
+        lngs[0] = vehicleLng;
+        load[0] = route.onboard();
+        for (int k = 1; k <= n; k++) {
+            PoolStop stop = route.stops().get(k - 1);
+            lats[k] = stop.lat();
+            lngs[k] = stop.lng();
+            cumulativeKm[k] = cumulativeKm[k - 1] + GeoUtils.haversineKm(lats[k - 1], lngs[k - 1], lats[k], lngs[k]);
+            load[k] = load[k - 1] + (stop.pickup() ? stop.passengers() : -stop.passengers());
+        }
+
+        // Smallest dropoff slack among stops k..n
+        double[] slackFrom = new double[n + 2];
+        slackFrom[n + 1] = Double.POSITIVE_INFINITY;
+        for (int k = n; k >= 1; k--) {
+            PoolStop stop = route.stops().get(k - 1);
+            slackFrom[k] = stop.pickup() ? slackFrom[k + 1] : Math.min(slackFrom[k + 1], stop.slackKm());
+        }
+
+        double directKm = GeoUtils.haversineKm(pickup.lat(), pickup.lng(), dropoff.lat(), dropoff.lng());
+        double maxRideKm = maxDetourFactor * directKm;
+
+        PoolInsertion best = null;
+        for (int i = 0; i <= n && cumulativeKm[i] <= maxPickupKm; i++) {
+            if (load[i] + passengers > route.seats()) {
+                continue;
+            }
+            double toPickup = GeoUtils.haversineKm(lats[i], lngs[i], pickup.lat(), pickup.lng());
+            if (cumulativeKm[i] + toPickup > maxPickupKm) {
+                continue;
+            }
+            double fromPickup = i < n ? GeoUtils.haversineKm(pickup.lat(), pickup.lng(), lats[i + 1], lngs[i + 1]) : 0;
+            double legKm = i < n ? cumulativeKm[i + 1] - cumulativeKm[i] : 0;
+            double slack = slackFrom[i + 1];
+
+            for (int j = i; j <= n; j++) {
+                // The rider is on board while leaving stops i..j
+                if (j > i && load[j] + passengers > route.seats()) {
+                    break;
+                }
+
+                double addedKm;
+                double rideKm;
+                if (j == i) {
+                    double toNext = j < n ? GeoUtils.haversineKm(dropoff.lat(), dropoff.lng(), lats[j + 1], lngs[j + 1]) : 0;
+                    addedKm = toPickup + directKm + toNext - legKm;
+                    rideKm = directKm;
+                } else {
+                    double toDropoff = GeoUtils.haversineKm(lats[j], lngs[j], dropoff.lat(), dropoff.lng());
+                    double toNext = j < n ? GeoUtils.haversineKm(dropoff.lat(), dropoff.lng(), lats[j + 1], lngs[j + 1]) : 0;
+                    double dropoffLegKm = j < n ? cumulativeKm[j + 1] - cumulativeKm[j] : 0;
+                    addedKm = (toPickup + fromPickup - legKm) + (toDropoff + toNext - dropoffLegKm);
+                    rideKm = fromPickup + (cumulativeKm[j] - cumulativeKm[i + 1]) + toDropoff;
+                }
+
+                if (rideKm > maxRideKm || addedKm > slack) {
+                    continue;
+                }
+                if (best == null || addedKm < best.addedKm()) {
+                    best = new PoolInsertion(route.driverId(), i, j, addedKm, rideKm);
+                }
+            }
+        }
+        return best;
+    }
+}
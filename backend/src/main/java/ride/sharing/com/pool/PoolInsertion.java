@@ -0,0 +1,13 @@
+package ride.sharing.com.pool;
+
+/**
+ * Where a new pooled request fits into a vehicle's route.
+ *
+ * @param pickupIndex  index in the route's stops at which the pickup goes
+ * @param dropoffIndex stop the dropoff follows, counted as for the pickup; the dropoff ends up at
+ *                     {@code dropoffIndex + 1} once the pickup is in place
+ * @param addedKm      extra distance the vehicle drives
+ * @param rideKm       distance the new rider spends in the vehicle
+ */
+public record PoolInsertion(Long driverId, int pickupIndex, int dropoffIndex, double addedKm, double rideKm) {
+}
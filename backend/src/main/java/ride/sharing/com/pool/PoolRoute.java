@@ -0,0 +1,72 @@
+package ride.sharing.com.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Remaining stops of a vehicle serving pooled rides, in driving order. Immutable: every change
+ * returns a new route, so matchers can evaluate a snapshot while the registry swaps routes atomically.
+ *
+ * @param seats   passengers the vehicle can carry at once
+ * @param onboard passengers already picked up
+ */
+public record PoolRoute(Long driverId, int seats, int onboard, List<PoolStop> stops) {
+
+    public PoolRoute {
+        stops = List.copyOf(stops);
+    }
+
+    public static PoolRoute open(Long driverId, int seats, PoolStop pickup, PoolStop dropoff) {
+        return new PoolRoute(driverId, seats, 0, List.of(pickup, dropoff));
+    }
+
+    public boolean isEmpty() {
+        return stops.isEmpty();
+    }
+
+    /**
+     * Route with the request's stops in place. Riders dropped off after the pickup may now ride up to
+     * the added distance longer, so their slack shrinks by it.
+     */
+    public PoolRoute insert(PoolInsertion insertion, PoolStop pickup, PoolStop dropoff) {
+        List<PoolStop> updated = new ArrayList<>(stops.size() + 2);
+        for (int i = 0; i < stops.size(); i++) {
+            PoolStop stop = stops.get(i);
+            boolean delayed = i >= insertion.pickupIndex() && !stop.pickup();
+            updated.add(delayed ? stop.withSlack(stop.slackKm() - insertion.addedKm()) : stop);
+        }
+        updated.add(insertion.pickupIndex(), pickup);
+        updated.add(insertion.dropoffIndex() + 1, dropoff);
+        return new PoolRoute(driverId, seats, onboard, updated);
+    }
+
+    public PoolRoute pickedUp(Long rideId) {
+        List<PoolStop> updated = new ArrayList<>(stops);
+        int passengers = 0;
+        for (PoolStop stop : stops) {
+            if (stop.pickup() && stop.rideId().equals(rideId)) {
+                updated.remove(stop);
+                passengers = stop.passengers();
+            }
+        }
+        return new PoolRoute(driverId, seats, onboard + passengers, updated);
+    }
+
+    /**
+     * Route without the ride, whether it was completed or cancelled before or after its pickup
+     */
+    public PoolRoute without(Long rideId) {
+        List<PoolStop> updated = new ArrayList<>(stops.size());
+        boolean waiting = false;
+        int passengers = 0;
+        for (PoolStop stop : stops) {
+            if (stop.rideId().equals(rideId)) {
+                waiting |= stop.pickup();
+                passengers = stop.passengers();
+            } else {
+                updated.add(stop);
+            }
+        }
+        return new PoolRoute(driverId, seats, waiting ? onboard : Math.max(0, onboard - passengers), updated);
+    }
+}
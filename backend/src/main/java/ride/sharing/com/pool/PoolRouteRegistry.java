@@ -0,0 +1,62 @@
+package ride.sharing.com.pool;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes of the vehicles currently serving pooled rides, by driver id.
+ * <p>
+ * Routes are immutable and replaced with compare-and-set, so insertions can be searched on a snapshot
+ * without locking; an insertion planned against a route that changed meanwhile is simply rejected.
+ */
+@Component
+public class PoolRouteRegistry {
+
+    private final Map<Long, PoolRoute> routes = new ConcurrentHashMap<>();
+
+    public Collection<PoolRoute> routes() {
+        return List.copyOf(routes.values());
+    }
+
+    public PoolRoute route(Long driverId) {
+        return routes.get(driverId);
+    }
+
+    public void put(PoolRoute route) {
+        routes.put(route.driverId(), route);
+    }
+
+    /**
+     * Apply an insertion planned against {@code planned}
+     *
+     * @return false when the route changed since it was planned
+     */
+    public boolean insert(PoolRoute planned, PoolInsertion insertion, PoolStop pickup, PoolStop dropoff) {
+        return routes.replace(planned.driverId(), planned, planned.insert(insertion, pickup, dropoff));
+    }
+
+    public void pickedUp(Long driverId, Long rideId) {
+        routes.computeIfPresent(driverId, (id, route) -> route.pickedUp(rideId));
+    }
+
+    /**
+     * Drop a completed or cancelled ride from its vehicle's route
+     *
+     * @return whether the vehicle still has stops to serve
+     */
+    public boolean remove(Long driverId, Long rideId) {
+        PoolRoute route = routes.computeIfPresent(driverId, (id, current) -> {
+            PoolRoute updated = current.without(rideId);
+            return updated.isEmpty() ? null : updated;
+        });
+        return route != null;
+    }
+
+    public void clear() {
+        routes.clear();
+    }
+}
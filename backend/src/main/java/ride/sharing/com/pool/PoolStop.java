@@ -0,0 +1,14 @@
+package ride.sharing.com.pool;
+
+/**
+ * A pickup or dropoff still ahead of a pooled vehicle.
+ *
+ * @param slackKm for a dropoff, how much longer the rider's trip may still get before it exceeds the
+ *                allowed detour; unused for pickups
+ */
+public record PoolStop(Long rideId, boolean pickup, double lat, double lng, int passengers, double slackKm) {
+
+    public PoolStop withSlack(double slackKm) {
+        return new PoolStop(rideId, pickup, lat, lng, passengers, slackKm);
+    }
+}
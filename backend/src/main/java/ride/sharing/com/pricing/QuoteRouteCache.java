@@ -0,0 +1,87 @@
+package ride.sharing.com.pricing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ride.sharing.com.geo.GeoUtils;
+import ride.sharing.com.routing.Route;
+import ride.sharing.com.services.RoutingService;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ride distances for quotes, cached for a short while per pair of pickup and dropoff cells.
+ * <p>
+ * Apps refresh a quote every few seconds while the rider looks at it, with the same points or ones a
+ * few metres away. Rounding both ends to a geohash cell lets those refreshes reuse one route instead
+ * of searching the road network again. Without a road network the straight-line distance is used.
+ * <p>
+ * Expired entries are purged on a schedule rather than on lookups, so a miss never scans the map. Once
+ * {@code max-entries} is reached new routes are not cached until the next purge frees room.
+ */
+@Component
+public class QuoteRouteCache {
+
+    private final RoutingService routingService;
+    private final int precision;
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    private final Map<CellPair, CachedDistance> distances = new ConcurrentHashMap<>();
+
+    public QuoteRouteCache(RoutingService routingService,
+                           @Value("${pricing.quote-cache.geohash-precision:7}") int precision,
+                           @Value("${pricing.quote-cache.ttl-seconds:60}") long ttlSeconds,
+                           @Value("${pricing.quote-cache.max-entries:100000}") int maxEntries) {
+        if (precision < 1 || precision > 12 || ttlSeconds < 1 || maxEntries < 1) {
+            throw new IllegalArgumentException("Invalid quote cache settings");
+        }
+        this.routingService = routingService;
+        this.precision = precision;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+    }
+
+    public double kilometers(double pickupLat, double pickupLng, double dropoffLat, double dropoffLng) {
+        return kilometers(pickupLat, pickupLng, dropoffLat, dropoffLng, System.currentTimeMillis());
+    }
+
+    double kilometers(double pickupLat, double pickupLng, double dropoffLat, double dropoffLng, long nowMillis) {
+        CellPair key = new CellPair(GeoUtils.geohash(pickupLat, pickupLng, precision),
+                GeoUtils.geohash(dropoffLat, dropoffLng, precision));
+        CachedDistance cached = distances.get(key);
+        if (cached != null && cached.expiresAt() > nowMillis) {
+            return cached.kilometers();
+        }
+
+        Route route = routingService.route(pickupLat, pickupLng, dropoffLat, dropoffLng);
+        double kilometers = route != null
+                ? route.kilometers()
+                : GeoUtils.haversineKm(pickupLat, pickupLng, dropoffLat, dropoffLng);
+
+        if (cached != null || distances.size() < maxEntries) {
+            distances.put(key, new CachedDistance(kilometers, nowMillis + ttlMillis));
+        }
+        return kilometers;
+    }
+
+    @Scheduled(fixedDelayString = "${pricing.quote-cache.evict-ms:10000}")
+    public void evictExpired() {
+        evictExpired(System.currentTimeMillis());
+    }
+
+    void evictExpired(long nowMillis) {
+        distances.values().removeIf(entry -> entry.expiresAt() <= nowMillis);
+    }
+
+    int size() {
+        return distances.size();
+    }
+
+    private record CellPair(long pickup, long dropoff) {
+    }
+
+    private record CachedDistance(double kilometers, long expiresAt) {
+    }
+}
@@ -0,0 +1,68 @@
+package ride.sharing.com.pricing;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count of events over the last {@code buckets} x {@code bucketMillis}, kept in a ring of buckets.
+ * <p>
+ * Each bucket is a {@link LongAdder}, so concurrent increments from the request and location paths
+ * spread over its cells instead of contending on one value, and nothing here takes a lock. A bucket is
+ * reused once its time slot has left the window; the thread that moves it to the new slot resets it,
+ * which can drop an increment made at the same instant. That is fine for the estimates this feeds.
+ */
+public class SlidingWindowCounter {
+
+    private final long bucketMillis;
+    private final LongAdder[] counts;
+    // Time slot (now / bucketMillis) each bucket currently counts
+    private final AtomicLongArray slots;
+
+    public SlidingWindowCounter(long bucketMillis, int buckets) {
+        if (bucketMillis < 1 || buckets < 1) {
+            throw new IllegalArgumentException("Sliding window needs a positive bucket length and count");
+        }
+        this.bucketMillis = bucketMillis;
+        this.counts = new LongAdder[buckets];
+        this.slots = new AtomicLongArray(buckets);
+        for (int i = 0; i < buckets; i++) {
+            counts[i] = new LongAdder();
+            slots.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    public void increment(long nowMillis) {
+        long slot = nowMillis / bucketMillis;
+        int bucket = (int) Math.floorMod(slot, (long) counts.length);
+        long held = slots.get(bucket);
+        if (held != slot) {
+            if (held > slot) {
+                // A late event for a slot that has already been reused
+                return;
+            }
+            if (slots.compareAndSet(bucket, held, slot)) {
+                counts[bucket].reset();
+            }
+        }
+        counts[bucket].increment();
+    }
+
+    /**
+     * @return events counted in the window ending at {@code nowMillis}
+     */
+    public long sum(long nowMillis) {
+        long slot = nowMillis / bucketMillis;
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            long held = slots.get(i);
+            if (held <= slot && held > slot - counts.length) {
+                total += counts[i].sum();
+            }
+        }
+        return total;
+    }
+
+    public int buckets() {
+        return counts.length;
+    }
+}
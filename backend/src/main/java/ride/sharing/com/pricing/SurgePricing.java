@@ -0,0 +1,141 @@
+package ride.sharing.com.pricing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ride.sharing.com.geo.GeoUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Surge multiplier per geohash cell from recent demand and supply.
+ * <p>
+ * Ride requests and driver location writes bump {@link SlidingWindowCounter}s for their cell; a driver
+ * is counted at most once per bucket, so the driver count summed over the window divided by the number
+ * of buckets is the average number of drivers seen in the cell. Supply covers every driver sending
+ * locations, busy or not. Every {@code recompute-ms} the requests per driver of each cell are turned
+ * into a multiplier and published as a new map, so pricing a ride is a single lookup.
+ */
+@Component
+@Slf4j
+public class SurgePricing {
+
+    private final boolean enabled;
+    private final int precision;
+    private final long bucketMillis;
+    private final int buckets;
+    private final double requestsPerDriver;
+    private final double sensitivity;
+    private final double maxMultiplier;
+
+    private final Map<Long, CellCounters> cells = new ConcurrentHashMap<>();
+    private final Map<Long, SupplyMark> lastCounted = new ConcurrentHashMap<>();
+    private volatile Map<Long, Double> multipliers = Map.of();
+
+    public SurgePricing(@Value("${surge.enabled:true}") boolean enabled,
+                        @Value("${surge.geohash-precision:6}") int precision,
+                        @Value("${surge.bucket-seconds:30}") long bucketSeconds,
+                        @Value("${surge.window-buckets:10}") int buckets,
+                        @Value("${surge.requests-per-driver:1.0}") double requestsPerDriver,
+                        @Value("${surge.sensitivity:0.5}") double sensitivity,
+                        @Value("${surge.max-multiplier:3.0}") double maxMultiplier) {
+        if (precision < 1 || precision > 12) {
+            throw new IllegalArgumentException("Surge geohash precision must be between 1 and 12");
+        }
+        if (bucketSeconds < 1 || buckets < 1 || requestsPerDriver <= 0 || sensitivity < 0 || maxMultiplier < 1) {
+            throw new IllegalArgumentException("Invalid surge settings");
+        }
+        this.enabled = enabled;
+        this.precision = precision;
+        this.bucketMillis = bucketSeconds * 1000;
+        this.buckets = buckets;
+        this.requestsPerDriver = requestsPerDriver;
+        this.sensitivity = sensitivity;
+        this.maxMultiplier = maxMultiplier;
+    }
+
+    public void recordRequest(double lat, double lng, long nowMillis) {
+        if (enabled) {
+            counters(GeoUtils.geohash(lat, lng, precision)).requests().increment(nowMillis);
+        }
+    }
+
+    public void recordDriver(long driverId, double lat, double lng, long nowMillis) {
+        if (!enabled) {
+            return;
+        }
+        long cell = GeoUtils.geohash(lat, lng, precision);
+        SupplyMark mark = new SupplyMark(cell, nowMillis / bucketMillis);
+        if (!mark.equals(lastCounted.put(driverId, mark))) {
+            counters(cell).drivers().increment(nowMillis);
+        }
+    }
+
+    /**
+     * @return the current multiplier for fares picked up at the point, 1.0 when the cell is not surging
+     */
+    public double multiplier(double lat, double lng) {
+        if (!enabled) {
+            return 1.0;
+        }
+        return multipliers.getOrDefault(GeoUtils.geohash(lat, lng, precision), 1.0);
+    }
+
+    @Scheduled(fixedDelayString = "${surge.recompute-ms:5000}")
+    public void recompute() {
+        if (enabled) {
+            recompute(System.currentTimeMillis());
+        }
+    }
+
+    void recompute(long nowMillis) {
+        Map<Long, Double> next = new HashMap<>();
+        cells.forEach((cell, counters) -> {
+            long demand = counters.requests().sum(nowMillis);
+            long driverBuckets = counters.drivers().sum(nowMillis);
+            if (demand == 0 && driverBuckets == 0) {
+                cells.remove(cell, counters);
+                return;
+            }
+            double supply = Math.max(1.0, (double) driverBuckets / buckets);
+            double multiplier = multiplierFor(demand / supply);
+            if (multiplier > 1.0) {
+                next.put(cell, multiplier);
+            }
+        });
+
+        long oldestSlot = nowMillis / bucketMillis - buckets;
+        lastCounted.values().removeIf(mark -> mark.slot() <= oldestSlot);
+
+        multipliers = Map.copyOf(next);
+        if (!next.isEmpty()) {
+            log.debug("{} of {} cells surging", next.size(), cells.size());
+        }
+    }
+
+    /**
+     * Linear in how far requests per driver exceed the target, rounded to a tenth and capped
+     */
+    double multiplierFor(double requestsPerDriverObserved) {
+        double excess = requestsPerDriverObserved / requestsPerDriver - 1;
+        if (excess <= 0) {
+            return 1.0;
+        }
+        double multiplier = Math.round((1 + sensitivity * excess) * 10) / 10.0;
+        return Math.min(maxMultiplier, multiplier);
+    }
+
+    private CellCounters counters(long cell) {
+        return cells.computeIfAbsent(cell, c -> new CellCounters(
+                new SlidingWindowCounter(bucketMillis, buckets), new SlidingWindowCounter(bucketMillis, buckets)));
+    }
+
+    private record CellCounters(SlidingWindowCounter requests, SlidingWindowCounter drivers) {
+    }
+
+    private record SupplyMark(long cell, long slot) {
+    }
+}
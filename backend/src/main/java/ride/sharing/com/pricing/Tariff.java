@@ -0,0 +1,21 @@
+package ride.sharing.com.pricing;
+
+/**
+ * Price of a ride before surge: a flat base fare plus a rate per kilometre
+ */
+public record Tariff(double baseFare, double perKm) {
+
+    public Tariff {
+        if (baseFare < 0 || perKm < 0) {
+            throw new IllegalArgumentException("Tariff rates cannot be negative");
+        }
+    }
+
+    public double fare(double distanceKm) {
+        return baseFare + distanceKm * perKm;
+    }
+
+    public Tariff times(double multiplier) {
+        return new Tariff(baseFare * multiplier, perKm * multiplier);
+    }
+}
@@ -0,0 +1,83 @@
+package ride.sharing.com.pricing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.geo.DriverShardRouter;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tariff of every vehicle type in every pricing zone, worked out once at startup.
+ * <p>
+ * Zones are shard cells as named by {@link DriverShardRouter}. Each zone has a standard tariff
+ * ({@code pricing.zone-tariffs}, or the deployment default), and a vehicle type's tariff is the standard
+ * one scaled by {@link VehicleType#getPriceMultiplier()}. Looking up a pickup's tariffs is one cell
+ * computation and one map read.
+ */
+@Component
+public class TariffTable {
+
+    private final DriverShardRouter shardRouter;
+    private final Zone defaultZone;
+    private final Map<String, Zone> zones = new HashMap<>();
+
+    /**
+     * @param zoneTariffs comma-separated {@code cell=baseFare/perKm} entries, e.g. "261:211=3.0/2.0"
+     */
+    public TariffTable(DriverShardRouter shardRouter,
+                       @Value("${pricing.base-fare:2.0}") double baseFare,
+                       @Value("${pricing.per-km:1.5}") double perKm,
+                       @Value("${pricing.zone-tariffs:}") String zoneTariffs) {
+        this.shardRouter = shardRouter;
+        this.defaultZone = Zone.of(new Tariff(baseFare, perKm));
+
+        for (String entry : zoneTariffs.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=");
+            String[] rates = parts.length == 2 ? parts[1].split("/") : new String[0];
+            if (rates.length != 2) {
+                throw new IllegalArgumentException("Zone tariff must be cell=baseFare/perKm: " + entry);
+            }
+            Tariff standard = new Tariff(Double.parseDouble(rates[0].trim()), Double.parseDouble(rates[1].trim()));
+            zones.put(parts[0].trim(), Zone.of(standard));
+        }
+    }
+
+    /**
+     * @return the tariff of each vehicle type for a pickup at the point
+     */
+    public Map<VehicleType, Tariff> tariffs(double lat, double lng) {
+        return zone(lat, lng).byType();
+    }
+
+    /**
+     * @return the zone's tariff before any vehicle type multiplier
+     */
+    public Tariff standard(double lat, double lng) {
+        return zone(lat, lng).standard();
+    }
+
+    private Zone zone(double lat, double lng) {
+        if (zones.isEmpty()) {
+            return defaultZone;
+        }
+        return zones.getOrDefault(shardRouter.cellOf(lat, lng), defaultZone);
+    }
+
+    private record Zone(Tariff standard, Map<VehicleType, Tariff> byType) {
+
+        static Zone of(Tariff standard) {
+            Map<VehicleType, Tariff> byType = new EnumMap<>(VehicleType.class);
+            for (VehicleType type : VehicleType.values()) {
+                byType.put(type, standard.times(type.getPriceMultiplier()));
+            }
+            return new Zone(standard, Collections.unmodifiableMap(byType));
+        }
+    }
+}
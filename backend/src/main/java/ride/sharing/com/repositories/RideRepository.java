@@ -1,13 +1,54 @@
 package ride.sharing.com.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ride.sharing.com.enums.RideStatus;
 import ride.sharing.com.models.Ride;
+import ride.sharing.com.models.User;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface RideRepository extends JpaRepository<Ride, Long> {
     List<Ride> findByCustomerId(Long customerId);
     List<Ride> findByDriverId(Long driverId);
     List<Ride> findByStatus(RideStatus status);
+    List<Ride> findByStatusAndDriverIsNullAndPickupLatBetweenAndPickupLngBetween(RideStatus status,
+                                                                                 Double minLat, Double maxLat,
+                                                                                 Double minLng, Double maxLng);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Ride r set r.driver = :driver, r.status = :accepted, r.acceptedAt = :acceptedAt " +
+            "where r.id = :id and r.status = :requested")
+    int acceptIfRequested(@Param("id") Long id,
+                          @Param("driver") User driver,
+                          @Param("requested") RideStatus requested,
+                          @Param("accepted") RideStatus accepted,
+                          @Param("acceptedAt") LocalDateTime acceptedAt);
+
+    /**
+     * Move the ride to {@code to} only if it is still in one of the {@code from} statuses.
+     *
+     * @return 1 when the transition happened, 0 when the ride is missing or in another status
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update Ride r set r.status = :to where r.id = :id and r.status in :from")
+    int transitionIf(@Param("id") Long id,
+                     @Param("from") Collection<RideStatus> from,
+                     @Param("to") RideStatus to);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Ride r set r.status = :completed, r.completedAt = :completedAt " +
+            "where r.id = :id and r.status in :from")
+    int completeIf(@Param("id") Long id,
+                   @Param("from") Collection<RideStatus> from,
+                   @Param("completed") RideStatus completed,
+                   @Param("completedAt") LocalDateTime completedAt);
+
+    @Query("select r.status from Ride r where r.id = :id")
+    Optional<RideStatus> findStatusById(@Param("id") Long id);
 }
@@ -0,0 +1,7 @@
+package ride.sharing.com.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import ride.sharing.com.models.RideTrail;
+
+public interface RideTrailRepository extends JpaRepository<RideTrail, Long> {
+}
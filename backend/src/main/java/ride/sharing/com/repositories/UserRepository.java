@@ -1,11 +1,15 @@
 package ride.sharing.com.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ride.sharing.com.enums.DriverStatus;
 import ride.sharing.com.enums.Role;
 import ride.sharing.com.models.User;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,7 +20,56 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     List<User> findByRole(Role role);
 
+    @Query("select u.id from User u " +
+            "where u.id in :ids and u.role = :role and u.driverStatus = :status " +
+            "and (u.reservedUntil is null or u.reservedUntil < :now)")
+    List<Long> findUnreservedIdsByRoleAndDriverStatus(@Param("ids") Collection<Long> ids,
+                                                      @Param("role") Role role,
+                                                      @Param("status") DriverStatus status,
+                                                      @Param("now") LocalDateTime now);
+
     Boolean existsByEmail(String email);
 
     Boolean existsByPhoneNumber(String phoneNumber);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.driverStatus = :status " +
+            "where u.id in :ids and u.role = :role and u.driverStatus = :expected")
+    int updateDriverStatus(@Param("ids") Collection<Long> ids,
+                           @Param("role") Role role,
+                           @Param("expected") DriverStatus expected,
+                           @Param("status") DriverStatus status);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.driverStatus = :status, u.reservedUntil = null " +
+            "where u.id = :id and u.role = :role and u.driverStatus = :expected")
+    int claimDriver(@Param("id") Long id,
+                    @Param("role") Role role,
+                    @Param("expected") DriverStatus expected,
+                    @Param("status") DriverStatus status);
+
+    /**
+     * Make an active driver AVAILABLE again after a ride, clearing any reservation. The available-since
+     * timestamp only moves when the driver was not AVAILABLE already, and drivers outside {@code from}
+     * (e.g. gone OFFLINE meanwhile) are left as they are.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.driverStatus = :available, u.reservedUntil = null, " +
+            "u.availableSince = case when u.driverStatus = :available then u.availableSince else :now end " +
+            "where u.id = :id and u.role = :role and u.active = true and u.driverStatus in :from")
+    int releaseDriver(@Param("id") Long id,
+                      @Param("role") Role role,
+                      @Param("from") Collection<DriverStatus> from,
+                      @Param("available") DriverStatus available,
+                      @Param("now") LocalDateTime now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.reservedUntil = :until " +
+            "where u.id = :id and u.role = :role and u.driverStatus = :status " +
+            "and (u.reservedUntil is null or u.reservedUntil < :now)")
+    int reserveDriver(@Param("id") Long id,
+                      @Param("role") Role role,
+                      @Param("status") DriverStatus status,
+                      @Param("now") LocalDateTime now,
+                      @Param("until") LocalDateTime until);
 }
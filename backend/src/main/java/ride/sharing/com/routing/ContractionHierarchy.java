@@ -0,0 +1,498 @@
+package ride.sharing.com.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Contraction hierarchy over a {@link RoadGraph} for fast fastest-route queries.
+ * <p>
+ * Preprocessing contracts nodes one at a time, least important first (by edge difference plus contracted
+ * neighbours), adding a shortcut between two neighbours whenever the path through the contracted node is
+ * the only shortest one a bounded witness search can find. A query is then a bidirectional Dijkstra that
+ * only moves up the hierarchy and settles a few hundred nodes even on a city-sized network.
+ * <p>
+ * The upward graphs are stored as flat arrays. Each query borrows O(nodeCount) scratch space from a small
+ * bounded pool and hands it back when done, so queries run concurrently without allocating per query or per
+ * thread; with more concurrent queries than pooled states, the extra ones wait for a state to come back.
+ */
+public final class ContractionHierarchy {
+
+    // Bounds on the witness search; a missed witness only costs an unneeded shortcut
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private final int nodeCount;
+    private final int[] forwardStart;
+    private final int[] forwardTarget;
+    private final double[] forwardSeconds;
+    private final double[] forwardMeters;
+    private final int[] backwardStart;
+    private final int[] backwardTarget;
+    private final double[] backwardSeconds;
+    private final double[] backwardMeters;
+    private final int shortcutCount;
+
+    // Scratch space for queries, created on first need up to maxQueryStates and reused after that
+    private final BlockingQueue<QueryState> idleStates;
+    private final AtomicInteger createdStates = new AtomicInteger();
+    private final int maxQueryStates;
+
+    private ContractionHierarchy(int nodeCount, List<List<Arc>> out, List<List<Arc>> in, int[] rank, int shortcutCount,
+                                 int maxQueryStates) {
+        this.nodeCount = nodeCount;
+        this.shortcutCount = shortcutCount;
+        this.maxQueryStates = maxQueryStates;
+        this.idleStates = new ArrayBlockingQueue<>(maxQueryStates);
+
+        this.forwardStart = new int[nodeCount + 1];
+        this.backwardStart = new int[nodeCount + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            forwardStart[node + 1] = forwardStart[node] + countUpward(out.get(node), rank[node], rank);
+            backwardStart[node + 1] = backwardStart[node] + countUpward(in.get(node), rank[node], rank);
+        }
+        this.forwardTarget = new int[forwardStart[nodeCount]];
+        this.forwardSeconds = new double[forwardStart[nodeCount]];
+        this.forwardMeters = new double[forwardStart[nodeCount]];
+        this.backwardTarget = new int[backwardStart[nodeCount]];
+        this.backwardSeconds = new double[backwardStart[nodeCount]];
+        this.backwardMeters = new double[backwardStart[nodeCount]];
+        for (int node = 0; node < nodeCount; node++) {
+            fillUpward(out.get(node), rank, node, forwardStart[node], forwardTarget, forwardSeconds, forwardMeters);
+            fillUpward(in.get(node), rank, node, backwardStart[node], backwardTarget, backwardSeconds, backwardMeters);
+        }
+    }
+
+    public static ContractionHierarchy build(RoadGraph graph) {
+        return build(graph, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param maxQueryStates most queries that can run at once; each holds four {@code double[nodeCount]} arrays
+     */
+    public static ContractionHierarchy build(RoadGraph graph, int maxQueryStates) {
+        if (maxQueryStates < 1) {
+            throw new IllegalArgumentException("At least one query state is needed");
+        }
+        int n = graph.nodeCount();
+        List<List<Arc>> out = new ArrayList<>(n);
+        List<List<Arc>> in = new ArrayList<>(n);
+        for (int node = 0; node < n; node++) {
+            out.add(new ArrayList<>());
+            in.add(new ArrayList<>());
+        }
+        for (int edge = 0; edge < graph.edgeCount(); edge++) {
+            int from = graph.edgeFrom(edge);
+            int to = graph.edgeTo(edge);
+            if (from != to) {
+                addOrImprove(out, in, from, to, graph.edgeSeconds(edge), graph.edgeMeters(edge));
+            }
+        }
+
+        Contractor contractor = new Contractor(n, out, in);
+        int[] rank = contractor.contractAll();
+        return new ContractionHierarchy(n, out, in, rank, contractor.shortcuts, maxQueryStates);
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int shortcutCount() {
+        return shortcutCount;
+    }
+
+    /**
+     * @return the fastest route between two nodes, or null when {@code to} cannot be reached
+     */
+    public Route route(int from, int to) {
+        if (from == to) {
+            return new Route(0, 0);
+        }
+        QueryState state = borrowState();
+        try {
+            return route(state, from, to);
+        } finally {
+            state.reset();
+            idleStates.offer(state);
+        }
+    }
+
+    private Route route(QueryState state, int from, int to) {
+        state.forward.push(from, 0);
+        state.reach(state.forwardSeconds, state.forwardMeters, from, 0, 0);
+        state.backward.push(to, 0);
+        state.reach(state.backwardSeconds, state.backwardMeters, to, 0, 0);
+
+        double bestSeconds = Double.POSITIVE_INFINITY;
+        double bestMeters = 0;
+        while (!state.forward.isEmpty() || !state.backward.isEmpty()) {
+            double forwardMin = state.forward.isEmpty() ? Double.POSITIVE_INFINITY : state.forward.peekKey();
+            double backwardMin = state.backward.isEmpty() ? Double.POSITIVE_INFINITY : state.backward.peekKey();
+            if (Math.min(forwardMin, backwardMin) >= bestSeconds) {
+                break;
+            }
+
+            boolean forwardStep = forwardMin <= backwardMin;
+            Heap heap = forwardStep ? state.forward : state.backward;
+            double[] seconds = forwardStep ? state.forwardSeconds : state.backwardSeconds;
+            double[] meters = forwardStep ? state.forwardMeters : state.backwardMeters;
+            double[] otherSeconds = forwardStep ? state.backwardSeconds : state.forwardSeconds;
+            double[] otherMeters = forwardStep ? state.backwardMeters : state.forwardMeters;
+            int[] start = forwardStep ? forwardStart : backwardStart;
+            int[] target = forwardStep ? forwardTarget : backwardTarget;
+            double[] arcSeconds = forwardStep ? forwardSeconds : backwardSeconds;
+            double[] arcMeters = forwardStep ? forwardMeters : backwardMeters;
+
+            double key = heap.peekKey();
+            int node = heap.pop();
+            if (key > seconds[node]) {
+                continue;
+            }
+            if (otherSeconds[node] < Double.POSITIVE_INFINITY && seconds[node] + otherSeconds[node] < bestSeconds) {
+                bestSeconds = seconds[node] + otherSeconds[node];
+                bestMeters = meters[node] + otherMeters[node];
+            }
+            for (int arc = start[node]; arc < start[node + 1]; arc++) {
+                int next = target[arc];
+                double candidate = seconds[node] + arcSeconds[arc];
+                if (candidate < seconds[next]) {
+                    state.reach(seconds, meters, next, candidate, meters[node] + arcMeters[arc]);
+                    heap.push(next, candidate);
+                }
+            }
+        }
+        return bestSeconds < Double.POSITIVE_INFINITY ? new Route(bestSeconds, bestMeters) : null;
+    }
+
+    private QueryState borrowState() {
+        QueryState state = idleStates.poll();
+        if (state != null) {
+            return state;
+        }
+        if (createdStates.incrementAndGet() <= maxQueryStates) {
+            return new QueryState(nodeCount);
+        }
+        createdStates.decrementAndGet();
+        try {
+            return idleStates.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a routing query slot", e);
+        }
+    }
+
+    private static int countUpward(List<Arc> arcs, int ownRank, int[] rank) {
+        int count = 0;
+        for (Arc arc : arcs) {
+            if (rank[arc.node] > ownRank) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void fillUpward(List<Arc> arcs, int[] rank, int node, int offset,
+                                   int[] target, double[] seconds, double[] meters) {
+        for (Arc arc : arcs) {
+            if (rank[arc.node] > rank[node]) {
+                target[offset] = arc.node;
+                seconds[offset] = arc.seconds;
+                meters[offset] = arc.meters;
+                offset++;
+            }
+        }
+    }
+
+    /**
+     * Add the arc, or lower an existing parallel arc to its cost.
+     *
+     * @return true when the graph changed
+     */
+    private static boolean addOrImprove(List<List<Arc>> out, List<List<Arc>> in, int from, int to,
+                                        double seconds, double meters) {
+        for (Arc arc : out.get(from)) {
+            if (arc.node == to) {
+                if (seconds >= arc.seconds) {
+                    return false;
+                }
+                arc.seconds = seconds;
+                arc.meters = meters;
+                for (Arc reverse : in.get(to)) {
+                    if (reverse.node == from) {
+                        reverse.seconds = seconds;
+                        reverse.meters = meters;
+                    }
+                }
+                return true;
+            }
+        }
+        out.get(from).add(new Arc(to, seconds, meters));
+        in.get(to).add(new Arc(from, seconds, meters));
+        return true;
+    }
+
+    private static final class Arc {
+        private final int node;
+        private double seconds;
+        private double meters;
+
+        private Arc(int node, double seconds, double meters) {
+            this.node = node;
+            this.seconds = seconds;
+            this.meters = meters;
+        }
+    }
+
+    private static final class Contractor {
+        private final int n;
+        private final List<List<Arc>> out;
+        private final List<List<Arc>> in;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbours;
+        private int shortcuts;
+
+        private Contractor(int n, List<List<Arc>> out, List<List<Arc>> in) {
+            this.n = n;
+            this.out = out;
+            this.in = in;
+            this.contracted = new boolean[n];
+            this.contractedNeighbours = new int[n];
+        }
+
+        private int[] contractAll() {
+            PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+            for (int node = 0; node < n; node++) {
+                queue.add(new long[]{priority(node), node});
+            }
+
+            int[] rank = new int[n];
+            int next = 0;
+            while (!queue.isEmpty()) {
+                int node = (int) queue.poll()[1];
+                if (contracted[node]) {
+                    continue;
+                }
+                // Lazy update: re-queue if the node became more important since it was queued
+                long current = priority(node);
+                if (!queue.isEmpty() && current > queue.peek()[0]) {
+                    queue.add(new long[]{current, node});
+                    continue;
+                }
+
+                for (Shortcut shortcut : shortcutsFor(node)) {
+                    if (addOrImprove(out, in, shortcut.from, shortcut.to, shortcut.seconds, shortcut.meters)) {
+                        shortcuts++;
+                    }
+                }
+                contracted[node] = true;
+                rank[node] = next++;
+                for (Arc arc : out.get(node)) {
+                    contractedNeighbours[arc.node]++;
+                }
+                for (Arc arc : in.get(node)) {
+                    contractedNeighbours[arc.node]++;
+                }
+            }
+            return rank;
+        }
+
+        private long priority(int node) {
+            int degree = 0;
+            for (Arc arc : out.get(node)) {
+                if (!contracted[arc.node]) {
+                    degree++;
+                }
+            }
+            for (Arc arc : in.get(node)) {
+                if (!contracted[arc.node]) {
+                    degree++;
+                }
+            }
+            return (long) shortcutsFor(node).size() - degree + contractedNeighbours[node];
+        }
+
+        private List<Shortcut> shortcutsFor(int node) {
+            List<Shortcut> needed = new ArrayList<>();
+            for (Arc incoming : in.get(node)) {
+                int from = incoming.node;
+                if (contracted[from]) {
+                    continue;
+                }
+                double maxVia = 0;
+                for (Arc outgoing : out.get(node)) {
+                    if (!contracted[outgoing.node] && outgoing.node != from) {
+                        maxVia = Math.max(maxVia, incoming.seconds + outgoing.seconds);
+                    }
+                }
+                if (maxVia == 0) {
+                    continue;
+                }
+
+                Map<Integer, Double> witness = witnessSearch(from, node, maxVia);
+                for (Arc outgoing : out.get(node)) {
+                    int to = outgoing.node;
+                    if (contracted[to] || to == from) {
+                        continue;
+                    }
+                    double via = incoming.seconds + outgoing.seconds;
+                    if (witness.getOrDefault(to, Double.POSITIVE_INFINITY) > via) {
+                        needed.add(new Shortcut(from, to, via, incoming.meters + outgoing.meters));
+                    }
+                }
+            }
+            return needed;
+        }
+
+        /**
+         * Shortest times from {@code source} avoiding {@code skipped} and contracted nodes, up to {@code limit}
+         */
+        private Map<Integer, Double> witnessSearch(int source, int skipped, double limit) {
+            Map<Integer, Double> distances = new HashMap<>();
+            PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+            distances.put(source, 0.0);
+            queue.add(new double[]{0, source});
+            int settled = 0;
+            while (!queue.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+                double[] entry = queue.poll();
+                int node = (int) entry[1];
+                if (entry[0] > distances.get(node)) {
+                    continue;
+                }
+                if (entry[0] > limit) {
+                    break;
+                }
+                settled++;
+                for (Arc arc : out.get(node)) {
+                    if (arc.node == skipped || contracted[arc.node]) {
+                        continue;
+                    }
+                    double candidate = entry[0] + arc.seconds;
+                    if (candidate < distances.getOrDefault(arc.node, Double.POSITIVE_INFINITY)) {
+                        distances.put(arc.node, candidate);
+                        queue.add(new double[]{candidate, arc.node});
+                    }
+                }
+            }
+            return distances;
+        }
+    }
+
+    private record Shortcut(int from, int to, double seconds, double meters) {
+    }
+
+    /**
+     * Scratch space for one query at a time; only the entries a query touched are reset
+     */
+    private static final class QueryState {
+        private final double[] forwardSeconds;
+        private final double[] forwardMeters;
+        private final double[] backwardSeconds;
+        private final double[] backwardMeters;
+        private final Heap forward = new Heap();
+        private final Heap backward = new Heap();
+        private int[] touched = new int[64];
+        private int touchedCount;
+
+        private QueryState(int nodeCount) {
+            forwardSeconds = new double[nodeCount];
+            forwardMeters = new double[nodeCount];
+            backwardSeconds = new double[nodeCount];
+            backwardMeters = new double[nodeCount];
+            Arrays.fill(forwardSeconds, Double.POSITIVE_INFINITY);
+            Arrays.fill(backwardSeconds, Double.POSITIVE_INFINITY);
+        }
+
+        private void reach(double[] seconds, double[] meters, int node, double time, double length) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+            }
+            touched[touchedCount++] = node;
+            seconds[node] = time;
+            meters[node] = length;
+        }
+
+        private void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                forwardSeconds[touched[i]] = Double.POSITIVE_INFINITY;
+                backwardSeconds[touched[i]] = Double.POSITIVE_INFINITY;
+            }
+            touchedCount = 0;
+            forward.clear();
+            backward.clear();
+        }
+    }
+
+    /**
+     * Binary min-heap of nodes keyed by time. Decrease-key is a second push; stale entries are skipped on pop.
+     */
+    private static final class Heap {
+        private int[] nodes = new int[64];
+        private double[] keys = new double[64];
+        private int size;
+
+        private void push(int node, double key) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                keys[i] = keys[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            keys[i] = key;
+        }
+
+        private int pop() {
+            int top = nodes[0];
+            size--;
+            if (size > 0) {
+                int node = nodes[size];
+                double key = keys[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && keys[child + 1] < keys[child]) {
+                        child++;
+                    }
+                    if (keys[child] >= key) {
+                        break;
+                    }
+                    nodes[i] = nodes[child];
+                    keys[i] = keys[child];
+                    i = child;
+                }
+                nodes[i] = node;
+                keys[i] = key;
+            }
+            return top;
+        }
+
+        private double peekKey() {
+            return keys[0];
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+    }
+}
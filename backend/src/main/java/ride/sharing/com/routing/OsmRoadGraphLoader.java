@@ -0,0 +1,149 @@
+package ride.sharing.com.routing;
+
+import ride.sharing.com.geo.GeoUtils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the drivable roads of an OpenStreetMap XML extract ({@code .osm}, or {@code .osm.gz}) into a
+ * {@link RoadGraph}.
+ * <p>
+ * Every way with a car-accessible {@code highway} tag becomes edges between consecutive nodes, weighted by
+ * length over the way's {@code maxspeed}, or a default speed for its road class. One-way streets only get
+ * the forward edge ({@code oneway=-1} the reverse one). Only nodes on such ways end up in the graph.
+ */
+public final class OsmRoadGraphLoader {
+
+    // Free-flow speeds (km/h) for road classes without a maxspeed tag
+    private static final Map<String, Double> DEFAULT_SPEEDS_KMH = Map.ofEntries(
+            Map.entry("motorway", 100.0), Map.entry("motorway_link", 60.0),
+            Map.entry("trunk", 80.0), Map.entry("trunk_link", 50.0),
+            Map.entry("primary", 60.0), Map.entry("primary_link", 40.0),
+            Map.entry("secondary", 50.0), Map.entry("secondary_link", 40.0),
+            Map.entry("tertiary", 40.0), Map.entry("tertiary_link", 30.0),
+            Map.entry("unclassified", 30.0), Map.entry("residential", 30.0),
+            Map.entry("living_street", 10.0), Map.entry("service", 15.0)
+    );
+
+    private OsmRoadGraphLoader() {
+    }
+
+    public static RoadGraph load(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return load(file.toString().endsWith(".gz") ? new GZIPInputStream(in) : in);
+        }
+    }
+
+    public static RoadGraph load(InputStream in) throws IOException {
+        Map<Long, double[]> coordinates = new HashMap<>();
+        List<Way> ways = new ArrayList<>();
+        try {
+            XMLStreamReader reader = XMLInputFactory.newFactory().createXMLStreamReader(in);
+            Way way = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "node" -> coordinates.put(Long.parseLong(reader.getAttributeValue(null, "id")), new double[]{
+                                Double.parseDouble(reader.getAttributeValue(null, "lat")),
+                                Double.parseDouble(reader.getAttributeValue(null, "lon"))});
+                        case "way" -> way = new Way();
+                        case "nd" -> {
+                            if (way != null) {
+                                way.nodes.add(Long.parseLong(reader.getAttributeValue(null, "ref")));
+                            }
+                        }
+                        case "tag" -> {
+                            if (way != null) {
+                                way.tags.put(reader.getAttributeValue(null, "k"), reader.getAttributeValue(null, "v"));
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "way".equals(reader.getLocalName())) {
+                    if (way != null && speedKmh(way) > 0) {
+                        ways.add(way);
+                    }
+                    way = null;
+                }
+            }
+            reader.close();
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            throw new IOException("Invalid OSM extract: " + e.getMessage(), e);
+        }
+
+        RoadGraph.Builder builder = new RoadGraph.Builder();
+        Map<Long, Integer> nodeIndex = new HashMap<>();
+        for (Way way : ways) {
+            double metersPerSecond = speedKmh(way) / 3.6;
+            String oneway = way.tags.getOrDefault("oneway",
+                    "motorway".equals(way.tags.get("highway")) || "roundabout".equals(way.tags.get("junction")) ? "yes" : "no");
+            boolean forward = !"-1".equals(oneway);
+            boolean backward = !("yes".equals(oneway) || "true".equals(oneway) || "1".equals(oneway));
+
+            int previous = -1;
+            double[] previousPoint = null;
+            for (Long osmId : way.nodes) {
+                double[] point = coordinates.get(osmId);
+                if (point == null) {
+                    // Node outside the extract; the way continues from the next known node
+                    previous = -1;
+                    continue;
+                }
+                int current = nodeIndex.computeIfAbsent(osmId, id -> builder.addNode(point[0], point[1]));
+                if (previous >= 0 && previous != current) {
+                    double meters = GeoUtils.haversineKm(previousPoint[0], previousPoint[1], point[0], point[1]) * 1000.0;
+                    if (forward) {
+                        builder.addEdge(previous, current, meters / metersPerSecond, meters);
+                    }
+                    if (backward) {
+                        builder.addEdge(current, previous, meters / metersPerSecond, meters);
+                    }
+                }
+                previous = current;
+                previousPoint = point;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the way's speed in km/h, or 0 when cars cannot use it
+     */
+    private static double speedKmh(Way way) {
+        Double defaultSpeed = DEFAULT_SPEEDS_KMH.get(way.tags.get("highway"));
+        if (defaultSpeed == null || "no".equals(way.tags.get("access")) || "no".equals(way.tags.get("motor_vehicle"))) {
+            return 0;
+        }
+        String maxspeed = way.tags.get("maxspeed");
+        if (maxspeed != null) {
+            try {
+                String[] parts = maxspeed.trim().split("\\s+");
+                double value = Double.parseDouble(parts[0]);
+                return parts.length > 1 && "mph".equals(parts[1]) ? value * 1.609344 : value;
+            } catch (NumberFormatException e) {
+                // Values like "signals" or "RO:urban" fall back to the road class
+            }
+        }
+        return defaultSpeed;
+    }
+
+    private static final class Way {
+        private final List<Long> nodes = new ArrayList<>();
+        private final Map<String, String> tags = new HashMap<>();
+    }
+}
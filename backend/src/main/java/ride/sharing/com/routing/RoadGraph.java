@@ -0,0 +1,106 @@
+package ride.sharing.com.routing;
+
+import java.util.Arrays;
+
+/**
+ * Directed road network: nodes with coordinates, and edges weighted by travel time and length.
+ * Built once with a {@link Builder} and then only read.
+ */
+public final class RoadGraph {
+
+    private final double[] lats;
+    private final double[] lngs;
+    private final int edgeCount;
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final double[] edgeSeconds;
+    private final double[] edgeMeters;
+
+    private RoadGraph(Builder builder) {
+        this.lats = Arrays.copyOf(builder.lats, builder.nodeCount);
+        this.lngs = Arrays.copyOf(builder.lngs, builder.nodeCount);
+        this.edgeCount = builder.edgeCount;
+        this.edgeFrom = Arrays.copyOf(builder.edgeFrom, builder.edgeCount);
+        this.edgeTo = Arrays.copyOf(builder.edgeTo, builder.edgeCount);
+        this.edgeSeconds = Arrays.copyOf(builder.edgeSeconds, builder.edgeCount);
+        this.edgeMeters = Arrays.copyOf(builder.edgeMeters, builder.edgeCount);
+    }
+
+    public int nodeCount() {
+        return lats.length;
+    }
+
+    public double lat(int node) {
+        return lats[node];
+    }
+
+    public double lng(int node) {
+        return lngs[node];
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    public int edgeFrom(int edge) {
+        return edgeFrom[edge];
+    }
+
+    public int edgeTo(int edge) {
+        return edgeTo[edge];
+    }
+
+    public double edgeSeconds(int edge) {
+        return edgeSeconds[edge];
+    }
+
+    public double edgeMeters(int edge) {
+        return edgeMeters[edge];
+    }
+
+    public static class Builder {
+        private double[] lats = new double[16];
+        private double[] lngs = new double[16];
+        private int nodeCount;
+        private int[] edgeFrom = new int[16];
+        private int[] edgeTo = new int[16];
+        private double[] edgeSeconds = new double[16];
+        private double[] edgeMeters = new double[16];
+        private int edgeCount;
+
+        /**
+         * @return the new node's index
+         */
+        public int addNode(double lat, double lng) {
+            if (nodeCount == lats.length) {
+                lats = Arrays.copyOf(lats, nodeCount * 2);
+                lngs = Arrays.copyOf(lngs, nodeCount * 2);
+            }
+            lats[nodeCount] = lat;
+            lngs[nodeCount] = lng;
+            return nodeCount++;
+        }
+
+        public Builder addEdge(int from, int to, double seconds, double meters) {
+            if (from < 0 || from >= nodeCount || to < 0 || to >= nodeCount) {
+                throw new IllegalArgumentException("Edge refers to an unknown node");
+            }
+            if (edgeCount == edgeFrom.length) {
+                edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+                edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+                edgeSeconds = Arrays.copyOf(edgeSeconds, edgeCount * 2);
+                edgeMeters = Arrays.copyOf(edgeMeters, edgeCount * 2);
+            }
+            edgeFrom[edgeCount] = from;
+            edgeTo[edgeCount] = to;
+            edgeSeconds[edgeCount] = seconds;
+            edgeMeters[edgeCount] = meters;
+            edgeCount++;
+            return this;
+        }
+
+        public RoadGraph build() {
+            return new RoadGraph(this);
+        }
+    }
+}
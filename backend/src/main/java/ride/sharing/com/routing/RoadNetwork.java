@@ -0,0 +1,71 @@
+package ride.sharing.com.routing;
+
+import ride.sharing.com.geo.GeoGridIndex;
+import ride.sharing.com.geo.GeoUtils;
+
+import java.util.List;
+
+/**
+ * A loaded road graph with its contraction hierarchy and a spatial index of its nodes, answering
+ * point-to-point drive-time queries between arbitrary coordinates
+ */
+public final class RoadNetwork {
+
+    // Speed assumed for the stretch between a coordinate and the road node it snaps to
+    private static final double ACCESS_SPEED_KMH = 15.0;
+    private static final double SNAP_CELL_SIZE_DEG = 0.01;
+
+    private final RoadGraph graph;
+    private final ContractionHierarchy hierarchy;
+    private final GeoGridIndex nodes;
+
+    private RoadNetwork(RoadGraph graph, int maxConcurrentQueries) {
+        this.graph = graph;
+        this.hierarchy = ContractionHierarchy.build(graph, maxConcurrentQueries);
+        this.nodes = new GeoGridIndex(SNAP_CELL_SIZE_DEG);
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            nodes.put(node, graph.lat(node), graph.lng(node));
+        }
+    }
+
+    public static RoadNetwork of(RoadGraph graph) {
+        return of(graph, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static RoadNetwork of(RoadGraph graph, int maxConcurrentQueries) {
+        return new RoadNetwork(graph, maxConcurrentQueries);
+    }
+
+    public int nodeCount() {
+        return hierarchy.nodeCount();
+    }
+
+    public int shortcutCount() {
+        return hierarchy.shortcutCount();
+    }
+
+    /**
+     * @return the fastest route between the two points, or null when either point is further than
+     * {@code maxSnapKm} from a road or the roads do not connect
+     */
+    public Route route(double fromLat, double fromLng, double toLat, double toLng, double maxSnapKm) {
+        int from = snap(fromLat, fromLng, maxSnapKm);
+        int to = snap(toLat, toLng, maxSnapKm);
+        if (from < 0 || to < 0) {
+            return null;
+        }
+        Route onRoad = hierarchy.route(from, to);
+        if (onRoad == null) {
+            return null;
+        }
+
+        double accessKm = GeoUtils.haversineKm(fromLat, fromLng, graph.lat(from), graph.lng(from))
+                + GeoUtils.haversineKm(toLat, toLng, graph.lat(to), graph.lng(to));
+        return new Route(onRoad.seconds() + accessKm / ACCESS_SPEED_KMH * 3600.0, onRoad.meters() + accessKm * 1000.0);
+    }
+
+    private int snap(double lat, double lng, double maxKm) {
+        List<Long> nearest = nodes.nearest(lat, lng, 1, maxKm, id -> true);
+        return nearest.isEmpty() ? -1 : nearest.get(0).intValue();
+    }
+}
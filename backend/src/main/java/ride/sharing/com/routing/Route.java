@@ -0,0 +1,11 @@
+package ride.sharing.com.routing;
+
+/**
+ * Fastest route between two points: the drive time and the length of that route
+ */
+public record Route(double seconds, double meters) {
+
+    public double kilometers() {
+        return meters / 1000.0;
+    }
+}
@@ -0,0 +1,77 @@
+package ride.sharing.com.security;
+
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import ride.sharing.com.models.User;
+import ride.sharing.com.services.UserService;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Authenticates a STOMP session once, on its CONNECT frame.
+ * The resolved user id and role are kept in the session attributes so later frames
+ * on the same connection need no token parsing or user lookup.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JwtChannelInterceptor implements ChannelInterceptor {
+
+    public static final String USER_ID_ATTRIBUTE = "userId";
+    public static final String ROLE_ATTRIBUTE = "role";
+
+    private final JwtUtil jwtUtil;
+    private final UserService userService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+
+        String authHeader = accessor.getFirstNativeHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            throw new BadCredentialsException("Missing bearer token on CONNECT");
+        }
+
+        String email;
+        try {
+            email = jwtUtil.extractUsername(authHeader.substring(7));
+        } catch (JwtException | IllegalArgumentException e) {
+            log.warn("WebSocket authentication failed: {}", e.getMessage());
+            throw new BadCredentialsException("Invalid token");
+        }
+
+        User user = userService.findByEmail(email);
+        if (!Boolean.TRUE.equals(user.getActive())) {
+            throw new BadCredentialsException("Account is not active");
+        }
+
+        Map<String, Object> sessionAttributes = accessor.getSessionAttributes();
+        if (sessionAttributes != null) {
+            sessionAttributes.put(USER_ID_ATTRIBUTE, user.getId());
+            sessionAttributes.put(ROLE_ATTRIBUTE, user.getRole());
+        }
+        accessor.setUser(new UsernamePasswordAuthenticationToken(
+                user.getEmail(),
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()))
+        ));
+
+        log.info("WebSocket session {} authenticated for user {}", accessor.getSessionId(), user.getId());
+        return message;
+    }
+}
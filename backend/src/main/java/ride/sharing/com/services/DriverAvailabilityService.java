@@ -0,0 +1,21 @@
+package ride.sharing.com.services;
+
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.geo.ShardMove;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface DriverAvailabilityService {
+    void markAvailable(Long driverId);
+    void markUnavailable(Long driverId);
+    void markUnavailable(Collection<Long> driverIds);
+    void relocate(List<ShardMove> moves);
+    void registerVehicle(Long driverId, VehicleType vehicleType);
+    Long reserveNearest(Double lat, Double lng, Double radiusKm);
+    Long reserveNearest(Double lat, Double lng, Double radiusKm, VehicleType.VehicleCategory category);
+    boolean reserve(Long driverId);
+    boolean reserve(Long driverId, long leaseSeconds);
+    void release(Long driverId);
+    List<Long> filterAvailable(Collection<Long> driverIds);
+}
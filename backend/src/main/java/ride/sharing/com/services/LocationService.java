@@ -1,10 +1,25 @@
 package ride.sharing.com.services;
 
+import org.springframework.data.geo.Point;
+import ride.sharing.com.dtos.LocationRecords;
+import ride.sharing.com.dtos.LocationUpdate;
+import ride.sharing.com.matching.VehicleRequirement;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
 
 public interface LocationService {
     void updateDriverLocation(Long driverId, Double lat, Double lng);
+    int updateDriverLocations(List<LocationUpdate> updates);
+    int updateDriverLocations(LocationRecords records);
     List<Long> findNearbyDrivers(Double lat, Double lng, Double radiusKm);
+    List<Long> findNearbyDrivers(Double lat, Double lng, Double radiusKm, VehicleRequirement requirement);
+    List<Long> findNearestDrivers(Double lat, Double lng, int k, Double maxDistanceKm, VehicleRequirement requirement,
+                                  UnaryOperator<List<Long>> availableFilter);
     void removeDriverLocation(Long driverId);
     Double getDistance(Long driverId, Double lat, Double lng);
+    Map<Long, Point> getDriverPositions(Collection<Long> driverIds);
+    List<Long> evictStaleDrivers(long lastSeenBeforeMillis, int batchSize);
 }
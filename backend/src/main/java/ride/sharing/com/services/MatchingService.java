@@ -1,8 +1,10 @@
 package ride.sharing.com.services;
 
+import ride.sharing.com.matching.VehicleRequirement;
+
 import java.util.List;
 
 public interface MatchingService {
-    Long findNearestDriver(Double pickupLat, Double pickupLng);
-    List<Long> findTopNearestDrivers(Double pickupLat, Double pickupLng, int count);
+    Long findNearestDriver(Double pickupLat, Double pickupLng, VehicleRequirement requirement);
+    List<Long> findTopNearestDrivers(Double pickupLat, Double pickupLng, int count, VehicleRequirement requirement);
 }
@@ -0,0 +1,10 @@
+package ride.sharing.com.services;
+
+import ride.sharing.com.models.Ride;
+
+public interface PoolService {
+    Long insert(Ride ride);
+    void open(Ride ride);
+    void pickedUp(Long driverId, Long rideId);
+    boolean leave(Long driverId, Long rideId);
+}
@@ -0,0 +1,15 @@
+package ride.sharing.com.services;
+
+import org.springframework.data.geo.Point;
+import reactor.core.publisher.Mono;
+import ride.sharing.com.enums.VehicleType.VehicleCategory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ReactiveLocationService {
+    Mono<List<Long>> searchShards(double lat, double lng, double radiusKm, int limit, VehicleCategory category);
+    Mono<Map<Long, Point>> getDriverPositions(Collection<Long> driverIds);
+    Mono<Double> getDistance(Long driverId, Double lat, Double lng);
+}
@@ -1,12 +1,15 @@
 package ride.sharing.com.services;
 
+import ride.sharing.com.dtos.FareQuote;
 import ride.sharing.com.dtos.RideRequest;
+import ride.sharing.com.models.Location;
 import ride.sharing.com.models.Ride;
 
 import java.util.List;
 
 public interface RideService {
     Ride requestRide(Long customerId, RideRequest request);
+    FareQuote quoteRide(RideRequest request);
     Ride acceptRide(Long rideId, Long driverId);
     Ride startRide(Long rideId);
     Ride completeRide(Long rideId);
@@ -15,5 +18,7 @@ public interface RideService {
     List<Ride> getDriverRides(Long driverId);
     Ride getRideById(Long rideId);
     List<Ride> getPendingRides();
+    List<Ride> getNearbyPendingRides(Long driverId, Double lat, Double lng, int limit);
     List<Ride> getAllRides();
+    List<Location> getRideTrail(Long rideId);
 }
@@ -0,0 +1,8 @@
+package ride.sharing.com.services;
+
+import ride.sharing.com.routing.Route;
+
+public interface RoutingService {
+    boolean isAvailable();
+    Route route(double fromLat, double fromLng, double toLat, double toLng);
+}
@@ -4,7 +4,10 @@ import ride.sharing.com.dtos.UserDto;
 import ride.sharing.com.enums.DriverStatus;
 import ride.sharing.com.models.User;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface UserService {
     User registerUser(UserDto.Create create);
@@ -15,8 +18,20 @@ public interface UserService {
 
     List<User> getAvailableDrivers();
 
+    List<Long> filterAvailableDrivers(List<Long> driverIds);
+
     User updateDriverStatus(Long driverId, DriverStatus status);
 
+    int updateDriverStatus(Collection<Long> driverIds, DriverStatus expected, DriverStatus status);
+
+    boolean claimDriver(Long driverId);
+
+    boolean reserveDriver(Long driverId);
+
+    boolean releaseDriver(Long driverId);
+
+    Map<Long, LocalDateTime> getAvailableSince(Collection<Long> driverIds);
+
     List<User> getAllUsers();
 
     List<User> getAllDrivers();
@@ -0,0 +1,15 @@
+-- Atomically remove drivers not seen since a cutoff from one shard's geo set, last-seen set,
+-- availability hash and vehicle category partitions.
+-- KEYS[1] shard geo set, KEYS[2] shard last-seen sorted set (score = epoch millis),
+-- KEYS[3] shard availability hash, KEYS[4..] shard category geo sets
+-- ARGV[1] cutoff millis (inclusive), ARGV[2] max members to evict
+local stale = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+if #stale > 0 then
+    redis.call('ZREM', KEYS[1], unpack(stale))
+    redis.call('ZREM', KEYS[2], unpack(stale))
+    redis.call('HDEL', KEYS[3], unpack(stale))
+    for i = 4, #KEYS do
+        redis.call('ZREM', KEYS[i], unpack(stale))
+    end
+end
+return stale
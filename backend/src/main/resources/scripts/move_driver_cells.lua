@@ -0,0 +1,12 @@
+-- Point driver:cells at the cells drivers were just written to, returning the cells they were in.
+-- The swap is atomic, so when two instances move the same driver each one learns the cell the other
+-- wrote, and the copy that loses is removed by whoever replaced it.
+-- KEYS[1] driver:cells hash
+-- ARGV pairs of driver id, new cell
+-- Returns the previous cell of each driver in ARGV order, or '' when it had none
+local previous = {}
+for i = 1, #ARGV, 2 do
+    previous[#previous + 1] = redis.call('HGET', KEYS[1], ARGV[i]) or ''
+    redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+end
+return previous
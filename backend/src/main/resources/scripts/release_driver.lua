@@ -0,0 +1,9 @@
+-- Hand a reserved driver back, but only while the reservation being released still holds it.
+-- KEYS[1] availability hash of the driver's shard
+-- ARGV[1] driver id, ARGV[2] lease expiry millis set by that reservation
+-- Returns 1 when the driver was made available again, 0 otherwise
+if redis.call('HGET', KEYS[1], ARGV[1]) == ARGV[2] then
+    redis.call('HSET', KEYS[1], ARGV[1], 'A')
+    return 1
+end
+return 0
@@ -0,0 +1,10 @@
+-- Reserve one driver if it is still available, used after a lookup across several shards.
+-- KEYS[1] availability hash of the driver's shard
+-- ARGV[1] driver id, ARGV[2] now millis, ARGV[3] lease expiry millis
+-- Returns 1 when the driver was reserved, 0 otherwise
+local state = redis.call('HGET', KEYS[1], ARGV[1])
+if state == 'A' or (state and tonumber(state) and tonumber(state) <= tonumber(ARGV[2])) then
+    redis.call('HSET', KEYS[1], ARGV[1], ARGV[3])
+    return 1
+end
+return 0
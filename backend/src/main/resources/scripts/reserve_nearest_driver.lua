@@ -0,0 +1,20 @@
+-- Find the nearest available driver in one shard and reserve it, in one atomic step.
+-- KEYS[1] shard geo set or one of its category partitions, KEYS[2] shard availability hash (id -> "A" or lease expiry millis)
+-- ARGV[1] lng, ARGV[2] lat, ARGV[3] radius km, ARGV[4] max candidates,
+-- ARGV[5] now millis, ARGV[6] lease expiry millis, or 0 to only look up the driver
+-- Returns {id, distance km}, or nil when no driver is available
+local candidates = redis.call('GEOSEARCH', KEYS[1], 'FROMLONLAT', ARGV[1], ARGV[2],
+        'BYRADIUS', ARGV[3], 'km', 'ASC', 'COUNT', tonumber(ARGV[4]), 'WITHDIST')
+local now = tonumber(ARGV[5])
+for _, candidate in ipairs(candidates) do
+    local id = candidate[1]
+    local state = redis.call('HGET', KEYS[2], id)
+    -- Available, or holding a reservation whose lease has run out
+    if state == 'A' or (state and tonumber(state) and tonumber(state) <= now) then
+        if ARGV[6] ~= '0' then
+            redis.call('HSET', KEYS[2], id, ARGV[6])
+        end
+        return {id, candidate[2]}
+    end
+end
+return false
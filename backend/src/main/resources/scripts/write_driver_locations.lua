@@ -0,0 +1,18 @@
+-- Write the latest positions of a batch of drivers into one shard, in one atomic step.
+-- KEYS[1] shard geo set, KEYS[2] shard last-seen sorted set (score = epoch millis), KEYS[3..] shard category geo sets
+-- ARGV[1] now millis, then for each driver: id, lng, lat, and the index into KEYS[3..] of its
+-- category partition starting at 1, or 0 when its vehicle type is unknown
+-- Returns the ids that were not in the shard yet: new drivers, drivers that moved in from another
+-- cell, and drivers whose old copy here was swept. Everyone else was already in this shard.
+local entered = {}
+for i = 2, #ARGV, 4 do
+    local id, lng, lat, category = ARGV[i], ARGV[i + 1], ARGV[i + 2], tonumber(ARGV[i + 3])
+    if redis.call('GEOADD', KEYS[1], lng, lat, id) == 1 then
+        entered[#entered + 1] = id
+    end
+    redis.call('ZADD', KEYS[2], ARGV[1], id)
+    if category > 0 then
+        redis.call('GEOADD', KEYS[2 + category], lng, lat, id)
+    end
+end
+return entered
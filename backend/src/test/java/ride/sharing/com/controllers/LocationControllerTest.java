@@ -11,9 +11,15 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ride.sharing.com.dtos.LocationRecords;
 import ride.sharing.com.dtos.LocationUpdate;
 import ride.sharing.com.services.LocationService;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
@@ -196,4 +202,70 @@ class LocationControllerTest {
 
         verify(locationService, times(2)).updateDriverLocation(anyLong(), anyDouble(), anyDouble());
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateLocations_ShouldPassWholeBatchToService() throws Exception {
+        // Arrange
+        LocationUpdate first = new LocationUpdate();
+        first.setDriverId(1L);
+        first.setLatitude(-1.2921);
+        first.setLongitude(36.8219);
+
+        LocationUpdate second = new LocationUpdate();
+        second.setDriverId(2L);
+        second.setLatitude(-1.3000);
+        second.setLongitude(36.8300);
+
+        when(locationService.updateDriverLocations(anyList())).thenReturn(2);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/location/batch").contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(List.of(first, second)))).andExpect(status().isOk()).andExpect(content().string("2 locations updated"));
+
+        verify(locationService, times(1)).updateDriverLocations(argThat((List<LocationUpdate> updates) -> updates.size() == 2));
+        verify(locationService, never()).updateDriverLocation(anyLong(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void updateLocations_ShouldAcceptEmptyBatch() throws Exception {
+        // Arrange
+        when(locationService.updateDriverLocations(anyList())).thenReturn(0);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/location/batch").contentType(MediaType.APPLICATION_JSON).content("[]")).andExpect(status().isOk()).andExpect(content().string("0 locations updated"));
+
+        verify(locationService, times(1)).updateDriverLocations(anyList());
+    }
+
+    @Test
+    void updateLocation_ShouldAcceptBinaryRecord() throws Exception {
+        // Arrange
+        byte[] body = records(new long[]{7L}, new double[]{-1.2921}, new double[]{36.8219});
+
+        // Act & Assert
+        mockMvc.perform(post("/api/location/update").contentType(LocationRecords.MEDIA_TYPE).content(body)).andExpect(status().isOk()).andExpect(content().string("Location updated"));
+
+        verify(locationService, times(1)).updateDriverLocation(7L, -1.2921, 36.8219);
+    }
+
+    @Test
+    void updateLocations_ShouldDecodeBinaryRecords() throws Exception {
+        // Arrange
+        byte[] body = records(new long[]{1L, 2L}, new double[]{-1.2921, -1.3000}, new double[]{36.8219, 36.8300});
+        when(locationService.updateDriverLocations(any(LocationRecords.class))).thenReturn(2);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/location/batch").contentType(LocationRecords.MEDIA_TYPE).content(body)).andExpect(status().isOk()).andExpect(content().string("2 locations updated"));
+
+        verify(locationService, times(1)).updateDriverLocations(argThat((LocationRecords records) ->
+                records.size() == 2 && records.driverId(1) == 2L && records.longitude(1) == 36.8300));
+        verify(locationService, never()).updateDriverLocations(anyList());
+    }
+
+    private static byte[] records(long[] driverIds, double[] latitudes, double[] longitudes) {
+        ByteBuffer buffer = ByteBuffer.allocate(driverIds.length * LocationRecords.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < driverIds.length; i++) {
+            buffer.putLong(driverIds[i]).putDouble(latitudes[i]).putDouble(longitudes[i]).putLong(1_700_000_000_000L + i);
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,79 @@
+package ride.sharing.com.controllers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import ride.sharing.com.enums.Role;
+import ride.sharing.com.exception.BadRequestException;
+import ride.sharing.com.exception.ForbiddenException;
+import ride.sharing.com.security.JwtChannelInterceptor;
+import ride.sharing.com.services.LocationService;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LocationSocketControllerTest {
+
+    @Mock
+    private LocationService locationService;
+
+    @InjectMocks
+    private LocationSocketController locationSocketController;
+
+    private SimpMessageHeaderAccessor accessor;
+    private Map<String, Object> session;
+
+    @BeforeEach
+    void setUp() {
+        session = new HashMap<>();
+        accessor = SimpMessageHeaderAccessor.create();
+        accessor.setSessionAttributes(session);
+    }
+
+    @Test
+    void streamLocation_ShouldUpdateLocationForAuthenticatedDriver() {
+        // Arrange
+        session.put(JwtChannelInterceptor.USER_ID_ATTRIBUTE, 7L);
+        session.put(JwtChannelInterceptor.ROLE_ATTRIBUTE, Role.DRIVER);
+
+        // Act
+        locationSocketController.streamLocation(new double[]{-1.2921, 36.8219}, accessor);
+
+        // Assert
+        verify(locationService, times(1)).updateDriverLocation(7L, -1.2921, 36.8219);
+    }
+
+    @Test
+    void streamLocation_ShouldRejectNonDriverSessions() {
+        // Arrange
+        session.put(JwtChannelInterceptor.USER_ID_ATTRIBUTE, 3L);
+        session.put(JwtChannelInterceptor.ROLE_ATTRIBUTE, Role.CUSTOMER);
+
+        // Act & Assert
+        assertThatThrownBy(() -> locationSocketController.streamLocation(new double[]{-1.2921, 36.8219}, accessor))
+                .isInstanceOf(ForbiddenException.class);
+        verify(locationService, never()).updateDriverLocation(anyLong(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void streamLocation_ShouldRejectMalformedFrames() {
+        // Arrange
+        session.put(JwtChannelInterceptor.USER_ID_ATTRIBUTE, 7L);
+        session.put(JwtChannelInterceptor.ROLE_ATTRIBUTE, Role.DRIVER);
+
+        // Act & Assert
+        assertThatThrownBy(() -> locationSocketController.streamLocation(new double[]{-1.2921}, accessor))
+                .isInstanceOf(BadRequestException.class);
+        verify(locationService, never()).updateDriverLocation(anyLong(), anyDouble(), anyDouble());
+    }
+}
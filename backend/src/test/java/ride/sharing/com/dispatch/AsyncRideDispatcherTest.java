@@ -0,0 +1,119 @@
+package ride.sharing.com.dispatch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import ride.sharing.com.enums.RideStatus;
+import ride.sharing.com.exception.ResourceNotFoundException;
+import ride.sharing.com.matching.VehicleRequirement;
+import ride.sharing.com.models.Ride;
+import ride.sharing.com.models.User;
+import ride.sharing.com.repositories.RideRepository;
+import ride.sharing.com.services.DriverAvailabilityService;
+import ride.sharing.com.services.MatchingService;
+import ride.sharing.com.services.UserService;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncRideDispatcherTest {
+
+    @Mock
+    private RideRepository rideRepository;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private MatchingService matchingService;
+
+    @Mock
+    private DriverAvailabilityService driverAvailabilityService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Mock
+    private RideOfferManager rideOffers;
+
+    private AsyncRideDispatcher dispatcher;
+    private Ride ride;
+
+    @BeforeEach
+    void setup() {
+        dispatcher = new AsyncRideDispatcher(rideRepository, userService, matchingService,
+                driverAvailabilityService, transactionTemplate, messagingTemplate, rideOffers, 4, false);
+        User customer = User.builder().id(1L).email("rider@example.com").build();
+        ride = Ride.builder().id(10L).customer(customer).pickupLat(1.0).pickupLng(1.0).status(RideStatus.REQUESTED).build();
+        when(rideRepository.findById(10L)).thenReturn(Optional.of(ride));
+    }
+
+    @Test
+    void match_shouldAssignDriverAndNotifyRider() {
+        User driver = User.builder().id(2L).build();
+        when(matchingService.findNearestDriver(1.0, 1.0, VehicleRequirement.ANY)).thenReturn(2L);
+        when(userService.findById(2L)).thenReturn(driver);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Boolean>>getArgument(0).doInTransaction(null));
+
+        dispatcher.match(10L);
+
+        assertThat(ride.getDriver()).isEqualTo(driver);
+        verify(rideRepository).save(ride);
+        verify(messagingTemplate).convertAndSendToUser("rider@example.com", AsyncRideDispatcher.RIDE_UPDATES_DESTINATION,
+                new RideMatchResult(10L, RideStatus.REQUESTED, 2L));
+    }
+
+    @Test
+    void match_whenNoDriver_shouldNotifyRiderAndKeepRideRequested() {
+        when(matchingService.findNearestDriver(1.0, 1.0, VehicleRequirement.ANY)).thenThrow(new ResourceNotFoundException("No drivers"));
+
+        dispatcher.match(10L);
+
+        assertThat(ride.getDriver()).isNull();
+        verify(rideRepository, never()).save(any());
+        verify(messagingTemplate).convertAndSendToUser("rider@example.com", AsyncRideDispatcher.RIDE_UPDATES_DESTINATION,
+                new RideMatchResult(10L, RideStatus.REQUESTED, null));
+    }
+
+    @Test
+    void match_withOffers_shouldOfferRideInsteadOfAssigning() {
+        dispatcher = new AsyncRideDispatcher(rideRepository, userService, matchingService,
+                driverAvailabilityService, transactionTemplate, messagingTemplate, rideOffers, 4, true);
+        when(rideOffers.offer(ride)).thenReturn(true);
+
+        dispatcher.match(10L);
+
+        verify(rideOffers).offer(ride);
+        verifyNoInteractions(matchingService, messagingTemplate);
+        verify(rideRepository, never()).save(any());
+    }
+
+    @Test
+    void match_whenRideCancelledWhileMatching_shouldReleaseDriver() {
+        when(matchingService.findNearestDriver(1.0, 1.0, VehicleRequirement.ANY)).thenAnswer(invocation -> {
+            ride.setStatus(RideStatus.CANCELLED);
+            return 2L;
+        });
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Boolean>>getArgument(0).doInTransaction(null));
+
+        dispatcher.match(10L);
+
+        verify(rideRepository, never()).save(any());
+        verify(driverAvailabilityService).release(2L);
+        verifyNoInteractions(messagingTemplate);
+    }
+}
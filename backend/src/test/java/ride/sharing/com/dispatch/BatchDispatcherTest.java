@@ -0,0 +1,135 @@
+package ride.sharing.com.dispatch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.geo.Point;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import ride.sharing.com.enums.RideStatus;
+import ride.sharing.com.geo.DriverShardRouter;
+import ride.sharing.com.models.Ride;
+import ride.sharing.com.models.User;
+import ride.sharing.com.repositories.RideRepository;
+import ride.sharing.com.services.DriverAvailabilityService;
+import ride.sharing.com.services.LocationService;
+import ride.sharing.com.services.UserService;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchDispatcherTest {
+
+    @Mock
+    private RideRepository rideRepository;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private LocationService locationService;
+
+    @Mock
+    private DriverAvailabilityService driverAvailabilityService;
+
+    @Mock
+    private DriverShardRouter shardRouter;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private BatchDispatcher dispatcher;
+
+    // Everything on the equator, about 1km per 0.009 degrees of longitude
+    private Ride riderA;
+    private Ride riderB;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(dispatcher, "searchRadiusKm", 20.0);
+        ReflectionTestUtils.setField(dispatcher, "candidatesPerRide", 5);
+        riderA = Ride.builder().id(10L).pickupLat(0.0).pickupLng(-0.009).status(RideStatus.REQUESTED).build();
+        riderB = Ride.builder().id(11L).pickupLat(0.0).pickupLng(0.0099).status(RideStatus.REQUESTED).build();
+    }
+
+    @Test
+    void dispatchRegion_shouldMinimiseTotalPickupDistance() {
+        // Driver 1 is closest to both riders; greedy matching would give it to A and send B to driver 2
+        Map<Long, Point> positions = new LinkedHashMap<>();
+        positions.put(1L, new Point(0.0, 0.0));
+        positions.put(2L, new Point(-0.0198, 0.0));
+        when(locationService.findNearestDrivers(anyDouble(), anyDouble(), anyInt(), anyDouble(), any(), any())).thenReturn(List.of(1L, 2L));
+        when(locationService.getDriverPositions(Set.of(1L, 2L))).thenReturn(positions);
+        when(driverAvailabilityService.reserve(anyLong())).thenReturn(true);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Boolean>>getArgument(0).doInTransaction(null));
+        when(rideRepository.findById(10L)).thenReturn(Optional.of(riderA));
+        when(rideRepository.findById(11L)).thenReturn(Optional.of(riderB));
+        when(userService.findById(1L)).thenReturn(User.builder().id(1L).build());
+        when(userService.findById(2L)).thenReturn(User.builder().id(2L).build());
+
+        List<Ride> unmatched = dispatcher.dispatchRegion(List.of(riderA, riderB));
+
+        assertThat(unmatched).isEmpty();
+        assertThat(riderA.getDriver().getId()).isEqualTo(2L);
+        assertThat(riderB.getDriver().getId()).isEqualTo(1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dispatchRegion_shouldSearchNearestAvailableDriversPerRide() {
+        when(locationService.findNearestDrivers(anyDouble(), anyDouble(), anyInt(), anyDouble(), any(), any())).thenReturn(List.of());
+        when(locationService.getDriverPositions(anyCollection())).thenReturn(Map.of());
+
+        List<Ride> unmatched = dispatcher.dispatchRegion(List.of(riderA));
+
+        ArgumentCaptor<UnaryOperator<List<Long>>> filter = ArgumentCaptor.forClass(UnaryOperator.class);
+        verify(locationService).findNearestDrivers(eq(0.0), eq(-0.009), eq(5), eq(20.0), any(), filter.capture());
+        when(driverAvailabilityService.filterAvailable(List.of(1L, 2L))).thenReturn(List.of(2L));
+        assertThat(filter.getValue().apply(List.of(1L, 2L))).containsExactly(2L);
+        assertThat(unmatched).containsExactly(riderA);
+    }
+
+    @Test
+    void dispatchRegion_whenReservationLost_shouldReturnRideForNextWindow() {
+        when(locationService.findNearestDrivers(anyDouble(), anyDouble(), anyInt(), anyDouble(), any(), any())).thenReturn(List.of(1L));
+        when(locationService.getDriverPositions(Set.of(1L))).thenReturn(Map.of(1L, new Point(0.0, 0.0)));
+        when(driverAvailabilityService.reserve(1L)).thenReturn(false);
+
+        List<Ride> unmatched = dispatcher.dispatchRegion(List.of(riderA));
+
+        assertThat(unmatched).containsExactly(riderA);
+        verifyNoInteractions(transactionTemplate);
+    }
+
+    @Test
+    void dispatchRegion_whenRideCancelledMeanwhile_shouldReleaseDriver() {
+        Ride cancelled = Ride.builder().id(10L).status(RideStatus.CANCELLED).build();
+        when(locationService.findNearestDrivers(anyDouble(), anyDouble(), anyInt(), anyDouble(), any(), any())).thenReturn(List.of(1L));
+        when(locationService.getDriverPositions(Set.of(1L))).thenReturn(Map.of(1L, new Point(0.0, 0.0)));
+        when(driverAvailabilityService.reserve(1L)).thenReturn(true);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Boolean>>getArgument(0).doInTransaction(null));
+        when(rideRepository.findById(10L)).thenReturn(Optional.of(cancelled));
+
+        List<Ride> unmatched = dispatcher.dispatchRegion(List.of(riderA));
+
+        assertThat(unmatched).containsExactly(riderA);
+        verify(driverAvailabilityService).release(1L);
+    }
+}
@@ -0,0 +1,107 @@
+package ride.sharing.com.dispatch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ride.sharing.com.enums.RideStatus;
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.enums.VehicleType.VehicleCategory;
+import ride.sharing.com.models.Ride;
+import ride.sharing.com.models.User;
+import ride.sharing.com.repositories.RideRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PendingPickupIndexTest {
+
+    @Mock
+    private RideRepository rideRepository;
+
+    private PendingPickupIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new PendingPickupIndex(rideRepository, 0.02, true);
+        index.add(ride(1L, -1.2921, 36.8219, null, 1));
+        index.add(ride(2L, -1.2950, 36.8250, VehicleCategory.LARGE_GROUP, 5));
+        index.add(ride(3L, -1.3100, 36.8400, null, 1));
+    }
+
+    @Test
+    void nearestWaiting_shouldSkipRidesTheVehicleCannotServe() {
+        assertThat(index.nearestWaiting(-1.2921, 36.8219, 10, 5.0, VehicleType.UBER_X, id -> true))
+                .containsExactly(1L, 3L);
+        assertThat(index.nearestWaiting(-1.2921, 36.8219, 10, 5.0, VehicleType.UBER_XL, id -> true))
+                .containsExactly(1L, 2L, 3L);
+        assertThat(index.nearestWaiting(-1.2921, 36.8219, 10, 5.0, VehicleType.UBER_XL, id -> id != 1L))
+                .containsExactly(2L, 3L);
+    }
+
+    @Test
+    void acceptedAndCancelledRides_shouldLeaveTheIndex() {
+        index.onRideAccepted(new RideAcceptedEvent(1L, 7L));
+        index.onRideCancelled(new RideCancelledEvent(3L));
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.nearestWaiting(-1.2921, 36.8219, 10, 5.0, VehicleType.UBER_XL, id -> true))
+                .containsExactly(2L);
+    }
+
+    @Test
+    void loadPending_shouldIndexOnlyRidesWithoutDriver() {
+        index.clear();
+        Ride assigned = ride(4L, -1.2921, 36.8219, null, 1);
+        assigned.setDriver(User.builder().id(7L).build());
+        when(rideRepository.findByStatus(RideStatus.REQUESTED))
+                .thenReturn(List.of(ride(5L, -1.2921, 36.8219, null, 1), assigned));
+
+        index.loadPending();
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.position(5L)).isNotNull();
+    }
+
+    @Test
+    void add_insideTransaction_shouldWaitForCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.add(ride(4L, -1.2921, 36.8219, null, 1));
+            assertThat(index.position(4L)).isNull();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(index.position(4L)).isNotNull();
+    }
+
+    @Test
+    void nearestWaiting_withIndexDisabled_shouldReadWaitingRidesAroundThePoint() {
+        PendingPickupIndex disabled = new PendingPickupIndex(rideRepository, 0.02, false);
+        disabled.add(ride(1L, -1.2921, 36.8219, null, 1));
+        when(rideRepository.findByStatusAndDriverIsNullAndPickupLatBetweenAndPickupLngBetween(
+                eq(RideStatus.REQUESTED), anyDouble(), anyDouble(), anyDouble(), anyDouble()))
+                .thenReturn(List.of(ride(3L, -1.3100, 36.8400, null, 1), ride(1L, -1.2921, 36.8219, null, 1),
+                        ride(2L, -1.2950, 36.8250, VehicleCategory.LARGE_GROUP, 5)));
+
+        assertThat(disabled.size()).isZero();
+        assertThat(disabled.mayHaveWaiting()).isTrue();
+        assertThat(disabled.nearestWaiting(-1.2921, 36.8219, 10, 5.0, VehicleType.UBER_X, id -> true))
+                .containsExactly(1L, 3L);
+    }
+
+    private static Ride ride(Long id, double lat, double lng, VehicleCategory category, int passengers) {
+        return Ride.builder().id(id).pickupLat(lat).pickupLng(lng).vehicleCategory(category)
+                .passengers(passengers).status(RideStatus.REQUESTED).build();
+    }
+}
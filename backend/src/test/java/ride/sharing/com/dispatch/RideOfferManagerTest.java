@@ -0,0 +1,183 @@
+package ride.sharing.com.dispatch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import ride.sharing.com.enums.RideStatus;
+import ride.sharing.com.matching.VehicleRequirement;
+import ride.sharing.com.models.Ride;
+import ride.sharing.com.models.User;
+import ride.sharing.com.repositories.RideRepository;
+import ride.sharing.com.repositories.UserRepository;
+import ride.sharing.com.services.DriverAvailabilityService;
+import ride.sharing.com.services.MatchingService;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RideOfferManagerTest {
+
+    @Mock
+    private MatchingService matchingService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RideRepository rideRepository;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Mock
+    private DriverAvailabilityService driverAvailabilityService;
+
+    private RideOfferManager offers;
+    private Ride ride;
+
+    @BeforeEach
+    void setup() {
+        offers = new RideOfferManager(matchingService, userRepository, rideRepository, messagingTemplate,
+                driverAvailabilityService, 2, 15, 250);
+        User customer = User.builder().id(1L).email("rider@example.com").build();
+        ride = Ride.builder().id(10L).customer(customer).pickupLat(1.0).pickupLng(1.0).status(RideStatus.REQUESTED).build();
+    }
+
+    private void offerToTwoDrivers() {
+        when(matchingService.findTopNearestDrivers(1.0, 1.0, 2, VehicleRequirement.ANY)).thenReturn(List.of(2L, 3L));
+        when(driverAvailabilityService.reserve(anyLong(), eq(15L))).thenReturn(true);
+        when(userRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(
+                User.builder().id(2L).email("d2@example.com").build(),
+                User.builder().id(3L).email("d3@example.com").build()));
+        assertThat(offers.offer(ride)).isTrue();
+    }
+
+    @Test
+    void offer_shouldSendRideToEveryCandidate() {
+        offerToTwoDrivers();
+
+        verify(messagingTemplate).convertAndSendToUser(eq("d2@example.com"), eq(RideOfferManager.OFFERS_DESTINATION), any(RideOffer.class));
+        verify(messagingTemplate).convertAndSendToUser(eq("d3@example.com"), eq(RideOfferManager.OFFERS_DESTINATION), any(RideOffer.class));
+        assertThat(offers.hasOutstandingOffer(10L)).isTrue();
+    }
+
+    @Test
+    void offer_shouldReserveDriversForTheOfferTimeout() {
+        offerToTwoDrivers();
+
+        verify(driverAvailabilityService).reserve(2L, 15L);
+        verify(driverAvailabilityService).reserve(3L, 15L);
+        verify(driverAvailabilityService, never()).release(anyLong());
+    }
+
+    @Test
+    void offer_shouldLeaveOutDriversTakenMeanwhile() {
+        when(matchingService.findTopNearestDrivers(1.0, 1.0, 2, VehicleRequirement.ANY)).thenReturn(List.of(2L, 3L));
+        when(driverAvailabilityService.reserve(2L, 15L)).thenReturn(false);
+        when(driverAvailabilityService.reserve(3L, 15L)).thenReturn(true);
+        when(userRepository.findAllById(List.of(3L))).thenReturn(List.of(User.builder().id(3L).email("d3@example.com").build()));
+
+        assertThat(offers.offer(ride)).isTrue();
+
+        verify(messagingTemplate, never()).convertAndSendToUser(eq("d2@example.com"), any(), any());
+        verify(messagingTemplate).convertAndSendToUser(eq("d3@example.com"), eq(RideOfferManager.OFFERS_DESTINATION), any(RideOffer.class));
+    }
+
+    @Test
+    void offer_whenNoDriverCouldBeReserved_returnsFalse() {
+        when(matchingService.findTopNearestDrivers(1.0, 1.0, 2, VehicleRequirement.ANY)).thenReturn(List.of(2L));
+        when(driverAvailabilityService.reserve(2L, 15L)).thenReturn(false);
+
+        assertThat(offers.offer(ride)).isFalse();
+        assertThat(offers.hasOutstandingOffer(10L)).isFalse();
+        verifyNoInteractions(messagingTemplate, userRepository);
+    }
+
+    @Test
+    void offerTo_whenRideAlreadyOffered_shouldNotReserveDriver() {
+        offerToTwoDrivers();
+
+        assertThat(offers.offerTo(ride, 4L)).isFalse();
+        verify(driverAvailabilityService, never()).reserve(eq(4L), anyLong());
+    }
+
+    @Test
+    void offer_withNoDrivers_returnsFalse() {
+        when(matchingService.findTopNearestDrivers(1.0, 1.0, 2, VehicleRequirement.ANY)).thenReturn(List.of());
+
+        assertThat(offers.offer(ride)).isFalse();
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    @Test
+    void onRideAccepted_shouldRevokeOtherOffersAndTellRider() {
+        offerToTwoDrivers();
+
+        offers.onRideAccepted(new RideAcceptedEvent(10L, 3L));
+
+        verify(messagingTemplate).convertAndSendToUser("d2@example.com", RideOfferManager.REVOKED_DESTINATION,
+                new RideOfferRevoked(10L, RideOfferRevoked.Reason.ACCEPTED_BY_OTHER));
+        verify(messagingTemplate, never()).convertAndSendToUser(eq("d3@example.com"), eq(RideOfferManager.REVOKED_DESTINATION), any());
+        verify(messagingTemplate).convertAndSendToUser("rider@example.com", AsyncRideDispatcher.RIDE_UPDATES_DESTINATION,
+                new RideMatchResult(10L, RideStatus.ACCEPTED, 3L));
+        assertThat(offers.hasOutstandingOffer(10L)).isFalse();
+        verify(driverAvailabilityService).release(2L);
+        verify(driverAvailabilityService, never()).release(3L);
+    }
+
+    @Test
+    void onRideCancelled_shouldReleaseEveryOfferedDriver() {
+        offerToTwoDrivers();
+
+        offers.onRideCancelled(new RideCancelledEvent(10L));
+
+        verify(driverAvailabilityService).release(2L);
+        verify(driverAvailabilityService).release(3L);
+        assertThat(offers.hasOutstandingOffer(10L)).isFalse();
+    }
+
+    @Test
+    void expireOffers_shouldKeepOffersThatAreNotDue() {
+        offerToTwoDrivers();
+
+        offers.expireOffers();
+
+        assertThat(offers.hasOutstandingOffer(10L)).isTrue();
+    }
+
+    @Test
+    void expireOffers_whenRideStillWaiting_shouldTellRiderNoDriverWasFound() {
+        offerToTwoDrivers();
+        when(rideRepository.findStatusById(10L)).thenReturn(Optional.of(RideStatus.REQUESTED));
+
+        offers.expireOffers(System.currentTimeMillis() + 20_000);
+
+        verify(messagingTemplate).convertAndSendToUser("d2@example.com", RideOfferManager.REVOKED_DESTINATION,
+                new RideOfferRevoked(10L, RideOfferRevoked.Reason.EXPIRED));
+        verify(messagingTemplate).convertAndSendToUser("rider@example.com", AsyncRideDispatcher.RIDE_UPDATES_DESTINATION,
+                new RideMatchResult(10L, RideStatus.REQUESTED, null));
+        assertThat(offers.hasOutstandingOffer(10L)).isFalse();
+        verify(driverAvailabilityService).release(2L);
+        verify(driverAvailabilityService).release(3L);
+    }
+
+    @Test
+    void expireOffers_whenRideAcceptedOnAnotherInstance_shouldNotTellRiderNoDriverWasFound() {
+        offerToTwoDrivers();
+        when(rideRepository.findStatusById(10L)).thenReturn(Optional.of(RideStatus.ACCEPTED));
+
+        offers.expireOffers(System.currentTimeMillis() + 20_000);
+
+        verify(messagingTemplate, never()).convertAndSendToUser(eq("rider@example.com"),
+                eq(AsyncRideDispatcher.RIDE_UPDATES_DESTINATION), any());
+        assertThat(offers.hasOutstandingOffer(10L)).isFalse();
+    }
+}
@@ -0,0 +1,180 @@
+package ride.sharing.com.dispatch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.geo.Point;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import ride.sharing.com.enums.RideStatus;
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.geo.DriverVehicleRegistry;
+import ride.sharing.com.models.Ride;
+import ride.sharing.com.models.User;
+import ride.sharing.com.repositories.RideRepository;
+import ride.sharing.com.services.DriverAvailabilityService;
+import ride.sharing.com.services.LocationService;
+import ride.sharing.com.services.UserService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SupplyTriggeredDispatcherTest {
+
+    @Mock
+    private RideRepository rideRepository;
+
+    @Mock
+    private LocationService locationService;
+
+    @Mock
+    private DriverVehicleRegistry vehicleRegistry;
+
+    @Mock
+    private RideOfferManager rideOffers;
+
+    @Mock
+    private DriverAvailabilityService driverAvailabilityService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    private PendingPickupIndex pendingPickups;
+    private User customer;
+
+    @BeforeEach
+    void setup() {
+        pendingPickups = new PendingPickupIndex(rideRepository, 0.02, true);
+        customer = User.builder().id(1L).email("rider@example.com").build();
+        when(locationService.getDriverPositions(List.of(7L))).thenReturn(Map.of(7L, new Point(36.8219, -1.2921)));
+        when(vehicleRegistry.vehicleType(7L)).thenReturn(VehicleType.UBER_X);
+    }
+
+    @Test
+    void match_shouldOfferNearestWaitingRide() {
+        Ride near = waiting(10L, -1.2925, 36.8222);
+        Ride far = waiting(11L, -1.3000, 36.8300);
+        when(rideRepository.findById(10L)).thenReturn(Optional.of(near));
+        when(rideOffers.offerTo(near, 7L)).thenReturn(true);
+
+        assertThat(dispatcher(true).match(7L)).isEqualTo(10L);
+
+        verify(rideOffers, never()).offerTo(eq(far), anyLong());
+        assertThat(pendingPickups.size()).isEqualTo(2);
+    }
+
+    @Test
+    void match_shouldSkipRidesOnOfferAndDropStaleOnes() {
+        Ride onOffer = waiting(10L, -1.2925, 36.8222);
+        Ride taken = waiting(11L, -1.2930, 36.8225);
+        Ride next = waiting(12L, -1.3000, 36.8300);
+        taken.setStatus(RideStatus.ACCEPTED);
+        when(rideOffers.hasOutstandingOffer(anyLong())).thenAnswer(i -> i.getArgument(0).equals(onOffer.getId()));
+        when(rideRepository.findById(11L)).thenReturn(Optional.of(taken));
+        when(rideRepository.findById(12L)).thenReturn(Optional.of(next));
+        when(rideOffers.offerTo(next, 7L)).thenReturn(true);
+
+        assertThat(dispatcher(true).match(7L)).isEqualTo(12L);
+
+        assertThat(pendingPickups.position(11L)).isNull();
+        verify(rideRepository, never()).findById(10L);
+    }
+
+    @Test
+    void match_withOffersDisabled_shouldReserveAndAssignDriver() {
+        Ride ride = waiting(10L, -1.2925, 36.8222);
+        User driver = User.builder().id(7L).build();
+        when(rideRepository.findById(10L)).thenReturn(Optional.of(ride));
+        when(driverAvailabilityService.reserve(7L)).thenReturn(true);
+        when(userService.findById(7L)).thenReturn(driver);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Boolean>>getArgument(0).doInTransaction(null));
+
+        assertThat(dispatcher(false).match(7L)).isEqualTo(10L);
+
+        assertThat(ride.getDriver()).isEqualTo(driver);
+        assertThat(pendingPickups.size()).isZero();
+        verify(messagingTemplate).convertAndSendToUser("rider@example.com", AsyncRideDispatcher.RIDE_UPDATES_DESTINATION,
+                new RideMatchResult(10L, RideStatus.REQUESTED, 7L));
+    }
+
+    @Test
+    void match_whenRideTakenMeanwhile_shouldReleaseReservedDriver() {
+        Ride ride = waiting(10L, -1.2925, 36.8222);
+        Ride taken = Ride.builder().id(10L).status(RideStatus.ACCEPTED).build();
+        when(rideRepository.findById(10L)).thenReturn(Optional.of(ride), Optional.of(taken));
+        when(driverAvailabilityService.reserve(7L)).thenReturn(true);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Boolean>>getArgument(0).doInTransaction(null));
+
+        assertThat(dispatcher(false).match(7L)).isNull();
+
+        verify(driverAvailabilityService).release(7L);
+        verify(driverAvailabilityService, never()).markAvailable(7L);
+    }
+
+    @Test
+    void match_whenNoRideNearby_shouldDoNothing() {
+        waiting(10L, -1.5, 37.2);
+
+        assertThat(dispatcher(true).match(7L)).isNull();
+
+        verifyNoInteractions(rideRepository);
+    }
+
+    @Test
+    void onDriverAvailable_shouldMatchAtMostMaxConcurrencyDriversAtOnce() throws Exception {
+        waiting(10L, -1.2921, 36.8219);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        when(locationService.getDriverPositions(List.of(8L))).thenAnswer(invocation -> {
+            firstStarted.countDown();
+            releaseFirst.await();
+            return Map.of();
+        });
+        SupplyTriggeredDispatcher dispatcher = dispatcher(true, 1);
+
+        dispatcher.onDriverAvailable(new DriverAvailableEvent(8L));
+        assertThat(firstStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        dispatcher.onDriverAvailable(new DriverAvailableEvent(7L));
+
+        verify(locationService, after(200).never()).getDriverPositions(List.of(7L));
+        releaseFirst.countDown();
+        verify(vehicleRegistry, timeout(5000)).vehicleType(7L);
+        dispatcher.shutdown();
+    }
+
+    private SupplyTriggeredDispatcher dispatcher(boolean offersEnabled) {
+        return dispatcher(offersEnabled, 32);
+    }
+
+    private SupplyTriggeredDispatcher dispatcher(boolean offersEnabled, int maxConcurrency) {
+        return new SupplyTriggeredDispatcher(pendingPickups, rideRepository, locationService, vehicleRegistry,
+                rideOffers, driverAvailabilityService, userService, transactionTemplate, messagingTemplate,
+                20, maxConcurrency, offersEnabled);
+    }
+
+    private Ride waiting(Long id, double lat, double lng) {
+        Ride ride = Ride.builder().id(id).customer(customer).pickupLat(lat).pickupLng(lng)
+                .status(RideStatus.REQUESTED).build();
+        pendingPickups.add(ride);
+        return ride;
+    }
+}
@@ -0,0 +1,52 @@
+package ride.sharing.com.dispatch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void advance_returnsOnlyPassedDeadlines() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 0);
+        wheel.schedule("a", 250);
+        wheel.schedule("b", 400);
+
+        // Deadlines round up to the next tick, so nothing fires early
+        assertThat(wheel.advance(299)).isEmpty();
+        assertThat(wheel.advance(350)).containsExactly("a");
+        assertThat(wheel.advance(400)).containsExactly("b");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void advance_keepsDeadlinesFromLaterRevolutions() {
+        // 8 buckets of 100ms: 150 and 950 share a bucket one revolution apart
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 0);
+        wheel.schedule("near", 150);
+        wheel.schedule("far", 950);
+
+        assertThat(wheel.advance(200)).containsExactly("near");
+        assertThat(wheel.advance(900)).isEmpty();
+        assertThat(wheel.advance(1000)).containsExactly("far");
+    }
+
+    @Test
+    void advance_afterLongPause_expiresEverythingDue() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(10, 4, 0);
+        for (int i = 1; i <= 20; i++) {
+            wheel.schedule(i, i * 10L);
+        }
+
+        assertThat(wheel.advance(10_000)).hasSize(20);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void schedule_inThePast_expiresOnNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 1000);
+        wheel.schedule("late", 500);
+
+        assertThat(wheel.advance(1100)).containsExactly("late");
+    }
+}
@@ -0,0 +1,50 @@
+package ride.sharing.com.geo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.enums.VehicleType.VehicleCategory;
+
+import static org.assertj.core.api.Assertions.*;
+
+class DriverGridIndexTest {
+
+    private DriverGridIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new DriverGridIndex(0.02);
+        index.put(1L, VehicleType.UBER_MOTO, -1.2921, 36.8219, 1_000);
+        index.put(2L, VehicleType.UBER_XL, -1.2950, 36.8250, 1_000);
+        index.put(3L, VehicleType.UBER_SUV, -1.3100, 36.8400, 2_000);
+        index.put(4L, null, -1.2922, 36.8220, 2_000);
+    }
+
+    @Test
+    void nearest_shouldOnlySearchTheCategoryPartition() {
+        assertThat(index.nearest(VehicleCategory.LARGE_GROUP, -1.2921, 36.8219, 10, 5.0, id -> true))
+                .containsExactly(2L, 3L);
+        assertThat(index.nearest(null, -1.2921, 36.8219, 10, 5.0, id -> true))
+                .containsExactly(1L, 4L, 2L, 3L);
+        assertThat(index.nearby(VehicleCategory.TWO_WHEELER, -1.2921, 36.8219, 5.0, 10)).containsExactly(1L);
+    }
+
+    @Test
+    void put_shouldMoveDriverBetweenPartitionsWhenVehicleChanges() {
+        index.put(1L, VehicleType.UBER_X, -1.2921, 36.8219, 3_000);
+
+        assertThat(index.nearby(VehicleCategory.TWO_WHEELER, -1.2921, 36.8219, 5.0, 10)).isEmpty();
+        assertThat(index.nearby(VehicleCategory.ECONOMY, -1.2921, 36.8219, 5.0, 10)).containsExactly(1L);
+        assertThat(index.vehicleType(1L)).isEqualTo(VehicleType.UBER_X);
+    }
+
+    @Test
+    void removeAndEvict_shouldClearPartitions() {
+        index.remove(2L);
+        assertThat(index.evictOlderThan(1_500)).containsExactly(1L);
+
+        assertThat(index.nearby(VehicleCategory.LARGE_GROUP, -1.2921, 36.8219, 5.0, 10)).containsExactly(3L);
+        assertThat(index.nearby(VehicleCategory.TWO_WHEELER, -1.2921, 36.8219, 5.0, 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+}
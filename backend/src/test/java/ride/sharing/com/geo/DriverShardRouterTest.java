@@ -0,0 +1,77 @@
+package ride.sharing.com.geo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DriverShardRouterTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    private DriverShardRouter router;
+
+    @BeforeEach
+    void setup() {
+        router = new DriverShardRouter(redisTemplate, 0.5);
+    }
+
+    @Test
+    void cellOf_shouldGroupNearbyPointsIntoOneCell() {
+        assertThat(router.cellOf(-1.2921, 36.8219)).isEqualTo("177:433");
+        assertThat(router.cellOf(-1.3000, 36.8300)).isEqualTo("177:433");
+        assertThat(router.cellOf(-4.0435, 39.6682)).isNotEqualTo("177:433");
+    }
+
+    @Test
+    void coveringCells_shouldOnlyReturnOwnCellForSmallRadius() {
+        List<String> cells = router.coveringCells(-1.2921, 36.8219, 5.0);
+
+        assertThat(cells).containsExactly("177:433");
+    }
+
+    @Test
+    void coveringCells_shouldReturnNeighboursNearestFirstNearCorner() {
+        // Just inside the north-east corner of cell 177:433
+        List<String> cells = router.coveringCells(-1.01, 36.99, 5.0);
+
+        assertThat(cells).hasSize(4).first().isEqualTo("177:433");
+        assertThat(cells).containsExactlyInAnyOrder("177:433", "177:434", "178:433", "178:434");
+        assertThat(cells.get(3)).isEqualTo("178:434");
+    }
+
+    @Test
+    void coveringCells_shouldWrapAroundAntimeridian() {
+        List<String> cells = router.coveringCells(0.25, 179.99, 5.0);
+
+        assertThat(cells).containsExactly("180:719", "180:0");
+    }
+
+    @Test
+    void storedCells_shouldReadRedisEvenWhenCachedAndRefreshTheHint() {
+        HashOperations<String, Object, Object> hashOps = mock(HashOperations.class);
+        when(redisTemplate.opsForHash()).thenReturn(hashOps);
+        // Another instance moved driver 1 to 177:434 and removed driver 2
+        router.remember(1L, "177:433");
+        router.remember(2L, "177:433");
+        when(hashOps.multiGet(RedisKeys.DRIVER_CELLS, List.of("1", "2"))).thenReturn(Arrays.asList("177:434", null));
+
+        Map<Long, String> cells = router.storedCells(List.of(1L, 2L));
+
+        assertThat(cells).containsExactly(Map.entry(1L, "177:434"));
+        assertThat(router.knownCell(1L)).isEqualTo("177:434");
+        assertThat(router.knownCell(2L)).isNull();
+    }
+}
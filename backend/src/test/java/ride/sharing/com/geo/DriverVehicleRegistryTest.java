@@ -0,0 +1,73 @@
+package ride.sharing.com.geo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import ride.sharing.com.enums.VehicleType;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DriverVehicleRegistryTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private DriverShardRouter shardRouter;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOps;
+
+    private DriverVehicleRegistry registry;
+
+    @BeforeEach
+    void setup() {
+        registry = new DriverVehicleRegistry(redisTemplate, shardRouter, 300);
+        when(redisTemplate.opsForHash()).thenReturn(hashOps);
+    }
+
+    @Test
+    void storedVehicleTypes_shouldReadRedisEvenWhenCachedAndRefreshTheHint() {
+        registry.registerAll(Map.of(1L, VehicleType.UBER_X, 2L, VehicleType.UBER_X));
+        // Another instance switched driver 1 to an XL and cleared driver 2's vehicle
+        when(hashOps.multiGet(RedisKeys.DRIVER_VEHICLE_TYPES, List.of("1", "2")))
+                .thenReturn(Arrays.asList("UBER_XL", null));
+
+        Map<Long, VehicleType> types = registry.storedVehicleTypes(List.of(1L, 2L));
+
+        assertThat(types).containsExactly(Map.entry(1L, VehicleType.UBER_XL));
+        assertThat(registry.vehicleTypes(List.of(1L))).containsExactly(Map.entry(1L, VehicleType.UBER_XL));
+        verify(hashOps, times(1)).multiGet(any(), any());
+    }
+
+    @Test
+    void vehicleTypes_shouldServeRepeatLookupsLocallyIncludingDriversWithoutAType() {
+        when(hashOps.multiGet(RedisKeys.DRIVER_VEHICLE_TYPES, List.of("1", "2")))
+                .thenReturn(Arrays.asList("UBER_X", null));
+
+        registry.vehicleTypes(List.of(1L, 2L));
+        Map<Long, VehicleType> types = registry.vehicleTypes(List.of(1L, 2L));
+
+        assertThat(types).containsExactly(Map.entry(1L, VehicleType.UBER_X));
+        verify(hashOps, times(1)).multiGet(any(), any());
+    }
+
+    @Test
+    void vehicleTypes_shouldRereadEntriesOlderThanTheCacheTime() {
+        registry = new DriverVehicleRegistry(redisTemplate, shardRouter, 0);
+        registry.registerAll(Map.of(1L, VehicleType.UBER_X));
+        when(hashOps.multiGet(RedisKeys.DRIVER_VEHICLE_TYPES, List.of("1"))).thenReturn(Arrays.asList("UBER_XL"));
+
+        assertThat(registry.vehicleType(1L)).isEqualTo(VehicleType.UBER_XL);
+    }
+}
@@ -0,0 +1,125 @@
+package ride.sharing.com.geo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class GeoGridIndexTest {
+
+    private GeoGridIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new GeoGridIndex(0.02);
+    }
+
+    @Test
+    void nearby_shouldReturnPointsWithinRadiusNearestFirst() {
+        index.put(1L, -1.2921, 36.8219);
+        index.put(2L, -1.3000, 36.8300);
+        index.put(3L, -1.2925, 36.8222);
+        index.put(4L, -4.0435, 39.6682); // Mombasa, far outside the radius
+
+        List<Long> result = index.nearby(-1.2921, 36.8219, 5.0, 10);
+
+        assertThat(result).containsExactly(1L, 3L, 2L);
+    }
+
+    @Test
+    void nearby_shouldRespectLimit() {
+        for (long id = 1; id <= 50; id++) {
+            index.put(id, -1.2921 + id * 0.0001, 36.8219);
+        }
+
+        List<Long> result = index.nearby(-1.2921, 36.8219, 5.0, 10);
+
+        assertThat(result).hasSize(10).startsWith(1L, 2L, 3L);
+    }
+
+    @Test
+    void put_shouldMovePointBetweenCells() {
+        index.put(1L, -1.2921, 36.8219);
+        index.put(1L, -1.5000, 37.1000);
+
+        assertThat(index.nearby(-1.2921, 36.8219, 5.0, 10)).isEmpty();
+        assertThat(index.nearby(-1.5000, 37.1000, 1.0, 10)).containsExactly(1L);
+        assertThat(index.position(1L)).containsExactly(-1.5000, 37.1000);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void remove_shouldDropPointAndReuseSlot() {
+        index.put(1L, -1.2921, 36.8219);
+        index.put(2L, -1.2922, 36.8220);
+
+        assertThat(index.remove(1L)).isTrue();
+        assertThat(index.remove(1L)).isFalse();
+        index.put(3L, -1.2923, 36.8221);
+
+        assertThat(index.position(1L)).isNull();
+        assertThat(index.nearby(-1.2921, 36.8219, 1.0, 10)).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void nearby_shouldFindPointsAcrossAntimeridian() {
+        index.put(1L, 0.0, 179.995);
+        index.put(2L, 0.0, -179.995);
+
+        assertThat(index.nearby(0.0, 179.999, 5.0, 10)).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void evictOlderThan_shouldRemoveOnlyStalePoints() {
+        index.put(1L, -1.2921, 36.8219, 1_000);
+        index.put(2L, -1.2922, 36.8220, 5_000);
+
+        assertThat(index.evictOlderThan(2_000)).containsExactly(1L);
+        assertThat(index.nearby(-1.2921, 36.8219, 1.0, 10)).containsExactly(2L);
+    }
+
+    @Test
+    void nearest_shouldReturnKNearestAcceptedPointsInOrder() {
+        index.put(1L, -1.2921, 36.8219);
+        index.put(2L, -1.3000, 36.8300);
+        index.put(3L, -1.2925, 36.8222);
+        index.put(4L, -1.2950, 36.8250);
+
+        List<Long> result = index.nearest(-1.2921, 36.8219, 2, 20.0, id -> id != 3L);
+
+        assertThat(result).containsExactly(1L, 4L);
+    }
+
+    @Test
+    void nearest_shouldReachDistantPointWithoutRadiusSteps() {
+        // Sparse area: the only driver is ~15km away, many cells from the query
+        index.put(1L, -1.2921, 36.8219 + 0.135);
+
+        List<Long> result = index.nearest(-1.2921, 36.8219, 1, 20.0, id -> true);
+
+        assertThat(result).containsExactly(1L);
+    }
+
+    @Test
+    void nearest_shouldStopAtMaxDistance() {
+        index.put(1L, -1.2921, 36.8219 + 0.135);
+
+        assertThat(index.nearest(-1.2921, 36.8219, 1, 10.0, id -> true)).isEmpty();
+    }
+
+    @Test
+    void nearest_shouldMatchBruteForceOrder() {
+        Random random = new Random(42);
+        for (long id = 1; id <= 500; id++) {
+            index.put(id, -1.4 + random.nextDouble() * 0.3, 36.7 + random.nextDouble() * 0.3);
+        }
+
+        List<Long> expected = index.nearby(-1.2921, 36.8219, 50.0, 25);
+        List<Long> result = index.nearest(-1.2921, 36.8219, 25, 50.0, id -> true);
+
+        assertThat(result).containsExactlyElementsOf(expected);
+    }
+}
@@ -0,0 +1,21 @@
+package ride.sharing.com.geo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class GeoUtilsTest {
+
+    @Test
+    void geohash_shouldMatchTheStandardEncoding() {
+        assertThat(GeoUtils.geohashString(GeoUtils.geohash(57.64911, 10.40744, 11), 11)).isEqualTo("u4pruydqqvj");
+        assertThat(GeoUtils.geohashString(GeoUtils.geohash(42.6, -5.6, 5), 5)).isEqualTo("ezs42");
+    }
+
+    @Test
+    void geohash_shouldShareCellsOnlyWithinPrecision() {
+        assertThat(GeoUtils.geohash(-1.2921, 36.8219, 6)).isEqualTo(GeoUtils.geohash(-1.2922, 36.8220, 6));
+        assertThat(GeoUtils.geohash(-1.2921, 36.8219, 6)).isNotEqualTo(GeoUtils.geohash(-1.3100, 36.8400, 6));
+        assertThatThrownBy(() -> GeoUtils.geohash(0, 0, 13)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,62 @@
+package ride.sharing.com.geo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LocationUpdateFilterTest {
+
+    private LocationUpdateFilter filter;
+
+    @BeforeEach
+    void setup() {
+        filter = new LocationUpdateFilter(true, 25, 30);
+    }
+
+    @Test
+    void accept_shouldAcceptFirstUpdate() {
+        assertThat(filter.accept(1L, -1.2921, 36.8219, 0)).isTrue();
+    }
+
+    @Test
+    void accept_shouldSuppressStationaryUpdatesWithinHeartbeat() {
+        filter.accept(1L, -1.2921, 36.8219, 0);
+
+        assertThat(filter.accept(1L, -1.2921, 36.8219, 5_000)).isFalse();
+        assertThat(filter.accept(1L, -1.29211, 36.82191, 10_000)).isFalse();
+    }
+
+    @Test
+    void accept_shouldAcceptWhenDriverMovedBeyondThreshold() {
+        filter.accept(1L, -1.2921, 36.8219, 0);
+
+        // ~111m north
+        assertThat(filter.accept(1L, -1.2911, 36.8219, 5_000)).isTrue();
+    }
+
+    @Test
+    void accept_shouldAcceptHeartbeatAfterInterval() {
+        filter.accept(1L, -1.2921, 36.8219, 0);
+        filter.accept(1L, -1.2921, 36.8219, 10_000);
+
+        assertThat(filter.accept(1L, -1.2921, 36.8219, 30_000)).isTrue();
+        assertThat(filter.accept(1L, -1.2921, 36.8219, 31_000)).isFalse();
+    }
+
+    @Test
+    void forget_shouldResetDriverState() {
+        filter.accept(1L, -1.2921, 36.8219, 0);
+        filter.forget(1L);
+
+        assertThat(filter.accept(1L, -1.2921, 36.8219, 1_000)).isTrue();
+    }
+
+    @Test
+    void accept_shouldPassEverythingWhenDisabled() {
+        LocationUpdateFilter disabled = new LocationUpdateFilter(false, 25, 30);
+        disabled.accept(1L, -1.2921, 36.8219, 0);
+
+        assertThat(disabled.accept(1L, -1.2921, 36.8219, 1_000)).isTrue();
+    }
+}
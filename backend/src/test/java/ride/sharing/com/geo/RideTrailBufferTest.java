@@ -0,0 +1,60 @@
+package ride.sharing.com.geo;
+
+import org.junit.jupiter.api.Test;
+import ride.sharing.com.models.Location;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RideTrailBufferTest {
+
+    @Test
+    void append_shouldRoundTripPointsAtFivePlacePrecision() {
+        RideTrailBuffer trail = new RideTrailBuffer(1L, 2L, 4096);
+        trail.append(-1.292066, 36.821945, 1_700_000_000_000L);
+        trail.append(-1.292500, 36.822300, 1_700_000_004_000L);
+        trail.append(-1.291900, 36.821800, 1_700_000_009_000L);
+
+        List<Location> points = RideTrailBuffer.decode(2L, trail.toByteArray(), trail.getPointCount());
+
+        assertThat(points).hasSize(3);
+        assertThat(points.get(0).getLatitude()).isCloseTo(-1.292066, within(1e-5));
+        assertThat(points.get(0).getLongitude()).isCloseTo(36.821945, within(1e-5));
+        assertThat(points.get(2).getLatitude()).isEqualTo(-1.29190);
+        assertThat(points.get(2).getTimestamp()).isEqualTo(1_700_000_009_000L);
+        assertThat(points).allMatch(point -> point.getDriverId() == 2L);
+    }
+
+    @Test
+    void append_shouldEncodeCityDrivingInAFewBytesPerPoint() {
+        RideTrailBuffer trail = new RideTrailBuffer(1L, 2L, 64 * 1024);
+        long start = 1_700_000_000_000L;
+        trail.append(-1.2921, 36.8219, start);
+        int header = trail.toByteArray().length;
+
+        // ~40 km/h with a ping every 4 seconds moves about 45m per point
+        for (int i = 1; i <= 1000; i++) {
+            trail.append(-1.2921 + i * 0.0003, 36.8219 + i * 0.0003, start + i * 4_000L);
+        }
+
+        double bytesPerPoint = (trail.toByteArray().length - header) / 1000.0;
+        assertThat(bytesPerPoint).isLessThanOrEqualTo(6.0);
+        assertThat(trail.getDistanceKm()).isCloseTo(47.0, within(1.0));
+    }
+
+    @Test
+    void append_shouldStopWhenBufferIsFull() {
+        RideTrailBuffer trail = new RideTrailBuffer(1L, 2L, 64);
+
+        int accepted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (trail.append(-1.2921 + i * 0.001, 36.8219, i * 1_000L)) {
+                accepted++;
+            }
+        }
+
+        assertThat(accepted).isLessThan(100).isEqualTo(trail.getPointCount());
+        assertThat(trail.toByteArray().length).isLessThanOrEqualTo(64);
+    }
+}
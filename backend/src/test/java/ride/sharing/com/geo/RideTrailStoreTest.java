@@ -0,0 +1,50 @@
+package ride.sharing.com.geo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RideTrailStoreTest {
+
+    private final RideTrailStore store = new RideTrailStore(4096);
+
+    @Test
+    void append_withOverlappingPooledRides_shouldRecordEachRideFromItsOwnStart() {
+        store.start(10L, 2L);
+        store.append(2L, -1.2921, 36.8219, 1_000);
+        // Second rider picked up while the first is still on board
+        store.start(11L, 2L);
+        store.append(2L, -1.2925, 36.8223, 5_000);
+        store.append(2L, -1.2930, 36.8228, 9_000);
+
+        RideTrailBuffer first = store.finish(10L, 2L);
+        store.append(2L, -1.2935, 36.8233, 13_000);
+        RideTrailBuffer second = store.finish(11L, 2L);
+
+        assertThat(first.getPointCount()).isEqualTo(3);
+        assertThat(second.getRideId()).isEqualTo(11L);
+        assertThat(second.getPointCount()).isEqualTo(3);
+        assertThat(store.activeCount()).isZero();
+    }
+
+    @Test
+    void finish_shouldOnlyHandOverTheTrailOnce() {
+        store.start(10L, 2L);
+
+        assertThat(store.finish(10L, 3L)).isNull();
+        assertThat(store.finish(10L, 2L)).isNotNull();
+        assertThat(store.finish(10L, 2L)).isNull();
+    }
+
+    @Test
+    void discard_shouldStopRecordingOnlyThatRide() {
+        store.start(10L, 2L);
+        store.start(11L, 2L);
+
+        store.discard(10L, 2L);
+        store.append(2L, -1.2921, 36.8219, 1_000);
+
+        assertThat(store.activeCount()).isEqualTo(1);
+        assertThat(store.finish(11L, 2L).getPointCount()).isEqualTo(1);
+    }
+}
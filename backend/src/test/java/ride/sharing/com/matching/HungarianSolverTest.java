@@ -0,0 +1,62 @@
+package ride.sharing.com.matching;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class HungarianSolverTest {
+
+    @Test
+    void solve_shouldFindMinimumTotalCost() {
+        double[][] cost = {
+                {4, 1, 3},
+                {2, 0, 5},
+                {3, 2, 2}
+        };
+
+        int[] assignment = HungarianSolver.solve(cost);
+
+        assertThat(assignment).containsExactly(1, 0, 2);
+    }
+
+    @Test
+    void solve_shouldPreferGlobalOptimumOverGreedyChoice() {
+        // Row 0 greedily takes column 0 (1.0), forcing row 1 onto column 1 (3.3): total 4.3 instead of 2.3
+        double[][] cost = {
+                {1.0, 1.2},
+                {1.1, 3.3}
+        };
+
+        int[] assignment = HungarianSolver.solve(cost);
+
+        assertThat(assignment).containsExactly(1, 0);
+    }
+
+    @Test
+    void solve_shouldLeaveExtraRowsUnassigned() {
+        double[][] cost = {
+                {5},
+                {1},
+                {3}
+        };
+
+        int[] assignment = HungarianSolver.solve(cost);
+
+        assertThat(assignment).containsExactly(-1, 0, -1);
+    }
+
+    @Test
+    void solve_shouldHandleMoreColumnsThanRows() {
+        double[][] cost = {
+                {7, 3, 9, 1}
+        };
+
+        assertThat(HungarianSolver.solve(cost)).containsExactly(3);
+    }
+
+    @Test
+    void solve_shouldHandleEmptyMatrix() {
+        assertThat(HungarianSolver.solve(new double[0][0])).isEmpty();
+        assertThat(HungarianSolver.solve(new double[2][0])).containsExactly(-1, -1);
+    }
+}
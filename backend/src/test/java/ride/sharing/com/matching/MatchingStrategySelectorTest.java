@@ -0,0 +1,37 @@
+package ride.sharing.com.matching;
+
+import org.junit.jupiter.api.Test;
+import ride.sharing.com.geo.DriverShardRouter;
+
+import java.time.Clock;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MatchingStrategySelectorTest {
+
+    private final List<MatchingStrategy> strategies = List.of(
+            new NearestFirstStrategy(),
+            new IdleTimeWeightedStrategy(0.1, 30, Clock.systemUTC()));
+
+    @Test
+    void forPickup_usesRegionOverrideThenDefault() {
+        DriverShardRouter shardRouter = mock(DriverShardRouter.class);
+        when(shardRouter.cellOf(1.0, 1.0)).thenReturn("182:362");
+        when(shardRouter.cellOf(5.0, 5.0)).thenReturn("190:370");
+
+        MatchingStrategySelector selector = new MatchingStrategySelector(strategies, shardRouter,
+                NearestFirstStrategy.NAME, "182:362=idle-weighted");
+
+        assertThat(selector.forPickup(1.0, 1.0).name()).isEqualTo(IdleTimeWeightedStrategy.NAME);
+        assertThat(selector.forPickup(5.0, 5.0).name()).isEqualTo(NearestFirstStrategy.NAME);
+    }
+
+    @Test
+    void constructor_rejectsUnknownStrategy() {
+        assertThatThrownBy(() -> new MatchingStrategySelector(strategies, mock(DriverShardRouter.class), "fastest", ""))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("fastest");
+    }
+}
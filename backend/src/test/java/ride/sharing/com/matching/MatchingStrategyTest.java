@@ -0,0 +1,66 @@
+package ride.sharing.com.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class MatchingStrategyTest {
+
+    // Everything on the equator, about 1km per 0.009 degrees of longitude
+    private final PickupRequest pickupA = new PickupRequest(10L, 0.0, -0.009);
+    private final PickupRequest pickupB = new PickupRequest(11L, 0.0, 0.0099);
+    private final DriverCandidate middle = new DriverCandidate(1L, 0.0, 0.0, 0, 0);
+    private final DriverCandidate west = new DriverCandidate(2L, 0.0, -0.0198, 0, 0);
+
+    @Test
+    void nearestFirst_ranksByDistance() {
+        List<DriverCandidate> candidates = List.of(
+                new DriverCandidate(1L, 0, 0, 2.5, 0),
+                new DriverCandidate(2L, 0, 0, 0.5, 0),
+                new DriverCandidate(3L, 0, 0, 1.0, 0));
+
+        assertThat(new NearestFirstStrategy().rank(pickupA, candidates))
+                .extracting(DriverCandidate::driverId)
+                .containsExactly(2L, 3L, 1L);
+    }
+
+    @Test
+    void idleTimeWeighted_prefersDriverWhoWaitedLonger() {
+        Clock clock = Clock.fixed(Instant.ofEpochMilli(60 * 60_000), ZoneOffset.UTC);
+        List<DriverCandidate> candidates = List.of(
+                new DriverCandidate(1L, 0, 0, 1.0, 59 * 60_000),
+                new DriverCandidate(2L, 0, 0, 1.8, 45 * 60_000));
+
+        // Driver 2 is 0.8km further but has waited 14 minutes longer (1.4km at 0.1km per minute)
+        assertThat(new IdleTimeWeightedStrategy(0.1, 30, clock).rank(pickupA, candidates))
+                .extracting(DriverCandidate::driverId)
+                .containsExactly(2L, 1L);
+    }
+
+    @Test
+    void defaultAssign_isGreedyInRequestOrder() {
+        // Pickup A takes the middle driver, leaving B with the far western one
+        int[] assignment = new NearestFirstStrategy().assign(List.of(pickupA, pickupB), List.of(middle, west));
+
+        assertThat(assignment).containsExactly(0, 1);
+    }
+
+    @Test
+    void batched_minimisesTotalPickupDistance() {
+        int[] assignment = new BatchedStrategy(20).assign(List.of(pickupA, pickupB), List.of(middle, west));
+
+        assertThat(assignment).containsExactly(1, 0);
+    }
+
+    @Test
+    void batched_leavesPickupsOutsideRadiusUnassigned() {
+        int[] assignment = new BatchedStrategy(0.5).assign(List.of(pickupA, pickupB), List.of(west));
+
+        assertThat(assignment).containsExactly(-1, -1);
+    }
+}
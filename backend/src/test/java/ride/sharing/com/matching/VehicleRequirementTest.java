@@ -0,0 +1,43 @@
+package ride.sharing.com.matching;
+
+import org.junit.jupiter.api.Test;
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.enums.VehicleType.VehicleCategory;
+
+import static org.assertj.core.api.Assertions.*;
+
+class VehicleRequirementTest {
+
+    @Test
+    void accepts_shouldCheckCategoryAndSeats() {
+        VehicleRequirement group = new VehicleRequirement(VehicleCategory.LARGE_GROUP, 5);
+
+        assertThat(group.accepts(VehicleType.UBER_XL)).isTrue();
+        assertThat(group.accepts(VehicleType.UBER_BLACK_SUV)).isFalse();
+        assertThat(new VehicleRequirement(null, 3).accepts(VehicleType.UBER_MOTO)).isFalse();
+        assertThat(new VehicleRequirement(null, 3).accepts(VehicleType.UBER_AUTO)).isTrue();
+    }
+
+    @Test
+    void accepts_driversWithoutVehicleTypeOnlyForPlainSingleRides() {
+        assertThat(VehicleRequirement.ANY.accepts(null)).isTrue();
+        assertThat(new VehicleRequirement(null, 2).accepts(null)).isFalse();
+        assertThat(new VehicleRequirement(VehicleCategory.ECONOMY, 1).accepts(null)).isFalse();
+    }
+
+    @Test
+    void coversPartition_onlyWhenEveryVehicleInItHasEnoughSeats() {
+        assertThat(VehicleRequirement.ANY.coversPartition()).isTrue();
+        assertThat(new VehicleRequirement(VehicleCategory.LARGE_GROUP, 6).coversPartition()).isTrue();
+        assertThat(new VehicleRequirement(VehicleCategory.PREMIUM, 5).coversPartition()).isFalse();
+        assertThat(new VehicleRequirement(null, 2).coversPartition()).isFalse();
+    }
+
+    @Test
+    void isSatisfiable_shouldRejectPartiesNoVehicleCanSeat() {
+        assertThat(new VehicleRequirement(VehicleCategory.TWO_WHEELER, 3).isSatisfiable()).isTrue();
+        assertThat(new VehicleRequirement(VehicleCategory.TWO_WHEELER, 4).isSatisfiable()).isFalse();
+        assertThat(new VehicleRequirement(null, 7).isSatisfiable()).isFalse();
+        assertThatThrownBy(() -> new VehicleRequirement(null, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,48 @@
+package ride.sharing.com.matching.benchmark;
+
+import org.junit.jupiter.api.Test;
+import ride.sharing.com.matching.BatchedStrategy;
+import ride.sharing.com.matching.NearestFirstStrategy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class MatchingBenchmarkTest {
+
+    @Test
+    void run_reportsEveryRequestOfSyntheticWorkload() {
+        ReplayWorkload workload = ReplayWorkload.synthetic(1, 50, 300, 40.7, -74.0, 5, 10);
+        MatchingBenchmark benchmark = new MatchingBenchmark(workload, 20, 10, 30);
+
+        BenchmarkReport greedy = benchmark.run(new NearestFirstStrategy(), 2000);
+        BenchmarkReport batched = benchmark.run(new BatchedStrategy(20), 2000);
+
+        assertThat(greedy.requests()).isEqualTo(300);
+        assertThat(greedy.matched()).isPositive().isLessThanOrEqualTo(300);
+        assertThat(greedy.p99LatencyMicros()).isGreaterThanOrEqualTo(greedy.p50LatencyMicros());
+        assertThat(batched.matched()).isPositive();
+        assertThat(BenchmarkReport.table(List.of(greedy, batched))).contains("nearest", "batched");
+    }
+
+    @Test
+    void run_withSingleDriver_matchesOnlyUntilDriverIsBusy() throws IOException {
+        Path file = Files.createTempFile("workload", ".csv");
+        Files.writeString(file, """
+                # one driver, two requests a second apart, each trip far longer than that
+                driver,7,0.0,0.0
+                request,0,0.0,0.001,0.0,0.1
+                request,1000,0.0,0.002,0.0,0.1
+                """);
+
+        BenchmarkReport report = new MatchingBenchmark(ReplayWorkload.readCsv(file), 20, 5, 30)
+                .run(new NearestFirstStrategy(), 0);
+
+        assertThat(report.requests()).isEqualTo(2);
+        assertThat(report.matched()).isEqualTo(1);
+        assertThat(report.meanPickupKm()).isCloseTo(0.111, within(0.001));
+    }
+}
@@ -0,0 +1,87 @@
+package ride.sharing.com.pool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class InsertionHeuristicTest {
+
+    // Everything on the equator, about 1km per 0.009 degrees of longitude
+    private static final double KM = 0.009;
+
+    private final PoolStop onboardDropoff = new PoolStop(1L, false, 0, 5 * KM, 1, 2.0);
+
+    @Test
+    void cheapest_shouldPoolRiderGoingTheSameWayWithoutDetour() {
+        PoolRoute route = new PoolRoute(7L, 4, 1, List.of(onboardDropoff));
+
+        PoolInsertion insertion = InsertionHeuristic.cheapest(route, 0, 0,
+                pickup(2L, 1 * KM), dropoff(2L, 4 * KM), 2.0, 1.5);
+
+        assertThat(insertion.driverId()).isEqualTo(7L);
+        assertThat(insertion.pickupIndex()).isZero();
+        assertThat(insertion.dropoffIndex()).isZero();
+        assertThat(insertion.addedKm()).isCloseTo(0, within(0.01));
+        assertThat(insertion.rideKm()).isCloseTo(3, within(0.01));
+    }
+
+    @Test
+    void cheapest_shouldAppendStopsPastTheLastDropoff() {
+        PoolRoute route = new PoolRoute(7L, 4, 1, List.of(new PoolStop(1L, false, 0, 1 * KM, 1, 2.0)));
+
+        PoolInsertion insertion = InsertionHeuristic.cheapest(route, 0, 0,
+                pickup(2L, 1.5 * KM), dropoff(2L, 3 * KM), 2.0, 1.5);
+
+        assertThat(insertion.pickupIndex()).isEqualTo(1);
+        assertThat(insertion.dropoffIndex()).isEqualTo(1);
+    }
+
+    @Test
+    void cheapest_shouldRespectSeats() {
+        PoolRoute full = new PoolRoute(7L, 2, 2, List.of(onboardDropoff));
+
+        assertThat(InsertionHeuristic.cheapest(full, 0, 0, pickup(2L, 1 * KM), dropoff(2L, 4 * KM), 2.0, 1.5)).isNull();
+    }
+
+    @Test
+    void cheapest_shouldNotUseUpOtherRidersSlack() {
+        PoolRoute route = new PoolRoute(7L, 4, 1, List.of(onboardDropoff));
+        // Pickup 1.5km off the line: inserting it before the onboard rider's dropoff costs more than 2km
+        PoolStop sideways = new PoolStop(2L, true, 1.5 * KM, 2 * KM, 1, 0);
+
+        PoolInsertion insertion = InsertionHeuristic.cheapest(route, 0, 0, sideways, dropoff(2L, 2 * KM), 10.0, 10.0);
+
+        assertThat(insertion.pickupIndex()).isEqualTo(1);
+    }
+
+    @Test
+    void cheapest_shouldRejectPickupsTooFarAlongTheRoute() {
+        PoolRoute route = new PoolRoute(7L, 4, 1, List.of(onboardDropoff));
+
+        assertThat(InsertionHeuristic.cheapest(route, 0, 0, pickup(2L, 3 * KM), dropoff(2L, 4 * KM), 2.0, 1.5)).isNull();
+    }
+
+    @Test
+    void insert_shouldPlaceStopsAndShrinkLaterSlack() {
+        PoolRoute route = new PoolRoute(7L, 4, 1, List.of(onboardDropoff));
+        PoolInsertion insertion = new PoolInsertion(7L, 0, 0, 0.5, 3.0);
+
+        PoolRoute updated = route.insert(insertion, pickup(2L, 1 * KM), dropoff(2L, 4 * KM));
+
+        assertThat(updated.stops()).extracting(PoolStop::rideId).containsExactly(2L, 2L, 1L);
+        assertThat(updated.stops().get(2).slackKm()).isEqualTo(1.5);
+        assertThat(updated.pickedUp(2L).onboard()).isEqualTo(2);
+        assertThat(updated.pickedUp(2L).without(2L).stops()).containsExactly(updated.stops().get(2));
+        assertThat(updated.pickedUp(2L).without(2L).onboard()).isEqualTo(1);
+    }
+
+    private static PoolStop pickup(Long rideId, double lng) {
+        return new PoolStop(rideId, true, 0, lng, 1, 0);
+    }
+
+    private static PoolStop dropoff(Long rideId, double lng) {
+        return new PoolStop(rideId, false, 0, lng, 1, 0);
+    }
+}
@@ -0,0 +1,66 @@
+package ride.sharing.com.pricing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ride.sharing.com.routing.Route;
+import ride.sharing.com.services.RoutingService;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QuoteRouteCacheTest {
+
+    @Mock
+    private RoutingService routingService;
+
+    private QuoteRouteCache cache;
+
+    @BeforeEach
+    void setup() {
+        cache = new QuoteRouteCache(routingService, 7, 60, 100);
+    }
+
+    @Test
+    void kilometers_shouldReuseTheRouteForNearbyPointsUntilItExpires() {
+        when(routingService.route(anyDouble(), anyDouble(), anyDouble(), anyDouble())).thenReturn(new Route(600, 5_200));
+
+        assertThat(cache.kilometers(-1.29210, 36.82190, -1.30000, 36.80000, 1_000)).isEqualTo(5.2);
+        // A few metres away at both ends, within the cached minute
+        assertThat(cache.kilometers(-1.29212, 36.82192, -1.30001, 36.80001, 30_000)).isEqualTo(5.2);
+        verify(routingService, times(1)).route(anyDouble(), anyDouble(), anyDouble(), anyDouble());
+
+        cache.kilometers(-1.29210, 36.82190, -1.30000, 36.80000, 61_000);
+        verify(routingService, times(2)).route(anyDouble(), anyDouble(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void kilometers_withoutRoadNetwork_shouldUseStraightLine() {
+        when(routingService.route(anyDouble(), anyDouble(), anyDouble(), anyDouble())).thenReturn(null);
+
+        assertThat(cache.kilometers(0.0, 0.0, 0.0, 1.0, 1_000)).isCloseTo(111.19, within(0.01));
+    }
+
+    @Test
+    void kilometers_whenFull_shouldStopCachingUntilExpiredRoutesArePurged() {
+        QuoteRouteCache small = new QuoteRouteCache(routingService, 7, 60, 2);
+        when(routingService.route(anyDouble(), anyDouble(), anyDouble(), anyDouble())).thenReturn(new Route(600, 5_200));
+
+        small.kilometers(0.0, 0.0, 0.0, 1.0, 1_000);
+        small.kilometers(0.0, 0.0, 0.0, 2.0, 1_000);
+        small.kilometers(0.0, 0.0, 0.0, 3.0, 1_000);
+        assertThat(small.size()).isEqualTo(2);
+
+        small.evictExpired(30_000);
+        assertThat(small.size()).isEqualTo(2);
+
+        small.evictExpired(61_000);
+        assertThat(small.size()).isZero();
+        small.kilometers(0.0, 0.0, 0.0, 3.0, 61_000);
+        assertThat(small.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,54 @@
+package ride.sharing.com.pricing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SlidingWindowCounterTest {
+
+    @Test
+    void sum_shouldOnlyCountEventsInsideTheWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(1_000, 3);
+        counter.increment(10_000);
+        counter.increment(10_500);
+        counter.increment(11_200);
+        counter.increment(12_900);
+
+        assertThat(counter.sum(12_999)).isEqualTo(4);
+        // The 10s bucket has left the window
+        assertThat(counter.sum(13_000)).isEqualTo(2);
+        assertThat(counter.sum(20_000)).isZero();
+    }
+
+    @Test
+    void increment_shouldResetReusedBucketsAndIgnoreLateEvents() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(1_000, 2);
+        counter.increment(10_000);
+        counter.increment(10_100);
+        counter.increment(12_000);
+        counter.increment(10_200);
+
+        assertThat(counter.sum(12_000)).isEqualTo(1);
+    }
+
+    @Test
+    void increment_fromManyThreads_shouldCountEveryEventInOneBucket() throws InterruptedException {
+        SlidingWindowCounter counter = new SlidingWindowCounter(60_000, 5);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.submit(() -> {
+                for (int n = 0; n < 10_000; n++) {
+                    counter.increment(120_000);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(counter.sum(120_000)).isEqualTo(80_000);
+    }
+}
@@ -0,0 +1,86 @@
+package ride.sharing.com.pricing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SurgePricingTest {
+
+    private static final double LAT = -1.2921;
+    private static final double LNG = 36.8219;
+
+    private SurgePricing surge;
+
+    @BeforeEach
+    void setup() {
+        surge = new SurgePricing(true, 6, 30, 10, 1.0, 0.5, 3.0);
+    }
+
+    @Test
+    void multiplier_shouldRiseWithRequestsPerDriver() {
+        long now = 1_000_000;
+        surge.recordDriver(1L, LAT, LNG, now);
+        surge.recordDriver(2L, LAT, LNG, now);
+        for (int i = 0; i < 6; i++) {
+            surge.recordRequest(LAT, LNG, now);
+        }
+        assertThat(surge.multiplier(LAT, LNG)).isEqualTo(1.0);
+
+        surge.recompute(now);
+
+        // 6 requests for an average of 2 drivers over 10 buckets, counted as at least 1 driver
+        assertThat(surge.multiplier(LAT, LNG)).isEqualTo(3.0);
+        assertThat(surge.multiplier(LAT + 0.1, LNG)).isEqualTo(1.0);
+    }
+
+    @Test
+    void recordDriver_shouldCountEachDriverOncePerBucket() {
+        long now = 1_000_000;
+        for (int bucket = 0; bucket < 10; bucket++) {
+            for (int ping = 0; ping < 5; ping++) {
+                surge.recordDriver(1L, LAT, LNG, now + bucket * 30_000L + ping);
+                surge.recordDriver(2L, LAT, LNG, now + bucket * 30_000L + ping);
+            }
+        }
+        long end = now + 9 * 30_000L;
+        for (int i = 0; i < 4; i++) {
+            surge.recordRequest(LAT, LNG, end);
+        }
+
+        surge.recompute(end);
+
+        // 4 requests for 2 drivers seen throughout the window
+        assertThat(surge.multiplier(LAT, LNG)).isEqualTo(1.5);
+    }
+
+    @Test
+    void recompute_shouldDropSurgeOnceRequestsLeaveTheWindow() {
+        long now = 1_000_000;
+        for (int i = 0; i < 4; i++) {
+            surge.recordRequest(LAT, LNG, now);
+        }
+        surge.recompute(now);
+        assertThat(surge.multiplier(LAT, LNG)).isGreaterThan(1.0);
+
+        surge.recompute(now + 10 * 30_000L);
+
+        assertThat(surge.multiplier(LAT, LNG)).isEqualTo(1.0);
+    }
+
+    @Test
+    void multiplierFor_shouldBeCappedAndRounded() {
+        assertThat(surge.multiplierFor(0.5)).isEqualTo(1.0);
+        assertThat(surge.multiplierFor(1.44)).isEqualTo(1.2);
+        assertThat(surge.multiplierFor(100)).isEqualTo(3.0);
+    }
+
+    @Test
+    void disabled_shouldNeverSurge() {
+        SurgePricing disabled = new SurgePricing(false, 6, 30, 10, 1.0, 0.5, 3.0);
+        disabled.recordRequest(LAT, LNG, 1_000_000);
+        disabled.recompute(1_000_000);
+
+        assertThat(disabled.multiplier(LAT, LNG)).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,37 @@
+package ride.sharing.com.pricing;
+
+import org.junit.jupiter.api.Test;
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.geo.DriverShardRouter;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TariffTableTest {
+
+    private final DriverShardRouter shardRouter = new DriverShardRouter(null, 0.5);
+
+    @Test
+    void tariffs_shouldScaleTheStandardTariffByVehicleType() {
+        TariffTable table = new TariffTable(shardRouter, 2.0, 1.5, "");
+
+        assertThat(table.standard(-1.29, 36.82)).isEqualTo(new Tariff(2.0, 1.5));
+        assertThat(table.tariffs(-1.29, 36.82).get(VehicleType.UBER_BLACK)).isEqualTo(new Tariff(4.0, 3.0));
+        assertThat(table.tariffs(-1.29, 36.82)).hasSize(VehicleType.values().length);
+    }
+
+    @Test
+    void tariffs_shouldUseTheZoneOverrideForPickupsInsideIt() {
+        String zone = shardRouter.cellOf(-1.29, 36.82);
+        TariffTable table = new TariffTable(shardRouter, 2.0, 1.5, zone + "=3.0/2.0");
+
+        assertThat(table.standard(-1.29, 36.82)).isEqualTo(new Tariff(3.0, 2.0));
+        assertThat(table.tariffs(-1.29, 36.82).get(VehicleType.UBER_MOTO).fare(10)).isEqualTo(11.5);
+        assertThat(table.standard(40.71, -74.00)).isEqualTo(new Tariff(2.0, 1.5));
+    }
+
+    @Test
+    void constructor_shouldRejectMalformedZoneTariffs() {
+        assertThatThrownBy(() -> new TariffTable(shardRouter, 2.0, 1.5, "261:211=3.0"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,148 @@
+package ride.sharing.com.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ContractionHierarchyTest {
+
+    @Test
+    void route_prefersFasterLongerRoad() {
+        RoadGraph.Builder builder = new RoadGraph.Builder();
+        int a = builder.addNode(0, 0);
+        int b = builder.addNode(0, 0.01);
+        int c = builder.addNode(0.01, 0.005);
+        // Direct street: 1km at 10 m/s; detour over the highway: 2km at 40 m/s
+        builder.addEdge(a, b, 100, 1000);
+        builder.addEdge(a, c, 25, 1000);
+        builder.addEdge(c, b, 25, 1000);
+
+        Route route = ContractionHierarchy.build(builder.build()).route(a, b);
+
+        assertThat(route.seconds()).isEqualTo(50.0);
+        assertThat(route.meters()).isEqualTo(2000.0);
+    }
+
+    @Test
+    void route_respectsOneWayStreets() {
+        RoadGraph.Builder builder = new RoadGraph.Builder();
+        int a = builder.addNode(0, 0);
+        int b = builder.addNode(0, 0.01);
+        builder.addEdge(a, b, 60, 500);
+
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(builder.build());
+
+        assertThat(hierarchy.route(a, b)).isEqualTo(new Route(60, 500));
+        assertThat(hierarchy.route(b, a)).isNull();
+    }
+
+    @Test
+    void route_matchesDijkstraOnRandomNetwork() {
+        Random random = new Random(7);
+        RoadGraph graph = randomGrid(random, 20);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+
+        for (int query = 0; query < 200; query++) {
+            int from = random.nextInt(graph.nodeCount());
+            int to = random.nextInt(graph.nodeCount());
+            double expected = dijkstra(graph, from, to);
+            Route route = hierarchy.route(from, to);
+            if (expected == Double.POSITIVE_INFINITY) {
+                assertThat(route).isNull();
+            } else {
+                assertThat(route.seconds()).isCloseTo(expected, within(1e-6));
+            }
+        }
+    }
+
+    @Test
+    void route_withMoreConcurrentQueriesThanStates_shouldShareStatesCorrectly() throws Exception {
+        Random random = new Random(11);
+        RoadGraph graph = randomGrid(random, 15);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph, 2);
+        int[][] queries = new int[64][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new int[]{random.nextInt(graph.nodeCount()), random.nextInt(graph.nodeCount())};
+        }
+
+        List<Future<Route>> routes = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int[] query : queries) {
+                routes.add(executor.submit(() -> hierarchy.route(query[0], query[1])));
+            }
+        }
+
+        for (int i = 0; i < queries.length; i++) {
+            double expected = dijkstra(graph, queries[i][0], queries[i][1]);
+            Route route = routes.get(i).get();
+            if (expected == Double.POSITIVE_INFINITY) {
+                assertThat(route).isNull();
+            } else {
+                assertThat(route.seconds()).isCloseTo(expected, within(1e-6));
+            }
+        }
+    }
+
+    private static RoadGraph randomGrid(Random random, int size) {
+        RoadGraph.Builder builder = new RoadGraph.Builder();
+        for (int i = 0; i < size * size; i++) {
+            builder.addNode(i / size * 0.001, i % size * 0.001);
+        }
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int node = row * size + col;
+                if (col + 1 < size) {
+                    connect(builder, random, node, node + 1);
+                }
+                if (row + 1 < size) {
+                    connect(builder, random, node, node + size);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    // Mostly two-way streets of random speed, with some one-way ones
+    private static void connect(RoadGraph.Builder builder, Random random, int a, int b) {
+        double seconds = 5 + random.nextInt(50);
+        switch (random.nextInt(6)) {
+            case 0 -> builder.addEdge(a, b, seconds, 100);
+            case 1 -> builder.addEdge(b, a, seconds, 100);
+            default -> {
+                builder.addEdge(a, b, seconds, 100);
+                builder.addEdge(b, a, seconds, 100);
+            }
+        }
+    }
+
+    private static double dijkstra(RoadGraph graph, int from, int to) {
+        double[] distances = new double[graph.nodeCount()];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        distances[from] = 0;
+        PriorityQueue<double[]> queue = new PriorityQueue<>((x, y) -> Double.compare(x[0], y[0]));
+        queue.add(new double[]{0, from});
+        while (!queue.isEmpty()) {
+            double[] entry = queue.poll();
+            int node = (int) entry[1];
+            if (entry[0] > distances[node]) {
+                continue;
+            }
+            for (int edge = 0; edge < graph.edgeCount(); edge++) {
+                if (graph.edgeFrom(edge) == node && entry[0] + graph.edgeSeconds(edge) < distances[graph.edgeTo(edge)]) {
+                    distances[graph.edgeTo(edge)] = entry[0] + graph.edgeSeconds(edge);
+                    queue.add(new double[]{distances[graph.edgeTo(edge)], graph.edgeTo(edge)});
+                }
+            }
+        }
+        return distances[to];
+    }
+}
@@ -0,0 +1,59 @@
+package ride.sharing.com.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.*;
+
+class OsmRoadGraphLoaderTest {
+
+    private static final String EXTRACT = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <osm version="0.6">
+              <node id="1" lat="0.0" lon="0.0"/>
+              <node id="2" lat="0.0" lon="0.01"/>
+              <node id="3" lat="0.0" lon="0.02"/>
+              <node id="4" lat="0.01" lon="0.0"/>
+              <way id="10">
+                <nd ref="1"/><nd ref="2"/>
+                <tag k="highway" v="residential"/>
+              </way>
+              <way id="11">
+                <nd ref="2"/><nd ref="3"/>
+                <tag k="highway" v="primary"/>
+                <tag k="oneway" v="yes"/>
+                <tag k="maxspeed" v="36"/>
+              </way>
+              <way id="12">
+                <nd ref="1"/><nd ref="4"/>
+                <tag k="highway" v="footway"/>
+              </way>
+            </osm>
+            """;
+
+    @Test
+    void load_keepsDrivableWaysWithDirectionAndSpeed() throws IOException {
+        RoadGraph graph = OsmRoadGraphLoader.load(new ByteArrayInputStream(EXTRACT.getBytes(StandardCharsets.UTF_8)));
+
+        // The footway and its end node are left out
+        assertThat(graph.nodeCount()).isEqualTo(3);
+        // Two-way residential street plus the one-way primary
+        assertThat(graph.edgeCount()).isEqualTo(3);
+
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        Route oneWay = hierarchy.route(1, 2);
+        assertThat(oneWay.meters()).isCloseTo(1112, within(1.0));
+        // 36 km/h is 10 m/s
+        assertThat(oneWay.seconds()).isCloseTo(111.2, within(0.1));
+        assertThat(hierarchy.route(2, 1)).isNull();
+    }
+
+    @Test
+    void load_rejectsMalformedXml() {
+        assertThatThrownBy(() -> OsmRoadGraphLoader.load(new ByteArrayInputStream("<osm><node".getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(IOException.class);
+    }
+}
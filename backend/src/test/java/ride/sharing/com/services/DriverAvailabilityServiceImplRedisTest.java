@@ -0,0 +1,170 @@
+package ride.sharing.com.services;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import ride.sharing.com.configs.RedisConfig;
+import ride.sharing.com.geo.DriverGridIndex;
+import ride.sharing.com.geo.DriverShardRouter;
+import ride.sharing.com.geo.DriverVehicleRegistry;
+import ride.sharing.com.geo.LocationUpdateFilter;
+import ride.sharing.com.geo.RedisKeys;
+import ride.sharing.com.geo.RideTrailStore;
+import ride.sharing.com.impl.DriverAvailabilityServiceImpl;
+import ride.sharing.com.impl.LocationServiceImpl;
+import ride.sharing.com.impl.ReactiveLocationServiceImpl;
+import ride.sharing.com.pricing.SurgePricing;
+import ride.sharing.com.repositories.UserRepository;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Reservations against a real Redis, so the reserve, release and nearest-driver scripts run as deployed
+ */
+@ExtendWith(MockitoExtension.class)
+class DriverAvailabilityServiceImplRedisTest {
+
+    // Shards of 0.1 degrees; the pickup sits near the eastern edge of its shard
+    private static final double CELL_SIZE_DEG = 0.1;
+    private static final double LAT = -1.25;
+    private static final double PICKUP_LNG = 36.79;
+
+    private static RedisTestServer redis;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SurgePricing surgePricing;
+
+    private RedisTemplate<String, String> redisTemplate;
+    private DriverShardRouter shardRouter;
+    private LocationServiceImpl locationService;
+    private DriverAvailabilityServiceImpl availability;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redis = RedisTestServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setup() {
+        redis.flush();
+        redisTemplate = redis.redisTemplate();
+        shardRouter = new DriverShardRouter(redisTemplate, CELL_SIZE_DEG);
+        availability = availabilityService();
+
+        RedisConfig scripts = new RedisConfig();
+        DriverGridIndex driverIndex = new DriverGridIndex(0.02);
+        locationService = new LocationServiceImpl(redisTemplate, driverIndex, new LocationUpdateFilter(false, 25, 30),
+                new RideTrailStore(1024), scripts.evictStaleDriversScript(), scripts.writeDriverLocationsScript(),
+                scripts.moveDriverCellsScript(), shardRouter, new DriverVehicleRegistry(redisTemplate, shardRouter, 300),
+                availability, surgePricing,
+                new ReactiveLocationServiceImpl(redis.reactiveRedisTemplate(), driverIndex, shardRouter));
+    }
+
+    @Test
+    void reserve_shouldHoldDriverUntilLeaseRunsOut() throws InterruptedException {
+        availableAt(1L, PICKUP_LNG);
+
+        assertThat(availability.reserve(1L, 1)).isTrue();
+        assertThat(availability.reserve(1L, 1)).isFalse();
+        assertThat(availability.filterAvailable(List.of(1L))).isEmpty();
+
+        Thread.sleep(1_100);
+
+        assertThat(availability.filterAvailable(List.of(1L))).containsExactly(1L);
+        assertThat(availability.reserve(1L, 1)).isTrue();
+    }
+
+    @Test
+    void release_shouldMakeReservedDriverAvailableAgain() {
+        availableAt(1L, PICKUP_LNG);
+        assertThat(availability.reserve(1L)).isTrue();
+
+        availability.release(1L);
+
+        assertThat(availability.filterAvailable(List.of(1L))).containsExactly(1L);
+        assertThat(redisTemplate.opsForHash().get(RedisKeys.driverAvailability(cellOf(PICKUP_LNG)), "1")).isEqualTo("A");
+    }
+
+    @Test
+    void release_afterLeaseRenewedElsewhere_shouldLeaveNewReservationAlone() throws InterruptedException {
+        availableAt(1L, PICKUP_LNG);
+        DriverAvailabilityServiceImpl otherInstance = availabilityService();
+        assertThat(availability.reserve(1L, 1)).isTrue();
+
+        Thread.sleep(1_100);
+        assertThat(otherInstance.reserve(1L)).isTrue();
+        availability.release(1L);
+
+        assertThat(availability.filterAvailable(List.of(1L))).isEmpty();
+        assertThat(availability.reserve(1L)).isFalse();
+    }
+
+    @Test
+    void reserveNearest_shouldReserveNearestDriverAcrossShards() {
+        // Driver 1 is in the next shard east, about 1.7km away; driver 2 shares the pickup's shard, 3.3km away
+        availableAt(1L, 36.805);
+        availableAt(2L, 36.76);
+        assertThat(cellOf(36.805)).isNotEqualTo(cellOf(PICKUP_LNG));
+        assertThat(cellOf(36.76)).isEqualTo(cellOf(PICKUP_LNG));
+
+        assertThat(availability.reserveNearest(LAT, PICKUP_LNG, 5.0)).isEqualTo(1L);
+        assertThat(availability.reserveNearest(LAT, PICKUP_LNG, 5.0)).isEqualTo(2L);
+        assertThat(availability.reserveNearest(LAT, PICKUP_LNG, 5.0)).isNull();
+    }
+
+    @Test
+    void reserveNearest_shouldSkipDriversOutsideRadius() {
+        availableAt(1L, 36.76);
+
+        assertThat(availability.reserveNearest(LAT, PICKUP_LNG, 2.0)).isNull();
+        assertThat(availability.filterAvailable(List.of(1L))).containsExactly(1L);
+    }
+
+    @Test
+    void updateDriverLocation_intoAnotherShard_shouldCarryReservationAlong() {
+        availableAt(1L, PICKUP_LNG);
+        assertThat(availability.reserve(1L)).isTrue();
+        String lease = (String) redisTemplate.opsForHash().get(RedisKeys.driverAvailability(cellOf(PICKUP_LNG)), "1");
+
+        locationService.updateDriverLocation(1L, LAT, 36.805);
+
+        assertThat(redisTemplate.opsForHash().get(RedisKeys.driverAvailability(cellOf(PICKUP_LNG)), "1")).isNull();
+        assertThat(redisTemplate.opsForHash().get(RedisKeys.driverAvailability(cellOf(36.805)), "1")).isEqualTo(lease);
+        assertThat(availability.filterAvailable(List.of(1L))).isEmpty();
+    }
+
+    private DriverAvailabilityServiceImpl availabilityService() {
+        RedisConfig scripts = new RedisConfig();
+        DriverAvailabilityServiceImpl service = new DriverAvailabilityServiceImpl(redisTemplate,
+                scripts.reserveNearestDriverScript(), scripts.reserveDriverScript(), scripts.releaseDriverScript(),
+                shardRouter, new DriverVehicleRegistry(redisTemplate, shardRouter, 300), userRepository);
+        ReflectionTestUtils.setField(service, "reservationLeaseSeconds", 60L);
+        return service;
+    }
+
+    private void availableAt(Long driverId, double lng) {
+        locationService.updateDriverLocation(driverId, LAT, lng);
+        availability.markAvailable(driverId);
+    }
+
+    private String cellOf(double lng) {
+        return shardRouter.cellOf(LAT, lng);
+    }
+}
@@ -0,0 +1,215 @@
+package ride.sharing.com.services;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import ride.sharing.com.configs.RedisConfig;
+import ride.sharing.com.dtos.LocationUpdate;
+import ride.sharing.com.enums.DriverStatus;
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.geo.DriverGridIndex;
+import ride.sharing.com.geo.DriverShardRouter;
+import ride.sharing.com.geo.DriverVehicleRegistry;
+import ride.sharing.com.geo.LocationUpdateFilter;
+import ride.sharing.com.geo.RedisKeys;
+import ride.sharing.com.geo.RideTrailStore;
+import ride.sharing.com.impl.DriverAvailabilityServiceImpl;
+import ride.sharing.com.impl.LocationServiceImpl;
+import ride.sharing.com.impl.ReactiveLocationServiceImpl;
+import ride.sharing.com.impl.StaleDriverSweeper;
+import ride.sharing.com.matching.VehicleRequirement;
+import ride.sharing.com.pricing.SurgePricing;
+import ride.sharing.com.repositories.UserRepository;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Location writes and stale eviction against a real Redis, so the shard write, cell move and eviction
+ * scripts run as deployed
+ */
+@ExtendWith(MockitoExtension.class)
+class LocationServiceImplRedisTest {
+
+    // Shards of 0.1 degrees: WEST_LNG and EAST_LNG are about 1.7km apart, either side of a shard edge
+    private static final double CELL_SIZE_DEG = 0.1;
+    private static final double LAT = -1.25;
+    private static final double WEST_LNG = 36.79;
+    private static final double EAST_LNG = 36.805;
+
+    private static RedisTestServer redis;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SurgePricing surgePricing;
+
+    @Mock
+    private UserService userService;
+
+    private RedisTemplate<String, String> redisTemplate;
+    private DriverShardRouter shardRouter;
+    private DriverVehicleRegistry vehicleRegistry;
+    private DriverAvailabilityServiceImpl availability;
+    private LocationServiceImpl locationService;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redis = RedisTestServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redis.close();
+    }
+
+    @BeforeEach
+    void setup() {
+        redis.flush();
+        redisTemplate = redis.redisTemplate();
+        shardRouter = new DriverShardRouter(redisTemplate, CELL_SIZE_DEG);
+        vehicleRegistry = new DriverVehicleRegistry(redisTemplate, shardRouter, 300);
+
+        RedisConfig scripts = new RedisConfig();
+        availability = new DriverAvailabilityServiceImpl(redisTemplate, scripts.reserveNearestDriverScript(),
+                scripts.reserveDriverScript(), scripts.releaseDriverScript(), shardRouter, vehicleRegistry, userRepository);
+        ReflectionTestUtils.setField(availability, "reservationLeaseSeconds", 60L);
+
+        DriverGridIndex driverIndex = new DriverGridIndex(0.02);
+        locationService = new LocationServiceImpl(redisTemplate, driverIndex, new LocationUpdateFilter(false, 25, 30),
+                new RideTrailStore(1024), scripts.evictStaleDriversScript(), scripts.writeDriverLocationsScript(),
+                scripts.moveDriverCellsScript(), shardRouter, vehicleRegistry, availability, surgePricing,
+                new ReactiveLocationServiceImpl(redis.reactiveRedisTemplate(), driverIndex, shardRouter));
+    }
+
+    @Test
+    void updateDriverLocation_shouldWriteDriverIntoItsShard() {
+        vehicleRegistry.register(1L, VehicleType.UBER_X);
+
+        locationService.updateDriverLocation(1L, LAT, WEST_LNG);
+
+        String cell = shardRouter.cellOf(LAT, WEST_LNG);
+        assertThat(redisTemplate.opsForHash().get(RedisKeys.DRIVER_CELLS, "1")).isEqualTo(cell);
+        assertThat(redisTemplate.opsForSet().members(RedisKeys.DRIVER_SHARDS)).containsExactly(cell);
+        assertThat(redisTemplate.opsForZSet().score(RedisKeys.driverLocations(cell), "1")).isNotNull();
+        assertThat(redisTemplate.opsForZSet().score(RedisKeys.driverLastSeen(cell), "1")).isNotNull();
+        assertThat(redisTemplate.opsForZSet().score(
+                RedisKeys.driverLocations(cell, VehicleType.UBER_X.getCategory()), "1")).isNotNull();
+    }
+
+    @Test
+    void updateDriverLocations_acrossShardEdge_shouldMoveDriverOutOfOldShard() {
+        locationService.updateDriverLocation(1L, LAT, WEST_LNG);
+        availability.markAvailable(1L);
+
+        int written = locationService.updateDriverLocations(List.of(
+                update(1L, EAST_LNG),
+                update(2L, WEST_LNG)));
+
+        String west = shardRouter.cellOf(LAT, WEST_LNG);
+        String east = shardRouter.cellOf(LAT, EAST_LNG);
+        assertThat(written).isEqualTo(2);
+        assertThat(redisTemplate.opsForHash().get(RedisKeys.DRIVER_CELLS, "1")).isEqualTo(east);
+        assertThat(redisTemplate.opsForZSet().score(RedisKeys.driverLocations(west), "1")).isNull();
+        assertThat(redisTemplate.opsForZSet().score(RedisKeys.driverLastSeen(west), "1")).isNull();
+        assertThat(redisTemplate.opsForZSet().score(RedisKeys.driverLocations(east), "1")).isNotNull();
+        assertThat(redisTemplate.opsForZSet().score(RedisKeys.driverLocations(west), "2")).isNotNull();
+        // Availability followed the driver into the new shard
+        assertThat(redisTemplate.opsForHash().get(RedisKeys.driverAvailability(west), "1")).isNull();
+        assertThat(redisTemplate.opsForHash().get(RedisKeys.driverAvailability(east), "1")).isEqualTo("A");
+    }
+
+    @Test
+    void findNearestDrivers_shouldSearchAcrossShardsAndSkipUnavailableDrivers() {
+        locationService.updateDriverLocation(1L, LAT, EAST_LNG);
+        locationService.updateDriverLocation(2L, LAT, 36.76);
+        locationService.updateDriverLocation(3L, LAT, 36.788);
+        availability.markAvailable(1L);
+        availability.markAvailable(2L);
+
+        List<Long> nearest = locationService.findNearestDrivers(LAT, WEST_LNG, 2, 5.0, VehicleRequirement.ANY,
+                availability::filterAvailable);
+
+        assertThat(nearest).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void evictStaleDrivers_shouldEvictFromEveryShardAndKeepFreshDrivers() {
+        locationService.updateDriverLocation(1L, LAT, WEST_LNG);
+        locationService.updateDriverLocation(2L, LAT, EAST_LNG);
+        locationService.updateDriverLocation(3L, LAT, EAST_LNG + 0.001);
+        availability.markAvailable(1L);
+        String west = shardRouter.cellOf(LAT, WEST_LNG);
+        String east = shardRouter.cellOf(LAT, EAST_LNG);
+        lastSeen(west, 1L, 1_000);
+        lastSeen(east, 2L, 1_000);
+
+        List<Long> evicted = locationService.evictStaleDrivers(System.currentTimeMillis() - 60_000, 1);
+
+        assertThat(evicted).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(redisTemplate.opsForZSet().score(RedisKeys.driverLocations(west), "1")).isNull();
+        assertThat(redisTemplate.opsForHash().get(RedisKeys.driverAvailability(west), "1")).isNull();
+        assertThat(redisTemplate.opsForZSet().score(RedisKeys.driverLocations(east), "2")).isNull();
+        assertThat(redisTemplate.opsForHash().get(RedisKeys.DRIVER_CELLS, "1")).isNull();
+        assertThat(redisTemplate.opsForHash().get(RedisKeys.DRIVER_CELLS, "2")).isNull();
+        assertThat(redisTemplate.opsForZSet().score(RedisKeys.driverLocations(east), "3")).isNotNull();
+        assertThat(redisTemplate.opsForHash().get(RedisKeys.DRIVER_CELLS, "3")).isEqualTo(east);
+    }
+
+    @Test
+    void evictStaleDrivers_whenDriverMovedOn_shouldKeepItsNewShard() {
+        locationService.updateDriverLocation(1L, LAT, WEST_LNG);
+        String west = shardRouter.cellOf(LAT, WEST_LNG);
+        // A copy left behind in the old shard, e.g. by an instance that failed between the write and the move
+        redisTemplate.opsForGeo().add(RedisKeys.driverLocations(west),
+                new Point(WEST_LNG, LAT), "2");
+        lastSeen(west, 2L, 1_000);
+        locationService.updateDriverLocation(2L, LAT, EAST_LNG);
+
+        List<Long> evicted = locationService.evictStaleDrivers(System.currentTimeMillis() - 60_000, 500);
+
+        assertThat(evicted).isEmpty();
+        assertThat(redisTemplate.opsForZSet().score(RedisKeys.driverLocations(west), "2")).isNull();
+        assertThat(redisTemplate.opsForHash().get(RedisKeys.DRIVER_CELLS, "2")).isEqualTo(shardRouter.cellOf(LAT, EAST_LNG));
+    }
+
+    @Test
+    void sweep_shouldTakeStaleAvailableDriversOffline() {
+        locationService.updateDriverLocation(1L, LAT, WEST_LNG);
+        locationService.updateDriverLocation(2L, LAT, EAST_LNG);
+        lastSeen(shardRouter.cellOf(LAT, WEST_LNG), 1L, 1_000);
+        StaleDriverSweeper sweeper = new StaleDriverSweeper(locationService, userService);
+        ReflectionTestUtils.setField(sweeper, "ttlSeconds", 120L);
+        ReflectionTestUtils.setField(sweeper, "batchSize", 500);
+
+        sweeper.sweep();
+
+        verify(userService).updateDriverStatus(List.of(1L), DriverStatus.AVAILABLE, DriverStatus.OFFLINE);
+        verify(userService, never()).updateDriverStatus(argThat((List<Long> ids) -> ids.contains(2L)),
+                any(DriverStatus.class), any(DriverStatus.class));
+    }
+
+    private LocationUpdate update(Long driverId, double lng) {
+        LocationUpdate update = new LocationUpdate();
+        update.setDriverId(driverId);
+        update.setLatitude(LAT);
+        update.setLongitude(lng);
+        return update;
+    }
+
+    private void lastSeen(String cell, Long driverId, long millis) {
+        redisTemplate.opsForZSet().add(RedisKeys.driverLastSeen(cell), driverId.toString(), millis);
+    }
+}
@@ -0,0 +1,195 @@
+package ride.sharing.com.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.geo.Point;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import ride.sharing.com.enums.VehicleType.VehicleCategory;
+import ride.sharing.com.exception.ResourceNotFoundException;
+import ride.sharing.com.geo.DriverShardRouter;
+import ride.sharing.com.impl.MatchingServiceImpl;
+import ride.sharing.com.matching.EtaStrategy;
+import ride.sharing.com.matching.IdleTimeWeightedStrategy;
+import ride.sharing.com.matching.MatchingStrategy;
+import ride.sharing.com.matching.MatchingStrategySelector;
+import ride.sharing.com.matching.NearestFirstStrategy;
+import ride.sharing.com.matching.VehicleRequirement;
+import ride.sharing.com.routing.Route;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MatchingServiceImplTest {
+
+    @Mock
+    private LocationService locationService;
+
+    @Mock
+    private ReactiveLocationService reactiveLocationService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private DriverAvailabilityService driverAvailabilityService;
+
+    @Mock
+    private RoutingService routingService;
+
+    @Mock
+    private DriverShardRouter shardRouter;
+
+    @Spy
+    private MatchingStrategySelector strategies = new MatchingStrategySelector(
+            List.of(new NearestFirstStrategy()), shardRouter, NearestFirstStrategy.NAME, "");
+
+    @InjectMocks
+    private MatchingServiceImpl matchingService;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(matchingService, "searchRadiusKm", 20.0);
+    }
+
+    @Test
+    void findNearestDriver_shouldReturnDriverReservedInRedis() {
+        when(driverAvailabilityService.reserveNearest(1.0, 1.0, 20.0, null)).thenReturn(2L);
+
+        Long driverId = matchingService.findNearestDriver(1.0, 1.0, VehicleRequirement.ANY);
+
+        assertThat(driverId).isEqualTo(2L);
+        verifyNoInteractions(userService, locationService);
+    }
+
+    @Test
+    void findNearestDriver_whenNoneAvailable_shouldThrow() {
+        when(driverAvailabilityService.reserveNearest(1.0, 1.0, 20.0, null)).thenReturn(null);
+
+        assertThatThrownBy(() -> matchingService.findNearestDriver(1.0, 1.0, VehicleRequirement.ANY))
+                .isInstanceOf(ResourceNotFoundException.class);
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void findNearestDriver_whenRedisFails_shouldFallBackToDatabaseChecks() {
+        when(driverAvailabilityService.reserveNearest(1.0, 1.0, 20.0, null)).thenThrow(new RuntimeException("Redis down"));
+        when(locationService.findNearestDrivers(eq(1.0), eq(1.0), eq(5), eq(20.0), eq(VehicleRequirement.ANY), any()))
+                .thenAnswer(invocation -> invocation.<UnaryOperator<List<Long>>>getArgument(5).apply(List.of(2L, 3L)));
+        when(userService.filterAvailableDrivers(List.of(2L, 3L))).thenReturn(List.of(3L));
+        when(userService.reserveDriver(3L)).thenReturn(true);
+        when(reactiveLocationService.getDistance(anyLong(), eq(1.0), eq(1.0))).thenReturn(Mono.just(1.0));
+
+        Long driverId = matchingService.findNearestDriver(1.0, 1.0, VehicleRequirement.ANY);
+
+        assertThat(driverId).isEqualTo(3L);
+        verify(userService, never()).findById(anyLong());
+    }
+
+    @Test
+    void findNearestDriver_whenDatabaseReservationConflicts_shouldTryNextDriver() {
+        when(driverAvailabilityService.reserveNearest(1.0, 1.0, 20.0, null)).thenThrow(new RuntimeException("Redis down"));
+        when(locationService.findNearestDrivers(eq(1.0), eq(1.0), eq(5), eq(20.0), eq(VehicleRequirement.ANY), any())).thenReturn(List.of(2L, 3L));
+        when(userService.reserveDriver(2L)).thenReturn(false);
+        when(userService.reserveDriver(3L)).thenReturn(true);
+        when(reactiveLocationService.getDistance(anyLong(), eq(1.0), eq(1.0))).thenReturn(Mono.just(1.0));
+
+        Long driverId = matchingService.findNearestDriver(1.0, 1.0, VehicleRequirement.ANY);
+
+        assertThat(driverId).isEqualTo(3L);
+    }
+
+    @Test
+    void findTopNearestDrivers_shouldAskForNearestAvailableDrivers() {
+        when(locationService.findNearestDrivers(eq(1.0), eq(1.0), eq(2), eq(20.0), eq(VehicleRequirement.ANY), any()))
+                .thenAnswer(invocation -> invocation.<UnaryOperator<List<Long>>>getArgument(5).apply(List.of(2L, 3L, 4L)));
+        when(userService.filterAvailableDrivers(List.of(2L, 3L, 4L))).thenReturn(List.of(3L, 4L));
+
+        List<Long> driverIds = matchingService.findTopNearestDrivers(1.0, 1.0, 2, VehicleRequirement.ANY);
+
+        assertThat(driverIds).containsExactly(3L, 4L);
+        verify(userService, never()).findById(anyLong());
+    }
+
+    @Test
+    void findTopNearestDrivers_withEtaStrategy_shouldRankByDriveTime() {
+        useStrategy(new EtaStrategy(routingService));
+        when(routingService.isAvailable()).thenReturn(true);
+        when(locationService.findNearestDrivers(eq(1.0), eq(1.0), eq(6), eq(20.0), eq(VehicleRequirement.ANY), any())).thenReturn(List.of(2L, 3L, 4L));
+        when(reactiveLocationService.getDriverPositions(List.of(2L, 3L, 4L))).thenReturn(Mono.just(Map.of(
+                2L, new Point(1.01, 1.0), 3L, new Point(1.02, 1.0), 4L, new Point(1.03, 1.0))));
+        // Driver 2 is closest but across the river
+        when(routingService.route(1.0, 1.01, 1.0, 1.0)).thenReturn(new Route(900, 9000));
+        when(routingService.route(1.0, 1.02, 1.0, 1.0)).thenReturn(new Route(200, 2500));
+        when(routingService.route(1.0, 1.03, 1.0, 1.0)).thenReturn(null);
+
+        List<Long> driverIds = matchingService.findTopNearestDrivers(1.0, 1.0, 2, VehicleRequirement.ANY);
+
+        assertThat(driverIds).containsExactly(3L, 2L);
+    }
+
+    @Test
+    void findNearestDriver_withRankingStrategy_shouldReserveBestRankedDriverInRedis() {
+        useStrategy(new IdleTimeWeightedStrategy(1.0, 30, Clock.systemUTC()));
+        when(locationService.findNearestDrivers(eq(1.0), eq(1.0), eq(15), eq(20.0), eq(VehicleRequirement.ANY), any())).thenReturn(List.of(2L, 3L));
+        when(reactiveLocationService.getDriverPositions(List.of(2L, 3L))).thenReturn(Mono.just(Map.of(
+                2L, new Point(1.0, 1.0), 3L, new Point(1.01, 1.0))));
+        // Driver 3 is about 1.1km further but has waited 10 minutes
+        when(userService.getAvailableSince(List.of(2L, 3L))).thenReturn(Map.of(3L, LocalDateTime.now().minusMinutes(10)));
+        when(driverAvailabilityService.reserve(3L)).thenReturn(true);
+        when(reactiveLocationService.getDistance(anyLong(), eq(1.0), eq(1.0))).thenReturn(Mono.just(1.0));
+
+        Long driverId = matchingService.findNearestDriver(1.0, 1.0, VehicleRequirement.ANY);
+
+        assertThat(driverId).isEqualTo(3L);
+        verify(driverAvailabilityService, never()).reserveNearest(anyDouble(), anyDouble(), anyDouble(), any());
+        // The position lookup is sent before the idle-time query, so the two overlap
+        InOrder order = inOrder(reactiveLocationService, userService);
+        order.verify(reactiveLocationService).getDriverPositions(List.of(2L, 3L));
+        order.verify(userService).getAvailableSince(List.of(2L, 3L));
+        verify(locationService, never()).getDriverPositions(any());
+    }
+
+    @Test
+    void findNearestDriver_withCategoryRequirement_shouldReserveInCategoryPartition() {
+        VehicleRequirement requirement = new VehicleRequirement(VehicleCategory.LARGE_GROUP, 5);
+        when(driverAvailabilityService.reserveNearest(1.0, 1.0, 20.0, VehicleCategory.LARGE_GROUP)).thenReturn(4L);
+
+        Long driverId = matchingService.findNearestDriver(1.0, 1.0, requirement);
+
+        assertThat(driverId).isEqualTo(4L);
+        verifyNoInteractions(locationService);
+    }
+
+    @Test
+    void findNearestDriver_whenCategoryHasSmallerVehicles_shouldCheckSeatsBeforeReserving() {
+        // Only the Black SUV in the premium category seats five
+        VehicleRequirement requirement = new VehicleRequirement(VehicleCategory.PREMIUM, 5);
+        when(locationService.findNearestDrivers(eq(1.0), eq(1.0), eq(5), eq(20.0), eq(requirement), any())).thenReturn(List.of(6L));
+        when(driverAvailabilityService.reserve(6L)).thenReturn(true);
+        when(reactiveLocationService.getDistance(anyLong(), eq(1.0), eq(1.0))).thenReturn(Mono.just(1.0));
+
+        Long driverId = matchingService.findNearestDriver(1.0, 1.0, requirement);
+
+        assertThat(driverId).isEqualTo(6L);
+        verify(driverAvailabilityService, never()).reserveNearest(anyDouble(), anyDouble(), anyDouble(), any());
+    }
+
+    private void useStrategy(MatchingStrategy strategy) {
+        doReturn(strategy).when(strategies).forPickup(anyDouble(), anyDouble());
+    }
+}
@@ -0,0 +1,145 @@
+package ride.sharing.com.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.geo.Point;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.impl.PoolServiceImpl;
+import ride.sharing.com.matching.VehicleRequirement;
+import ride.sharing.com.models.Ride;
+import ride.sharing.com.models.User;
+import ride.sharing.com.pool.PoolRouteRegistry;
+import ride.sharing.com.pool.PoolStop;
+import ride.sharing.com.repositories.RideRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PoolServiceImplTest {
+
+    // About 1km per 0.009 degrees of longitude on the equator
+    private static final double KM = 0.009;
+
+    @Spy
+    private PoolRouteRegistry routes;
+
+    @Mock
+    private LocationService locationService;
+
+    @Mock
+    private RideRepository rideRepository;
+
+    @InjectMocks
+    private PoolServiceImpl poolService;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(poolService, "maxPickupKm", 2.0);
+        ReflectionTestUtils.setField(poolService, "maxDetourFactor", 1.5);
+        ReflectionTestUtils.setField(poolService, "parallelThreshold", 1);
+    }
+
+    @Test
+    void insert_shouldPickVehicleWhoseRouteGrowsLeast() {
+        poolService.open(ride(1L, 2L, 0, 5 * KM));
+        // Driver 3 heads the other way
+        poolService.open(ride(2L, 3L, 0, -5 * KM));
+        nearestPooled(List.of(2L, 3L));
+        when(locationService.getDriverPositions(List.of(2L, 3L))).thenReturn(Map.of(
+                2L, new Point(0, 0), 3L, new Point(0, 0)));
+
+        Long driverId = poolService.insert(ride(10L, null, 1 * KM, 4 * KM));
+
+        assertThat(driverId).isEqualTo(2L);
+        assertThat(routes.route(2L).stops()).extracting(PoolStop::rideId).containsExactly(1L, 10L, 10L, 1L);
+        assertThat(routes.route(3L).stops()).hasSize(2);
+    }
+
+    @Test
+    void insert_whenTransactionRollsBack_shouldTakeRideOffRoute() {
+        poolService.open(ride(1L, 2L, 0, 5 * KM));
+        nearestPooled(List.of(2L));
+        when(locationService.getDriverPositions(List.of(2L))).thenReturn(Map.of(2L, new Point(0, 0)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThat(poolService.insert(ride(10L, null, 1 * KM, 4 * KM))).isEqualTo(2L);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(routes.route(2L).stops()).extracting(PoolStop::rideId).containsExactly(1L, 1L);
+    }
+
+    @Test
+    void insert_whenNoVehicleNearby_shouldReturnNull() {
+        poolService.open(ride(1L, 2L, 0, 5 * KM));
+        nearestPooled(List.of());
+
+        assertThat(poolService.insert(ride(10L, null, 1 * KM, 4 * KM))).isNull();
+        verify(locationService, never()).getDriverPositions(anyCollection());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void insert_shouldOnlyReadPositionsOfPooledVehiclesNearPickup() {
+        poolService.open(ride(1L, 2L, 0, 5 * KM));
+        poolService.open(ride(2L, 3L, 0, 5 * KM));
+        nearestPooled(List.of(3L));
+        when(locationService.getDriverPositions(List.of(3L))).thenReturn(Map.of(3L, new Point(0, 0)));
+
+        assertThat(poolService.insert(ride(10L, null, 1 * KM, 4 * KM))).isEqualTo(3L);
+
+        ArgumentCaptor<UnaryOperator<List<Long>>> pooledOnly = ArgumentCaptor.forClass(UnaryOperator.class);
+        verify(locationService).findNearestDrivers(eq(0.0), eq(1 * KM), eq(2), eq(2.0),
+                eq(VehicleRequirement.ANY), pooledOnly.capture());
+        // Drivers without a route are dropped while the search walks outwards
+        assertThat(pooledOnly.getValue().apply(List.of(5L, 3L, 6L, 2L))).containsExactly(3L, 2L);
+        verify(locationService, never()).getDriverPositions(List.of(2L, 3L));
+    }
+
+    @Test
+    void leave_shouldCloseRouteWithLastRider() {
+        Ride first = ride(1L, 2L, 0, 5 * KM);
+        poolService.open(first);
+
+        assertThat(poolService.leave(2L, first.getId())).isFalse();
+        assertThat(routes.route(2L)).isNull();
+    }
+
+    private void nearestPooled(List<Long> driverIds) {
+        when(locationService.findNearestDrivers(anyDouble(), anyDouble(), anyInt(), anyDouble(), any(), any()))
+                .thenReturn(driverIds);
+    }
+
+    private static Ride ride(Long id, Long driverId, double pickupLng, double dropoffLng) {
+        User driver = driverId == null ? null : User.builder().id(driverId).vehicleType(VehicleType.UBER_X).build();
+        return Ride.builder()
+                .id(id)
+                .driver(driver)
+                .shared(true)
+                .passengers(1)
+                .pickupLat(0.0)
+                .pickupLng(pickupLng)
+                .dropoffLat(0.0)
+                .dropoffLng(dropoffLng)
+                .build();
+    }
+}
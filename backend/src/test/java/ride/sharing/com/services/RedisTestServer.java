@@ -0,0 +1,64 @@
+package ride.sharing.com.services;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import redis.embedded.RedisServer;
+import ride.sharing.com.configs.RedisConfig;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+/**
+ * A real Redis on a free local port, for tests of the Lua scripts and geo commands that mocks cannot check
+ */
+final class RedisTestServer implements AutoCloseable {
+
+    private final RedisServer server;
+    private final LettuceConnectionFactory connectionFactory;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    private RedisTestServer(RedisServer server, LettuceConnectionFactory connectionFactory) {
+        this.server = server;
+        this.connectionFactory = connectionFactory;
+        this.redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+        this.redisTemplate.afterPropertiesSet();
+    }
+
+    static RedisTestServer start() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        RedisServer server = new RedisServer(port);
+        server.start();
+
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        return new RedisTestServer(server, connectionFactory);
+    }
+
+    RedisTemplate<String, String> redisTemplate() {
+        return redisTemplate;
+    }
+
+    ReactiveStringRedisTemplate reactiveRedisTemplate() {
+        return new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    void flush() {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        connectionFactory.destroy();
+        server.stop();
+    }
+}
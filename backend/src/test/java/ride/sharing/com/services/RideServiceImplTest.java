@@ -5,20 +5,42 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.geo.Point;
+import org.springframework.test.util.ReflectionTestUtils;
+import ride.sharing.com.dispatch.PendingPickupIndex;
+import ride.sharing.com.dispatch.RideAcceptedEvent;
+import ride.sharing.com.dispatch.RideCancelledEvent;
+import ride.sharing.com.dispatch.RideRequestedEvent;
+import ride.sharing.com.dtos.FareQuote;
 import ride.sharing.com.dtos.RideRequest;
 import ride.sharing.com.enums.DriverStatus;
 import ride.sharing.com.enums.RideStatus;
 import ride.sharing.com.enums.Role;
+import ride.sharing.com.enums.VehicleType;
+import ride.sharing.com.exception.BadRequestException;
 import ride.sharing.com.exception.DriverNotAvailableException;
 import ride.sharing.com.exception.ForbiddenException;
 import ride.sharing.com.exception.RideNotAvailableException;
+import ride.sharing.com.geo.DriverShardRouter;
+import ride.sharing.com.geo.RideTrailBuffer;
+import ride.sharing.com.geo.RideTrailStore;
 import ride.sharing.com.impl.RideServiceImpl;
+import ride.sharing.com.matching.VehicleRequirement;
+import ride.sharing.com.models.Location;
 import ride.sharing.com.models.Ride;
+import ride.sharing.com.models.RideTrail;
 import ride.sharing.com.models.User;
+import ride.sharing.com.pricing.QuoteRouteCache;
+import ride.sharing.com.pricing.SurgePricing;
+import ride.sharing.com.pricing.TariffTable;
 import ride.sharing.com.repositories.RideRepository;
+import ride.sharing.com.repositories.RideTrailRepository;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -38,6 +60,30 @@ class RideServiceImplTest {
     @Mock
     private LocationService locationService;
 
+    @Mock
+    private RideTrailStore trailStore;
+
+    @Mock
+    private RideTrailRepository rideTrailRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PoolService poolService;
+
+    @Mock
+    private PendingPickupIndex pendingPickups;
+
+    @Mock
+    private SurgePricing surgePricing;
+
+    @Spy
+    private TariffTable tariffTable = new TariffTable(new DriverShardRouter(null, 0.5), 2.0, 1.5, "");
+
+    @Mock
+    private QuoteRouteCache quoteRoutes;
+
     @InjectMocks
     private RideServiceImpl rideService;
 
@@ -78,9 +124,11 @@ class RideServiceImplTest {
     @Test
     void requestRide_shouldCreateRideAndAssignDriver() {
         when(userService.findById(customer.getId())).thenReturn(customer);
-        when(matchingService.findNearestDriver(1.0, 1.0)).thenReturn(driver.getId());
+        when(quoteRoutes.kilometers(1.0, 1.0, 2.0, 2.0)).thenReturn(10.0);
+        when(matchingService.findNearestDriver(1.0, 1.0, VehicleRequirement.ANY)).thenReturn(driver.getId());
         when(userService.findById(driver.getId())).thenReturn(driver);
         when(rideRepository.save(any(Ride.class))).thenAnswer(i -> i.getArguments()[0]);
+        when(surgePricing.multiplier(1.0, 1.0)).thenReturn(1.0);
 
         Ride createdRide = rideService.requestRide(customer.getId(), rideRequest);
 
@@ -90,6 +138,166 @@ class RideServiceImplTest {
         assertThat(createdRide.getDistance()).isGreaterThan(0);
         assertThat(createdRide.getFare()).isGreaterThan(0);
         verify(rideRepository).save(any(Ride.class));
+        verifyNoInteractions(pendingPickups);
+    }
+
+    @Test
+    void requestRide_shouldApplySurgeAndCountTheRequest() {
+        when(userService.findById(customer.getId())).thenReturn(customer);
+        when(quoteRoutes.kilometers(1.0, 1.0, 2.0, 2.0)).thenReturn(10.0);
+        when(matchingService.findNearestDriver(1.0, 1.0, VehicleRequirement.ANY)).thenReturn(driver.getId());
+        when(userService.findById(driver.getId())).thenReturn(driver);
+        when(rideRepository.save(any(Ride.class))).thenAnswer(i -> i.getArguments()[0]);
+        when(surgePricing.multiplier(1.0, 1.0)).thenReturn(1.5);
+
+        Ride createdRide = rideService.requestRide(customer.getId(), rideRequest);
+
+        assertThat(createdRide.getSurgeMultiplier()).isEqualTo(1.5);
+        assertThat(createdRide.getFare()).isCloseTo((2.0 + createdRide.getDistance() * 1.5) * 1.5, within(1e-9));
+        verify(surgePricing).recordRequest(eq(1.0), eq(1.0), anyLong());
+    }
+
+    @Test
+    void requestRide_withCategory_shouldChargeTheCategorysQuotedPrice() {
+        rideRequest.setVehicleCategory(VehicleType.VehicleCategory.PREMIUM);
+        when(userService.findById(customer.getId())).thenReturn(customer);
+        when(quoteRoutes.kilometers(1.0, 1.0, 2.0, 2.0)).thenReturn(10.0);
+        when(surgePricing.multiplier(1.0, 1.0)).thenReturn(1.2);
+        when(matchingService.findNearestDriver(eq(1.0), eq(1.0), any())).thenReturn(driver.getId());
+        when(userService.findById(driver.getId())).thenReturn(driver);
+        when(rideRepository.save(any(Ride.class))).thenAnswer(i -> i.getArguments()[0]);
+
+        FareQuote quote = rideService.quoteRide(rideRequest);
+        Ride createdRide = rideService.requestRide(customer.getId(), rideRequest);
+
+        // (2 + 10 x 1.5) x 1.5 for UberComfort, the cheapest premium type, times the surge
+        assertThat(quote.prices().get(0)).isEqualTo(new FareQuote.Price(VehicleType.UBER_COMFORT, 4, 30.6));
+        assertThat(createdRide.getFare()).isEqualTo(30.6);
+        assertThat(createdRide.getDistance()).isEqualTo(quote.distanceKm());
+    }
+
+    @Test
+    void quoteRide_shouldPriceEveryFittingVehicleTypeCheapestFirst() {
+        rideRequest.setPassengers(5);
+        when(quoteRoutes.kilometers(1.0, 1.0, 2.0, 2.0)).thenReturn(10.0);
+        when(surgePricing.multiplier(1.0, 1.0)).thenReturn(1.2);
+
+        FareQuote quote = rideService.quoteRide(rideRequest);
+
+        assertThat(quote.distanceKm()).isEqualTo(10.0);
+        assertThat(quote.surgeMultiplier()).isEqualTo(1.2);
+        assertThat(quote.prices()).extracting(FareQuote.Price::vehicleType)
+                .containsExactly(VehicleType.UBER_XL, VehicleType.UBER_SUV, VehicleType.UBER_BLACK_SUV, VehicleType.UBER_LUX_SUV);
+        // (2 + 10 x 1.5) x 1.8 for UberXL, times the surge
+        assertThat(quote.prices().get(0).fare()).isEqualTo(36.72);
+        verifyNoInteractions(rideRepository, userService);
+    }
+
+    @Test
+    void quoteRide_whenShared_shouldOnlyPricePool() {
+        rideRequest.setShared(true);
+        when(quoteRoutes.kilometers(1.0, 1.0, 2.0, 2.0)).thenReturn(10.0);
+        when(surgePricing.multiplier(1.0, 1.0)).thenReturn(1.0);
+
+        FareQuote quote = rideService.quoteRide(rideRequest);
+
+        assertThat(quote.prices()).containsExactly(new FareQuote.Price(VehicleType.UBER_POOL, 2, 13.6));
+    }
+
+    @Test
+    void quoteRide_withoutDropoff_shouldThrow() {
+        rideRequest.setDropoffLat(null);
+
+        assertThatThrownBy(() -> rideService.quoteRide(rideRequest))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Pickup and dropoff coordinates are required");
+    }
+
+    @Test
+    void requestRide_withGroupRequirement_shouldMatchEligibleVehicle() {
+        rideRequest.setPassengers(5);
+        rideRequest.setVehicleCategory(VehicleType.VehicleCategory.LARGE_GROUP);
+        VehicleRequirement requirement = new VehicleRequirement(VehicleType.VehicleCategory.LARGE_GROUP, 5);
+        when(userService.findById(customer.getId())).thenReturn(customer);
+        when(matchingService.findNearestDriver(1.0, 1.0, requirement)).thenReturn(driver.getId());
+        when(userService.findById(driver.getId())).thenReturn(driver);
+        when(rideRepository.save(any(Ride.class))).thenAnswer(i -> i.getArguments()[0]);
+
+        Ride createdRide = rideService.requestRide(customer.getId(), rideRequest);
+
+        assertThat(createdRide.getPassengers()).isEqualTo(5);
+        assertThat(createdRide.getVehicleCategory()).isEqualTo(VehicleType.VehicleCategory.LARGE_GROUP);
+        assertThat(createdRide.getDriver()).isEqualTo(driver);
+    }
+
+    @Test
+    void requestRide_whenSharedAndPooledVehicleFits_shouldJoinItsRoute() {
+        rideRequest.setShared(true);
+        User poolDriver = User.builder().id(3L).role(Role.DRIVER).driverStatus(DriverStatus.BUSY).build();
+        when(userService.findById(customer.getId())).thenReturn(customer);
+        when(rideRepository.save(any(Ride.class))).thenAnswer(i -> {
+            Ride saved = i.getArgument(0);
+            saved.setId(12L);
+            return saved;
+        });
+        when(poolService.insert(any(Ride.class))).thenReturn(3L);
+        when(userService.findById(3L)).thenReturn(poolDriver);
+        when(quoteRoutes.kilometers(1.0, 1.0, 2.0, 2.0)).thenReturn(10.0);
+        when(surgePricing.multiplier(1.0, 1.0)).thenReturn(1.0);
+
+        Ride createdRide = rideService.requestRide(customer.getId(), rideRequest);
+
+        assertThat(createdRide.getDriver()).isEqualTo(poolDriver);
+        // Charged the UberPool price quoted for shared rides
+        assertThat(createdRide.getFare()).isEqualTo(13.6);
+        assertThat(createdRide.getStatus()).isEqualTo(RideStatus.ACCEPTED);
+        assertThat(createdRide.getVehicleCategory()).isEqualTo(VehicleType.VehicleCategory.ECONOMY);
+        verify(eventPublisher).publishEvent(new RideAcceptedEvent(12L, 3L));
+        verifyNoInteractions(matchingService);
+    }
+
+    @Test
+    void completeRide_whenOtherPooledRidersRemain_shouldKeepDriverBusy() {
+        ride.setShared(true);
+        when(rideRepository.completeIf(eq(ride.getId()), anyCollection(), eq(RideStatus.COMPLETED), any())).thenReturn(1);
+        stubTransition(RideStatus.COMPLETED);
+        when(poolService.leave(driver.getId(), ride.getId())).thenReturn(true);
+
+        Ride completedRide = rideService.completeRide(ride.getId());
+
+        assertThat(completedRide.getStatus()).isEqualTo(RideStatus.COMPLETED);
+        verify(userService, never()).releaseDriver(anyLong());
+    }
+
+    @Test
+    void requestRide_whenNoVehicleFitsParty_shouldThrow() {
+        rideRequest.setPassengers(4);
+        rideRequest.setVehicleCategory(VehicleType.VehicleCategory.TWO_WHEELER);
+        when(userService.findById(customer.getId())).thenReturn(customer);
+
+        assertThatThrownBy(() -> rideService.requestRide(customer.getId(), rideRequest))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("No vehicle in Bike/Auto can take 4 passengers");
+        verifyNoInteractions(matchingService, rideRepository);
+    }
+
+    @Test
+    void requestRide_whenAsyncDispatch_shouldSaveAndPublishWithoutMatching() {
+        ReflectionTestUtils.setField(rideService, "asyncDispatchEnabled", true);
+        when(userService.findById(customer.getId())).thenReturn(customer);
+        when(rideRepository.save(any(Ride.class))).thenAnswer(i -> {
+            Ride saved = i.getArgument(0);
+            saved.setId(11L);
+            return saved;
+        });
+
+        Ride createdRide = rideService.requestRide(customer.getId(), rideRequest);
+
+        assertThat(createdRide.getDriver()).isNull();
+        assertThat(createdRide.getStatus()).isEqualTo(RideStatus.REQUESTED);
+        verifyNoInteractions(matchingService);
+        verify(eventPublisher).publishEvent(new RideRequestedEvent(11L));
+        verify(pendingPickups).add(createdRide);
     }
 
     @Test
@@ -105,7 +313,7 @@ class RideServiceImplTest {
     @Test
     void requestRide_whenMatchingServiceFails_shouldCreateRideWithoutDriver() {
         when(userService.findById(customer.getId())).thenReturn(customer);
-        when(matchingService.findNearestDriver(anyDouble(), anyDouble())).thenThrow(new RuntimeException("No drivers"));
+        when(matchingService.findNearestDriver(anyDouble(), anyDouble(), any())).thenThrow(new RuntimeException("No drivers"));
         when(rideRepository.save(any(Ride.class))).thenAnswer(i -> i.getArguments()[0]);
 
         Ride createdRide = rideService.requestRide(customer.getId(), rideRequest);
@@ -119,14 +327,59 @@ class RideServiceImplTest {
         ride.setStatus(RideStatus.REQUESTED);
         when(rideRepository.findById(ride.getId())).thenReturn(Optional.of(ride));
         when(userService.findById(driver.getId())).thenReturn(driver);
-        when(rideRepository.save(any(Ride.class))).thenAnswer(i -> i.getArguments()[0]);
-        when(userService.updateDriverStatus(driver.getId(), DriverStatus.BUSY)).thenReturn(driver);
+        when(userService.claimDriver(driver.getId())).thenReturn(true);
+        when(rideRepository.acceptIfRequested(eq(ride.getId()), eq(driver), eq(RideStatus.REQUESTED), eq(RideStatus.ACCEPTED), any()))
+                .thenReturn(1);
 
         Ride acceptedRide = rideService.acceptRide(ride.getId(), driver.getId());
 
         assertThat(acceptedRide.getStatus()).isEqualTo(RideStatus.ACCEPTED);
         assertThat(acceptedRide.getDriver()).isEqualTo(driver);
-        verify(userService).updateDriverStatus(driver.getId(), DriverStatus.BUSY);
+        assertThat(driver.getDriverStatus()).isEqualTo(DriverStatus.BUSY);
+        verify(userService).claimDriver(driver.getId());
+        verify(eventPublisher).publishEvent(new RideAcceptedEvent(ride.getId(), driver.getId()));
+    }
+
+    @Test
+    void acceptRide_whenAnotherDriverAcceptedFirst_shouldThrow() {
+        ride.setStatus(RideStatus.REQUESTED);
+        when(rideRepository.findById(ride.getId())).thenReturn(Optional.of(ride));
+        when(userService.findById(driver.getId())).thenReturn(driver);
+        when(userService.claimDriver(driver.getId())).thenReturn(true);
+        when(rideRepository.acceptIfRequested(eq(ride.getId()), eq(driver), eq(RideStatus.REQUESTED), eq(RideStatus.ACCEPTED), any()))
+                .thenReturn(0);
+
+        assertThatThrownBy(() -> rideService.acceptRide(ride.getId(), driver.getId()))
+                .isInstanceOf(RideNotAvailableException.class)
+                .hasMessage("Ride is not available for acceptance");
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void acceptRide_whenDriverClaimedConcurrently_shouldThrow() {
+        ride.setStatus(RideStatus.REQUESTED);
+        when(rideRepository.findById(ride.getId())).thenReturn(Optional.of(ride));
+        when(userService.findById(driver.getId())).thenReturn(driver);
+        when(userService.claimDriver(driver.getId())).thenReturn(false);
+
+        assertThatThrownBy(() -> rideService.acceptRide(ride.getId(), driver.getId()))
+                .isInstanceOf(DriverNotAvailableException.class)
+                .hasMessage("Driver is not available");
+        verify(rideRepository, never()).save(any(Ride.class));
+    }
+
+    @Test
+    void acceptRide_whenVehicleTooSmall_shouldThrow() {
+        ride.setStatus(RideStatus.REQUESTED);
+        ride.setPassengers(3);
+        driver.setVehicleType(VehicleType.UBER_MOTO);
+        when(rideRepository.findById(ride.getId())).thenReturn(Optional.of(ride));
+        when(userService.findById(driver.getId())).thenReturn(driver);
+
+        assertThatThrownBy(() -> rideService.acceptRide(ride.getId(), driver.getId()))
+                .isInstanceOf(RideNotAvailableException.class)
+                .hasMessage("Driver's vehicle does not meet the ride's requirements");
+        verify(userService, never()).claimDriver(anyLong());
     }
 
     @Test
@@ -165,72 +418,162 @@ class RideServiceImplTest {
 
     @Test
     void startRide_shouldStartRideIfAccepted() {
-        ride.setStatus(RideStatus.ACCEPTED);
-        when(rideRepository.findById(ride.getId())).thenReturn(Optional.of(ride));
-        when(rideRepository.save(any(Ride.class))).thenAnswer(i -> i.getArguments()[0]);
+        when(rideRepository.transitionIf(ride.getId(), Set.of(RideStatus.ACCEPTED), RideStatus.IN_PROGRESS)).thenReturn(1);
+        stubTransition(RideStatus.IN_PROGRESS);
 
         Ride startedRide = rideService.startRide(ride.getId());
 
         assertThat(startedRide.getStatus()).isEqualTo(RideStatus.IN_PROGRESS);
+        verify(rideRepository, never()).save(any(Ride.class));
+        verify(rideRepository).findById(ride.getId());
+    }
+
+    @Test
+    void startRide_shouldStartRecordingTrail() {
+        when(rideRepository.transitionIf(ride.getId(), Set.of(RideStatus.ACCEPTED), RideStatus.IN_PROGRESS)).thenReturn(1);
+        stubTransition(RideStatus.IN_PROGRESS);
+
+        rideService.startRide(ride.getId());
+
+        verify(trailStore).start(ride.getId(), driver.getId());
     }
 
     @Test
     void startRide_whenNotAccepted_shouldThrow() {
-        ride.setStatus(RideStatus.REQUESTED);
-        when(rideRepository.findById(ride.getId())).thenReturn(Optional.of(ride));
+        when(rideRepository.transitionIf(ride.getId(), Set.of(RideStatus.ACCEPTED), RideStatus.IN_PROGRESS)).thenReturn(0);
+        stubTransition(RideStatus.REQUESTED);
 
         assertThatThrownBy(() -> rideService.startRide(ride.getId()))
                 .isInstanceOf(ForbiddenException.class)
                 .hasMessage("Ride must be accepted before starting");
+        verifyNoInteractions(trailStore);
+    }
+
+    @Test
+    void startRide_whenRideMissing_shouldThrowNotFound() {
+        when(rideRepository.transitionIf(ride.getId(), Set.of(RideStatus.ACCEPTED), RideStatus.IN_PROGRESS)).thenReturn(0);
+        when(rideRepository.findById(ride.getId())).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> rideService.startRide(ride.getId()))
+                .isInstanceOf(RideNotAvailableException.class)
+                .hasMessage("Ride not found with ID: " + ride.getId());
     }
 
     @Test
     void completeRide_shouldCompleteRideAndUpdateDriverStatus() {
-        ride.setStatus(RideStatus.IN_PROGRESS);
-        when(rideRepository.findById(ride.getId())).thenReturn(Optional.of(ride));
-        when(rideRepository.save(any(Ride.class))).thenAnswer(i -> i.getArguments()[0]);
-        when(userService.updateDriverStatus(driver.getId(), DriverStatus.AVAILABLE)).thenReturn(driver);
-        doNothing().when(locationService).updateDriverLocation(driver.getId(), ride.getDropoffLat(), ride.getDropoffLng());
+        ride.setDropoffLat(2.0);
+        ride.setDropoffLng(2.5);
+        when(rideRepository.completeIf(eq(ride.getId()), eq(Set.of(RideStatus.ACCEPTED, RideStatus.IN_PROGRESS)),
+                eq(RideStatus.COMPLETED), any())).thenReturn(1);
+        stubTransition(RideStatus.COMPLETED);
+        when(userService.releaseDriver(driver.getId())).thenReturn(true);
 
         Ride completedRide = rideService.completeRide(ride.getId());
 
         assertThat(completedRide.getStatus()).isEqualTo(RideStatus.COMPLETED);
-        verify(userService).updateDriverStatus(driver.getId(), DriverStatus.AVAILABLE);
-        verify(locationService).updateDriverLocation(driver.getId(), ride.getDropoffLat(), ride.getDropoffLng());
+        verify(userService).releaseDriver(driver.getId());
+        verify(userService, never()).updateDriverStatus(anyLong(), any(DriverStatus.class));
+        verify(locationService).updateDriverLocation(driver.getId(), 2.0, 2.5);
+        verify(rideRepository).findById(ride.getId());
+    }
+
+    @Test
+    void completeRide_shouldStoreRecordedTrail() {
+        RideTrailBuffer trail = new RideTrailBuffer(ride.getId(), driver.getId(), 1024);
+        trail.append(1.0, 1.0, 1_000);
+        trail.append(1.001, 1.001, 6_000);
+        when(rideRepository.completeIf(eq(ride.getId()), anyCollection(), eq(RideStatus.COMPLETED), any())).thenReturn(1);
+        stubTransition(RideStatus.COMPLETED);
+        when(trailStore.finish(ride.getId(), driver.getId())).thenReturn(trail);
+
+        rideService.completeRide(ride.getId());
+
+        ArgumentCaptor<RideTrail> captor = ArgumentCaptor.forClass(RideTrail.class);
+        verify(rideTrailRepository).save(captor.capture());
+        assertThat(captor.getValue().getRideId()).isEqualTo(ride.getId());
+        assertThat(captor.getValue().getPointCount()).isEqualTo(2);
+        assertThat(captor.getValue().getDistanceKm()).isGreaterThan(0);
+    }
+
+    @Test
+    void getRideTrail_shouldDecodeStoredPoints() {
+        RideTrailBuffer trail = new RideTrailBuffer(ride.getId(), driver.getId(), 1024);
+        trail.append(-1.29210, 36.82190, 1_000);
+        trail.append(-1.29250, 36.82230, 6_000);
+        RideTrail stored = RideTrail.builder()
+                .rideId(ride.getId())
+                .driverId(driver.getId())
+                .pointCount(trail.getPointCount())
+                .points(trail.toByteArray())
+                .build();
+        when(rideTrailRepository.findById(ride.getId())).thenReturn(Optional.of(stored));
+
+        List<Location> points = rideService.getRideTrail(ride.getId());
+
+        assertThat(points).hasSize(2);
+        assertThat(points.get(1).getLatitude()).isEqualTo(-1.29250);
+        assertThat(points.get(1).getLongitude()).isEqualTo(36.82230);
+        assertThat(points.get(1).getTimestamp()).isEqualTo(6_000L);
     }
 
     @Test
     void completeRide_whenInvalidStatus_shouldThrow() {
-        ride.setStatus(RideStatus.CANCELLED);
-        when(rideRepository.findById(ride.getId())).thenReturn(Optional.of(ride));
+        when(rideRepository.completeIf(eq(ride.getId()), anyCollection(), eq(RideStatus.COMPLETED), any())).thenReturn(0);
+        stubTransition(RideStatus.CANCELLED);
 
         assertThatThrownBy(() -> rideService.completeRide(ride.getId()))
                 .isInstanceOf(ForbiddenException.class)
                 .hasMessage("Cannot complete ride in current status");
+        verifyNoInteractions(userService);
     }
 
     @Test
     void cancelRide_shouldCancelAndSetDriverAvailable() {
-        ride.setStatus(RideStatus.REQUESTED);
-        driver.setDriverStatus(DriverStatus.BUSY);
-        when(rideRepository.findById(ride.getId())).thenReturn(Optional.of(ride));
-        when(rideRepository.save(any(Ride.class))).thenAnswer(i -> i.getArguments()[0]);
-        when(userService.updateDriverStatus(driver.getId(), DriverStatus.AVAILABLE)).thenReturn(driver);
+        when(rideRepository.transitionIf(ride.getId(),
+                Set.of(RideStatus.REQUESTED, RideStatus.ACCEPTED, RideStatus.IN_PROGRESS), RideStatus.CANCELLED)).thenReturn(1);
+        stubTransition(RideStatus.CANCELLED);
+        when(userService.releaseDriver(driver.getId())).thenReturn(true);
 
         Ride cancelledRide = rideService.cancelRide(ride.getId(), "Customer requested");
 
         assertThat(cancelledRide.getStatus()).isEqualTo(RideStatus.CANCELLED);
-        verify(userService).updateDriverStatus(driver.getId(), DriverStatus.AVAILABLE);
+        verify(userService).releaseDriver(driver.getId());
+        verify(trailStore).discard(ride.getId(), driver.getId());
+        verify(eventPublisher).publishEvent(new RideCancelledEvent(ride.getId()));
+        verify(rideRepository).findById(ride.getId());
+    }
+
+    @Test
+    void cancelRide_withoutDriver_shouldNotReleaseAnyone() {
+        ride.setDriver(null);
+        when(rideRepository.transitionIf(eq(ride.getId()), anyCollection(), eq(RideStatus.CANCELLED))).thenReturn(1);
+        stubTransition(RideStatus.CANCELLED);
+
+        rideService.cancelRide(ride.getId(), null);
+
+        verifyNoInteractions(userService, trailStore);
     }
 
     @Test
     void cancelRide_whenAlreadyCompleted_shouldThrow() {
-        ride.setStatus(RideStatus.COMPLETED);
-        when(rideRepository.findById(ride.getId())).thenReturn(Optional.of(ride));
+        when(rideRepository.transitionIf(eq(ride.getId()), anyCollection(), eq(RideStatus.CANCELLED))).thenReturn(0);
+        stubTransition(RideStatus.COMPLETED);
 
         assertThatThrownBy(() -> rideService.cancelRide(ride.getId(), "Late cancellation"))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessage("Cannot cancel a completed ride");
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void cancelRide_whenAlreadyCancelled_shouldNotReleaseDriverAgain() {
+        when(rideRepository.transitionIf(eq(ride.getId()), anyCollection(), eq(RideStatus.CANCELLED))).thenReturn(0);
+        stubTransition(RideStatus.CANCELLED);
+
+        assertThatThrownBy(() -> rideService.cancelRide(ride.getId(), "Double tap"))
+                .isInstanceOf(RideNotAvailableException.class)
+                .hasMessage("Ride is already cancelled");
+        verifyNoInteractions(userService, eventPublisher);
     }
 
     @Test
@@ -281,6 +624,47 @@ class RideServiceImplTest {
         assertThat(result).isEqualTo(rides);
     }
 
+    @Test
+    void getNearbyPendingRides_shouldReturnIndexedRidesNearestFirstAndDropStaleOnes() {
+        ReflectionTestUtils.setField(rideService, "searchRadiusKm", 20.0);
+        ReflectionTestUtils.setField(rideService, "maxPendingResults", 50);
+        driver.setVehicleType(VehicleType.UBER_X);
+        Ride near = Ride.builder().id(11L).status(RideStatus.REQUESTED).build();
+        Ride far = Ride.builder().id(12L).status(RideStatus.REQUESTED).build();
+        Ride taken = Ride.builder().id(13L).status(RideStatus.ACCEPTED).build();
+        when(userService.findById(driver.getId())).thenReturn(driver);
+        when(locationService.getDriverPositions(List.of(driver.getId()))).thenReturn(Map.of(driver.getId(), new Point(36.8, -1.3)));
+        when(pendingPickups.nearestWaiting(eq(-1.3), eq(36.8), eq(5), eq(20.0), eq(VehicleType.UBER_X), any()))
+                .thenReturn(List.of(11L, 13L, 12L));
+        when(rideRepository.findAllById(List.of(11L, 13L, 12L))).thenReturn(List.of(far, taken, near));
+
+        List<Ride> result = rideService.getNearbyPendingRides(driver.getId(), null, null, 5);
+
+        assertThat(result).containsExactly(near, far);
+        verify(pendingPickups).remove(13L);
+        verify(rideRepository, never()).findByStatus(any());
+    }
+
+    @Test
+    void getNearbyPendingRides_whenLimitTooLarge_shouldThrow() {
+        ReflectionTestUtils.setField(rideService, "maxPendingResults", 50);
+
+        assertThatThrownBy(() -> rideService.getNearbyPendingRides(driver.getId(), 1.0, 1.0, 51))
+                .isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(pendingPickups);
+    }
+
+    @Test
+    void getNearbyPendingRides_whenDriverLocationUnknown_shouldThrow() {
+        ReflectionTestUtils.setField(rideService, "maxPendingResults", 50);
+        when(userService.findById(driver.getId())).thenReturn(driver);
+        when(locationService.getDriverPositions(List.of(driver.getId()))).thenReturn(Map.of());
+
+        assertThatThrownBy(() -> rideService.getNearbyPendingRides(driver.getId(), null, null, 5))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Driver location is unknown; pass lat and lng");
+    }
+
     @Test
     void getAllRides_shouldReturnAll() {
         List<Ride> rides = List.of(ride);
@@ -290,4 +674,9 @@ class RideServiceImplTest {
 
         assertThat(result).isEqualTo(rides);
     }
+
+    private void stubTransition(RideStatus status) {
+        ride.setStatus(status);
+        when(rideRepository.findById(ride.getId())).thenReturn(Optional.of(ride));
+    }
 }
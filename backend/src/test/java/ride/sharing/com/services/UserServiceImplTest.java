@@ -6,7 +6,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.modelmapper.ModelMapper;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import ride.sharing.com.dispatch.DriverAvailableEvent;
 import ride.sharing.com.dtos.UserDto;
 import ride.sharing.com.enums.DriverStatus;
 import ride.sharing.com.enums.Role;
@@ -17,8 +19,10 @@ import ride.sharing.com.impl.UserServiceImpl;
 import ride.sharing.com.models.User;
 import ride.sharing.com.repositories.UserRepository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -35,6 +39,12 @@ class UserServiceImplTest {
     @Mock
     private ModelMapper modelMapper;
 
+    @Mock
+    private DriverAvailabilityService driverAvailabilityService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -155,6 +165,19 @@ class UserServiceImplTest {
 
         assertThat(result.getDriverStatus()).isEqualTo(DriverStatus.BUSY);
         verify(userRepository).save(user);
+        verify(driverAvailabilityService).markUnavailable(1L);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void updateDriverStatus_available_mirrorsAvailability() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userRepository.save(user)).thenReturn(user);
+
+        userService.updateDriverStatus(1L, DriverStatus.AVAILABLE);
+
+        verify(driverAvailabilityService).markAvailable(1L);
+        verify(eventPublisher).publishEvent(new DriverAvailableEvent(1L));
     }
 
     @Test
@@ -167,6 +190,84 @@ class UserServiceImplTest {
                 .hasMessage("User is not a driver");
     }
 
+    @Test
+    void updateDriverStatus_bulk_updatesOnlyExpectedStatus() {
+        List<Long> ids = List.of(1L, 2L, 3L);
+        when(userRepository.updateDriverStatus(ids, Role.DRIVER, DriverStatus.AVAILABLE, DriverStatus.OFFLINE)).thenReturn(2);
+
+        int updated = userService.updateDriverStatus(ids, DriverStatus.AVAILABLE, DriverStatus.OFFLINE);
+
+        assertThat(updated).isEqualTo(2);
+        verify(userRepository, never()).save(any(User.class));
+        verify(driverAvailabilityService).markUnavailable(ids);
+    }
+
+    @Test
+    void updateDriverStatus_bulk_emptyBatchSkipsQuery() {
+        int updated = userService.updateDriverStatus(List.of(), DriverStatus.AVAILABLE, DriverStatus.OFFLINE);
+
+        assertThat(updated).isZero();
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void claimDriver_whenAlreadyTaken_returnsFalse() {
+        when(userRepository.claimDriver(1L, Role.DRIVER, DriverStatus.AVAILABLE, DriverStatus.BUSY)).thenReturn(0);
+
+        assertThat(userService.claimDriver(1L)).isFalse();
+        verifyNoInteractions(driverAvailabilityService);
+    }
+
+    @Test
+    void claimDriver_whenAvailable_marksDriverUnavailable() {
+        when(userRepository.claimDriver(1L, Role.DRIVER, DriverStatus.AVAILABLE, DriverStatus.BUSY)).thenReturn(1);
+
+        assertThat(userService.claimDriver(1L)).isTrue();
+        verify(driverAvailabilityService).markUnavailable(1L);
+    }
+
+    @Test
+    void releaseDriver_whenReleased_mirrorsAvailabilityWithoutLoadingDriver() {
+        when(userRepository.releaseDriver(eq(1L), eq(Role.DRIVER), eq(Set.of(DriverStatus.BUSY, DriverStatus.AVAILABLE)),
+                eq(DriverStatus.AVAILABLE), any(LocalDateTime.class))).thenReturn(1);
+
+        assertThat(userService.releaseDriver(1L)).isTrue();
+        verify(driverAvailabilityService).markAvailable(1L);
+        verify(eventPublisher).publishEvent(new DriverAvailableEvent(1L));
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void releaseDriver_whenOfflineOrInactive_leavesDriverAlone() {
+        when(userRepository.releaseDriver(eq(1L), eq(Role.DRIVER), anyCollection(), eq(DriverStatus.AVAILABLE),
+                any(LocalDateTime.class))).thenReturn(0);
+
+        assertThat(userService.releaseDriver(1L)).isFalse();
+        verifyNoInteractions(driverAvailabilityService, eventPublisher);
+    }
+
+    @Test
+    void reserveDriver_usesConditionalUpdate() {
+        when(userRepository.reserveDriver(eq(1L), eq(Role.DRIVER), eq(DriverStatus.AVAILABLE), any(), any())).thenReturn(1);
+
+        assertThat(userService.reserveDriver(1L)).isTrue();
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void filterAvailableDrivers_keepsCandidateOrder() {
+        List<Long> candidates = List.of(5L, 2L, 9L, 7L);
+        when(userRepository.findUnreservedIdsByRoleAndDriverStatus(eq(candidates), eq(Role.DRIVER),
+                eq(DriverStatus.AVAILABLE), any(LocalDateTime.class)))
+                .thenReturn(List.of(2L, 7L, 5L));
+
+        List<Long> result = userService.filterAvailableDrivers(candidates);
+
+        assertThat(result).containsExactly(5L, 2L, 7L);
+        verify(userRepository, never()).findById(anyLong());
+    }
+
     @Test
     void getAllUsers_returnsList() {
         List<User> users = List.of(user);